@@ -241,7 +241,7 @@ public class AgentWebSocketClientController extends AgentController {
         AgentIdentifier agent = agentIdentifier();
         LOG.trace("{} is pinging server [{}]", agent, server);
         getAgentRuntimeInfo().refreshUsableSpace();
-        if (webSocketSessionHandler.sendAndWaitForAcknowledgement(new Message(Action.ping, MessageEncoding.encodeData(getAgentRuntimeInfo())))) {
+        if (webSocketSessionHandler.sendAndWaitForAcknowledgement(Message.withPayload(Action.ping, getAgentRuntimeInfo()))) {
             pingSuccess();
         }
 
@@ -48,19 +48,19 @@ class BuildRepositoryRemoteAdapter implements BuildRepositoryRemote {
     @Override
     public void reportCurrentStatus(AgentRuntimeInfo agentRuntimeInfo, JobIdentifier jobIdentifier, JobState jobState) {
         Report report = new Report(agentRuntimeInfo, jobIdentifier, jobState);
-        webSocketSessionHandler.sendAndWaitForAcknowledgement(new Message(Action.reportCurrentStatus, MessageEncoding.encodeData(report)));
+        webSocketSessionHandler.sendAndWaitForAcknowledgement(Message.withPayload(Action.reportCurrentStatus, report));
     }
 
     @Override
     public void reportCompleting(AgentRuntimeInfo agentRuntimeInfo, JobIdentifier jobIdentifier, JobResult result) {
         Report report = new Report(agentRuntimeInfo, jobIdentifier, result);
-        webSocketSessionHandler.sendAndWaitForAcknowledgement(new Message(Action.reportCompleting, MessageEncoding.encodeData(report)));
+        webSocketSessionHandler.sendAndWaitForAcknowledgement(Message.withPayload(Action.reportCompleting, report));
     }
 
     @Override
     public void reportCompleted(AgentRuntimeInfo agentRuntimeInfo, JobIdentifier jobIdentifier, JobResult result) {
         Report report = new Report(agentRuntimeInfo, jobIdentifier, result);
-        webSocketSessionHandler.sendAndWaitForAcknowledgement(new Message(Action.reportCompleted, MessageEncoding.encodeData(report)));
+        webSocketSessionHandler.sendAndWaitForAcknowledgement(Message.withPayload(Action.reportCompleted, report));
     }
 
     @Override
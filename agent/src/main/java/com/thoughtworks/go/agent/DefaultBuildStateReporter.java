@@ -21,7 +21,6 @@ import com.thoughtworks.go.domain.JobState;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
 import com.thoughtworks.go.websocket.Action;
 import com.thoughtworks.go.websocket.Message;
-import com.thoughtworks.go.websocket.MessageEncoding;
 import com.thoughtworks.go.websocket.Report;
 
 public class DefaultBuildStateReporter implements BuildStateReporter {
@@ -35,18 +34,18 @@ public class DefaultBuildStateReporter implements BuildStateReporter {
 
     @Override
     public void reportBuildStatus(String buildId, JobState buildState) {
-        webSocketSessionHandler.sendAndWaitForAcknowledgement(new Message(Action.reportCurrentStatus, MessageEncoding.encodeData(new Report(agentRuntimeInfo, buildId, buildState, null))));
+        webSocketSessionHandler.sendAndWaitForAcknowledgement(Message.withPayload(Action.reportCurrentStatus, new Report(agentRuntimeInfo, buildId, buildState, null)));
     }
 
     @Override
     public void reportCompleted(String buildId, JobResult buildResult) {
         Report report = new Report(agentRuntimeInfo, buildId, null, buildResult);
-        webSocketSessionHandler.sendAndWaitForAcknowledgement(new Message(Action.reportCompleted, MessageEncoding.encodeData(report)));
+        webSocketSessionHandler.sendAndWaitForAcknowledgement(Message.withPayload(Action.reportCompleted, report));
     }
 
     @Override
     public void reportCompleting(String buildId, JobResult buildResult) {
         Report report = new Report(agentRuntimeInfo, buildId, null, buildResult);
-        webSocketSessionHandler.sendAndWaitForAcknowledgement(new Message(Action.reportCompleting, MessageEncoding.encodeData(report)));
+        webSocketSessionHandler.sendAndWaitForAcknowledgement(Message.withPayload(Action.reportCompleting, report));
     }
 }
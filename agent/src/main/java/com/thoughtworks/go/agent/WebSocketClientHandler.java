@@ -17,7 +17,9 @@
 package com.thoughtworks.go.agent;
 
 import com.thoughtworks.go.agent.common.ssl.GoAgentServerWebSocketClientBuilder;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.URLService;
+import com.thoughtworks.go.websocket.MessageEncoding;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
 import org.eclipse.jetty.websocket.client.WebSocketClient;
@@ -33,11 +35,17 @@ public class WebSocketClientHandler {
     private WebSocketClient webSocketClient;
     private GoAgentServerWebSocketClientBuilder builder;
     private URLService urlService;
+    private final SystemEnvironment systemEnvironment;
 
-    @Autowired
     public WebSocketClientHandler(GoAgentServerWebSocketClientBuilder builder, URLService urlService) {
+        this(builder, urlService, new SystemEnvironment());
+    }
+
+    @Autowired
+    public WebSocketClientHandler(GoAgentServerWebSocketClientBuilder builder, URLService urlService, SystemEnvironment systemEnvironment) {
         this.builder = builder;
         this.urlService = urlService;
+        this.systemEnvironment = systemEnvironment;
     }
 
     public Session connect(AgentWebSocketClientController controller)
@@ -53,6 +61,9 @@ public class WebSocketClientHandler {
         LOG.info("Connecting to websocket endpoint: {}", urlService.getAgentRemoteWebSocketUrl());
         ClientUpgradeRequest request = new ClientUpgradeRequest();
         request.addExtensions("fragment;maxLength=" + getMessageBufferSize());
+        if (systemEnvironment.isWebsocketBinaryMessagesEnabled()) {
+            request.setSubProtocols(MessageEncoding.BINARY_SUB_PROTOCOL);
+        }
         return webSocketClient.connect(controller, new URI(urlService.getAgentRemoteWebSocketUrl()), request).get();
     }
 
@@ -39,6 +39,7 @@ public class WebSocketSessionHandler {
     // This is a session aware socket
     private Session session;
     private String sessionName = "[No Session]";
+    private boolean binaryMessages;
     private final Map<String, MessageCallback> callbacks = new ConcurrentHashMap<>();
     private SystemEnvironment systemEnvironment;
 
@@ -68,7 +69,7 @@ public class WebSocketSessionHandler {
         for (int retries = 1; retries <= systemEnvironment.getWebsocketSendRetryCount(); retries++) {
             try {
                 LOG.debug("{} attempt {} to send message: {}", sessionName(), retries, message);
-                session.getRemote().sendBytesByFuture(ByteBuffer.wrap(MessageEncoding.encodeMessage(message)));
+                session.getRemote().sendBytesByFuture(ByteBuffer.wrap(MessageEncoding.encodeMessage(message, binaryMessages)));
                 break;
             } catch (Throwable e) {
                 try {
@@ -106,6 +107,9 @@ public class WebSocketSessionHandler {
     void setSession(Session session) {
         this.session = session;
         this.sessionName = "[" + session.getRemoteAddress() + "]";
+        this.binaryMessages = session.getUpgradeResponse() != null
+                && MessageEncoding.BINARY_SUB_PROTOCOL.equals(session.getUpgradeResponse().getAcceptedSubProtocol());
+        LOG.debug("{} sends {} messages", sessionName, binaryMessages ? "binary" : "gzipped JSON");
     }
 
     String getSessionName() {
@@ -31,6 +31,7 @@ import com.thoughtworks.go.util.HttpService;
 import com.thoughtworks.go.util.SubprocessLogger;
 import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.URLService;
+import com.thoughtworks.go.websocket.MessageEncoding;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
 import org.eclipse.jetty.websocket.client.WebSocketClient;
@@ -42,6 +43,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.concurrent.Future;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 class WebSocketClientHandlerTest {
@@ -78,6 +80,28 @@ class WebSocketClientHandlerTest {
         verify(session, times(2)).get();
     }
 
+    @Test
+    void shouldAskForBinaryMessagesWhenTheyAreEnabled() throws Exception {
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.isWebsocketBinaryMessagesEnabled()).thenReturn(true);
+        WebSocketClientStub client = new WebSocketClientStub();
+        when(builder.build()).thenReturn(client);
+
+        new WebSocketClientHandler(builder, urlService, systemEnvironment).connect(createAgentController());
+
+        assertThat(client.request.getSubProtocols()).containsExactly(MessageEncoding.BINARY_SUB_PROTOCOL);
+    }
+
+    @Test
+    void shouldNotAskForBinaryMessagesWhenTheyAreDisabled() throws Exception {
+        WebSocketClientStub client = new WebSocketClientStub();
+        when(builder.build()).thenReturn(client);
+
+        new WebSocketClientHandler(builder, urlService, mock(SystemEnvironment.class)).connect(createAgentController());
+
+        assertThat(client.request.getSubProtocols()).isEmpty();
+    }
+
     private AgentWebSocketClientController createAgentController() {
         return new AgentWebSocketClientController(mock(BuildRepositoryRemote.class),
                 mock(GoArtifactsManipulator.class),
@@ -99,8 +123,11 @@ class WebSocketClientHandlerTest {
     }
 
     class WebSocketClientStub extends WebSocketClient {
+        private ClientUpgradeRequest request;
+
         @Override
         public Future<Session> connect(Object websocket, URI toUri, ClientUpgradeRequest request, UpgradeListener upgradeListener) throws IOException {
+            this.request = request;
             return session;
         }
     }
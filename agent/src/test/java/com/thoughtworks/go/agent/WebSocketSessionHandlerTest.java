@@ -19,15 +19,19 @@ package com.thoughtworks.go.agent;
 import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.websocket.Action;
 import com.thoughtworks.go.websocket.Message;
+import com.thoughtworks.go.websocket.MessageEncoding;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.UpgradeResponse;
 import org.eclipse.jetty.websocket.api.extensions.OutgoingFrames;
 import org.eclipse.jetty.websocket.common.LogicalConnection;
 import org.eclipse.jetty.websocket.common.WebSocketRemoteEndpoint;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.nio.ByteBuffer;
 import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -58,6 +62,33 @@ class WebSocketSessionHandlerTest {
         assertThat(sendThread.isAlive()).isFalse();
     }
 
+    @Test
+    void shouldSendBinaryMessagesWhenTheServerAcceptedThem() throws Exception {
+        UpgradeResponse upgradeResponse = mock(UpgradeResponse.class);
+        when(upgradeResponse.getAcceptedSubProtocol()).thenReturn(MessageEncoding.BINARY_SUB_PROTOCOL);
+        when(session.getUpgradeResponse()).thenReturn(upgradeResponse);
+        handler.setSession(session);
+        final Message message = new Message(Action.reportCurrentStatus);
+        FakeWebSocketEndpoint endpoint = new FakeWebSocketEndpoint(() -> handler.acknowledge(new Message(Action.acknowledge, MessageEncoding.encodeData(message.getAcknowledgementId()))));
+        when(session.getRemote()).thenReturn(endpoint);
+
+        assertThat(handler.sendAndWaitForAcknowledgement(message)).isTrue();
+
+        assertThat(endpoint.sent.get(0)).isEqualTo((byte) 1);
+        assertThat(MessageEncoding.decodeMessage(new ByteArrayInputStream(endpoint.sent.array()))).isEqualTo(message);
+    }
+
+    @Test
+    void shouldSendGzippedJsonMessagesWhenTheServerDidNotAcceptBinaryOnes() throws Exception {
+        final Message message = new Message(Action.reportCurrentStatus);
+        FakeWebSocketEndpoint endpoint = new FakeWebSocketEndpoint(() -> handler.acknowledge(new Message(Action.acknowledge, MessageEncoding.encodeData(message.getAcknowledgementId()))));
+        when(session.getRemote()).thenReturn(endpoint);
+
+        assertThat(handler.sendAndWaitForAcknowledgement(message)).isTrue();
+
+        assertThat(new GZIPInputStream(new ByteArrayInputStream(endpoint.sent.array())).read()).isNotEqualTo(-1);
+    }
+
     @Test
     void shouldReturnTrueIfNotRunning() throws Exception {
         assertThat(handler.isNotRunning()).isTrue();
@@ -88,6 +119,7 @@ class WebSocketSessionHandlerTest {
 
     class FakeWebSocketEndpoint extends WebSocketRemoteEndpoint {
         private Runnable runnable;
+        private ByteBuffer sent;
 
         FakeWebSocketEndpoint(Runnable runnable) {
             super(mock(LogicalConnection.class), mock(OutgoingFrames.class));
@@ -96,6 +128,7 @@ class WebSocketSessionHandlerTest {
 
         @Override
         public Future<Void> sendBytesByFuture(ByteBuffer data) {
+            sent = data;
             runnable.run();
             return null;
         }
@@ -48,7 +48,8 @@ public class DashboardRepresenter {
                     .addChildList("pipelines", listWriter -> {
                         dashboardFor.getPipelines()
                             .forEach(pipeline -> {
-                                listWriter.addChild(childItemWriter -> PipelineRepresenter.toJSON(childItemWriter, pipeline, dashboardFor.getUsername()));
+                                listWriter.addChild(pipeline::renderedFragment, PipelineRepresenter.fragmentKey(pipeline, dashboardFor.getUsername()),
+                                    childItemWriter -> PipelineRepresenter.toJSON(childItemWriter, pipeline, dashboardFor.getUsername()));
                             });
                     });
             });
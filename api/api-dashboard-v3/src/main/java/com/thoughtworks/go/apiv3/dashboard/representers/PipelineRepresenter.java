@@ -61,6 +61,15 @@ public class PipelineRepresenter {
         });
     }
 
+    /**
+     * The only part of the representation that depends on the user is what they may do with the pipeline.
+     */
+    public static String fragmentKey(GoDashboardPipeline model, Username username) {
+        String usernameString = username.getUsername().toString();
+        return String.format("v3 operate=%s administer=%s unlock=%s", model.isPipelineOperator(usernameString),
+            model.canBeAdministeredBy(usernameString), model.canBeOperatedBy(usernameString));
+    }
+
     private static Consumer<OutputListWriter> writeInstances(GoDashboardPipeline model) {
         return listWriter -> {
             model.model().getActivePipelineInstances().stream()
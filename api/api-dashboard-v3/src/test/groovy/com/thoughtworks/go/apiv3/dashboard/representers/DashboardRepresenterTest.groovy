@@ -79,4 +79,27 @@ class DashboardRepresenterTest {
 
     assertThat(actualJson._personalization).isEqualTo(personalizationEtag)
   }
+
+  @Test
+  void 'renders pipelines once for users who may do the same things with them'() {
+    def user = new Username(new CaseInsensitiveString("bob"))
+    def permissions = new Permissions(Everyone.INSTANCE, Everyone.INSTANCE, Everyone.INSTANCE, Everyone.INSTANCE)
+    def group = new GoDashboardPipelineGroup('group1', permissions)
+    def pipeline = GoDashboardPipelineMother.dashboardPipeline('pipeline1')
+    group.addPipeline(pipeline)
+
+    def firstJson = toObject({
+      DashboardRepresenter.toJSON(it, new DashboardFor([group], [], user, "etag"))
+    })
+    def secondJson = toObject({
+      DashboardRepresenter.toJSON(it, new DashboardFor([group], [], new Username(new CaseInsensitiveString("alice")), "etag"))
+    })
+
+    assertThatJson(firstJson._embedded.pipelines).isEqualTo([toObject({ PipelineRepresenter.toJSON(it, pipeline, user) })])
+    assertThatJson(secondJson._embedded.pipelines).isEqualTo(firstJson._embedded.pipelines)
+    assertThat(pipeline.renderedFragment(PipelineRepresenter.fragmentKey(pipeline, user), { "not rendered before" }))
+      .isEqualTo("not rendered before")
+    assertThat(pipeline.renderedFragment("http://test.host/go " + PipelineRepresenter.fragmentKey(pipeline, user), { "not rendered before" }))
+      .isNotEqualTo("not rendered before")
+  }
 }
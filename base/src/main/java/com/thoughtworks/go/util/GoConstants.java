@@ -70,6 +70,7 @@ public class GoConstants {
     public static final String REGULAR_MULTIPART_FILENAME = "file";
     public static final String CHECKSUM_MULTIPART_FILENAME = "file_checksum";
     public static final String ZIP_MULTIPART_FILENAME = "zipfile";
+    public static final String CONTENT_REFERENCES_MULTIPART_FILENAME = "content_references";
     public static final String AGENT_JAR_MD5 = "agent.binary.md5";
     public static final String AGENT_PLUGINS_MD5 = "agent.plugins.md5";
     public static final String TFS_IMPL_MD5 = "agent.tfs.md5";
@@ -147,6 +147,8 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     public static final GoSystemProperty<Boolean> GO_SERVER_SESSION_COOKIE_SECURE = new GoBooleanSystemProperty("go.sessioncookie.secure", false);
     public static final GoSystemProperty<String> AGENT_EXTRA_PROPERTIES = new GoStringSystemProperty("gocd.agent.extra.properties", "");
     public static final GoSystemProperty<Integer> JMS_LISTENER_BACKOFF_TIME = new GoIntSystemProperty("go.jms.listener.backoff.time.in.milliseconds", 5000);
+    public static final GoSystemProperty<Boolean> IN_MEMORY_MESSAGING = new GoBooleanSystemProperty("go.messaging.in.memory", false);
+    public static final GoSystemProperty<Integer> IN_MEMORY_MESSAGING_CAPACITY = new GoIntSystemProperty("go.messaging.in.memory.capacity", 10000);
 
     public static final GoSystemProperty<Integer> GO_SERVER_AUTHORIZATION_EXTENSION_CALLS_CACHE_TIMEOUT_IN_SECONDS = new GoIntSystemProperty("go.server.authorization.extension.calls.cache.timeout.in.secs", 60 * 30);
 
@@ -190,20 +192,35 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     public static GoSystemProperty<String> GO_DATA_SHARING_POST_USAGE_DATA_SERVER_URL = new GoStringSystemProperty("go.datasharing.server.url", "https://datasharing.gocd.org/v2/usagedata");
     public static GoSystemProperty<String> GO_DATA_SHARING_GET_ENCRYPTION_KEYS_URL = new GoStringSystemProperty("go.datasharing.get.encryption.keys.url", "https://datasharing.gocd.org/encryption_keys");
 
+    public static GoSystemProperty<Long> SCHEDULED_JOBS_RECONCILE_INTERVAL = new GoLongSystemProperty("go.scheduled.jobs.reconcile.interval", 5 * 60 * 1000L);
+
     public static GoSystemProperty<Integer> GO_ELASTIC_PLUGIN_CREATE_AGENT_THREADS = new GoIntSystemProperty("go.elasticplugin.createagent.threads", 5);
     public static GoSystemProperty<Integer> GO_ELASTIC_PLUGIN_SERVER_PING_THREADS = new GoIntSystemProperty("go.elasticplugin.serverping.threads", 1);
     public static GoSystemProperty<Integer> GO_ENCRYPTION_API_MAX_REQUESTS = new GoIntSystemProperty("go.encryption.api.max.requests", 30);
 
     public static GoSystemProperty<Boolean> WEBSOCKET_ENABLED = new GoBooleanSystemProperty("go.agent.websocket.enabled", false);
     public static GoSystemProperty<Boolean> CONSOLE_LOGS_THROUGH_WEBSOCKET_ENABLED = new GoBooleanSystemProperty("go.agent.console.logs.websocket.enabled", false);
+    public static GoSystemProperty<Boolean> STREAMING_ARTIFACT_UPLOAD_ENABLED = new GoBooleanSystemProperty("go.agent.artifact.upload.streaming.enabled", false);
+    public static GoSystemProperty<Boolean> ARTIFACT_UPLOAD_SKIP_KNOWN_CONTENT = new GoBooleanSystemProperty("go.agent.artifact.upload.skip.known.content", false);
 
     public static GoSystemProperty<Boolean> AUTO_REGISTER_LOCAL_AGENT_ENABLED = new GoBooleanSystemProperty("go.auto.register.local.agent.enabled", true);
     public static GoSystemProperty<Long> GO_WEBSOCKET_ACK_MESSAGE_TIMEOUT = new GoLongSystemProperty("go.websocket.ack.message.timeout", 300 * 1000L);
     public static GoSystemProperty<Integer> GO_WEBSOCKET_SEND_RETRY_COUNT = new GoIntSystemProperty("go.websocket.send.retry.count", 5);
+    public static GoSystemProperty<Boolean> GO_WEBSOCKET_BINARY_MESSAGES_ENABLED = new GoBooleanSystemProperty("go.websocket.binary.messages.enabled", false);
 
     public static GoSystemProperty<Long> GO_WEBSOCKET_MAX_IDLE_TIME = new GoLongSystemProperty("go.websocket.max.idle.time", 60 * 1000L);
     public static GoSystemProperty<Boolean> GO_SERVER_SHALLOW_CLONE = new GoBooleanSystemProperty("go.server.shallowClone", false);
     public static GoSystemProperty<Boolean> GO_SERVER_SCHEDULED_PIPELINE_LOADER_GLOBAL_MATERIAL_LOOKUP = new GoBooleanSystemProperty("go.server.scheduledPipelineLoader.globalMaterialLookup", false);
+    public static GoSystemProperty<Boolean> PIPELINE_TIMELINE_SNAPSHOT_ENABLED = new GoBooleanSystemProperty("go.server.pipeline.timeline.snapshot.enabled", false);
+    public static GoSystemProperty<String> PIPELINE_TIMELINE_SNAPSHOT_FILE = new GoStringSystemProperty("go.server.pipeline.timeline.snapshot.file", DB_BASE_DIR + "pipeline-timeline.snapshot");
+    public static GoSystemProperty<Boolean> CONFIG_REPO_PARSE_CACHE_ENABLED = new GoBooleanSystemProperty("go.config.repo.parse.cache.enabled", false);
+    public static GoSystemProperty<String> CONFIG_REPO_PARSE_CACHE_DIR = new GoStringSystemProperty("go.config.repo.parse.cache.dir", "pipelines/config-repo-parse-cache");
+
+    public static GoSystemProperty<Long> POST_COMMIT_HOOK_COLLAPSE_WINDOW = new GoLongSystemProperty("go.post.commit.hook.collapse.window.millis", 1000L);
+
+    public static GoSystemProperty<Boolean> ARTIFACT_ZIP_STREAMING_ENABLED = new GoBooleanSystemProperty("go.artifacts.zip.streaming.enabled", false);
+    public static GoSystemProperty<Boolean> ARTIFACT_ZIP_STREAMING_CACHE = new GoBooleanSystemProperty("go.artifacts.zip.streaming.cache", false);
+    public static GoSystemProperty<Boolean> CONTENT_ADDRESSED_ARTIFACTS_ENABLED = new GoBooleanSystemProperty("go.artifacts.content.addressed.enabled", false);
 
     public static GoSystemProperty<Boolean> GO_API_WITH_SAFE_MODE = new GoBooleanSystemProperty("go.api.with.safe.mode", true);
     public static GoSystemProperty<Integer> MAX_PENDING_AGENTS_ALLOWED = new GoIntSystemProperty("max.pending.agents.allowed", 100);
@@ -223,6 +240,10 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     public static GoSystemProperty<Long> REAUTHENTICATION_TIME_INTERVAL = new GoLongSystemProperty("go.security.reauthentication.interval", 1800 * 1000L);
     public static GoSystemProperty<Boolean> CONSOLE_OUT_TO_STDOUT = new GoBooleanSystemProperty("go.console.stdout", false);
     private static GoSystemProperty<String> CONSOLE_LOG_CHARSET = new GoStringSystemProperty("go.console.log.charset", "utf-8");
+    public static GoSystemProperty<Integer> CONSOLE_LOG_TAIL_THREADS = new GoIntSystemProperty("go.console.log.tail.threads", 4);
+    public static GoSystemProperty<Integer> CONSOLE_LOG_WRITER_THREADS = new GoIntSystemProperty("go.console.log.writer.threads", 2);
+    public static GoSystemProperty<Integer> CONSOLE_LOG_WRITER_QUEUE_SIZE = new GoIntSystemProperty("go.console.log.writer.queue.size", 10000);
+    public static GoSystemProperty<Integer> CONSOLE_LOG_WRITER_OPEN_FILES = new GoIntSystemProperty("go.console.log.writer.open.files", 512);
     private static GoSystemProperty<Boolean> AGENT_STATUS_API_ENABLED = new GoBooleanSystemProperty("go.agent.status.api.enabled", true);
     private static GoSystemProperty<String> AGENT_STATUS_API_BIND_HOST = new GoStringSystemProperty("go.agent.status.api.bind.host", "localhost");
     private static GoSystemProperty<Integer> AGENT_STATUS_API_BIND_PORT = new GoIntSystemProperty("go.agent.status.api.bind.port", 8152);
@@ -737,6 +758,10 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
         return MATERIAL_UPDATE_IDLE_INTERVAL.getValue();
     }
 
+    public long getScheduledJobsReconcileInterval() {
+        return SCHEDULED_JOBS_RECONCILE_INTERVAL.getValue();
+    }
+
     public boolean isDefaultDbProvider() {
         return GO_DATABASE_PROVIDER.getValue().equals(H2_DATABASE);
     }
@@ -793,6 +818,42 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
         return WEBSOCKET_ENABLED.getValue();
     }
 
+    public boolean isStreamingArtifactUploadEnabled() {
+        return STREAMING_ARTIFACT_UPLOAD_ENABLED.getValue();
+    }
+
+    public boolean shouldSkipUploadOfKnownArtifactContent() {
+        return ARTIFACT_UPLOAD_SKIP_KNOWN_CONTENT.getValue();
+    }
+
+    public boolean isPipelineTimelineSnapshotEnabled() {
+        return PIPELINE_TIMELINE_SNAPSHOT_ENABLED.getValue();
+    }
+
+    public File getPipelineTimelineSnapshotFile() {
+        return new File(PIPELINE_TIMELINE_SNAPSHOT_FILE.getValue());
+    }
+
+    public boolean isArtifactZipStreamingEnabled() {
+        return ARTIFACT_ZIP_STREAMING_ENABLED.getValue();
+    }
+
+    public boolean shouldCacheStreamedArtifactZips() {
+        return ARTIFACT_ZIP_STREAMING_CACHE.getValue();
+    }
+
+    public boolean isContentAddressedArtifactStorageEnabled() {
+        return CONTENT_ADDRESSED_ARTIFACTS_ENABLED.getValue();
+    }
+
+    public boolean isConfigRepoParseCacheEnabled() {
+        return CONFIG_REPO_PARSE_CACHE_ENABLED.getValue();
+    }
+
+    public File getConfigRepoParseCacheDir() {
+        return new File(CONFIG_REPO_PARSE_CACHE_DIR.getValue());
+    }
+
     public boolean isConsoleLogsThroughWebsocketEnabled() {
         return CONSOLE_LOGS_THROUGH_WEBSOCKET_ENABLED.getValue();
     }
@@ -813,6 +874,10 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
         return GO_WEBSOCKET_SEND_RETRY_COUNT.getValue();
     }
 
+    public boolean isWebsocketBinaryMessagesEnabled() {
+        return GO_WEBSOCKET_BINARY_MESSAGES_ENABLED.getValue();
+    }
+
     public Long getConfigGitGCExpireTime() {
         Long hour = GO_CONFIG_REPO_GC_EXPIRE.getValue();
         return hour * 60 * 60 * 1000;
@@ -20,8 +20,10 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.slf4j.Logger;
@@ -33,6 +35,7 @@ public class ZipBuilder {
     private OutputStream destinationStream;
     private boolean excludeRootDir;
     private Map<String, File> toAdd = new HashMap<>();
+    private boolean storeCompressedFiles;
 
     public ZipBuilder(ZipUtil zipUtil, int level, OutputStream destinationStream, boolean excludeRootDir) {
         this.zipUtil = zipUtil;
@@ -46,15 +49,29 @@ public class ZipBuilder {
         return this;
     }
 
+    /**
+     * Files that are already compressed (archives, images, media) are stored as they are instead of being deflated
+     * again, which costs time and saves next to nothing.
+     */
+    public ZipBuilder storingCompressedFiles() {
+        this.storeCompressedFiles = true;
+        return this;
+    }
+
     public void done() throws IOException {
+        done(null);
+    }
+
+    void done(BiConsumer<File, String> md5OfZippedFile) throws IOException {
         ZipOutputStream zip = null;
         try {
-            zip = new ZipOutputStream(new BufferedOutputStream(destinationStream));
+            BufferedOutputStream output = new BufferedOutputStream(destinationStream);
+            zip = storeCompressedFiles ? new StoringCompressedFilesZipOutputStream(output, level) : new ZipOutputStream(output);
             zip.setLevel(level);
             for (Map.Entry<String, File> zipDirToSourceFileEntry : toAdd.entrySet()) {
                 File sourceFileToZip = zipDirToSourceFileEntry.getValue();
                 String destinationFolder = zipDirToSourceFileEntry.getKey();
-                zipUtil.addToZip(new ZipPath(destinationFolder), sourceFileToZip, zip, excludeRootDir);
+                zipUtil.addToZip(new ZipPath(destinationFolder), sourceFileToZip, zip, excludeRootDir, md5OfZippedFile);
             }
             zip.flush();
         } finally {
@@ -67,4 +84,28 @@ public class ZipBuilder {
             }
         }
     }
+
+    private static class StoringCompressedFilesZipOutputStream extends ZipOutputStream {
+        private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+                "7z", "apk", "bz2", "ear", "gif", "gz", "jar", "jpeg", "jpg", "lz4", "mp3", "mp4", "nupkg", "png", "rar",
+                "tgz", "war", "whl", "xz", "zip", "zst"));
+
+        private final int level;
+
+        private StoringCompressedFilesZipOutputStream(OutputStream output, int level) {
+            super(output);
+            this.level = level;
+        }
+
+        @Override
+        public void putNextEntry(ZipEntry entry) throws IOException {
+            setLevel(isCompressed(entry.getName()) ? Deflater.NO_COMPRESSION : level);
+            super.putNextEntry(entry);
+        }
+
+        private static boolean isCompressed(String name) {
+            int dot = name.lastIndexOf('.');
+            return dot >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+        }
+    }
 }
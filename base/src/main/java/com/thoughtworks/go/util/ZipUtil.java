@@ -16,10 +16,16 @@
 
 package com.thoughtworks.go.util;
 
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.function.BiConsumer;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -60,40 +66,57 @@ public class ZipUtil {
         zipContents(file, output, level, false);
     }
 
+    /**
+     * Zips the file or folder into the stream, handing the MD5 of every file to the consumer as the file is zipped, so
+     * that checksums do not need another read of the files.
+     */
+    public void zip(File file, OutputStream output, int level, BiConsumer<File, String> md5OfZippedFile) throws IOException {
+        new ZipBuilder(this, level, output, false).add("", file).done(md5OfZippedFile);
+    }
+
+    /**
+     * Zips the file or folder into the stream as it walks it, storing files that are already compressed instead of
+     * deflating them again.
+     */
+    public void zipStoringCompressedFiles(File file, OutputStream output, int level) throws IOException {
+        new ZipBuilder(this, level, output, false).storingCompressedFiles().add("", file).done();
+    }
+
     private void zipContents(File file, OutputStream output, int level, boolean excludeRootDir) throws IOException {
         new ZipBuilder(this, level, output, excludeRootDir).add("", file).done();
     }
 
-    private void addFolderToZip(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+    private void addFolderToZip(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir, BiConsumer<File, String> md5OfZippedFile) throws IOException {
         ZipPath newPath = path.with(source);
         if (source.isFile()) {
-            addToZip(newPath, source, zip, false);
+            addToZip(newPath, source, zip, false, md5OfZippedFile);
         } else {
-            addDirectory(path, source, zip, excludeRootDir);
+            addDirectory(path, source, zip, excludeRootDir, md5OfZippedFile);
         }
     }
 
-    private void addDirectory(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+    private void addDirectory(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir, BiConsumer<File, String> md5OfZippedFile) throws IOException {
         if (excludeRootDir) {
-            addDirContents(path, source, zip);
+            addDirContents(path, source, zip, md5OfZippedFile);
             return;
         }
         ZipPath newPath = path.with(source);
         zip.putNextEntry(newPath.asZipEntryDirectory());
-        addDirContents(newPath, source, zip);
+        addDirContents(newPath, source, zip, md5OfZippedFile);
     }
 
-    private void addDirContents(ZipPath path, File source, ZipOutputStream zip) throws IOException {
+    private void addDirContents(ZipPath path, File source, ZipOutputStream zip, BiConsumer<File, String> md5OfZippedFile) throws IOException {
         for (File file : source.listFiles()) {
-            addToZip(path, file, zip, false);
+            addToZip(path, file, zip, false, md5OfZippedFile);
         }
     }
 
-    void addToZip(ZipPath path, File srcFile, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+    void addToZip(ZipPath path, File srcFile, ZipOutputStream zip, boolean excludeRootDir, BiConsumer<File, String> md5OfZippedFile) throws IOException {
         if (srcFile.isDirectory()) {
-            addFolderToZip(path, srcFile, zip, excludeRootDir);
+            addFolderToZip(path, srcFile, zip, excludeRootDir, md5OfZippedFile);
         } else {
             byte[] buff = new byte[4096];
+            MessageDigest md5 = md5OfZippedFile == null ? null : DigestUtils.getMd5Digest();
             try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(srcFile))) {
                 ZipEntry zipEntry = path.with(srcFile).asZipEntry();
                 zipEntry.setTime(srcFile.lastModified());
@@ -101,8 +124,14 @@ public class ZipUtil {
                 int len;
                 while ((len = inputStream.read(buff)) > 0) {
                     zip.write(buff, 0, len);
+                    if (md5 != null) {
+                        md5.update(buff, 0, len);
+                    }
                 }
             }
+            if (md5 != null) {
+                md5OfZippedFile.accept(srcFile, Hex.encodeHexString(md5.digest()));
+            }
         }
     }
 
@@ -113,11 +142,20 @@ public class ZipUtil {
     }
 
     public void unzip(ZipInputStream zipInputStream, File destDir) throws IOException {
+        unzip(zipInputStream, destDir, null);
+    }
+
+    /**
+     * Unzips into the folder, handing the SHA-256 of every file to the handler once the file has been written, so that
+     * the content of the files is known without another read of them. A file that is already there is replaced rather
+     * than written over, as the handler may have made it a link to content shared with other files.
+     */
+    public void unzip(ZipInputStream zipInputStream, File destDir, ExtractedFileHandler sha256OfExtractedFile) throws IOException {
         try(ZipInputStream zis = zipInputStream) {
             destDir.mkdirs();
             ZipEntry zipEntry = zis.getNextEntry();
             while (zipEntry != null) {
-                extractTo(zipEntry, zis, destDir);
+                extractTo(zipEntry, zis, destDir, sha256OfExtractedFile);
                 zipEntry = zis.getNextEntry();
             }
         }
@@ -127,7 +165,7 @@ public class ZipUtil {
         unzip(new ZipInputStream(new BufferedInputStream(new FileInputStream(zip))), destDir);
     }
 
-    private void extractTo(ZipEntry entry, InputStream entryInputStream, File toDir) throws IOException {
+    private void extractTo(ZipEntry entry, InputStream entryInputStream, File toDir, ExtractedFileHandler sha256OfExtractedFile) throws IOException {
         bombIfZipEntryPathContainsDirectoryTraversalCharacters(entry.getName());
         String entryName = nonRootedEntryName(entry);
 
@@ -138,7 +176,12 @@ public class ZipUtil {
         }
         try {
             outputFile.getParentFile().mkdirs();
-            try (FileOutputStream os = new FileOutputStream(outputFile)) {
+            MessageDigest sha256 = null;
+            if (sha256OfExtractedFile != null) {
+                sha256 = DigestUtils.getSha256Digest();
+                Files.deleteIfExists(outputFile.toPath());
+            }
+            try (OutputStream os = sha256 == null ? new FileOutputStream(outputFile) : new DigestOutputStream(new FileOutputStream(outputFile), sha256)) {
                 IOUtils.copyLarge(entryInputStream, os);
                 if (zipEntryHandler != null) {
                     FileInputStream stream = null;
@@ -156,6 +199,9 @@ public class ZipUtil {
                     }
                 }
             }
+            if (sha256 != null) {
+                sha256OfExtractedFile.handle(outputFile, Hex.encodeHexString(sha256.digest()));
+            }
         } catch (IOException e) {
             LOGGER.error("Failed to unzip file [{}] to directory [{}]", entryName, toDir.getAbsolutePath(), e);
             throw e;
@@ -189,4 +235,8 @@ public class ZipUtil {
         void handleEntry(ZipEntry entry, InputStream stream) throws IOException;
     }
 
+    public interface ExtractedFileHandler {
+        void handle(File file, String sha256) throws IOException;
+    }
+
 }
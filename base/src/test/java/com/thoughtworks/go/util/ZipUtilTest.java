@@ -16,8 +16,10 @@
 
 package com.thoughtworks.go.util;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Rule;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,10 +29,15 @@ import org.junit.jupiter.api.condition.OS;
 import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -38,6 +45,7 @@ import java.util.zip.ZipInputStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.assertj.core.api.Assertions.fail;
 
 @EnableRuleMigrationSupport
@@ -99,6 +107,32 @@ public class ZipUtilTest {
         assertThat(fileContent(actual2)).isEqualTo(fileContent(file2));
     }
 
+    @Test
+    void shouldHandOutTheMd5OfEachFileAsItIsZipped() throws IOException {
+        Map<File, String> md5s = new HashMap<>();
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+
+        zipUtil.zip(srcDir, zip, Deflater.BEST_SPEED, md5s::put);
+
+        assertThat(md5s).containsOnly(entry(file1, DigestUtils.md5Hex("_file1")), entry(file2, DigestUtils.md5Hex("_file2")));
+        zipUtil.unzip(new ZipInputStream(new ByteArrayInputStream(zip.toByteArray())), destDir);
+        assertThat(fileContent(new File(destDir, srcDir.getName() + File.separator + file1.getName()))).isEqualTo("_file1");
+    }
+
+    @Test
+    void shouldHandOutTheSha256OfEachFileAsItIsUnzipped() throws IOException {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        zipUtil.zip(srcDir, zip, Deflater.BEST_SPEED);
+        File unzippedFile1 = new File(destDir, srcDir.getName() + File.separator + file1.getName());
+        File unzippedFile2 = new File(destDir, srcDir.getName() + File.separator + "_child1" + File.separator + file2.getName());
+        Map<File, String> sha256s = new HashMap<>();
+
+        zipUtil.unzip(new ZipInputStream(new ByteArrayInputStream(zip.toByteArray())), destDir, sha256s::put);
+
+        assertThat(sha256s).containsOnly(entry(unzippedFile1, DigestUtils.sha256Hex("_file1")), entry(unzippedFile2, DigestUtils.sha256Hex("_file2")));
+        assertThat(fileContent(unzippedFile1)).isEqualTo("_file1");
+    }
+
     @Test
     void shouldZipFileContentsAndUnzipIt() throws IOException {
         zipFile = zipUtil.zip(srcDir, temporaryFolder.newFile(), Deflater.NO_COMPRESSION);
@@ -232,6 +266,26 @@ public class ZipUtilTest {
         }
     }
 
+    @Test
+    void shouldStoreFilesThatAreAlreadyCompressedWhileStreamingAZip() throws IOException {
+        String content = StringUtils.repeat("compressible ", 1000);
+        FileUtils.writeStringToFile(new File(srcDir, "report.txt"), content, UTF_8);
+        FileUtils.writeStringToFile(new File(srcDir, "bundle.TGZ"), content, UTF_8);
+        zipFile = temporaryFolder.newFile();
+
+        zipUtil.zipStoringCompressedFiles(srcDir, new FileOutputStream(zipFile), Deflater.DEFAULT_COMPRESSION);
+
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            ZipEntry report = zip.getEntry(srcDir.getName() + "/report.txt");
+            ZipEntry bundle = zip.getEntry(srcDir.getName() + "/bundle.TGZ");
+            assertThat(report.getCompressedSize()).isLessThan(report.getSize() / 10);
+            assertThat(bundle.getCompressedSize()).isGreaterThanOrEqualTo(bundle.getSize());
+        }
+        assertContent(zipFile, srcDir.getName() + "/bundle.TGZ", content);
+        zipUtil.unzip(new ZipInputStream(new FileInputStream(zipFile)), destDir);
+        assertThat(fileContent(new File(destDir, srcDir.getName() + "/_child1/_file2"))).isEqualTo("_file2");
+    }
+
     @Test
     void shouldReadContentFromFileInsideZip() throws IOException, URISyntaxException {
         String contents = zipUtil.getFileContentInsideZip(new ZipInputStream(new FileInputStream(new File(getClass().getResource("/dummy-plugins.zip").toURI()))), "version.txt");
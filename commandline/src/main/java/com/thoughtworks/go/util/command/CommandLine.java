@@ -417,6 +417,26 @@ public class CommandLine {
         return result;
     }
 
+    /**
+     * Runs the command like {@link #runOrBomb(String, String...)}, but hands each line printed to stdout to the given
+     * consumer as soon as it is read instead of keeping the whole output in memory. The result only holds the error
+     * output.
+     */
+    public ConsoleResult runOrBomb(StreamConsumer stdOutConsumer, String processTag, String... input) {
+        LOG.debug("Running {}", this);
+        addInput(input);
+        InMemoryConsumer errors = new InMemoryConsumer();
+        ProcessWrapper process = execute(new ProcessOutputStreamConsumer<>(stdOutConsumer, errors), new EnvironmentVariableContext(), processTag);
+        int returnValue = process.waitForExit();
+
+        ConsoleResult result = new ConsoleResult(returnValue, new ArrayList<>(), errors.asList(), arguments, secrets);
+
+        if (result.failed()) {
+            throw new CommandLineException(this, result);
+        }
+        return result;
+    }
+
     private ProcessWrapper startProcess(EnvironmentVariableContext environmentVariableContext, ConsoleOutputStreamConsumer consumer, String processTag) throws IOException {
         ProcessWrapper process = createProcess(environmentVariableContext, consumer, processTag, ERROR_STREAM_PREFIX_FOR_SCRIPTS);
         process.closeOutputStream();
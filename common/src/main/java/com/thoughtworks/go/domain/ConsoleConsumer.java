@@ -25,5 +25,12 @@ import java.util.function.Consumer;
 public interface ConsoleConsumer extends AutoCloseable {
     long stream(Consumer<String> action) throws IOException;
 
+    /**
+     * Streams only lines that have been terminated, leaving a line that is still being written for a later call.
+     */
+    default long streamCompleteLines(Consumer<String> action) throws IOException {
+        return stream(action);
+    }
+
     long totalLinesConsumed();
 }
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.domain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * A sparse line number to byte offset index for a console log, persisted next to the log as {@code <log>.idx}.
+ * Every {@link #CHECKPOINT_INTERVAL} lines, the byte offset at which the next line starts is recorded so that
+ * readers can seek close to a given line instead of scanning the log from its beginning. Lines are counted the way
+ * {@link ConsoleStreamer} splits them: a line ends at a line feed, a carriage return, or both together.
+ * <p>
+ * The index file starts with a header holding the number of bytes of the log that have been indexed and the number
+ * of lines seen so far, followed by one offset per checkpoint. It is brought up to date with {@link #update(Path)}
+ * after content is appended to the log; only the bytes appended since the last update are scanned.
+ */
+public class ConsoleLogIndex {
+    public static final int CHECKPOINT_INTERVAL = 4096;
+    public static final String INDEX_FILE_EXTENSION = ".idx";
+
+    private static final int MAGIC = 0x474f4c58; // "GOLX"
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    private static final Object[] LOCKS = new Object[64];
+
+    static {
+        for (int i = 0; i < LOCKS.length; i++) {
+            LOCKS[i] = new Object();
+        }
+    }
+
+    public static Path indexFileFor(Path log) {
+        return log.resolveSibling(log.getFileName().toString() + INDEX_FILE_EXTENSION);
+    }
+
+    /**
+     * Indexes any content appended to the log since the last update, creating the index if it does not exist or
+     * rebuilding it if it no longer matches the log.
+     */
+    public static void update(Path log) throws IOException {
+        Path indexFile = indexFileFor(log);
+        synchronized (lockFor(indexFile)) {
+            try (FileChannel logChannel = FileChannel.open(log, READ);
+                 FileChannel index = FileChannel.open(indexFile, READ, WRITE, CREATE)) {
+                Header header = readHeader(index);
+                long logLength = logChannel.size();
+                if (header == null || header.indexedLength > logLength) {
+                    header = new Header(0L, 0L);
+                    index.truncate(HEADER_SIZE);
+                }
+                if (header.indexedLength == logLength) {
+                    return;
+                }
+
+                ByteBuffer checkpoints = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+                long checkpointPosition = HEADER_SIZE + (header.lineCount / CHECKPOINT_INTERVAL) * 8L;
+                long lineCount = header.lineCount;
+                long position = header.indexedLength;
+
+                ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+                boolean afterCarriageReturn = false;
+                logChannel.position(position);
+                while (position < logLength && logChannel.read(buffer) > 0) {
+                    buffer.flip();
+                    while (buffer.hasRemaining() && position < logLength) {
+                        byte b = buffer.get();
+                        position++;
+                        long lineStart = -1;
+                        if (afterCarriageReturn) {
+                            // the line ended at the carriage return, and a line feed right after it is part of that ending
+                            afterCarriageReturn = false;
+                            lineStart = b == '\n' ? position : position - 1;
+                        } else if (b == '\n') {
+                            lineStart = position;
+                        }
+                        if (lineStart >= 0 && ++lineCount % CHECKPOINT_INTERVAL == 0) {
+                            if (!checkpoints.hasRemaining()) {
+                                checkpointPosition += flush(index, checkpoints, checkpointPosition);
+                            }
+                            checkpoints.putLong(lineStart);
+                        }
+                        if (b == '\r') {
+                            afterCarriageReturn = true;
+                        }
+                    }
+                    buffer.clear();
+                }
+                if (afterCarriageReturn) {
+                    // whether a line feed follows is not known yet, so the carriage return is scanned again next time
+                    position--;
+                }
+                flush(index, checkpoints, checkpointPosition);
+                writeHeader(index, new Header(position, lineCount));
+            }
+        }
+    }
+
+    /**
+     * @return the closest indexed line at or before {@code line}; the start of the log if there is none
+     */
+    public static Checkpoint checkpointBefore(Path log, long line) {
+        long checkpointNumber = line / CHECKPOINT_INTERVAL;
+        Path indexFile = indexFileFor(log);
+        if (checkpointNumber == 0 || !Files.exists(indexFile)) {
+            return Checkpoint.START;
+        }
+
+        try (FileChannel index = FileChannel.open(indexFile, READ); FileChannel logChannel = FileChannel.open(log, READ)) {
+            Header header = readHeader(index);
+            if (header == null || header.indexedLength > logChannel.size()) {
+                return Checkpoint.START;
+            }
+
+            checkpointNumber = Math.min(checkpointNumber, header.lineCount / CHECKPOINT_INTERVAL);
+            if (checkpointNumber == 0) {
+                return Checkpoint.START;
+            }
+
+            ByteBuffer offset = ByteBuffer.allocate(8);
+            readFully(index, offset, HEADER_SIZE + (checkpointNumber - 1) * 8L);
+            long position = offset.getLong(0);
+
+            // guard against an index that does not belong to this log; every checkpoint immediately follows a line ending
+            ByteBuffer previous = ByteBuffer.allocate(1);
+            if (position <= 0 || position > header.indexedLength || logChannel.read(previous, position - 1) != 1 || !isLineEnding(previous.get(0))) {
+                return Checkpoint.START;
+            }
+            return new Checkpoint(checkpointNumber * CHECKPOINT_INTERVAL, position);
+        } catch (IOException e) {
+            return Checkpoint.START;
+        }
+    }
+
+    private static boolean isLineEnding(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private static Object lockFor(Path indexFile) {
+        return LOCKS[(indexFile.toAbsolutePath().hashCode() & 0x7fffffff) % LOCKS.length];
+    }
+
+    private static Header readHeader(FileChannel index) throws IOException {
+        if (index.size() < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(index, buffer, 0);
+        buffer.flip();
+        if (buffer.getInt() != MAGIC || buffer.getInt() != CHECKPOINT_INTERVAL) {
+            return null;
+        }
+        Header header = new Header(buffer.getLong(), buffer.getLong());
+        if (index.size() < HEADER_SIZE + (header.lineCount / CHECKPOINT_INTERVAL) * 8L) {
+            return null;
+        }
+        return header;
+    }
+
+    private static void writeHeader(FileChannel index, Header header) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        buffer.putInt(MAGIC).putInt(CHECKPOINT_INTERVAL).putLong(header.indexedLength).putLong(header.lineCount);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            index.write(buffer, buffer.position());
+        }
+    }
+
+    private static int flush(FileChannel index, ByteBuffer checkpoints, long position) throws IOException {
+        checkpoints.flip();
+        int written = checkpoints.remaining();
+        while (checkpoints.hasRemaining()) {
+            index.write(checkpoints, position + checkpoints.position());
+        }
+        checkpoints.clear();
+        return written;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of console log index");
+            }
+        }
+    }
+
+    private static class Header {
+        private final long indexedLength;
+        private final long lineCount;
+
+        private Header(long indexedLength, long lineCount) {
+            this.indexedLength = indexedLength;
+            this.lineCount = lineCount;
+        }
+    }
+
+    public static class Checkpoint {
+        static final Checkpoint START = new Checkpoint(0L, 0L);
+
+        private final long line;
+        private final long offset;
+
+        Checkpoint(long line, long offset) {
+            this.line = line;
+            this.offset = offset;
+        }
+
+        public long line() {
+            return line;
+        }
+
+        public long offset() {
+            return offset;
+        }
+    }
+}
@@ -19,22 +19,31 @@ package com.thoughtworks.go.domain;
 import com.thoughtworks.go.util.SystemEnvironment;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
-import java.util.Iterator;
+import java.nio.file.StandardOpenOption;
 import java.util.function.Consumer;
-import java.util.stream.Stream;
 
 /**
  * Encapsulates a stream of lines from a console log file while keeping track of the number of lines processed
- * as well as the starting line to read.
+ * as well as the starting line to read. Lines end at a line feed, a carriage return or a carriage return followed
+ * by a line feed, just as they do for {@link java.io.BufferedReader#readLine()}.
  */
 public class ConsoleStreamer implements ConsoleConsumer {
+    private static final int BUFFER_SIZE = 8192;
+
     private Path path;
-    private Stream stream;
-    private Iterator iterator;
+    private Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private final StringBuilder partialLine = new StringBuilder();
+    private boolean skipLineFeed;
 
     private long start;
+    private long skipped = 0L;
     private long count = 0L;
 
     public ConsoleStreamer(Path path, long start) {
@@ -52,13 +61,32 @@ public class ConsoleStreamer implements ConsoleConsumer {
      * @throws IOException if the file does not exist or is otherwise not readable
      */
     public long stream(Consumer<String> action) throws IOException {
+        return stream(action, false);
+    }
+
+    /**
+     * Like {@link #stream(Consumer)}, except that a last line that has not been terminated yet is held back until a
+     * later invocation finds it terminated, so that a line being written is never streamed in pieces.
+     */
+    @Override
+    public long streamCompleteLines(Consumer<String> action) throws IOException {
+        return stream(action, true);
+    }
+
+    private long stream(Consumer<String> action, boolean completeLinesOnly) throws IOException {
         long linesStreamed = 0L;
 
-        if (null == stream) stream = Files.lines(path, new SystemEnvironment().consoleLogCharsetAsCharset()).skip(start);
-        if (null == iterator) iterator = stream.iterator();
+        // a reader (unlike Files.lines()) will see content appended after it has reached EOF
+        if (null == reader) reader = openNearStart();
+
+        while (skipped < start) {
+            if (null == readLine(completeLinesOnly)) return linesStreamed;
+            ++skipped;
+        }
 
-        while (iterator.hasNext()) {
-            action.accept((String) iterator.next());
+        String line;
+        while (null != (line = readLine(completeLinesOnly))) {
+            action.accept(line);
             ++linesStreamed;
             ++count;
         }
@@ -66,14 +94,75 @@ public class ConsoleStreamer implements ConsoleConsumer {
         return linesStreamed;
     }
 
+    /**
+     * @return the next line, or null at EOF; an unterminated last line is returned only if complete lines are not
+     * required
+     */
+    private String readLine(boolean completeLinesOnly) throws IOException {
+        while (true) {
+            if (position == limit) {
+                int read = reader.read(buffer, 0, buffer.length);
+                if (read <= 0) {
+                    return (completeLinesOnly || partialLine.length() == 0) ? null : takePartialLine();
+                }
+                position = 0;
+                limit = read;
+            }
+
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (buffer[position] == '\n') {
+                    position++;
+                    continue;
+                }
+            }
+
+            int lineStart = position;
+            while (position < limit) {
+                char c = buffer[position++];
+                if (c == '\n' || c == '\r') {
+                    skipLineFeed = c == '\r';
+                    partialLine.append(buffer, lineStart, position - 1 - lineStart);
+                    return takePartialLine();
+                }
+            }
+            partialLine.append(buffer, lineStart, limit - lineStart);
+        }
+    }
+
+    private String takePartialLine() {
+        String line = partialLine.toString();
+        partialLine.setLength(0);
+        return line;
+    }
+
+    /**
+     * Seeks to the closest indexed line at or before the starting line, so that only the lines after it have to
+     * be skipped.
+     */
+    private Reader openNearStart() throws IOException {
+        ConsoleLogIndex.Checkpoint checkpoint = ConsoleLogIndex.checkpointBefore(path, start);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            channel.position(checkpoint.offset());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        skipped = checkpoint.line();
+        return Channels.newReader(channel, new SystemEnvironment().consoleLogCharsetAsCharset().newDecoder(), -1);
+    }
+
     @Override
     public void close() {
-        if (null != stream) {
-            stream.close();
+        if (null != reader) {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
         }
 
-        stream = null;
-        iterator = null;
+        reader = null;
     }
 
     public long totalLinesConsumed() {
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.publishers;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.http.entity.mime.content.ContentBody;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.util.Collections.singletonList;
+import static org.apache.commons.lang3.StringUtils.removeStart;
+
+/**
+ * @understands an artifact whose files are only uploaded if the server does not already have their content
+ * <p>
+ * Every file is read once up front, for the SHA-256 that identifies its content on the server and the MD5 that goes in
+ * the checksum file. The server is sent the SHA-256 of every file, links in the content it already has and replies with
+ * the files it still needs, which are the only ones zipped and uploaded. Every directory is zipped too, as
+ * {@link com.thoughtworks.go.util.ZipUtil} does, so empty directories reach the server.
+ */
+class ContentAddressedArtifact {
+    private final Map<String, File> files = new LinkedHashMap<>();
+    private final List<String> directories = new ArrayList<>();
+    private final Properties contentReferences = new Properties();
+    private final Properties checksums = new Properties();
+
+    ContentAddressedArtifact(File source, Function<File, String> checksumKey) throws IOException {
+        Collection<File> sourceFiles = source.isDirectory() ? FileUtils.listFilesAndDirs(source, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE) : singletonList(source);
+        for (File file : sourceFiles) {
+            if (file.isDirectory()) {
+                directories.add(pathInArtifact(source, file) + "/");
+                continue;
+            }
+            MessageDigest sha256 = DigestUtils.getSha256Digest();
+            MessageDigest md5 = DigestUtils.getMd5Digest();
+            try (InputStream inputStream = new FileInputStream(file)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = inputStream.read(buffer)) > 0) {
+                    sha256.update(buffer, 0, read);
+                    md5.update(buffer, 0, read);
+                }
+            }
+            String path = pathInArtifact(source, file);
+            files.put(path, file);
+            contentReferences.setProperty(path, Hex.encodeHexString(sha256.digest()));
+            checksums.setProperty(checksumKey.apply(file), Hex.encodeHexString(md5.digest()));
+        }
+    }
+
+    /**
+     * @return the SHA-256 of every file, by its path in the artifact
+     */
+    Properties contentReferences() {
+        return contentReferences;
+    }
+
+    long sizeOf(Properties filesToUpload) {
+        long size = 0;
+        for (String path : filesToUpload.stringPropertyNames()) {
+            File file = files.get(path);
+            size += file == null ? 0 : file.length();
+        }
+        return size;
+    }
+
+    ContentBody zipOf(Properties filesToUpload) {
+        return new StreamingArtifact.StreamingBody("content.zip") {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new CloseShieldOutputStream(out)))) {
+                    zip.setLevel(Deflater.BEST_SPEED);
+                    for (String directory : directories) {
+                        zip.putNextEntry(new ZipEntry(directory));
+                        zip.closeEntry();
+                    }
+                    for (Map.Entry<String, File> entry : files.entrySet()) {
+                        if (filesToUpload.containsKey(entry.getKey())) {
+                            addToZip(zip, entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    ContentBody checksums() {
+        return new StreamingArtifact.StreamingBody("checksum_file") {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                checksums.store(out, "");
+            }
+        };
+    }
+
+    private static void addToZip(ZipOutputStream zip, String path, File file) throws IOException {
+        ZipEntry zipEntry = new ZipEntry(path);
+        zipEntry.setTime(file.lastModified());
+        zip.putNextEntry(zipEntry);
+        FileUtils.copyFile(file, zip);
+        zip.closeEntry();
+    }
+
+    private static String pathInArtifact(File source, File file) {
+        if (!source.isDirectory()) {
+            return source.getName();
+        }
+        String path = removeStart(file.getAbsolutePath(), source.getAbsoluteFile().getParentFile().getAbsolutePath());
+        return removeStart(FilenameUtils.separatorsToUnix(path), "/");
+    }
+}
@@ -56,13 +56,19 @@ public class GoArtifactsManipulator {
     private final HttpService httpService;
     private final URLService urlService;
     private final ZipUtil zipUtil;
+    private final SystemEnvironment systemEnvironment;
     private static final Logger LOGGER = LoggerFactory.getLogger(GoArtifactsManipulator.class);
 
     @Autowired
     public GoArtifactsManipulator(HttpService httpService, URLService urlService, ZipUtil zipUtil) {
+        this(httpService, urlService, zipUtil, new SystemEnvironment());
+    }
+
+    GoArtifactsManipulator(HttpService httpService, URLService urlService, ZipUtil zipUtil, SystemEnvironment systemEnvironment) {
         this.httpService = httpService;
         this.urlService = urlService;
         this.zipUtil = zipUtil;
+        this.systemEnvironment = systemEnvironment;
     }
 
     public void publish(DefaultGoPublisher goPublisher, String destPath, File source, JobIdentifier jobIdentifier) {
@@ -79,10 +85,6 @@ public class GoArtifactsManipulator {
             try {
                 publishingAttempts++;
 
-                tmpDir = FileUtil.createTempFolder();
-                File dataToUpload = new File(tmpDir, source.getName() + ".zip");
-                zipUtil.zip(source, dataToUpload, Deflater.BEST_SPEED);
-
                 long size = 0;
                 if (source.isDirectory()) {
                     size = FileUtils.sizeOfDirectory(source);
@@ -95,7 +97,18 @@ public class GoArtifactsManipulator {
                 String normalizedDestPath = FilenameUtils.separatorsToUnix(destPath);
                 String url = urlService.getUploadUrlOfAgent(jobIdentifier, normalizedDestPath, publishingAttempts);
 
-                int statusCode = httpService.upload(url, size, dataToUpload, artifactChecksums(source, normalizedDestPath));
+                int statusCode;
+                if (systemEnvironment.shouldSkipUploadOfKnownArtifactContent()) {
+                    statusCode = uploadContentUnknownToServer(goPublisher, url, source, normalizedDestPath);
+                } else if (systemEnvironment.isStreamingArtifactUploadEnabled()) {
+                    StreamingArtifact artifact = new StreamingArtifact(source, zipUtil, file -> checksumKey(source, file, normalizedDestPath));
+                    statusCode = httpService.upload(url, size, artifact.zip(), artifact.checksums());
+                } else {
+                    tmpDir = FileUtil.createTempFolder();
+                    File dataToUpload = new File(tmpDir, source.getName() + ".zip");
+                    zipUtil.zip(source, dataToUpload, Deflater.BEST_SPEED);
+                    statusCode = httpService.upload(url, size, dataToUpload, artifactChecksums(source, normalizedDestPath));
+                }
 
                 if (statusCode == HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE) {
                     String message = String.format("Artifact upload for file %s (Size: %s) was denied by the server. This usually happens when server runs out of disk space.",
@@ -123,6 +136,18 @@ public class GoArtifactsManipulator {
         }
     }
 
+    private int uploadContentUnknownToServer(DefaultGoPublisher goPublisher, String url, File source, String destPath) throws IOException {
+        ContentAddressedArtifact artifact = new ContentAddressedArtifact(source, file -> checksumKey(source, file, destPath));
+        Properties filesToUpload = httpService.postContentReferences(url, artifact.contentReferences());
+        if (filesToUpload == null) {
+            filesToUpload = artifact.contentReferences();
+        } else {
+            goPublisher.taggedConsumeLineWithPrefix(PUBLISH, format("The server already has the content of %d of %d files",
+                    artifact.contentReferences().size() - filesToUpload.size(), artifact.contentReferences().size()));
+        }
+        return httpService.upload(url, artifact.sizeOf(filesToUpload), artifact.zipOf(filesToUpload), artifact.checksums());
+    }
+
     private Properties artifactChecksums(File source, String destPath) throws IOException {
         if (source.isDirectory()) {
             return computeChecksumForContentsOfDirectory(source, destPath);
@@ -147,6 +172,14 @@ public class GoArtifactsManipulator {
         return checksumProperties;
     }
 
+    private String checksumKey(File source, File zippedFile, String destPath) {
+        if (source.isDirectory()) {
+            String filePath = removeStart(zippedFile.getAbsolutePath(), source.getParentFile().getAbsolutePath());
+            return getEffectiveFileName(destPath, FilenameUtils.separatorsToUnix(filePath));
+        }
+        return getEffectiveFileName(destPath, source.getName());
+    }
+
     private Properties computeChecksumForFile(String sourceName, String md5, String destPath) {
         String effectiveFileName = getEffectiveFileName(destPath, sourceName);
         Properties properties = new Properties();
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.publishers;
+
+import com.thoughtworks.go.util.ZipUtil;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MIME;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+import org.apache.http.entity.mime.content.ContentBody;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+
+/**
+ * @understands an artifact that is zipped while it is being uploaded
+ * <p>
+ * The checksums of the zipped files are computed as the files are zipped, so they are only known once the zip has been
+ * written and are sent as the part that follows it. Neither part has a length known up front, so the request that
+ * carries them is chunked.
+ */
+class StreamingArtifact {
+    private final File source;
+    private final ZipUtil zipUtil;
+    private final Function<File, String> checksumKey;
+    private final Properties checksums = new Properties();
+
+    StreamingArtifact(File source, ZipUtil zipUtil, Function<File, String> checksumKey) {
+        this.source = source;
+        this.zipUtil = zipUtil;
+        this.checksumKey = checksumKey;
+    }
+
+    ContentBody zip() {
+        return new StreamingBody(source.getName() + ".zip") {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                checksums.clear();
+                zipUtil.zip(source, new CloseShieldOutputStream(out), Deflater.BEST_SPEED,
+                        (file, md5) -> checksums.setProperty(checksumKey.apply(file), md5));
+            }
+        };
+    }
+
+    ContentBody checksums() {
+        return new StreamingBody("checksum_file") {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                checksums.store(out, "");
+            }
+        };
+    }
+
+    static abstract class StreamingBody extends AbstractContentBody {
+        private final String filename;
+
+        StreamingBody(String filename) {
+            super(ContentType.DEFAULT_BINARY);
+            this.filename = filename;
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return MIME.ENC_BINARY;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2017 ThoughtWorks, Inc.
+ * Copyright 2019 ThoughtWorks, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,27 +18,46 @@ package com.thoughtworks.go.remote.work;
 
 import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.command.TaggedStreamConsumer;
-import org.apache.commons.collections4.queue.CircularFifoQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
-import static java.lang.String.format;
-
+/**
+ * @understands buffering the console output of a build and sending it to the server
+ * <p>
+ * Lines are tagged and timestamped by the threads that consume them and put on a bounded ring without taking a lock.
+ * The ring is sent to the server every publish interval, and as soon as it holds more than {@link #FLUSH_THRESHOLD}
+ * characters. Output is never dropped: when the ring is full, the thread that consumes a line sends the ring itself or
+ * waits for it to be sent. Content that could not be sent is kept and sent again on the next publish interval; until
+ * then, the ring is not drained.
+ */
 public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Runnable {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleOutputTransmitter.class);
+    static final int CAPACITY = 16 * 1024; // lines
+    static final int FLUSH_THRESHOLD = 256 * 1024; // characters
+    private static final long FULL_RING_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
 
-    private final CircularFifoQueue buffer = new CircularFifoQueue(10 * 1024); // maximum 10k lines
+    private final LineRing buffer = new LineRing(CAPACITY);
+    private final AtomicLong bufferedCharacters = new AtomicLong();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
     private final ConsoleAppender consoleAppender;
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm:ss.SSS");
     private final ScheduledThreadPoolExecutor executor;
+    private volatile Timestamp timestamp = new Timestamp(Long.MIN_VALUE, "");
+    private String unsent; // guarded by flushLock
 
     public ConsoleOutputTransmitter(ConsoleAppender consoleAppender) {
         this(consoleAppender, new SystemEnvironment().getConsolePublishInterval(), new ScheduledThreadPoolExecutor(1));
@@ -58,17 +77,33 @@ public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Run
 
     @Override
     public void taggedConsumeLine(String tag, String line) {
-        synchronized (buffer) {
-            if (null == tag) tag = "  ";
-            String date = dateFormat.format(new Date());
-            String prepend = format("%s|%s", tag, date);
-            String multilineJoin = "\n" + prepend + " ";
-            buffer.add(format("%s %s", prepend, line).replaceAll("\n", multilineJoin));
+        String tagged = tagged(null == tag ? "  " : tag, timestamp(), String.valueOf(line));
+        while (!buffer.offer(tagged)) {
+            if (flushLock.tryLock()) {
+                try {
+                    if (unsent == null) {
+                        flushToServer();
+                    }
+                } finally {
+                    flushLock.unlock();
+                }
+            }
+            if (!buffer.hasRoom()) {
+                LockSupport.parkNanos(FULL_RING_WAIT_NANOS);
+            }
+        }
+        if (bufferedCharacters.addAndGet(tagged.length()) >= FLUSH_THRESHOLD && flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+            }
         }
     }
 
     public void run() {
         try {
+            flushRequested.set(false);
             flushToServer();
         } catch (Throwable e) {
             LOGGER.warn("Could not send console output to server", e);
@@ -76,30 +111,20 @@ public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Run
     }
 
     public void flushToServer() {
-        if (buffer.isEmpty()) {
-            return;
-        }
-
-        List sent = new ArrayList();
+        flushLock.lock();
         try {
-            synchronized (buffer) {
-                while (!buffer.isEmpty()) {
-                    sent.add(buffer.remove());
-                }
+            if (unsent == null) {
+                unsent = drain();
             }
-            StringBuilder result = new StringBuilder();
-            for (Object string : sent) {
-                result.append(string);
-                result.append("\n");
+            if (unsent == null) {
+                return;
             }
-            consoleAppender.append(result.toString());
+            consoleAppender.append(unsent);
+            unsent = null;
         } catch (IOException e) {
             LOGGER.warn("Could not send console output to server", e);
-            synchronized (buffer) {
-                sent.addAll(buffer);
-                buffer.clear();
-                buffer.addAll(sent);
-            }
+        } finally {
+            flushLock.unlock();
         }
     }
 
@@ -107,4 +132,93 @@ public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Run
         flushToServer();
         executor.shutdown();
     }
+
+    private String drain() {
+        StringBuilder result = null;
+        String line;
+        while ((line = buffer.poll()) != null) {
+            if (result == null) {
+                result = new StringBuilder((int) Math.max(16, bufferedCharacters.get()));
+            }
+            result.append(line);
+            bufferedCharacters.addAndGet(-line.length());
+        }
+        return result == null ? null : result.toString();
+    }
+
+    private String timestamp() {
+        long now = System.currentTimeMillis();
+        Timestamp current = timestamp;
+        if (current.millis != now) {
+            current = new Timestamp(now, TIME_FORMAT.format(Instant.ofEpochMilli(now)));
+            timestamp = current;
+        }
+        return current.formatted;
+    }
+
+    static String tagged(String tag, String time, String line) {
+        StringBuilder result = new StringBuilder(tag.length() + time.length() + line.length() + 3);
+        result.append(tag).append('|').append(time).append(' ');
+        int start = 0;
+        int newline;
+        while ((newline = line.indexOf('\n', start)) >= 0) {
+            result.append(line, start, newline + 1).append(tag).append('|').append(time).append(' ');
+            start = newline + 1;
+        }
+        return result.append(line, start, line.length()).append('\n').toString();
+    }
+
+    private static class Timestamp {
+        private final long millis;
+        private final String formatted;
+
+        private Timestamp(long millis, String formatted) {
+            this.millis = millis;
+            this.formatted = formatted;
+        }
+    }
+
+    /**
+     * A bounded ring that any number of threads offer to and one thread at a time polls from. A producer claims a slot
+     * by moving the tail and then fills it; the consumer stops at the first claimed slot that is not filled yet.
+     */
+    private static class LineRing {
+        private final AtomicReferenceArray<String> slots;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+
+        private LineRing(int capacity) {
+            this.slots = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+
+        private boolean offer(String line) {
+            while (true) {
+                long claimed = tail.get();
+                if (claimed - head >= slots.length()) {
+                    return false;
+                }
+                if (tail.compareAndSet(claimed, claimed + 1)) {
+                    slots.lazySet((int) (claimed & mask), line);
+                    return true;
+                }
+            }
+        }
+
+        private String poll() {
+            int slot = (int) (head & mask);
+            String line = slots.get(slot);
+            if (line == null) {
+                return null;
+            }
+            slots.lazySet(slot, null);
+            head++;
+            return line;
+        }
+
+        private boolean hasRoom() {
+            return tail.get() - head < slots.length();
+        }
+    }
 }
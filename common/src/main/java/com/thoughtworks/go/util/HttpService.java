@@ -28,6 +28,7 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.entity.mime.content.ByteArrayBody;
+import org.apache.http.entity.mime.content.ContentBody;
 import org.apache.http.entity.mime.content.FileBody;
 import org.apache.http.message.BasicNameValuePair;
 import org.slf4j.Logger;
@@ -82,10 +83,56 @@ public class HttpService {
     }
 
     private HttpPost createHttpPostForUpload(String url, long size, File artifactFile, Properties artifactChecksums) throws IOException {
+        return createHttpPostForUpload(url, size, httpClientFactory.createMultipartRequestEntity(artifactFile, artifactChecksums));
+    }
+
+    /**
+     * Uploads a zipped artifact whose content is written as the request is sent, followed by the checksums of the files
+     * in it. The size is that of the unzipped artifact, for the server to check it has room for it.
+     */
+    public int upload(String url, long size, ContentBody zippedArtifact, ContentBody artifactChecksums) throws IOException {
+        LOGGER.info("Uploading [{}] to url [{}] while zipping it", zippedArtifact.getFilename(), url);
+
+        HttpPost filePost = createHttpPostForUpload(url, size, httpClientFactory.createMultipartRequestEntity(zippedArtifact, artifactChecksums));
+        try (CloseableHttpResponse response = execute(filePost)) {
+            return response.getStatusLine().getStatusCode();
+        } catch (IOException e) {
+            LOGGER.error("Error while uploading [{}]", zippedArtifact.getFilename(), e);
+            throw e;
+        } finally {
+            filePost.releaseConnection();
+        }
+    }
+
+    /**
+     * Tells the server the SHA-256 of every file of an artifact, for it to link the content it already has into the job.
+     *
+     * @return the files whose content the server does not have, by their path in the artifact; null if the server does
+     * not store artifacts by content
+     */
+    public Properties postContentReferences(String url, Properties contentReferences) throws IOException {
+        LOGGER.info("Sending the content references of {} files to url [{}]", contentReferences.size(), url);
+
+        HttpPost post = createHttpPostForUpload(url, 0, httpClientFactory.createMultipartRequestEntity(contentReferences));
+        try (CloseableHttpResponse response = execute(post)) {
+            if (response.getStatusLine().getStatusCode() != HttpServletResponse.SC_OK) {
+                return null;
+            }
+            Properties missing = new Properties();
+            try (InputStream body = response.getEntity().getContent()) {
+                missing.load(body);
+            }
+            return missing;
+        } finally {
+            post.releaseConnection();
+        }
+    }
+
+    private HttpPost createHttpPostForUpload(String url, long size, HttpEntity entity) {
         HttpPost filePost = httpClientFactory.createPost(url);
         setSizeHeader(filePost, size);
         filePost.setHeader("Confirm", "true");
-        filePost.setEntity(httpClientFactory.createMultipartRequestEntity(artifactFile, artifactChecksums));
+        filePost.setEntity(entity);
         return filePost;
     }
 
@@ -175,5 +222,20 @@ public class HttpService {
             }
             return entityBuilder.build();
         }
+
+        public HttpEntity createMultipartRequestEntity(Properties contentReferences) throws IOException {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            contentReferences.store(outputStream, "");
+            return MultipartEntityBuilder.create()
+                    .addPart(GoConstants.CONTENT_REFERENCES_MULTIPART_FILENAME, new ByteArrayBody(outputStream.toByteArray(), "content_references"))
+                    .build();
+        }
+
+        public HttpEntity createMultipartRequestEntity(ContentBody zippedArtifact, ContentBody artifactChecksums) {
+            return MultipartEntityBuilder.create()
+                    .addPart(GoConstants.ZIP_MULTIPART_FILENAME, zippedArtifact)
+                    .addPart(GoConstants.CHECKSUM_MULTIPART_FILENAME, artifactChecksums)
+                    .build();
+        }
     }
 }
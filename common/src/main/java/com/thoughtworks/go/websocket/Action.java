@@ -16,6 +16,9 @@
 
 package com.thoughtworks.go.websocket;
 
+/**
+ * Binary websocket messages identify an action by its position, so new actions go at the end.
+ */
 public enum Action {
     assignWork,
     cancelBuild,
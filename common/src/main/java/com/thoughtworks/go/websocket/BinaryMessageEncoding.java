@@ -0,0 +1,362 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.websocket;
+
+import com.thoughtworks.go.domain.AgentRuntimeStatus;
+import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.domain.JobResult;
+import com.thoughtworks.go.domain.JobState;
+import com.thoughtworks.go.remote.AgentIdentifier;
+import com.thoughtworks.go.server.service.AgentBuildingInfo;
+import com.thoughtworks.go.server.service.AgentRuntimeInfo;
+import com.thoughtworks.go.server.service.ElasticAgentRuntimeInfo;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static com.thoughtworks.go.util.ExceptionUtils.bomb;
+
+/**
+ * @understands the compact binary form of websocket messages between agents and the server
+ * <p>
+ * A message is written as a version byte, a byte of flags, the position of its action, its acknowledgement id and its
+ * data. The acknowledgement id is written as the 16 bytes of its UUID, or left out when there is none, and the data as
+ * bytes: the Java serialized work of
+ * an assignWork message is sent as it is rather than as Base64 text, and only data larger than
+ * {@link #COMPRESSION_THRESHOLD} bytes is deflated.
+ * <p>
+ * The agent runtime info of a ping and the report of a job, which make up most of the traffic, are written field by
+ * field rather than as JSON when the message carries them as a {@link Message#withPayload(Action, Object) payload},
+ * and are read back into objects without going through JSON. Other data is sent as its JSON.
+ * <p>
+ * The version byte can never start a gzipped message, which lets a reader tell the two encodings apart.
+ */
+class BinaryMessageEncoding {
+    static final byte VERSION_1 = 1;
+    static final int COMPRESSION_THRESHOLD = 1024;
+
+    private static final int HAS_DATA = 1;
+    private static final int DEFLATED = 1 << 1;
+    private static final int BASE64_DATA = 1 << 2;
+    private static final int UUID_ACKNOWLEDGEMENT_ID = 1 << 3;
+    private static final int SCHEMA_DATA = 1 << 4;
+    private static final int NO_ACKNOWLEDGEMENT_ID = 1 << 5;
+
+    private static final int AGENT_RUNTIME_INFO = 1;
+    private static final int REPORT = 2;
+
+    private static final Action[] ACTIONS = Action.values();
+
+    static byte[] encode(Message message) {
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream(64); DataOutputStream out = new DataOutputStream(bytes)) {
+            UUID acknowledgementId = asUuid(message.getAcknowledgementId());
+            byte[] data = null;
+            int flags = message.getAcknowledgementId() == null ? NO_ACKNOWLEDGEMENT_ID : acknowledgementId == null ? 0 : UUID_ACKNOWLEDGEMENT_ID;
+            Object payload = message.payload();
+            if (payload instanceof AgentRuntimeInfo || payload instanceof Report) {
+                flags |= HAS_DATA | SCHEMA_DATA;
+                data = schemaEncoded(payload);
+            } else if (message.getData() != null) {
+                flags |= HAS_DATA;
+                if (message.getAction() == Action.assignWork) {
+                    data = base64Decoded(message.getData());
+                }
+                if (data != null) {
+                    flags |= BASE64_DATA;
+                } else {
+                    data = message.getData().getBytes(StandardCharsets.UTF_8);
+                }
+            }
+            if (data != null && data.length > COMPRESSION_THRESHOLD) {
+                byte[] deflated = deflate(data);
+                if (deflated.length < data.length) {
+                    data = deflated;
+                    flags |= DEFLATED;
+                }
+            }
+
+            out.writeByte(VERSION_1);
+            out.writeByte(flags);
+            out.writeByte(message.getAction().ordinal());
+            if (acknowledgementId != null) {
+                out.writeLong(acknowledgementId.getMostSignificantBits());
+                out.writeLong(acknowledgementId.getLeastSignificantBits());
+            } else if (message.getAcknowledgementId() != null) {
+                out.writeUTF(message.getAcknowledgementId());
+            }
+            if (data != null) {
+                out.writeInt(data.length);
+                out.write(data);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw bomb(e);
+        }
+    }
+
+    /**
+     * Reads a message whose version byte has already been read.
+     */
+    static Message decode(DataInputStream in) throws IOException {
+        int flags = in.readUnsignedByte();
+        int actionPosition = in.readUnsignedByte();
+        if (actionPosition >= ACTIONS.length) {
+            throw new IOException("Unknown websocket message action " + actionPosition + "; the message may come from a newer version of GoCD");
+        }
+        Action action = ACTIONS[actionPosition];
+        String acknowledgementId = null;
+        if ((flags & UUID_ACKNOWLEDGEMENT_ID) != 0) {
+            acknowledgementId = new UUID(in.readLong(), in.readLong()).toString();
+        } else if ((flags & NO_ACKNOWLEDGEMENT_ID) == 0) {
+            acknowledgementId = in.readUTF();
+        }
+        String data = null;
+        if ((flags & HAS_DATA) != 0) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            if ((flags & DEFLATED) != 0) {
+                bytes = inflate(bytes);
+            }
+            if ((flags & SCHEMA_DATA) != 0) {
+                return Message.withPayload(action, schemaDecoded(bytes), acknowledgementId);
+            }
+            data = (flags & BASE64_DATA) != 0 ? Base64.getEncoder().encodeToString(bytes) : new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new Message(action, data, acknowledgementId);
+    }
+
+    private static byte[] schemaEncoded(Object payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (payload instanceof Report) {
+            out.writeByte(REPORT);
+            writeReport(out, (Report) payload);
+        } else {
+            out.writeByte(AGENT_RUNTIME_INFO);
+            writeRuntimeInfo(out, (AgentRuntimeInfo) payload);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Object schemaDecoded(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int type = in.readUnsignedByte();
+        switch (type) {
+            case AGENT_RUNTIME_INFO:
+                return readRuntimeInfo(in);
+            case REPORT:
+                return readReport(in);
+            default:
+                throw new IOException("Unknown websocket message data type " + type + "; the message may come from a newer version of GoCD");
+        }
+    }
+
+    private static void writeReport(DataOutput out, Report report) throws IOException {
+        writeString(out, report.getBuildId());
+        writeRuntimeInfo(out, report.getAgentRuntimeInfo());
+        JobIdentifier jobIdentifier = report.getJobIdentifier();
+        out.writeBoolean(jobIdentifier != null);
+        if (jobIdentifier != null) {
+            writeString(out, jobIdentifier.getPipelineName());
+            writeInteger(out, jobIdentifier.getPipelineCounter());
+            writeString(out, jobIdentifier.getPipelineLabel());
+            writeString(out, jobIdentifier.getStageName());
+            writeString(out, jobIdentifier.getStageCounter());
+            writeString(out, jobIdentifier.getBuildName());
+            writeLong(out, jobIdentifier.getBuildId());
+            writeInteger(out, jobIdentifier.getRerunOfCounter());
+        }
+        writeEnum(out, report.getResult());
+        writeEnum(out, report.getJobState());
+    }
+
+    private static Report readReport(DataInput in) throws IOException {
+        String buildId = readString(in);
+        AgentRuntimeInfo agentRuntimeInfo = readRuntimeInfo(in);
+        JobIdentifier jobIdentifier = null;
+        if (in.readBoolean()) {
+            jobIdentifier = new JobIdentifier(readString(in), readInteger(in), readString(in), readString(in), readString(in), readString(in), readLong(in));
+            jobIdentifier.setRerunOfCounter(readInteger(in));
+        }
+        return new Report(buildId, agentRuntimeInfo, jobIdentifier, readEnum(in, JobResult.class), readEnum(in, JobState.class));
+    }
+
+    private static void writeRuntimeInfo(DataOutput out, AgentRuntimeInfo info) throws IOException {
+        out.writeBoolean(info != null);
+        if (info == null) {
+            return;
+        }
+        AgentIdentifier identifier = info.getIdentifier();
+        out.writeBoolean(identifier != null);
+        if (identifier != null) {
+            writeString(out, identifier.getHostName());
+            writeString(out, identifier.getIpAddress());
+            writeString(out, identifier.getUuid());
+        }
+        writeEnum(out, info.getRuntimeStatus());
+        AgentBuildingInfo buildingInfo = info.getBuildingInfo();
+        out.writeBoolean(buildingInfo != null);
+        if (buildingInfo != null) {
+            writeString(out, buildingInfo.getBuildingInfo());
+            writeString(out, buildingInfo.getBuildLocator());
+        }
+        writeString(out, info.getLocation());
+        writeLong(out, info.getUsableSpace());
+        writeString(out, info.getOperatingSystem());
+        writeString(out, info.getCookie());
+        out.writeBoolean(info.getSupportsBuildCommandProtocol());
+        boolean elastic = info instanceof ElasticAgentRuntimeInfo;
+        writeString(out, elastic ? ((ElasticAgentRuntimeInfo) info).getElasticAgentId() : null);
+        writeString(out, elastic ? ((ElasticAgentRuntimeInfo) info).getElasticPluginId() : null);
+    }
+
+    /**
+     * Builds the agent runtime info the same way the JSON type adapter in {@link MessageEncoding} does.
+     */
+    private static AgentRuntimeInfo readRuntimeInfo(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        AgentIdentifier identifier = in.readBoolean() ? new AgentIdentifier(readString(in), readString(in), readString(in)) : null;
+        AgentRuntimeStatus runtimeStatus = readEnum(in, AgentRuntimeStatus.class);
+        AgentBuildingInfo buildingInfo = in.readBoolean() ? new AgentBuildingInfo(readString(in), readString(in)) : null;
+        String location = readString(in);
+        Long usableSpace = readLong(in);
+        String operatingSystemName = readString(in);
+        String cookie = readString(in);
+        boolean supportsBuildCommandProtocol = in.readBoolean();
+        String elasticAgentId = readString(in);
+        String elasticPluginId = readString(in);
+
+        AgentRuntimeInfo info;
+        if (StringUtils.isBlank(elasticPluginId)) {
+            info = new AgentRuntimeInfo(identifier, runtimeStatus, location, cookie, supportsBuildCommandProtocol);
+        } else {
+            info = new ElasticAgentRuntimeInfo(identifier, runtimeStatus, location, cookie, elasticAgentId, elasticPluginId);
+        }
+        info.setUsableSpace(usableSpace);
+        info.setOperatingSystem(operatingSystemName);
+        info.setSupportsBuildCommandProtocol(supportsBuildCommandProtocol);
+        info.setBuildingInfo(buildingInfo);
+        return info;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInteger(DataOutput out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    // by name rather than position, so that values added or reordered in later versions are not mistaken for others
+    private static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        writeString(out, value == null ? null : value.name());
+    }
+
+    private static <E extends Enum<E>> E readEnum(DataInput in, Class<E> type) throws IOException {
+        String name = readString(in);
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown " + type.getSimpleName() + " " + name + " in websocket message; the message may come from a newer version of GoCD");
+        }
+    }
+
+    private static byte[] base64Decoded(String data) {
+        try {
+            return Base64.getDecoder().decode(data);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static UUID asUuid(String acknowledgementId) {
+        if (acknowledgementId == null) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(acknowledgementId);
+            return uuid.toString().equals(acknowledgementId) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(data);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(data))) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+}
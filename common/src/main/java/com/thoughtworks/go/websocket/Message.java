@@ -25,18 +25,40 @@ public class Message {
     @Expose
     private final Action action;
     @Expose
-    private final String data;
+    private volatile String data;
     @Expose
     private final String acknowledgementId;
+    private final Object payload;
 
     public Message(Action action) {
         this(action, null);
     }
 
     public Message(Action action, String data) {
+        this(action, data, UUID.randomUUID().toString());
+    }
+
+    Message(Action action, String data, String acknowledgementId) {
+        this(action, data, null, acknowledgementId);
+    }
+
+    private Message(Action action, String data, Object payload, String acknowledgementId) {
         this.action = action;
         this.data = data;
-        this.acknowledgementId = UUID.randomUUID().toString();
+        this.payload = payload;
+        this.acknowledgementId = acknowledgementId;
+    }
+
+    /**
+     * A message that carries the object itself rather than its JSON, so that encodings that know how to write the
+     * object do not have to go through JSON. The JSON is only produced if {@link #getData()} is asked for.
+     */
+    public static Message withPayload(Action action, Object payload) {
+        return new Message(action, null, payload, UUID.randomUUID().toString());
+    }
+
+    static Message withPayload(Action action, Object payload, String acknowledgementId) {
+        return new Message(action, null, payload, acknowledgementId);
     }
 
     public Action getAction() {
@@ -44,9 +66,27 @@ public class Message {
     }
 
     public String getData() {
+        if (data == null && payload != null) {
+            data = MessageEncoding.encodeData(payload);
+        }
         return data;
     }
 
+    /**
+     * @return the object the message carries, decoding it from the JSON data unless it was sent or received as is
+     */
+    public <T> T getPayload(Class<T> type) {
+        if (type.isInstance(payload)) {
+            return type.cast(payload);
+        }
+        String data = getData();
+        return data == null ? null : MessageEncoding.decodeData(data, type);
+    }
+
+    Object payload() {
+        return payload;
+    }
+
     public String getAcknowledgementId() {
         return acknowledgementId;
     }
@@ -55,7 +95,7 @@ public class Message {
     public String toString() {
         return "Message{" +
                 "action=" + action +
-                ", data=" + data +
+                ", data=" + getData() +
                 ", acknowledgementId=" + acknowledgementId +
                 '}';
     }
@@ -68,7 +108,8 @@ public class Message {
         Message message = (Message) o;
 
         if (action != message.action) return false;
-        if (data != null ? !data.equals(message.data) : message.data != null) return false;
+        String data = getData();
+        if (data != null ? !data.equals(message.getData()) : message.getData() != null) return false;
         return acknowledgementId != null ? acknowledgementId.equals(message.acknowledgementId) : message.acknowledgementId == null;
 
     }
@@ -76,6 +117,7 @@ public class Message {
     @Override
     public int hashCode() {
         int result = action.hashCode();
+        String data = getData();
         result = 31 * result + (data != null ? data.hashCode() : 0);
         result = 31 * result + (acknowledgementId != null ? acknowledgementId.hashCode() : 0);
         return result;
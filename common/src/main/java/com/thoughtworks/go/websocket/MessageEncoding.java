@@ -35,6 +35,11 @@ import java.util.zip.GZIPOutputStream;
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 
 public class MessageEncoding {
+    /**
+     * The websocket sub-protocol an agent asks for to exchange messages in their binary form. Either side falls back to
+     * gzipped JSON messages when the other does not support it.
+     */
+    public static final String BINARY_SUB_PROTOCOL = "go.agent.binary.v1";
 
     private static Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().registerTypeAdapter(AgentRuntimeInfo.class, new AgentRuntimeInfoTypeAdapter()).create();
 
@@ -63,7 +68,7 @@ public class MessageEncoding {
     }
 
     public static byte[] encodeMessage(Message msg) {
-        String encode = gson.toJson(msg);
+        String encode = gson.toJson(new Message(msg.getAction(), msg.getData(), msg.getAcknowledgementId()));
         try {
             try (ByteArrayOutputStream bytes = new ByteArrayOutputStream()) {
                 try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
@@ -77,9 +82,26 @@ public class MessageEncoding {
         }
     }
 
+    public static byte[] encodeMessage(Message msg, boolean binary) {
+        return binary ? BinaryMessageEncoding.encode(msg) : encodeMessage(msg);
+    }
+
+    /**
+     * Reads a message in either of its encodings.
+     */
     public static Message decodeMessage(InputStream input) {
         try {
-            try (GZIPInputStream zipStream = new GZIPInputStream(input)) {
+            PushbackInputStream pushbackInput = new PushbackInputStream(input, 1);
+            int version = pushbackInput.read();
+            if (version == BinaryMessageEncoding.VERSION_1) {
+                try (DataInputStream dataInput = new DataInputStream(pushbackInput)) {
+                    return BinaryMessageEncoding.decode(dataInput);
+                }
+            }
+            if (version != -1) {
+                pushbackInput.unread(version);
+            }
+            try (GZIPInputStream zipStream = new GZIPInputStream(pushbackInput)) {
                 String jsonStr = new String(IOUtils.toByteArray(zipStream), StandardCharsets.UTF_8);
                 return gson.fromJson(jsonStr, Message.class);
             }
@@ -55,6 +55,14 @@ public class Report implements Serializable, Transmission {
         this.result = result;
     }
 
+    Report(String buildId, AgentRuntimeInfo agentRuntimeInfo, JobIdentifier jobIdentifier, JobResult result, JobState jobState) {
+        this.buildId = buildId;
+        this.agentRuntimeInfo = agentRuntimeInfo;
+        this.jobIdentifier = jobIdentifier;
+        this.result = result;
+        this.jobState = jobState;
+    }
+
     public JobState getJobState() {
         return jobState;
     }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.domain;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import static com.thoughtworks.go.domain.ConsoleLogIndex.CHECKPOINT_INTERVAL;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public class ConsoleLogIndexTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldFindCheckpointAtOrBeforeLine() throws Exception {
+        Path log = makeConsoleFile(0, CHECKPOINT_INTERVAL * 2 + 10);
+        ConsoleLogIndex.update(log);
+
+        assertCheckpoint(log, 0L, 0L);
+        assertCheckpoint(log, CHECKPOINT_INTERVAL - 1, 0L);
+        assertCheckpoint(log, CHECKPOINT_INTERVAL, CHECKPOINT_INTERVAL);
+        assertCheckpoint(log, CHECKPOINT_INTERVAL * 2 + 5, CHECKPOINT_INTERVAL * 2);
+        assertCheckpoint(log, CHECKPOINT_INTERVAL * 10, CHECKPOINT_INTERVAL * 2);
+    }
+
+    @Test
+    public void shouldIndexContentAppendedSinceLastUpdate() throws Exception {
+        Path log = makeConsoleFile(0, CHECKPOINT_INTERVAL - 1);
+        ConsoleLogIndex.update(log);
+        assertCheckpoint(log, CHECKPOINT_INTERVAL, 0L);
+
+        append(log, CHECKPOINT_INTERVAL - 1, CHECKPOINT_INTERVAL * 3);
+        ConsoleLogIndex.update(log);
+
+        assertCheckpoint(log, CHECKPOINT_INTERVAL, CHECKPOINT_INTERVAL);
+        assertCheckpoint(log, CHECKPOINT_INTERVAL * 3 - 1, CHECKPOINT_INTERVAL * 2);
+        assertCheckpoint(log, CHECKPOINT_INTERVAL * 3, CHECKPOINT_INTERVAL * 3);
+    }
+
+    @Test
+    public void shouldRebuildIndexWhenLogIsShorterThanIndexed() throws Exception {
+        Path log = makeConsoleFile(0, CHECKPOINT_INTERVAL * 3);
+        ConsoleLogIndex.update(log);
+
+        Files.write(log, lines(0, CHECKPOINT_INTERVAL + 1).getBytes(UTF_8));
+        ConsoleLogIndex.update(log);
+
+        assertCheckpoint(log, CHECKPOINT_INTERVAL * 2, CHECKPOINT_INTERVAL);
+    }
+
+    @Test
+    public void shouldIgnoreIndexThatDoesNotMatchLog() throws Exception {
+        Path log = makeConsoleFile(0, CHECKPOINT_INTERVAL * 2);
+        ConsoleLogIndex.update(log);
+
+        Files.write(log, ("x" + lines(0, CHECKPOINT_INTERVAL * 2)).getBytes(UTF_8));
+
+        assertEquals(0L, ConsoleLogIndex.checkpointBefore(log, CHECKPOINT_INTERVAL).line());
+    }
+
+    @Test
+    public void streamerShouldSeekToStartingLineUsingIndex() throws Exception {
+        Path log = makeConsoleFile(0, CHECKPOINT_INTERVAL * 2 + 3);
+        ConsoleLogIndex.update(log);
+
+        ArrayList<String> actual = new ArrayList<>();
+        try (ConsoleStreamer streamer = new ConsoleStreamer(log, CHECKPOINT_INTERVAL * 2 + 1)) {
+            assertEquals(2L, streamer.stream(actual::add));
+        }
+
+        assertEquals(2, actual.size());
+        assertEquals("line " + (CHECKPOINT_INTERVAL * 2 + 1), actual.get(0));
+        assertEquals("line " + (CHECKPOINT_INTERVAL * 2 + 2), actual.get(1));
+    }
+
+    @Test
+    public void shouldCountLineEndingsTheWayTheStreamerSplitsLines() throws Exception {
+        StringBuilder content = new StringBuilder();
+        String[] endings = {"\r", "\r\n", "\n"};
+        for (int i = 0; i < CHECKPOINT_INTERVAL * 2 + 2; i++) {
+            content.append("progress ").append(i).append(endings[i % endings.length]);
+        }
+        Path log = temporaryFolder.newFile("console.log").toPath();
+        // a carriage return and its line feed land in separate updates
+        int splitAt = content.indexOf("\r\n", content.length() / 2) + 1;
+        Files.write(log, content.substring(0, splitAt).getBytes(UTF_8));
+        ConsoleLogIndex.update(log);
+        Files.write(log, content.substring(splitAt).getBytes(UTF_8), StandardOpenOption.APPEND);
+        ConsoleLogIndex.update(log);
+
+        assertEquals(CHECKPOINT_INTERVAL * 2, ConsoleLogIndex.checkpointBefore(log, CHECKPOINT_INTERVAL * 2).line());
+        ArrayList<String> actual = new ArrayList<>();
+        try (ConsoleStreamer streamer = new ConsoleStreamer(log, CHECKPOINT_INTERVAL * 2 + 1)) {
+            assertEquals(1L, streamer.stream(actual::add));
+        }
+        assertEquals("progress " + (CHECKPOINT_INTERVAL * 2 + 1), actual.get(0));
+
+        ArrayList<String> fromStart = new ArrayList<>();
+        try (ConsoleStreamer streamer = new ConsoleStreamer(log, 0L)) {
+            streamer.stream(fromStart::add);
+        }
+        for (int checkpoint = 1; checkpoint <= 2; checkpoint++) {
+            actual.clear();
+            try (ConsoleStreamer streamer = new ConsoleStreamer(log, CHECKPOINT_INTERVAL * checkpoint)) {
+                streamer.stream(actual::add);
+            }
+            assertEquals(fromStart.subList(CHECKPOINT_INTERVAL * checkpoint, fromStart.size()), actual);
+        }
+    }
+
+    private void assertCheckpoint(Path log, long line, long expectedLine) throws IOException {
+        ConsoleLogIndex.Checkpoint checkpoint = ConsoleLogIndex.checkpointBefore(log, line);
+        assertEquals(expectedLine, checkpoint.line());
+        assertEquals(lines(0, (int) expectedLine).getBytes(UTF_8).length, checkpoint.offset());
+    }
+
+    private Path makeConsoleFile(int from, int to) throws IOException {
+        File console = temporaryFolder.newFile("console.log");
+        Files.write(console.toPath(), lines(from, to).getBytes(UTF_8));
+        return console.toPath();
+    }
+
+    private void append(Path log, int from, int to) throws IOException {
+        Files.write(log, lines(from, to).getBytes(UTF_8), StandardOpenOption.APPEND);
+    }
+
+    private String lines(int from, int to) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            builder.append("line ").append(i).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -22,6 +22,7 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.function.Consumer;
 
@@ -99,6 +100,53 @@ public class ConsoleStreamerTest {
         assertEquals(0L, console.totalLinesConsumed());
     }
 
+    @Test
+    public void streamContinuesWithContentAppendedAfterEOF() throws Exception {
+        final ArrayList<String> actual = new ArrayList<>();
+        File file = makeConsoleFile("first", "second\n");
+
+        ConsoleStreamer console = new ConsoleStreamer(file.toPath(), 1L);
+        assertEquals(1L, console.stream(actual::add));
+
+        Files.write(file.toPath(), "third\nfourth\n".getBytes(), StandardOpenOption.APPEND);
+        assertEquals(2L, console.stream(actual::add));
+
+        assertArrayEquals(new String[]{"second", "third", "fourth"}, actual.toArray());
+        assertEquals(3L, console.totalLinesConsumed());
+    }
+
+    @Test
+    public void streamSplitsLinesLikeBufferedReader() throws Exception {
+        final ArrayList<String> actual = new ArrayList<>();
+        File file = makeConsoleFile("first\rsecond\r\nthird\n\nfifth\r");
+
+        ConsoleStreamer console = new ConsoleStreamer(file.toPath(), 0L);
+        assertEquals(5L, console.stream(actual::add));
+
+        Files.write(file.toPath(), "\nsixth\n".getBytes(), StandardOpenOption.APPEND);
+        assertEquals(1L, console.stream(actual::add));
+
+        assertArrayEquals(new String[]{"first", "second", "third", "", "fifth", "sixth"}, actual.toArray());
+    }
+
+    @Test
+    public void streamCompleteLinesHoldsBackALineThatIsStillBeingWritten() throws Exception {
+        final ArrayList<String> actual = new ArrayList<>();
+        File file = makeConsoleFile("first", "sec");
+
+        ConsoleStreamer console = new ConsoleStreamer(file.toPath(), 0L);
+        assertEquals(1L, console.streamCompleteLines(actual::add));
+        assertArrayEquals(new String[]{"first"}, actual.toArray());
+
+        Files.write(file.toPath(), "ond\nthi".getBytes(), StandardOpenOption.APPEND);
+        assertEquals(1L, console.streamCompleteLines(actual::add));
+        assertArrayEquals(new String[]{"first", "second"}, actual.toArray());
+
+        assertEquals(1L, console.stream(actual::add));
+        assertArrayEquals(new String[]{"first", "second", "thi"}, actual.toArray());
+        assertEquals(3L, console.totalLinesConsumed());
+    }
+
     private File makeConsoleFile(String... message) throws IOException {
         File console = File.createTempFile("console", ".log");
         console.deleteOnExit();
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.domain.materials.git;
+
+import com.thoughtworks.go.config.materials.git.GitMaterialConfig;
+import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.domain.materials.mercurial.StringRevision;
+import com.thoughtworks.go.util.PerfTimer;
+import com.thoughtworks.go.util.command.CommandLine;
+import com.thoughtworks.go.util.command.ConsoleResult;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static com.thoughtworks.go.domain.materials.ModifiedAction.parseGitAction;
+import static com.thoughtworks.go.util.command.ProcessOutputStreamConsumer.inMemoryConsumer;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Measures how long it takes to find the modifications of a material that picks up thousands of commits at once, as
+ * after an outage of a busy repository. Listing the changed files with one <code>git log --name-status</code> is
+ * compared with running <code>git diff-tree</code> for every commit, which is what every material update used to do.
+ */
+@Ignore
+public class GitCommandPerformanceTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GitCommandPerformanceTest.class);
+    private static final int FILES_PER_COMMIT = 3;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldReportTheCostOfFindingModificationsAgainstTheNumberOfNewCommits() throws Exception {
+        for (int commits : new int[]{400, 2000, 5000}) {
+            File remote = temporaryFolder.newFolder();
+            generateRepository(remote, commits);
+            File workingDir = new File(temporaryFolder.newFolder(), "repo");
+            GitCommand git = new GitCommand(null, workingDir, GitMaterialConfig.DEFAULT_BRANCH, false, new HashMap<>(), null);
+            git.clone(inMemoryConsumer(), remote.getAbsolutePath());
+            StringRevision root = new StringRevision(git("rev-list", "--max-parents=0", "HEAD").withWorkingDir(workingDir).runOrBomb(null).outputAsString().trim());
+
+            PerfTimer batched = PerfTimer.start("Listing " + commits + " commits with one git log");
+            List<Modification> modifications = git.modificationsSince(root);
+            batched.stop();
+
+            PerfTimer perCommit = PerfTimer.start("Listing " + commits + " commits with a git diff-tree for each");
+            List<Modification> diffTreeModifications = modificationsWithDiffTreePerCommit(workingDir, root);
+            perCommit.stop();
+
+            assertThat(modifications.size(), is(commits - 1));
+            assertThat(modifications, is(diffTreeModifications));
+            LOGGER.info("{} new commits: {}ms with one git log, {}ms with a git diff-tree per commit", commits - 1,
+                    batched.elapsed(), perCommit.elapsed());
+        }
+    }
+
+    private List<Modification> modificationsWithDiffTreePerCommit(File workingDir, StringRevision since) {
+        ConsoleResult log = git("log", "--date=iso", "--pretty=medium", "--no-decorate", "--no-color", since.getRevision() + "..origin/master")
+                .withWorkingDir(workingDir).runOrBomb(null);
+        List<Modification> modifications = new GitModificationParser().parse(log.output());
+        for (Modification modification : modifications) {
+            ConsoleResult diffTree = git("diff-tree", "--name-status", "--root", "-r", modification.getRevision())
+                    .withWorkingDir(workingDir).runOrBomb(null);
+            for (String line : diffTree.output()) {
+                if (!line.equals(modification.getRevision())) {
+                    String[] statusAndPath = line.split("\t", 2);
+                    modification.createModifiedFile(statusAndPath[1], null, parseGitAction(statusAndPath[0].charAt(0)));
+                }
+            }
+        }
+        return modifications;
+    }
+
+    private void generateRepository(File dir, int commits) {
+        git("init", "-q").withWorkingDir(dir).runOrBomb(null);
+        git("fast-import", "--quiet").withWorkingDir(dir).runOrBomb(null, fastImportStream(commits));
+    }
+
+    private String[] fastImportStream(int commits) {
+        List<String> stream = new ArrayList<>();
+        long time = 1500000000;
+        for (int i = 0; i < commits; i++) {
+            String message = "Commit " + i;
+            stream.add("commit refs/heads/master");
+            stream.add("committer Dev <dev@example.com> " + (time + i * 60) + " +0000");
+            stream.add("data " + message.getBytes(UTF_8).length);
+            stream.add(message);
+            for (int j = 0; j < FILES_PER_COMMIT; j++) {
+                String content = "Revision " + i;
+                stream.add("M 644 inline module-" + (i % 50) + "/file-" + j + ".txt");
+                stream.add("data " + content.getBytes(UTF_8).length);
+                stream.add(content);
+            }
+            stream.add("");
+        }
+        return stream.toArray(new String[0]);
+    }
+
+    private static CommandLine git(String... args) {
+        return CommandLine.createCommandLine("git").withEncoding("UTF-8").withArgs(args);
+    }
+}
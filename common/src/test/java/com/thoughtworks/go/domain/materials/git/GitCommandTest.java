@@ -555,6 +555,33 @@ public class GitCommandTest {
         assertThat(modification.getModifiedFiles().get(0).getFileName()).isEqualTo(testingFile.getName());
     }
 
+    @Test
+    void shouldListTheFilesChangedByEachCommitSinceARevision() throws Exception {
+        StringRevision originalNode = new StringRevision(git.latestModification().get(0).getRevision());
+        GitCommand remoteGit = new GitCommand(null, repoLocation, GitMaterialConfig.DEFAULT_BRANCH, false, new HashMap<>(), null);
+        File firstFile = new File(repoLocation, "first-new-file.txt");
+        File secondFile = new File(repoLocation, "second-new-file.txt");
+        firstFile.createNewFile();
+        remoteGit.add(firstFile);
+        remoteGit.commit("Added " + firstFile.getName());
+        secondFile.createNewFile();
+        remoteGit.add(secondFile);
+        remoteGit.commit("Added " + secondFile.getName());
+        executeOnDir(repoLocation, "git", "rm", "-q", firstFile.getName());
+        remoteGit.commit("Removed " + firstFile.getName());
+
+        List<Modification> modifications = git.modificationsSince(originalNode);
+
+        assertThat(modifications).hasSize(3);
+        assertThat(modifications.get(0).getComment()).isEqualTo("Removed " + firstFile.getName());
+        assertThat(modifications.get(0).getModifiedFiles()).extracting(ModifiedFile::getFileName, ModifiedFile::getAction)
+                .containsExactly(tuple(firstFile.getName(), ModifiedAction.deleted));
+        assertThat(modifications.get(1).getModifiedFiles()).extracting(ModifiedFile::getFileName, ModifiedFile::getAction)
+                .containsExactly(tuple(secondFile.getName(), ModifiedAction.added));
+        assertThat(modifications.get(2).getModifiedFiles()).extracting(ModifiedFile::getFileName, ModifiedFile::getAction)
+                .containsExactly(tuple(firstFile.getName(), ModifiedAction.added));
+    }
+
     @Test
     void shouldIncludeChangesFromTheFutureInModificationCheck() throws Exception {
         String originalNode = git.latestModification().get(0).getRevision();
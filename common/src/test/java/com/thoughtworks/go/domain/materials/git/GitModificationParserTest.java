@@ -16,6 +16,7 @@
 
 package com.thoughtworks.go.domain.materials.git;
 
+import com.thoughtworks.go.domain.materials.ModifiedAction;
 import com.thoughtworks.go.util.DateUtils;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
@@ -103,4 +104,25 @@ public class GitModificationParserTest {
                 parser.getModifications().get(1).getComment(),
                 is("My Comment 2"));
     }
+
+    @Test
+    public void shouldAddTheFilesListedUnderACommitToIt() {
+        simulateOneComment();
+        parser.processLine("");
+        parser.processLine("    My Comment");
+        parser.processLine("    M\tnot-a-file");
+        parser.processLine("");
+        parser.processLine("M\tbuild.xml");
+        parser.processLine("D\tdir/old file.txt");
+        simulateOneComment();
+        parser.processLine("");
+        parser.processLine("    Merge");
+        assertThat(parser.getModifications().get(0).getComment(), is("My Comment\nM\tnot-a-file"));
+        assertThat(parser.getModifications().get(0).getModifiedFiles().size(), is(2));
+        assertThat(parser.getModifications().get(0).getModifiedFiles().get(0).getFileName(), is("build.xml"));
+        assertThat(parser.getModifications().get(0).getModifiedFiles().get(0).getAction(), is(ModifiedAction.modified));
+        assertThat(parser.getModifications().get(0).getModifiedFiles().get(1).getFileName(), is("dir/old file.txt"));
+        assertThat(parser.getModifications().get(0).getModifiedFiles().get(1).getAction(), is(ModifiedAction.deleted));
+        assertThat(parser.getModifications().get(1).getModifiedFiles().size(), is(0));
+    }
 }
@@ -25,10 +25,13 @@ import com.thoughtworks.go.remote.work.GoArtifactsManipulatorStub;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
 import com.thoughtworks.go.util.CachedDigestUtils;
 import com.thoughtworks.go.util.HttpService;
-import com.thoughtworks.go.util.ReflectionUtil;
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.URLService;
+import com.thoughtworks.go.util.ZipUtil;
 import com.thoughtworks.go.work.DefaultGoPublisher;
-import org.apache.commons.collections4.queue.CircularFifoQueue;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.http.entity.mime.content.ContentBody;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.junit.Before;
@@ -37,9 +40,12 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.Properties;
+import java.util.zip.ZipInputStream;
 
 import static com.thoughtworks.go.util.SystemUtil.currentWorkingDirectory;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -75,16 +81,14 @@ public class GoArtifactsManipulatorTest {
     public void shouldBombWithErrorWhenStatusCodeReturnedIsRequestEntityTooLarge() throws IOException, InterruptedException {
         when(httpService.upload(any(String.class), eq(tempFile.length()), any(File.class), any(Properties.class))).thenReturn(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
 
-        CircularFifoQueue buffer = (CircularFifoQueue) ReflectionUtil.getField(ReflectionUtil.getField(goPublisher, "consoleOutputTransmitter"), "buffer");
-        synchronized (buffer) {
-            try {
-                goArtifactsManipulatorStub.publish(goPublisher, "some_dest", tempFile, jobIdentifier);
-                fail("should have thrown request entity too large error");
-            } catch (RuntimeException e) {
-                String expectedMessage = "Artifact upload for file " + tempFile.getAbsolutePath() + " (Size: "+ tempFile.length() +") was denied by the server. This usually happens when server runs out of disk space.";
-                assertThat(e.getMessage(), is("java.lang.RuntimeException: " + expectedMessage + ".  HTTP return code is 413"));
-                assertThat(buffer.toString().contains(expectedMessage), is(true));
-            }
+        try {
+            goArtifactsManipulatorStub.publish(goPublisher, "some_dest", tempFile, jobIdentifier);
+            fail("should have thrown request entity too large error");
+        } catch (RuntimeException e) {
+            String expectedMessage = "Artifact upload for file " + tempFile.getAbsolutePath() + " (Size: "+ tempFile.length() +") was denied by the server. This usually happens when server runs out of disk space.";
+            assertThat(e.getMessage(), is("java.lang.RuntimeException: " + expectedMessage + ".  HTTP return code is 413"));
+            goPublisher.stop();
+            assertThat(goArtifactsManipulatorStub.consoleOut().contains(expectedMessage), is(true));
         }
     }
 
@@ -142,6 +146,131 @@ public class GoArtifactsManipulatorTest {
         goArtifactsManipulatorStub.publish(goPublisher, "dest", artifactFolder, jobIdentifier);
     }
 
+    @Test
+    public void shouldZipADirectoryWhileUploadingItAndSendTheChecksumsAfterIt() throws IOException {
+        String data = "Some text whose checksum can be asserted";
+        String secondData = "some more";
+        FileUtils.writeStringToFile(tempFile, data, UTF_8);
+        FileUtils.writeStringToFile(new File(artifactFolder, "bond/james_bond/another_file"), secondData, UTF_8);
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.isStreamingArtifactUploadEnabled()).thenReturn(true);
+        ZipUtil zipUtil = new ZipUtil();
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        ByteArrayOutputStream checksums = new ByteArrayOutputStream();
+        when(httpService.upload(any(String.class), eq(FileUtils.sizeOfDirectory(artifactFolder)), any(ContentBody.class), any(ContentBody.class))).then(invocation -> {
+            invocation.<ContentBody>getArgument(2).writeTo(zip);
+            invocation.<ContentBody>getArgument(3).writeTo(checksums);
+            return HttpServletResponse.SC_OK;
+        });
+
+        new GoArtifactsManipulator(httpService, new URLService(), zipUtil, systemEnvironment).publish(goPublisher, "dest", artifactFolder, jobIdentifier);
+
+        verify(httpService, never()).upload(any(String.class), anyLong(), any(File.class), any(Properties.class));
+        Properties uploadedChecksums = new Properties();
+        uploadedChecksums.load(new ByteArrayInputStream(checksums.toByteArray()));
+        assertThat(uploadedChecksums, is(expectedProperties(data, secondData)));
+        File unzipped = temporaryFolder.newFolder("unzipped");
+        zipUtil.unzip(new ZipInputStream(new ByteArrayInputStream(zip.toByteArray())), unzipped);
+        assertThat(FileUtils.readFileToString(new File(unzipped, "artifact_folder/bond/james_bond/another_file"), UTF_8), is(secondData));
+    }
+
+    @Test
+    public void shouldOnlyUploadTheFilesWhoseContentTheServerDoesNotHave() throws IOException {
+        String data = "Some text whose checksum can be asserted";
+        String secondData = "some more";
+        FileUtils.writeStringToFile(tempFile, data, UTF_8);
+        File anotherFile = new File(artifactFolder, "bond/james_bond/another_file");
+        FileUtils.writeStringToFile(anotherFile, secondData, UTF_8);
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.shouldSkipUploadOfKnownArtifactContent()).thenReturn(true);
+        Properties contentReferences = new Properties();
+        contentReferences.setProperty("artifact_folder/file.txt", DigestUtils.sha256Hex(data));
+        contentReferences.setProperty("artifact_folder/bond/james_bond/another_file", DigestUtils.sha256Hex(secondData));
+        Properties unknownToServer = new Properties();
+        unknownToServer.setProperty("artifact_folder/bond/james_bond/another_file", DigestUtils.sha256Hex(secondData));
+        when(httpService.postContentReferences(any(String.class), eq(contentReferences))).thenReturn(unknownToServer);
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        ByteArrayOutputStream checksums = new ByteArrayOutputStream();
+        when(httpService.upload(any(String.class), eq(anotherFile.length()), any(ContentBody.class), any(ContentBody.class))).then(invocation -> {
+            invocation.<ContentBody>getArgument(2).writeTo(zip);
+            invocation.<ContentBody>getArgument(3).writeTo(checksums);
+            return HttpServletResponse.SC_OK;
+        });
+
+        new GoArtifactsManipulator(httpService, new URLService(), new ZipUtil(), systemEnvironment).publish(goPublisher, "dest", artifactFolder, jobIdentifier);
+
+        Properties uploadedChecksums = new Properties();
+        uploadedChecksums.load(new ByteArrayInputStream(checksums.toByteArray()));
+        assertThat(uploadedChecksums, is(expectedProperties(data, secondData)));
+        File unzipped = temporaryFolder.newFolder("unzipped");
+        new ZipUtil().unzip(new ZipInputStream(new ByteArrayInputStream(zip.toByteArray())), unzipped);
+        assertThat(FileUtils.readFileToString(new File(unzipped, "artifact_folder/bond/james_bond/another_file"), UTF_8), is(secondData));
+        assertThat(new File(unzipped, "artifact_folder/file.txt").exists(), is(false));
+    }
+
+    @Test
+    public void shouldUploadEmptyDirectoriesEvenWhenTheServerHasTheContentOfEveryFile() throws IOException {
+        FileUtils.writeStringToFile(tempFile, "some data", UTF_8);
+        assertThat(new File(artifactFolder, "reports/empty").mkdirs(), is(true));
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.shouldSkipUploadOfKnownArtifactContent()).thenReturn(true);
+        when(httpService.postContentReferences(any(String.class), any(Properties.class))).thenReturn(new Properties());
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        when(httpService.upload(any(String.class), eq(0L), any(ContentBody.class), any(ContentBody.class))).then(invocation -> {
+            invocation.<ContentBody>getArgument(2).writeTo(zip);
+            return HttpServletResponse.SC_OK;
+        });
+
+        new GoArtifactsManipulator(httpService, new URLService(), new ZipUtil(), systemEnvironment).publish(goPublisher, "dest", artifactFolder, jobIdentifier);
+
+        File unzipped = temporaryFolder.newFolder("unzipped");
+        new ZipUtil().unzip(new ZipInputStream(new ByteArrayInputStream(zip.toByteArray())), unzipped);
+        assertThat(new File(unzipped, "artifact_folder/reports/empty").isDirectory(), is(true));
+        assertThat(new File(unzipped, "artifact_folder/file.txt").exists(), is(false));
+    }
+
+    @Test
+    public void shouldUploadEveryFileWhenTheServerDoesNotStoreArtifactsByContent() throws IOException {
+        String data = "Some text whose checksum can be asserted";
+        FileUtils.writeStringToFile(tempFile, data, UTF_8);
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.shouldSkipUploadOfKnownArtifactContent()).thenReturn(true);
+        when(httpService.postContentReferences(any(String.class), any(Properties.class))).thenReturn(null);
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        when(httpService.upload(any(String.class), eq(tempFile.length()), any(ContentBody.class), any(ContentBody.class))).then(invocation -> {
+            invocation.<ContentBody>getArgument(2).writeTo(zip);
+            return HttpServletResponse.SC_OK;
+        });
+
+        new GoArtifactsManipulator(httpService, new URLService(), new ZipUtil(), systemEnvironment).publish(goPublisher, "/dest/path", tempFile, jobIdentifier);
+
+        File unzipped = temporaryFolder.newFolder("unzipped");
+        new ZipUtil().unzip(new ZipInputStream(new ByteArrayInputStream(zip.toByteArray())), unzipped);
+        assertThat(FileUtils.readFileToString(new File(unzipped, "file.txt"), UTF_8), is(data));
+    }
+
+    @Test
+    public void shouldKeyTheChecksumOfAStreamedFileByItsDestination() throws IOException {
+        String data = "Some text whose checksum can be asserted";
+        FileUtils.writeStringToFile(tempFile, data, UTF_8);
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.isStreamingArtifactUploadEnabled()).thenReturn(true);
+        ByteArrayOutputStream checksums = new ByteArrayOutputStream();
+        when(httpService.upload(any(String.class), eq(tempFile.length()), any(ContentBody.class), any(ContentBody.class))).then(invocation -> {
+            invocation.<ContentBody>getArgument(2).writeTo(new ByteArrayOutputStream());
+            invocation.<ContentBody>getArgument(3).writeTo(checksums);
+            return HttpServletResponse.SC_OK;
+        });
+
+        new GoArtifactsManipulator(httpService, new URLService(), new ZipUtil(), systemEnvironment).publish(goPublisher, "/dest/path", tempFile, jobIdentifier);
+
+        Properties uploadedChecksums = new Properties();
+        uploadedChecksums.load(new ByteArrayInputStream(checksums.toByteArray()));
+        Properties expected = new Properties();
+        expected.setProperty("dest/path/file.txt", CachedDigestUtils.md5Hex(data));
+        assertThat(uploadedChecksums, is(expected));
+    }
+
     private Properties expectedProperties(String data, String secondData) {
         Properties properties = new Properties();
         properties.setProperty("dest/artifact_folder/file.txt", CachedDigestUtils.md5Hex(data));
@@ -17,14 +17,23 @@
 package com.thoughtworks.go.remote.work;
 
 import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.Assert.assertThat;
 
 public class ConsoleOutputTransmitterPerformanceTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleOutputTransmitterPerformanceTest.class);
     private static final int SECOND = 1000;
 
     @Before
@@ -49,6 +58,32 @@ public class ConsoleOutputTransmitterPerformanceTest {
         assertThat("Send should not block.", numberToSend, lessThanOrEqualTo(actuallySent));
     }
 
+    @Test
+    public void shouldKeepUpWithAJobPrinting100kLinesASecondWithoutLosingAny() throws Exception {
+        int linesPerSecond = 100 * 1000;
+        int seconds = 2;
+        AtomicLong linesSent = new AtomicLong();
+        final ConsoleOutputTransmitter transmitter = new ConsoleOutputTransmitter(content -> {
+            linesSent.addAndGet(StringUtils.countMatches(content, '\n'));
+            sleepFor(20); // a round trip to the server
+        });
+
+        long started = System.nanoTime();
+        for (int second = 0; second < seconds; second++) {
+            long secondStartedAt = started + TimeUnit.SECONDS.toNanos(second);
+            for (int i = 0; i < linesPerSecond; i++) {
+                transmitter.consumeLine("[INFO] Tests run: " + i + ", Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 0.042 s");
+            }
+            LockSupport.parkNanos(secondStartedAt + TimeUnit.SECONDS.toNanos(1) - System.nanoTime());
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        transmitter.stop();
+
+        LOGGER.info("Consumed {} lines in {}ms", linesPerSecond * seconds, elapsedMillis);
+        assertThat(linesSent.get(), is((long) linesPerSecond * seconds));
+        assertThat("Consuming should keep up with the job.", elapsedMillis, lessThanOrEqualTo((seconds + 1) * 1000L));
+    }
+
     private int transmitData(final ConsoleOutputTransmitter transmitter, final int numberOfSeconds)
             throws InterruptedException {
         final int[] count = {0};
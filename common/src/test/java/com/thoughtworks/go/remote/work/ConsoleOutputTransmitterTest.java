@@ -17,15 +17,21 @@
 package com.thoughtworks.go.remote.work;
 
 import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
+import java.io.IOException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -35,6 +41,7 @@ public class ConsoleOutputTransmitterTest {
     private ConsoleAppender consoleAppender;
     private ArgumentCaptor<String> requestArgumentCaptor;
     private ConsoleOutputTransmitter transmitter;
+    private ScheduledThreadPoolExecutor executor;
 
     @Before
     public void setup() throws Exception {
@@ -44,7 +51,8 @@ public class ConsoleOutputTransmitterTest {
 
         requestArgumentCaptor = ArgumentCaptor.forClass(String.class);
         doNothing().when(consoleAppender).append(requestArgumentCaptor.capture());
-        transmitter = new ConsoleOutputTransmitter(consoleAppender, 0, mock(ScheduledThreadPoolExecutor.class));
+        executor = mock(ScheduledThreadPoolExecutor.class);
+        transmitter = new ConsoleOutputTransmitter(consoleAppender, 0, executor);
     }
 
     @After
@@ -70,4 +78,53 @@ public class ConsoleOutputTransmitterTest {
 
         verify(consoleAppender, never()).append(any(String.class));
     }
+
+    @Test
+    public void shouldTagAndTimestampEveryLineOfMultilineOutput() throws Exception {
+        transmitter.taggedConsumeLine("##", "first line\nsecond line");
+
+        transmitter.flushToServer();
+
+        assertThat(requestArgumentCaptor.getValue(), matchesPattern("##\\|\\d{2}:\\d{2}:\\d{2}\\.\\d{3} first line\n##\\|\\d{2}:\\d{2}:\\d{2}\\.\\d{3} second line\n"));
+    }
+
+    @Test
+    public void shouldSendOutputItselfInsteadOfDroppingLinesWhenTheBufferIsFull() throws Exception {
+        int lines = ConsoleOutputTransmitter.CAPACITY + 100;
+        for (int i = 0; i < lines; i++) {
+            transmitter.consumeLine("line " + i);
+        }
+
+        transmitter.flushToServer();
+
+        verify(consoleAppender, times(2)).append(any(String.class));
+        String sent = String.join("", requestArgumentCaptor.getAllValues());
+        assertThat(sent.split("\n").length, is(lines));
+        assertThat(sent, endsWith(" line " + (lines - 1) + "\n"));
+    }
+
+    @Test
+    public void shouldSendOutputAgainWhenItCouldNotBeSent() throws Exception {
+        doThrow(new IOException("server is down")).doNothing().when(consoleAppender).append(requestArgumentCaptor.capture());
+        transmitter.consumeLine("first line");
+        transmitter.flushToServer();
+        transmitter.consumeLine("second line");
+
+        transmitter.flushToServer();
+        transmitter.flushToServer();
+
+        assertThat(requestArgumentCaptor.getAllValues().get(1), containsString("first line\n"));
+        assertThat(requestArgumentCaptor.getAllValues().get(1), not(containsString("second line")));
+        assertThat(requestArgumentCaptor.getAllValues().get(2), containsString("second line\n"));
+    }
+
+    @Test
+    public void shouldAskForOutputToBeSentOnceTheFlushThresholdIsCrossed() throws Exception {
+        String line = StringUtils.repeat('x', 1024);
+        for (int i = 0; i < ConsoleOutputTransmitter.FLUSH_THRESHOLD / line.length(); i++) {
+            transmitter.consumeLine(line);
+        }
+
+        verify(executor).execute(transmitter);
+    }
 }
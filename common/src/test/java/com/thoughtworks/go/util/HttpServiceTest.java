@@ -19,11 +19,15 @@ package com.thoughtworks.go.util;
 import com.thoughtworks.go.agent.common.ssl.GoAgentServerHttpClient;
 import com.thoughtworks.go.domain.FetchHandler;
 import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpVersion;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.content.ContentBody;
+import org.apache.http.entity.mime.content.StringBody;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.message.BasicStatusLine;
 import org.junit.Before;
@@ -32,6 +36,7 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -39,6 +44,7 @@ import java.util.Arrays;
 
 import static com.thoughtworks.go.util.HttpService.GO_ARTIFACT_PAYLOAD_SIZE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
@@ -156,4 +162,26 @@ public class HttpServiceTest {
         }
 
     }
+
+    @Test
+    public void shouldSendTheChecksumsOfAStreamedArtifactAfterItInAChunkedRequest() throws IOException {
+        HttpService.HttpClientFactory factory = new HttpService.HttpClientFactory(null);
+        ContentBody artifact = new StringBody("zipped-artifact", ContentType.DEFAULT_BINARY) {
+            @Override
+            public long getContentLength() {
+                return -1;
+            }
+        };
+        ContentBody checksums = new StringBody("foo.txt=323233333", ContentType.DEFAULT_BINARY);
+
+        HttpEntity entity = factory.createMultipartRequestEntity(artifact, checksums);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        entity.writeTo(body);
+        String request = body.toString("UTF-8");
+        assertTrue(entity.isChunked());
+        assertTrue(request.indexOf("name=\"" + GoConstants.ZIP_MULTIPART_FILENAME + "\"") < request.indexOf("zipped-artifact"));
+        assertTrue(request.indexOf("zipped-artifact") < request.indexOf("name=\"" + GoConstants.CHECKSUM_MULTIPART_FILENAME + "\""));
+        assertTrue(request.indexOf("name=\"" + GoConstants.CHECKSUM_MULTIPART_FILENAME + "\"") < request.indexOf("foo.txt=323233333"));
+    }
 }
@@ -28,8 +28,11 @@ import com.thoughtworks.go.helper.ModificationsMother;
 import com.thoughtworks.go.remote.AgentIdentifier;
 import com.thoughtworks.go.remote.work.BuildAssignment;
 import com.thoughtworks.go.remote.work.BuildWork;
+import com.thoughtworks.go.server.service.AgentBuildingInfo;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
+import com.thoughtworks.go.server.service.ElasticAgentRuntimeInfo;
 import com.thoughtworks.go.util.command.EnvironmentVariableContext;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
@@ -92,6 +95,142 @@ public class MessageTest {
         assertThat(decodedWork.getAssignment().getJobIdentifier().getPipelineName(), is("pipelineName"));
     }
 
+    @Test
+    public void encodeAndDecodeBinaryMessageWithoutData() {
+        Message message = new Message(Action.ping);
+        byte[] msg = MessageEncoding.encodeMessage(message, true);
+        assertThat(msg.length, is(19));
+        assertEquals(message, MessageEncoding.decodeMessage(new ByteArrayInputStream(msg)));
+    }
+
+    @Test
+    public void encodeAndDecodeBinaryPingMessage() {
+        AgentRuntimeInfo info = new AgentRuntimeInfo(new AgentIdentifier("hostName", "ipAddress", "uuid"), null, null, null, false);
+        Message message = new Message(Action.ping, MessageEncoding.encodeData(info));
+        byte[] msg = MessageEncoding.encodeMessage(message, true);
+        Message decoded = MessageEncoding.decodeMessage(new ByteArrayInputStream(msg));
+        assertEquals(message, decoded);
+        assertThat(MessageEncoding.decodeData(decoded.getData(), AgentRuntimeInfo.class).getIdentifier(), is(info.getIdentifier()));
+    }
+
+    @Test
+    public void encodeAndDecodeBinaryMessageWithAnAcknowledgementIdThatIsNotAUuid() {
+        Message message = new Message(Action.acknowledge, "\"data\"", "not-a-uuid");
+        assertEquals(message, MessageEncoding.decodeMessage(new ByteArrayInputStream(MessageEncoding.encodeMessage(message, true))));
+    }
+
+    @Test
+    public void encodeAndDecodeBinaryMessageWithoutAnAcknowledgementId() {
+        Message message = new Message(Action.ping, "\"data\"", null);
+        Message decoded = MessageEncoding.decodeMessage(new ByteArrayInputStream(MessageEncoding.encodeMessage(message, true)));
+        assertEquals(message, decoded);
+        assertNull(decoded.getAcknowledgementId());
+    }
+
+    @Test
+    public void compressOnlyTheDataOfLargeBinaryMessages() {
+        String smallData = MessageEncoding.encodeData(StringUtils.repeat("a", 100));
+        String largeData = MessageEncoding.encodeData(StringUtils.repeat("a", 100000));
+
+        Message small = new Message(Action.consoleOut, smallData);
+        Message large = new Message(Action.consoleOut, largeData);
+        byte[] smallMsg = MessageEncoding.encodeMessage(small, true);
+        byte[] largeMsg = MessageEncoding.encodeMessage(large, true);
+
+        assertThat(smallMsg.length > smallData.length(), is(true));
+        assertThat(largeMsg.length < 1000, is(true));
+        assertEquals(small, MessageEncoding.decodeMessage(new ByteArrayInputStream(smallMsg)));
+        assertEquals(large, MessageEncoding.decodeMessage(new ByteArrayInputStream(largeMsg)));
+    }
+
+    @Test
+    public void encodeAndDecodeBinaryAssignWorkWithoutBase64() throws Exception {
+        BuildWork work = new BuildWork(BuildAssignment.create(jobPlan(), BuildCause.createWithEmptyModifications(), new ArrayList<>(), new File("."), new EnvironmentVariableContext(), new ArtifactStores()), "utf-8");
+        Message message = new Message(Action.assignWork, MessageEncoding.encodeWork(work));
+
+        byte[] msg = MessageEncoding.encodeMessage(message, true);
+        Message decodedMsg = MessageEncoding.decodeMessage(new ByteArrayInputStream(msg));
+
+        assertThat(msg.length < message.getData().length(), is(true));
+        assertEquals(message, decodedMsg);
+        BuildWork decodedWork = (BuildWork) MessageEncoding.decodeWork(decodedMsg.getData());
+        assertThat(decodedWork.getAssignment().getJobIdentifier().getPipelineName(), is("pipelineName"));
+    }
+
+    @Test
+    public void encodeAndDecodeBinaryPingPayloadFieldByField() {
+        AgentRuntimeInfo info = new AgentRuntimeInfo(new AgentIdentifier("hostName", "ipAddress", "uuid"), AgentRuntimeStatus.Building, "/var/lib/go-agent", "cookie", true);
+        info.setUsableSpace(1024L);
+        info.setOperatingSystem("Linux");
+        info.setBuildingInfo(new AgentBuildingInfo("pipeline/1/stage/1/job", "pipeline/1/stage/1/job"));
+        Message message = Message.withPayload(Action.ping, info);
+
+        byte[] msg = MessageEncoding.encodeMessage(message, true);
+        Message decoded = MessageEncoding.decodeMessage(new ByteArrayInputStream(msg));
+
+        assertThat(msg.length < message.getData().length(), is(true));
+        AgentRuntimeInfo decodedInfo = decoded.getPayload(AgentRuntimeInfo.class);
+        assertThat(decodedInfo, is(info));
+        assertThat(decodedInfo.getUsableSpace(), is(1024L));
+        assertEquals(message, decoded);
+    }
+
+    @Test
+    public void encodeAndDecodeBinaryElasticAgentPingPayload() {
+        ElasticAgentRuntimeInfo info = new ElasticAgentRuntimeInfo(new AgentIdentifier("hostName", "ipAddress", "uuid"), AgentRuntimeStatus.Idle, "location", null, "elastic-agent-id", "plugin-id");
+        Message message = Message.withPayload(Action.ping, info);
+
+        Message decoded = MessageEncoding.decodeMessage(new ByteArrayInputStream(MessageEncoding.encodeMessage(message, true)));
+
+        assertThat(decoded.getPayload(AgentRuntimeInfo.class), is(info));
+        assertEquals(message, decoded);
+    }
+
+    @Test
+    public void encodeAndDecodeBinaryReportPayloadFieldByField() {
+        AgentRuntimeInfo info = new AgentRuntimeInfo(new AgentIdentifier("hostName", "ipAddress", "uuid"), AgentRuntimeStatus.Building, "location", "cookie", false);
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline", 1, "label-1", "stage", "2", "job", 100L);
+        jobIdentifier.setRerunOfCounter(1);
+        Report report = new Report(info, jobIdentifier, JobResult.Passed);
+        Message message = Message.withPayload(Action.reportCompleted, report);
+
+        Message decoded = MessageEncoding.decodeMessage(new ByteArrayInputStream(MessageEncoding.encodeMessage(message, true)));
+
+        Report decodedReport = decoded.getPayload(Report.class);
+        assertThat(decodedReport, is(report));
+        assertThat(decodedReport.getJobIdentifier().getRerunOfCounter(), is(1));
+        assertEquals(message, decoded);
+
+        Report byBuildId = new Report(info, "100", JobState.Building, null);
+        Message statusMessage = Message.withPayload(Action.reportCurrentStatus, byBuildId);
+        Message decodedStatus = MessageEncoding.decodeMessage(new ByteArrayInputStream(MessageEncoding.encodeMessage(statusMessage, true)));
+        assertThat(decodedStatus.getPayload(Report.class), is(byBuildId));
+    }
+
+    @Test
+    public void encodeAndDecodePayloadsAsJsonForAgentsThatDoNotUseBinaryMessages() {
+        AgentRuntimeInfo info = new AgentRuntimeInfo(new AgentIdentifier("hostName", "ipAddress", "uuid"), AgentRuntimeStatus.Idle, "location", "cookie", false);
+        Message message = Message.withPayload(Action.ping, info);
+
+        Message decoded = MessageEncoding.decodeMessage(new ByteArrayInputStream(MessageEncoding.encodeMessage(message, false)));
+
+        assertThat(decoded.getData(), is(MessageEncoding.encodeData(info)));
+        assertThat(decoded.getPayload(AgentRuntimeInfo.class), is(info));
+    }
+
+    @Test
+    public void failToDecodeBinaryMessageWithAnActionThisVersionDoesNotKnow() {
+        byte[] msg = MessageEncoding.encodeMessage(new Message(Action.ping), true);
+        msg[2] = (byte) 200;
+
+        try {
+            MessageEncoding.decodeMessage(new ByteArrayInputStream(msg));
+            fail("should not decode a message with an unknown action");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage().contains("Unknown websocket message action 200"), is(true));
+        }
+    }
+
     private DefaultJobPlan jobPlan() {
         JobIdentifier jobIdentifier = new JobIdentifier("pipelineName", 1, "1", "defaultStage", "1", "job1", 100L);
         return new DefaultJobPlan(new Resources(), new ArrayList<>(), new ArrayList<>(), 1L, jobIdentifier, null, new EnvironmentVariables(), new EnvironmentVariables(), null, null);
@@ -111,6 +111,9 @@ public class BasicCruiseConfig implements CruiseConfig {
     @IgnoreTraversal
     private transient AllTemplatesWithAssociatedPipelines allTemplatesWithAssociatedPipelines;
 
+    @IgnoreTraversal
+    private transient volatile CompiledConfigIndex compiledIndex;
+
     public BasicCruiseConfig() {
         strategy = new BasicStrategy();
     }
@@ -163,6 +166,12 @@ public class BasicCruiseConfig implements CruiseConfig {
         allPipelineConfigs = null;
         pipelineNameToConfigMap = null;
         allTemplatesWithAssociatedPipelines = null;
+        compiledIndex = null;
+    }
+
+    @Override
+    public void compile() {
+        compiledIndex = new CompiledConfigIndex(this);
     }
 
     private void createMergedConfig(BasicCruiseConfig main, List<PartialConfig> partList, boolean forEdit) {
@@ -591,9 +600,10 @@ public class BasicCruiseConfig implements CruiseConfig {
         final Hashtable<CaseInsensitiveString, Node> dependencyTable = getDependencyTable();
         List<PipelineConfig> pipelineConfigs = this.getAllPipelineConfigs();
         DependencyTable pipelineDependencyState = new DependencyTable(dependencyTable);
+        Set<CaseInsensitiveString> acyclic = new HashSet<>();
         for (PipelineConfig pipelineConfig : pipelineConfigs) {
             try {
-                dfsCycleDetector.topoSort(pipelineConfig.name(), pipelineDependencyState);
+                dfsCycleDetector.topoSort(pipelineConfig.name(), pipelineDependencyState, acyclic);
             } catch (Exception e) {
                 addToErrorsBaseOnMaterialsIfDoesNotExist(e.getMessage(), pipelineConfig.materialConfigs(), pipelineConfigs);
             }
@@ -635,6 +645,14 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public PipelineConfig pipelineConfigByName(final CaseInsensitiveString name) {
+        CompiledConfigIndex index = compiledIndex;
+        if (index != null) {
+            PipelineConfig pipelineConfig = index.pipeline(name);
+            if (pipelineConfig == null) {
+                throw new RecordNotFoundException(Pipeline, name);
+            }
+            return pipelineConfig;
+        }
         if (pipelineNameToConfigMap == null) {
             pipelineNameToConfigMap = new PipelineNameToConfigMap();
         }
@@ -661,6 +679,10 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public PipelineConfig getPipelineConfigByName(CaseInsensitiveString pipelineName) {
+        CompiledConfigIndex index = compiledIndex;
+        if (index != null) {
+            return index.pipeline(pipelineName);
+        }
         return pipelinesFromAllGroups().findBy(pipelineName);
     }
 
@@ -740,6 +762,10 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public List<PipelineConfig> allPipelines() {
+        CompiledConfigIndex index = compiledIndex;
+        if (index != null) {
+            return new ArrayList<>(index.allPipelines());
+        }
         List<PipelineConfig> configs = new ArrayList<>();
         for (PipelineConfigs group : groups) {
             for (PipelineConfig pipeline : group) {
@@ -853,6 +879,7 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public void setGroup(PipelineGroups pipelineGroups) {
+        compiledIndex = null;
         groups = pipelineGroups;
     }
 
@@ -876,16 +903,19 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public void addPipeline(String groupName, PipelineConfig pipelineConfig) {
+        compiledIndex = null;
         groups.addPipeline(groupName, pipelineConfig);
     }
 
     @Override
     public void deletePipeline(PipelineConfig pipelineConfig) {
+        compiledIndex = null;
         groups.deletePipeline(pipelineConfig);
     }
 
     @Override
     public void deletePipelineGroup(String groupName) {
+        compiledIndex = null;
         groups.deleteGroup(groupName);
     }
 
@@ -901,11 +931,13 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public void addPipelineWithoutValidation(String groupName, PipelineConfig pipelineConfig) {
+        compiledIndex = null;
         groups.addPipelineWithoutValidation(sanitizedGroupName(groupName), pipelineConfig);
     }
 
     @Override
     public void update(String groupName, String pipelineName, PipelineConfig pipeline) {
+        compiledIndex = null;
         if (groups.isEmpty()) {
             PipelineConfigs configs = new BasicPipelineConfigs();
             configs.add(pipeline);
@@ -991,6 +1023,7 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public void setServerConfig(ServerConfig serverConfig) {
+        compiledIndex = null;
         this.serverConfig = serverConfig;
     }
 
@@ -1011,6 +1044,7 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public void updateGroup(PipelineConfigs pipelineConfigs, String groupName) {
+        compiledIndex = null;
         PipelineConfigs old = groups.findGroup(groupName);
         int index = groups.indexOf(old);
         groups.set(index, pipelineConfigs);
@@ -1062,6 +1096,7 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public void setEnvironments(EnvironmentsConfig environments) {
+        compiledIndex = null;
         this.environments = environments;
     }
 
@@ -1156,6 +1191,7 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public void addEnvironment(BasicEnvironmentConfig config) {
+        compiledIndex = null;
         environments.add(config);
     }
 
@@ -1200,6 +1236,7 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public void addTemplate(PipelineTemplateConfig pipelineTemplate) {
+        compiledIndex = null;
         templatesConfig.add(pipelineTemplate);
     }
 
@@ -1214,11 +1251,13 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public void setTemplates(TemplatesConfig templates) {
+        compiledIndex = null;
         this.templatesConfig = templates;
     }
 
     @Override
     public void makePipelineUseTemplate(CaseInsensitiveString pipelineName, CaseInsensitiveString templateName) {
+        compiledIndex = null;
         pipelineConfigByName(pipelineName).templatize(templateName);
     }
 
@@ -1235,7 +1274,7 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public boolean hasVariableInScope(String pipelineName, String variableName) {
-        EnvironmentConfig environmentConfig = environments.findEnvironmentForPipeline(new CaseInsensitiveString(pipelineName));
+        EnvironmentConfig environmentConfig = findEnvironmentOfPipeline(new CaseInsensitiveString(pipelineName));
         if (environmentConfig != null) {
             if (environmentConfig.hasVariable(variableName)) {
                 return true;
@@ -1247,10 +1286,19 @@ public class BasicCruiseConfig implements CruiseConfig {
     @Override
     public EnvironmentVariablesConfig variablesFor(String pipelineName) {
         EnvironmentVariablesConfig pipelineVariables = pipelineConfigByName(new CaseInsensitiveString(pipelineName)).getVariables();
-        EnvironmentConfig environment = this.environments.findEnvironmentForPipeline(new CaseInsensitiveString(pipelineName));
+        EnvironmentConfig environment = findEnvironmentOfPipeline(new CaseInsensitiveString(pipelineName));
         return environment != null ? environment.getVariables().overrideWith(pipelineVariables) : pipelineVariables;
     }
 
+    @Override
+    public EnvironmentConfig findEnvironmentOfPipeline(CaseInsensitiveString pipelineName) {
+        CompiledConfigIndex index = compiledIndex;
+        if (index != null) {
+            return index.environmentOf(pipelineName);
+        }
+        return environments.findEnvironmentForPipeline(pipelineName);
+    }
+
     @Override
     public boolean isGroupAdministrator(final CaseInsensitiveString userName) {
         final List<Role> roles = server().security().memberRoleFor(userName);
@@ -1307,10 +1355,37 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public PipelineConfigs findGroupOfPipeline(PipelineConfig pipelineConfig) {
+        CompiledConfigIndex index = compiledIndex;
+        PipelineConfigs group = index == null ? null : index.groupOf(pipelineConfig.name());
+        if (group != null) {
+            return group;
+        }
         String groupName = getGroups().findGroupNameByPipeline(pipelineConfig.name());
         return findGroup(groupName);
     }
 
+    @Override
+    public PipelineConfigs findGroupByPipeline(CaseInsensitiveString pipelineName) {
+        CompiledConfigIndex index = compiledIndex;
+        if (index != null) {
+            return index.groupOf(pipelineName);
+        }
+        return getGroups().findGroupByPipeline(pipelineName);
+    }
+
+    @Override
+    public List<CaseInsensitiveString> usersAuthorizedToOperateStage(CaseInsensitiveString pipelineName, CaseInsensitiveString stageName) {
+        CompiledConfigIndex index = compiledIndex;
+        if (index != null) {
+            List<CaseInsensitiveString> operators = index.stageOperators(pipelineName, stageName);
+            if (operators != null) {
+                return operators;
+            }
+        }
+        StageConfig stageConfig = pipelineConfigByName(pipelineName).findBy(stageName);
+        return CompiledConfigIndex.usersIn(stageConfig.getApproval().getAuthConfig(), server().security().getRoles());
+    }
+
     @Override
     public PipelineConfig findPipelineUsingThisPipelineAsADependency(String pipelineName) {
         List<PipelineConfig> configs = getAllPipelineConfigs();
@@ -1381,12 +1456,8 @@ public class BasicCruiseConfig implements CruiseConfig {
     @Override
     public ArrayList<CaseInsensitiveString> pipelinesAssociatedWithTemplate(CaseInsensitiveString templateName) {
         ArrayList<CaseInsensitiveString> pipelines = new ArrayList<>();
-        if (templateName != null) {
-            for (PipelineConfig pipelineConfig : getAllPipelineConfigs()) {
-                if (pipelineConfig.hasTemplate() && pipelineConfig.getTemplateName().equals(templateName)) {
-                    pipelines.add(pipelineConfig.getName());
-                }
-            }
+        for (PipelineConfig pipelineConfig : pipelineConfigsAssociatedWithTemplate(templateName)) {
+            pipelines.add(pipelineConfig.getName());
         }
         return pipelines;
     }
@@ -1394,7 +1465,10 @@ public class BasicCruiseConfig implements CruiseConfig {
     @Override
     public ArrayList<PipelineConfig> pipelineConfigsAssociatedWithTemplate(CaseInsensitiveString templateName) {
         ArrayList<PipelineConfig> pipelines = new ArrayList<>();
-        if (templateName != null) {
+        CompiledConfigIndex index = compiledIndex;
+        if (templateName != null && index != null) {
+            pipelines.addAll(index.pipelinesUsingTemplate(templateName));
+        } else if (templateName != null) {
             for (PipelineConfig pipelineConfig : getAllPipelineConfigs()) {
                 if (pipelineConfig.hasTemplate() && pipelineConfig.getTemplateName().equals(templateName)) {
                     pipelines.add(pipelineConfig);
@@ -1415,6 +1489,10 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public MaterialConfig materialConfigFor(String fingerprint) {
+        CompiledConfigIndex index = compiledIndex;
+        if (index != null) {
+            return index.material(fingerprint);
+        }
         for (MaterialConfig materialConfig : getUniqueMaterialConfigs(false)) {
             if (materialConfig.getFingerprint().equals(fingerprint)) {
                 return materialConfig;
@@ -1423,6 +1501,24 @@ public class BasicCruiseConfig implements CruiseConfig {
         return null;
     }
 
+    @Override
+    public List<PipelineConfig> pipelinesWithMaterial(String fingerprint) {
+        CompiledConfigIndex index = compiledIndex;
+        if (index != null) {
+            return new ArrayList<>(index.pipelinesWithMaterial(fingerprint));
+        }
+        List<PipelineConfig> pipelines = new ArrayList<>();
+        for (PipelineConfig pipelineConfig : getAllPipelineConfigs()) {
+            for (MaterialConfig materialConfig : pipelineConfig.materialConfigs()) {
+                if (materialConfig.getFingerprint().equals(fingerprint)) {
+                    pipelines.add(pipelineConfig);
+                    break;
+                }
+            }
+        }
+        return pipelines;
+    }
+
     @Override
     public MaterialConfig materialConfigFor(CaseInsensitiveString pipelineName, String fingerprint) {
         PipelineConfig pipelineConfig = pipelineConfigByName(pipelineName);
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.domain.config.Admin;
+import com.thoughtworks.go.domain.materials.MaterialConfig;
+
+import java.util.*;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * @understands where pipelines, groups, environments, templates, materials and stage permissions are in a config that
+ * is no longer going to change
+ * <p>
+ * Built once from the config, when it is published, so that lookups which used to walk every group and pipeline are
+ * map reads. When a name is in more than one place (which only an invalid config has), the first one in config order
+ * wins, like the walks it replaces.
+ */
+class CompiledConfigIndex {
+    private final Map<CaseInsensitiveString, PipelineConfig> pipelines = new HashMap<>();
+    private final Map<CaseInsensitiveString, PipelineConfigs> groupsByPipeline = new HashMap<>();
+    private final Map<CaseInsensitiveString, EnvironmentConfig> environmentsByPipeline = new HashMap<>();
+    private final Map<CaseInsensitiveString, List<PipelineConfig>> pipelinesByTemplate = new HashMap<>();
+    private final Map<String, List<PipelineConfig>> pipelinesByMaterial = new HashMap<>();
+    private final Map<String, MaterialConfig> materials = new HashMap<>();
+    private final Map<CaseInsensitiveString, Map<CaseInsensitiveString, List<CaseInsensitiveString>>> stageOperators = new HashMap<>();
+    private final List<PipelineConfig> allPipelines;
+
+    CompiledConfigIndex(CruiseConfig config) {
+        List<PipelineConfig> all = new ArrayList<>();
+        for (PipelineConfigs group : config.getGroups()) {
+            for (PipelineConfig pipeline : group) {
+                all.add(pipeline);
+                if (pipelines.putIfAbsent(pipeline.name(), pipeline) != null) {
+                    continue;
+                }
+                groupsByPipeline.put(pipeline.name(), group);
+                if (pipeline.hasTemplate()) {
+                    pipelinesByTemplate.computeIfAbsent(pipeline.getTemplateName(), name -> new ArrayList<>()).add(pipeline);
+                }
+                Set<String> fingerprints = new HashSet<>();
+                for (MaterialConfig material : pipeline.materialConfigs()) {
+                    String fingerprint = material.getFingerprint();
+                    materials.putIfAbsent(fingerprint, material);
+                    if (fingerprints.add(fingerprint)) {
+                        pipelinesByMaterial.computeIfAbsent(fingerprint, key -> new ArrayList<>()).add(pipeline);
+                    }
+                }
+                Map<CaseInsensitiveString, List<CaseInsensitiveString>> operators = stageOperators.computeIfAbsent(pipeline.name(), name -> new HashMap<>());
+                for (StageConfig stage : pipeline) {
+                    operators.putIfAbsent(stage.name(), stage.hasOperatePermissionDefined()
+                            ? unmodifiableList(usersIn(stage.getApproval().getAuthConfig(), config.server().security().getRoles()))
+                            : emptyList());
+                }
+            }
+        }
+        allPipelines = unmodifiableList(all);
+        for (EnvironmentConfig environment : config.getEnvironments()) {
+            for (EnvironmentPipelineConfig pipeline : environment.getPipelines()) {
+                environmentsByPipeline.putIfAbsent(pipeline.getName(), environment);
+            }
+        }
+    }
+
+    static List<CaseInsensitiveString> usersIn(AdminsConfig admins, RolesConfig roles) {
+        List<CaseInsensitiveString> users = new ArrayList<>();
+        for (Admin admin : admins) {
+            if (admin instanceof AdminRole) {
+                Role role = roles.findByName(admin.getName());
+                if (role != null) {
+                    for (RoleUser roleUser : role.getUsers()) {
+                        users.add(roleUser.getName());
+                    }
+                }
+            } else {
+                users.add(admin.getName());
+            }
+        }
+        return users;
+    }
+
+    List<PipelineConfig> allPipelines() {
+        return allPipelines;
+    }
+
+    PipelineConfig pipeline(CaseInsensitiveString pipelineName) {
+        return pipelines.get(pipelineName);
+    }
+
+    PipelineConfigs groupOf(CaseInsensitiveString pipelineName) {
+        return groupsByPipeline.get(pipelineName);
+    }
+
+    EnvironmentConfig environmentOf(CaseInsensitiveString pipelineName) {
+        return environmentsByPipeline.get(pipelineName);
+    }
+
+    List<PipelineConfig> pipelinesUsingTemplate(CaseInsensitiveString templateName) {
+        return unmodifiableList(pipelinesByTemplate.getOrDefault(templateName, emptyList()));
+    }
+
+    List<PipelineConfig> pipelinesWithMaterial(String fingerprint) {
+        return unmodifiableList(pipelinesByMaterial.getOrDefault(fingerprint, emptyList()));
+    }
+
+    MaterialConfig material(String fingerprint) {
+        return materials.get(fingerprint);
+    }
+
+    /**
+     * @return the users allowed to operate the stage by its own authorization, roles expanded; empty when the stage
+     * does not define one, null when there is no such pipeline or stage
+     */
+    List<CaseInsensitiveString> stageOperators(CaseInsensitiveString pipelineName, CaseInsensitiveString stageName) {
+        return stageOperators.getOrDefault(pipelineName, Collections.emptyMap()).get(stageName);
+    }
+}
@@ -39,6 +39,13 @@ public interface CruiseConfig extends Validatable, ConfigOriginTraceable {
 
     void merge(List<PartialConfig> partList, boolean forEdit);
 
+    /**
+     * Indexes pipelines, groups, environments, templates, materials and stage permissions, so that looking them up no
+     * longer walks the config. Only for a config that is not going to change anymore; changing it through its own
+     * methods drops the index, changing anything it holds does not.
+     */
+    void compile();
+
     @PostConstruct
     void initializeServer();
 
@@ -205,6 +212,8 @@ public interface CruiseConfig extends Validatable, ConfigOriginTraceable {
 
     EnvironmentVariablesConfig variablesFor(String pipelineName);
 
+    EnvironmentConfig findEnvironmentOfPipeline(CaseInsensitiveString pipelineName);
+
     boolean isGroupAdministrator(CaseInsensitiveString userName);
 
     List<ConfigErrors> getAllErrors();
@@ -217,6 +226,17 @@ public interface CruiseConfig extends Validatable, ConfigOriginTraceable {
 
     PipelineConfigs findGroupOfPipeline(PipelineConfig pipelineConfig);
 
+    /**
+     * @return the group of the pipeline; null when there is no such pipeline
+     */
+    PipelineConfigs findGroupByPipeline(CaseInsensitiveString pipelineName);
+
+    /**
+     * @return the users the stage's own authorization allows to operate it, with roles expanded to their users; fails
+     * when there is no such pipeline or stage
+     */
+    List<CaseInsensitiveString> usersAuthorizedToOperateStage(CaseInsensitiveString pipelineName, CaseInsensitiveString stageName);
+
     PipelineConfig findPipelineUsingThisPipelineAsADependency(String pipelineName);
 
     Map<CaseInsensitiveString, List<PipelineConfig>> generatePipelineVsDownstreamMap();
@@ -231,6 +251,8 @@ public interface CruiseConfig extends Validatable, ConfigOriginTraceable {
 
     MaterialConfig materialConfigFor(String fingerprint);
 
+    List<PipelineConfig> pipelinesWithMaterial(String fingerprint);
+
     MaterialConfig materialConfigFor(CaseInsensitiveString pipelineName, String fingerprint);
 
     String sanitizedGroupName(String name);
@@ -39,8 +39,8 @@ public class EnvironmentsConfig extends BaseCollection<EnvironmentConfig> implem
     }
 
     public void validate(ValidationContext validationContext) {
-        List<CaseInsensitiveString> allPipelineNames = validationContext.getCruiseConfig().getAllPipelineNames();
-        List<CaseInsensitiveString> allEnvironmentNames = new ArrayList<>();
+        Set<CaseInsensitiveString> allPipelineNames = new HashSet<>(validationContext.getCruiseConfig().getAllPipelineNames());
+        Set<CaseInsensitiveString> allEnvironmentNames = new HashSet<>();
         Map<CaseInsensitiveString, CaseInsensitiveString> pipelineToEnvMap = new HashMap<>();
         for (EnvironmentConfig environmentConfig : this) {
             if (allEnvironmentNames.contains(environmentConfig.name())) {
@@ -42,13 +42,15 @@ public class PipelineConfigSaveValidationContext implements ValidationContext {
     private StageConfig stage;
     private JobConfig job;
     private MaterialConfigFingerprintMap materialConfigsFingerprintMap;
+    private PipelineDependencyIndex dependencyIndex;
     private ArtifactStores artifactStores;
 
-    private PipelineConfigSaveValidationContext(Boolean isPipelineBeingCreated, String groupName, Validatable immediateParent) {
+    private PipelineConfigSaveValidationContext(Boolean isPipelineBeingCreated, String groupName, PipelineDependencyIndex dependencyIndex) {
         this.isPipelineBeingCreated = isPipelineBeingCreated;
         this.groupName = groupName;
-        this.immediateParent = immediateParent;
+        this.immediateParent = null;
         this.parentContext = null;
+        this.dependencyIndex = dependencyIndex;
     }
 
     private PipelineConfigSaveValidationContext(Validatable immediateParent, PipelineConfigSaveValidationContext parentContext) {
@@ -83,7 +85,15 @@ public class PipelineConfigSaveValidationContext implements ValidationContext {
     }
 
     public static PipelineConfigSaveValidationContext forChain(Boolean isPipelineBeingCreated, String groupName, Validatable... validatables) {
-        PipelineConfigSaveValidationContext tail = new PipelineConfigSaveValidationContext(isPipelineBeingCreated, groupName, null);
+        return forChain(isPipelineBeingCreated, groupName, null, validatables);
+    }
+
+    /**
+     * Validates against a dependency index that was already built from the config in the chain, for callers that
+     * validate many pipelines of the same config.
+     */
+    public static PipelineConfigSaveValidationContext forChain(Boolean isPipelineBeingCreated, String groupName, PipelineDependencyIndex dependencyIndex, Validatable... validatables) {
+        PipelineConfigSaveValidationContext tail = new PipelineConfigSaveValidationContext(isPipelineBeingCreated, groupName, dependencyIndex);
         for (Validatable validatable : validatables) {
             tail = tail.withParent(validatable);
         }
@@ -140,10 +150,7 @@ public class PipelineConfigSaveValidationContext implements ValidationContext {
 
 
     public Node getDependencyMaterialsFor(CaseInsensitiveString pipelineName) {
-        if (getDependencies().containsKey(pipelineName)) {
-            return getDependencies().get(pipelineName);
-        }
-        return new Node(new ArrayList<>());
+        return getDependencyIndex().dependenciesOf(pipelineName);
     }
 
     @Override
@@ -155,8 +162,11 @@ public class PipelineConfigSaveValidationContext implements ValidationContext {
     }
 
     public MaterialConfigs getAllMaterialsByFingerPrint(String fingerprint) {
-        initMaterialConfigMap();
-        return materialConfigsFingerprintMap.get(fingerprint);
+        PipelineConfigSaveValidationContext root = root();
+        if (root.materialConfigsFingerprintMap == null) {
+            root.materialConfigsFingerprintMap = new MaterialConfigFingerprintMap(cruiseConfig);
+        }
+        return root.materialConfigsFingerprintMap.get(fingerprint);
     }
 
     public PipelineConfig getPipelineConfigByName(CaseInsensitiveString pipelineName) {
@@ -192,20 +202,29 @@ public class PipelineConfigSaveValidationContext implements ValidationContext {
     }
 
     public Set<CaseInsensitiveString> getPipelinesWithDependencyMaterials() {
-        return getDependencies().keySet();
+        return getDependencyIndex().pipelineNames();
     }
 
-    private Hashtable<CaseInsensitiveString, Node> getDependencies() {
-        if (dependencies == null) {
-            dependencies = new Hashtable<>();
-            for (PipelineConfig pipeline : cruiseConfig.getAllPipelineConfigs()) {
-                dependencies.put(pipeline.name(), pipeline.getDependenciesAsNode());
-            }
+    public Set<CaseInsensitiveString> getDependentsOf(CaseInsensitiveString pipelineName) {
+        return getDependencyIndex().dependentsOf(pipelineName);
+    }
+
+    // the caches are kept on the root, so that every context derived from it while walking the tree shares them
+    private PipelineDependencyIndex getDependencyIndex() {
+        PipelineConfigSaveValidationContext root = root();
+        if (root.dependencyIndex == null) {
+            root.dependencyIndex = new PipelineDependencyIndex(cruiseConfig);
         }
-        return dependencies;
+        return root.dependencyIndex;
     }
 
-    private Hashtable<CaseInsensitiveString, Node> dependencies;
+    private PipelineConfigSaveValidationContext root() {
+        PipelineConfigSaveValidationContext root = this;
+        while (root.parentContext != null) {
+            root = root.parentContext;
+        }
+        return root;
+    }
 
     public PipelineGroups getGroups() {
         return cruiseConfig.getGroups();
@@ -215,12 +234,6 @@ public class PipelineConfigSaveValidationContext implements ValidationContext {
         return isPipelineBeingCreated;
     }
 
-    private void initMaterialConfigMap() {
-        if (materialConfigsFingerprintMap == null) {
-            materialConfigsFingerprintMap = new MaterialConfigFingerprintMap(cruiseConfig);
-        }
-    }
-
     private class MaterialConfigFingerprintMap {
         private Map<String, MaterialConfigs> map = new ConcurrentHashMap<>();
         private Map<String, MaterialConfigs> pipelineMaterialMap = new ConcurrentHashMap<>();
@@ -88,7 +88,7 @@ public class PipelineConfigTreeValidator {
 
     void validateDependencies(PipelineConfigSaveValidationContext validationContext) {
         if (validationContext.isPipelineBeingCreated()) return;
-        for (CaseInsensitiveString selected : validationContext.getPipelinesWithDependencyMaterials()) {
+        for (CaseInsensitiveString selected : validationContext.getDependentsOf(pipelineConfig.name())) {
             if (selected.equals(pipelineConfig.name())) continue;
             PipelineConfig selectedPipeline = validationContext.getPipelineConfigByName(selected);
             validateDependencyMaterialsForDownstreams(validationContext, selected, selectedPipeline);
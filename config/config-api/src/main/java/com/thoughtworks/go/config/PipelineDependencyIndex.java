@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.domain.Task;
+import com.thoughtworks.go.util.Node;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+
+/**
+ * @understands which pipelines a change to a pipeline or a template can affect
+ * <p>
+ * Built in one pass over a config, so that validating a single pipeline or template only looks at the pipelines that
+ * depend on it instead of walking every pipeline once per entity being validated. The index does not follow changes
+ * to the config it was built from; build one per config being validated.
+ */
+public class PipelineDependencyIndex {
+    private final Map<CaseInsensitiveString, Node> dependencies = new LinkedHashMap<>();
+    private final Map<CaseInsensitiveString, String> groups = new HashMap<>();
+    private final Map<CaseInsensitiveString, Set<CaseInsensitiveString>> dependents = new HashMap<>();
+    private final Map<CaseInsensitiveString, List<CaseInsensitiveString>> pipelinesUsingTemplate = new HashMap<>();
+
+    public PipelineDependencyIndex(CruiseConfig cruiseConfig) {
+        for (PipelineConfigs group : cruiseConfig.getGroups()) {
+            for (PipelineConfig pipeline : group) {
+                index(group.getGroup(), pipeline);
+            }
+        }
+    }
+
+    private void index(String group, PipelineConfig pipeline) {
+        CaseInsensitiveString name = pipeline.name();
+        Node node = pipeline.getDependenciesAsNode();
+        dependencies.put(name, node);
+        groups.put(name, group);
+        for (Node.DependencyNode dependency : node.getDependencies()) {
+            addDependent(dependency.getPipelineName(), name);
+        }
+        for (StageConfig stage : pipeline.getStages()) {
+            for (JobConfig job : stage.getJobs()) {
+                for (Task task : job.getTasks()) {
+                    if (task instanceof FetchTask) {
+                        PathFromAncestor path = ((FetchTask) task).getPipelineNamePathFromAncestor();
+                        if (path != null && !StringUtils.isBlank(CaseInsensitiveString.str(path.getPath()))) {
+                            for (CaseInsensitiveString pipelineOnPath : path.pathIncludingAncestor()) {
+                                addDependent(pipelineOnPath, name);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (pipeline.hasTemplate()) {
+            pipelinesUsingTemplate.computeIfAbsent(pipeline.getTemplateName(), template -> new ArrayList<>()).add(name);
+        }
+    }
+
+    private void addDependent(CaseInsensitiveString pipeline, CaseInsensitiveString dependent) {
+        dependents.computeIfAbsent(pipeline, key -> new LinkedHashSet<>()).add(dependent);
+    }
+
+    public Set<CaseInsensitiveString> pipelineNames() {
+        return Collections.unmodifiableSet(dependencies.keySet());
+    }
+
+    public Node dependenciesOf(CaseInsensitiveString pipelineName) {
+        Node node = dependencies.get(pipelineName);
+        return node == null ? new Node(new ArrayList<>()) : node;
+    }
+
+    /**
+     * @return the pipelines that have a dependency material on the given pipeline, or fetch artifacts through it
+     */
+    public Set<CaseInsensitiveString> dependentsOf(CaseInsensitiveString pipelineName) {
+        return Collections.unmodifiableSet(dependents.getOrDefault(pipelineName, emptySet()));
+    }
+
+    public List<CaseInsensitiveString> pipelinesUsingTemplate(CaseInsensitiveString templateName) {
+        return Collections.unmodifiableList(pipelinesUsingTemplate.getOrDefault(templateName, emptyList()));
+    }
+
+    public String groupOf(CaseInsensitiveString pipelineName) {
+        return groups.get(pipelineName);
+    }
+}
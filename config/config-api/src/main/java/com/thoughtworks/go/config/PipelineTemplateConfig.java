@@ -117,12 +117,11 @@ public class PipelineTemplateConfig extends BaseCollection<StageConfig> implemen
     }
 
     private void validateDependencies(CruiseConfig preprocessedConfig) {
-        List<CaseInsensitiveString> pipelineNames = preprocessedConfig.pipelinesAssociatedWithTemplate(this.name());
+        PipelineDependencyIndex dependencyIndex = new PipelineDependencyIndex(preprocessedConfig);
         ParamsConfig paramsConfig = this.referredParams();
-        for (CaseInsensitiveString pipelineName : pipelineNames) {
+        for (CaseInsensitiveString pipelineName : dependencyIndex.pipelinesUsingTemplate(this.name())) {
             PipelineConfig pipelineConfig = preprocessedConfig.getPipelineConfigByName(pipelineName);
-            PipelineConfigs pipelineGroup = preprocessedConfig.findGroupOfPipeline(pipelineConfig);
-            PipelineConfigSaveValidationContext contextForStages = PipelineConfigSaveValidationContext.forChain(false, pipelineGroup.getGroup(), preprocessedConfig, pipelineConfig);
+            PipelineConfigSaveValidationContext contextForStages = PipelineConfigSaveValidationContext.forChain(false, dependencyIndex.groupOf(pipelineName), dependencyIndex, preprocessedConfig, pipelineConfig);
             validateParams(pipelineConfig, paramsConfig);
             validatePartsOfPipelineConfig(pipelineConfig, contextForStages);
             validateDependenciesOfDownstreams(pipelineConfig, contextForStages);
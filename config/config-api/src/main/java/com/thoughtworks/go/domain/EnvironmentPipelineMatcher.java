@@ -60,6 +60,14 @@ public class EnvironmentPipelineMatcher {
         return agentUuids.contains(uuid);
     }
 
+    List<String> agentUuids() {
+        return agentUuids;
+    }
+
+    EnvironmentPipelinesConfig pipelines() {
+        return pipelineConfigs;
+    }
+
     public boolean hasPipeline(String pipelineName) {
         return pipelineConfigs.containsPipelineNamed(new CaseInsensitiveString(pipelineName));
     }
@@ -16,12 +16,19 @@
 
 package com.thoughtworks.go.domain;
 
-import java.util.Collection;
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.EnvironmentPipelineConfig;
+
+import java.util.*;
 
 /**
  * @understands matching job with agents in situations where either, both or none are in environment
+ * <p>
+ * The environments each pipeline and agent is in are indexed on the first match, so matching does not go through every
+ * environment. Changes to the environments after that are not seen; matchers are created again when they change.
  */
 public class EnvironmentPipelineMatchers extends BaseCollection<EnvironmentPipelineMatcher> {
+    private volatile Lookup lookup;
 
     public EnvironmentPipelineMatchers(Collection<EnvironmentPipelineMatcher> referencedEnvironments) {        
         addAll(referencedEnvironments);
@@ -29,17 +36,25 @@ public class EnvironmentPipelineMatchers extends BaseCollection<EnvironmentPipel
 
     public EnvironmentPipelineMatchers() {}
 
-    public boolean match(String pipelineName, String uuid) {
-        for(EnvironmentPipelineMatcher matcher : this) {
-            if (matcher.match(pipelineName, uuid)) {
-                return true;
-            }
-        }
-        return !pipelineReferenced(pipelineName) && !agentReferenced(uuid);
+    @Override
+    public boolean add(EnvironmentPipelineMatcher matcher) {
+        lookup = null;
+        return super.add(matcher);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends EnvironmentPipelineMatcher> matchers) {
+        lookup = null;
+        return super.addAll(matchers);
     }
 
-    private boolean agentReferenced(String uuid) {
-        for(EnvironmentPipelineMatcher matcher : this) {
+    public boolean match(String pipelineName, String uuid) {
+        Lookup lookup = lookup();
+        List<EnvironmentPipelineMatcher> environmentsOfPipeline = lookup.environmentsOfPipeline.get(new CaseInsensitiveString(pipelineName));
+        if (environmentsOfPipeline == null) {
+            return !lookup.agentsInEnvironments.contains(uuid);
+        }
+        for (EnvironmentPipelineMatcher matcher : environmentsOfPipeline) {
             if (matcher.hasAgent(uuid)) {
                 return true;
             }
@@ -47,12 +62,26 @@ public class EnvironmentPipelineMatchers extends BaseCollection<EnvironmentPipel
         return false;
     }
 
-    private boolean pipelineReferenced(String pipelineName) {
-        for(EnvironmentPipelineMatcher matcher : this) {
-            if (matcher.hasPipeline(pipelineName)) {
-                return true;
+    private Lookup lookup() {
+        Lookup current = lookup;
+        if (current == null) {
+            current = new Lookup(this);
+            lookup = current;
+        }
+        return current;
+    }
+
+    private static class Lookup {
+        private final Map<CaseInsensitiveString, List<EnvironmentPipelineMatcher>> environmentsOfPipeline = new HashMap<>();
+        private final Set<String> agentsInEnvironments = new HashSet<>();
+
+        private Lookup(List<EnvironmentPipelineMatcher> matchers) {
+            for (EnvironmentPipelineMatcher matcher : matchers) {
+                for (EnvironmentPipelineConfig pipeline : matcher.pipelines()) {
+                    environmentsOfPipeline.computeIfAbsent(pipeline.getName(), name -> new ArrayList<>()).add(matcher);
+                }
+                agentsInEnvironments.addAll(matcher.agentUuids());
             }
         }
-        return false;
     }
 }
@@ -16,26 +16,40 @@
 
 package com.thoughtworks.go.util;
 
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 
 import com.thoughtworks.go.config.CaseInsensitiveString;
 
 public class DFSCycleDetector {
     public final void topoSort(final CaseInsensitiveString root, final PipelineDependencyState pipelineDependencyState) throws Exception {
+        topoSort(root, pipelineDependencyState, new HashSet<>());
+    }
+
+    /**
+     * Checks one pipeline after another against the same dependencies without walking the same upstream pipelines
+     * again: pipelines whose upstream graph was found to be complete and free of cycles are added to {@code acyclic},
+     * and are skipped by every later sort given the same set.
+     */
+    public final void topoSort(final CaseInsensitiveString root, final PipelineDependencyState pipelineDependencyState, final Set<CaseInsensitiveString> acyclic) throws Exception {
         Hashtable<CaseInsensitiveString, CycleState> state = new Hashtable<>();
         Stack<CaseInsensitiveString> visiting = new Stack<>();
 
+        if (acyclic.contains(root)) {
+            return;
+        }
         if (!state.containsKey(root)) {
-            tsort(root, pipelineDependencyState, state, visiting);
+            tsort(root, pipelineDependencyState, state, visiting, acyclic);
         } else if (state.get(root) == CycleState.VISITING) {
             throw ExceptionUtils.bomb("Unexpected node in visiting state: " + root);
         }
         assertHasVisitedAllNodesInTree(state);
     }
 
-    private void tsort(final CaseInsensitiveString root, final PipelineDependencyState pipelineDependencyState, final Hashtable<CaseInsensitiveString, CycleState> state, Stack<CaseInsensitiveString> visiting) throws Exception {
+    private void tsort(final CaseInsensitiveString root, final PipelineDependencyState pipelineDependencyState, final Hashtable<CaseInsensitiveString, CycleState> state, Stack<CaseInsensitiveString> visiting, Set<CaseInsensitiveString> acyclic) throws Exception {
         state.put(root, CycleState.VISITING);
         visiting.push(root);
 
@@ -43,9 +57,12 @@ public class DFSCycleDetector {
         validateRootExists(root, pipelineDependencyState, visiting);
         Node stage = pipelineDependencyState.getDependencyMaterials(root);
         for (Node.DependencyNode cur : stage.getDependencies()) {
+            if (acyclic.contains(cur.getPipelineName())) {
+                continue;
+            }
             if (!state.containsKey(cur.getPipelineName())) {
                 // Not been visited
-                tsort(cur.getPipelineName(), pipelineDependencyState, state, visiting);
+                tsort(cur.getPipelineName(), pipelineDependencyState, state, visiting, acyclic);
             } else if (state.get(cur.getPipelineName()) == CycleState.VISITING) {
                 // Currently visiting this node, so have a cycle
                 throwCircularException(cur.getPipelineName(), visiting);
@@ -53,6 +70,7 @@ public class DFSCycleDetector {
         }
         popAndAssertTopIsConsistent(visiting, root);
         state.put(root, CycleState.VISITED);
+        acyclic.add(root);
     }
 
     private void assertHasVisitedAllNodesInTree(Hashtable<CaseInsensitiveString, CycleState> state) {
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.config.exceptions.RecordNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.thoughtworks.go.helper.PipelineConfigMother.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompiledConfigIndexTest {
+    private BasicCruiseConfig config;
+    private PipelineConfig up42;
+    private PipelineConfig downstream;
+
+    @BeforeEach
+    void setUp() {
+        up42 = createPipelineConfigWithStages("up42", "build", "deploy");
+        up42.getStage("deploy").setApproval(new Approval(new AuthConfig(new AdminUser(new CaseInsensitiveString("bob")), new AdminRole("deployers"))));
+        downstream = pipelineConfigWithTemplate("downstream", "deploy-template");
+
+        config = new BasicCruiseConfig(createGroup("first", up42), createGroup("second", downstream));
+        config.server().security().getRoles().add(new RoleConfig(new CaseInsensitiveString("deployers"), new RoleUser("alice")));
+        BasicEnvironmentConfig uat = new BasicEnvironmentConfig(new CaseInsensitiveString("uat"));
+        uat.addPipeline(new CaseInsensitiveString("downstream"));
+        config.addEnvironment(uat);
+    }
+
+    @Test
+    void shouldAnswerLookupsTheSameWayOnceCompiled() {
+        String fingerprint = up42.materialConfigs().first().getFingerprint();
+        for (boolean compiled : new boolean[]{false, true}) {
+            if (compiled) {
+                config.compile();
+            }
+
+            assertThat(config.pipelineConfigByName(new CaseInsensitiveString("UP42"))).isSameAs(up42);
+            assertThat(config.getPipelineConfigByName(new CaseInsensitiveString("unknown"))).isNull();
+            assertThat(config.allPipelines()).containsExactly(up42, downstream);
+            assertThat(config.findGroupByPipeline(new CaseInsensitiveString("downstream")).getGroup()).isEqualTo("second");
+            assertThat(config.findGroupByPipeline(new CaseInsensitiveString("unknown"))).isNull();
+            assertThat(config.findGroupOfPipeline(up42).getGroup()).isEqualTo("first");
+            assertThat(config.findEnvironmentOfPipeline(new CaseInsensitiveString("downstream")).name()).isEqualTo(new CaseInsensitiveString("uat"));
+            assertThat(config.findEnvironmentOfPipeline(new CaseInsensitiveString("up42"))).isNull();
+            assertThat(config.pipelinesAssociatedWithTemplate(new CaseInsensitiveString("deploy-template"))).containsExactly(new CaseInsensitiveString("downstream"));
+            assertThat(config.pipelinesWithMaterial(fingerprint)).containsExactly(up42, downstream);
+            assertThat(config.materialConfigFor(fingerprint)).isEqualTo(up42.materialConfigs().first());
+            assertThat(config.usersAuthorizedToOperateStage(new CaseInsensitiveString("up42"), new CaseInsensitiveString("deploy")))
+                    .containsExactly(new CaseInsensitiveString("bob"), new CaseInsensitiveString("alice"));
+            assertThat(config.usersAuthorizedToOperateStage(new CaseInsensitiveString("up42"), new CaseInsensitiveString("build"))).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldThrowForAnUnknownPipelineOnceCompiled() {
+        config.compile();
+
+        assertThatThrownBy(() -> config.pipelineConfigByName(new CaseInsensitiveString("unknown")))
+                .isInstanceOf(RecordNotFoundException.class);
+    }
+
+    @Test
+    void shouldFailToAuthorizeAnUnknownPipelineOrStageTheSameWayOnceCompiled() {
+        for (boolean compiled : new boolean[]{false, true}) {
+            if (compiled) {
+                config.compile();
+            }
+
+            assertThatThrownBy(() -> config.usersAuthorizedToOperateStage(new CaseInsensitiveString("unknown"), new CaseInsensitiveString("deploy")))
+                    .isInstanceOf(RecordNotFoundException.class);
+            assertThatThrownBy(() -> config.usersAuthorizedToOperateStage(new CaseInsensitiveString("up42"), new CaseInsensitiveString("unknown")))
+                    .isInstanceOf(NullPointerException.class);
+        }
+    }
+
+    @Test
+    void shouldStopUsingTheIndexOnceTheConfigChanges() {
+        config.compile();
+        PipelineConfig added = createPipelineConfig("added", "stage", "job");
+
+        config.addPipeline("first", added);
+
+        assertThat(config.pipelineConfigByName(new CaseInsensitiveString("added"))).isSameAs(added);
+        assertThat(config.findGroupByPipeline(new CaseInsensitiveString("added")).getGroup()).isEqualTo("first");
+        assertThat(config.allPipelines()).contains(added);
+    }
+}
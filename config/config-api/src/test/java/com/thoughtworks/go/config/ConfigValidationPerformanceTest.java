@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.config.materials.MaterialConfigs;
+import com.thoughtworks.go.helper.GoConfigMother;
+import com.thoughtworks.go.helper.MaterialConfigsMother;
+import com.thoughtworks.go.helper.PipelineTemplateConfigMother;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Compares validating a whole generated config, as a full config save does, with validating the single pipeline or
+ * template an entity save changes, as the config grows. Pipelines are generated in chains where every pipeline depends
+ * on, and fetches from, the one before it; a tenth of them use the same template.
+ */
+@Ignore
+public class ConfigValidationPerformanceTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigValidationPerformanceTest.class);
+    private static final int CHAIN_LENGTH = 10;
+    private static final int RUNS = 10;
+
+    @Test
+    public void shouldReportValidationCostAgainstConfigSize() {
+        for (int pipelines : new int[]{500, 2000, 5000}) {
+            BasicCruiseConfig config = generate(pipelines);
+            PipelineConfig changed = config.pipelineConfigByName(new CaseInsensitiveString("pipeline-" + pipelines / 2));
+            PipelineTemplateConfig template = config.getTemplateByName(new CaseInsensitiveString("template"));
+
+            long full = time(() -> config.validateAfterPreprocess());
+            long pipeline = time(() -> changed.validateTree(PipelineConfigSaveValidationContext.forChain(false, "group", config, changed)));
+            long templateOnly = time(() -> template.validateTree(ConfigSaveValidationContext.forChain(config, config.getTemplates()), config, false));
+
+            LOGGER.info("{} pipelines: full validation {}ms, one pipeline {}ms, one template used by {} pipelines {}ms", pipelines,
+                    full, pipeline, config.pipelinesAssociatedWithTemplate(template.name()).size(), templateOnly);
+        }
+    }
+
+    private BasicCruiseConfig generate(int pipelines) {
+        BasicCruiseConfig config = GoConfigMother.defaultCruiseConfig();
+        config.addTemplate(PipelineTemplateConfigMother.createTemplate("template"));
+        GoConfigMother mother = new GoConfigMother();
+        for (int i = 0; i < pipelines; i++) {
+            String name = "pipeline-" + i;
+            MaterialConfigs materials = new MaterialConfigs(MaterialConfigsMother.gitMaterialConfig("https://example.com/repo-" + i + ".git"));
+            PipelineConfig pipeline;
+            if (i % CHAIN_LENGTH == CHAIN_LENGTH - 1) {
+                pipeline = new PipelineConfig(new CaseInsensitiveString(name), materials);
+                pipeline.setTemplateName(new CaseInsensitiveString("template"));
+                config.addPipelineWithoutValidation("group", pipeline);
+            } else {
+                pipeline = mother.addPipelineWithGroup(config, "group", name, materials, "stage", "job");
+            }
+            if (i % CHAIN_LENGTH != 0) {
+                String upstream = "pipeline-" + (i - 1);
+                mother.setDependencyOn(config, pipeline, upstream, "stage");
+                if (!pipeline.hasTemplate()) {
+                    pipeline.getFirstStageConfig().getJobs().first().addTask(new FetchTask(new CaseInsensitiveString(upstream), new CaseInsensitiveString("stage"), new CaseInsensitiveString("job"), "src", "dest"));
+                }
+            }
+        }
+        assertThat(config.getAllPipelineConfigs().size(), is(pipelines));
+        return config;
+    }
+
+    private static long time(Runnable validation) {
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            validation.run();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) / RUNS;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.helper.GoConfigMother;
+import com.thoughtworks.go.helper.PipelineConfigMother;
+import com.thoughtworks.go.util.Node;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PipelineDependencyIndexTest {
+    private BasicCruiseConfig config;
+    private GoConfigMother mother;
+
+    @BeforeEach
+    void setUp() {
+        config = GoConfigMother.defaultCruiseConfig();
+        mother = new GoConfigMother();
+    }
+
+    @Test
+    void shouldIndexTheDependenciesOfEveryPipeline() {
+        mother.addPipelineWithGroup(config, "group-1", "up", "stage", "job");
+        PipelineConfig down = mother.addPipelineWithGroup(config, "group-2", "down", "stage", "job");
+        mother.setDependencyOn(config, down, "up", "stage");
+
+        PipelineDependencyIndex index = new PipelineDependencyIndex(config);
+
+        assertThat(index.pipelineNames()).containsExactlyInAnyOrder(name("up"), name("down"));
+        assertThat(index.dependenciesOf(name("down")).getDependencies()).containsExactly(new Node.DependencyNode(name("up"), name("stage")));
+        assertThat(index.dependenciesOf(name("up")).getDependencies()).isEmpty();
+        assertThat(index.dependenciesOf(name("unknown")).getDependencies()).isEmpty();
+        assertThat(index.groupOf(name("down"))).isEqualTo("group-2");
+    }
+
+    @Test
+    void shouldKnowThePipelinesThatDependOnAPipelineDirectlyOrFetchThroughIt() {
+        mother.addPipeline(config, "up", "stage", "job");
+        PipelineConfig middle = mother.addPipeline(config, "middle", "stage", "job");
+        mother.setDependencyOn(config, middle, "up", "stage");
+        PipelineConfig down = mother.addPipeline(config, "down", "stage", "job");
+        mother.setDependencyOn(config, down, "middle", "stage");
+        down.getFirstStageConfig().getJobs().first().addTask(new FetchTask(name("up/middle"), name("stage"), name("job"), "src", "dest"));
+        mother.addPipeline(config, "unrelated", "stage", "job");
+
+        PipelineDependencyIndex index = new PipelineDependencyIndex(config);
+
+        assertThat(index.dependentsOf(name("up"))).containsExactlyInAnyOrder(name("middle"), name("down"));
+        assertThat(index.dependentsOf(name("middle"))).containsExactly(name("down"));
+        assertThat(index.dependentsOf(name("down"))).isEmpty();
+        assertThat(index.dependentsOf(name("unrelated"))).isEmpty();
+    }
+
+    @Test
+    void shouldKnowThePipelinesThatUseATemplate() {
+        config.addPipelineWithoutValidation("group", PipelineConfigMother.pipelineConfigWithTemplate("p1", "template"));
+        config.addPipelineWithoutValidation("group", PipelineConfigMother.pipelineConfigWithTemplate("p2", "other-template"));
+        config.addPipelineWithoutValidation("group", PipelineConfigMother.pipelineConfigWithTemplate("p3", "TEMPLATE"));
+
+        PipelineDependencyIndex index = new PipelineDependencyIndex(config);
+
+        assertThat(index.pipelinesUsingTemplate(name("template"))).containsExactly(name("p1"), name("p3"));
+        assertThat(index.pipelinesUsingTemplate(name("unused"))).isEmpty();
+    }
+
+    private static CaseInsensitiveString name(String name) {
+        return new CaseInsensitiveString(name);
+    }
+}
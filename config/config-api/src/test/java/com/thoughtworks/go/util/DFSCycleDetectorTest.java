@@ -21,11 +21,17 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Set;
 
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DFSCycleDetectorTest {
@@ -80,4 +86,47 @@ public class DFSCycleDetectorTest {
             assertThat(e.getMessage(), is("Pipeline \"z\" does not exist. It is used from pipeline \"b\"."));
         }
     }
+
+    @Test
+    public void shouldNotWalkPipelinesAlreadyFoundToBeAcyclicAgain() throws Exception {
+        when(state.getDependencyMaterials(new CaseInsensitiveString("a"))).thenReturn(new Node(new Node.DependencyNode(new CaseInsensitiveString("c"), new CaseInsensitiveString("stage"))));
+        when(state.getDependencyMaterials(new CaseInsensitiveString("b"))).thenReturn(new Node(new Node.DependencyNode(new CaseInsensitiveString("c"), new CaseInsensitiveString("stage"))));
+        when(state.getDependencyMaterials(new CaseInsensitiveString("c"))).thenReturn(new Node(new ArrayList<>()));
+        when(state.hasPipeline(new CaseInsensitiveString("a"))).thenReturn(true);
+        when(state.hasPipeline(new CaseInsensitiveString("b"))).thenReturn(true);
+        when(state.hasPipeline(new CaseInsensitiveString("c"))).thenReturn(true);
+        Set<CaseInsensitiveString> acyclic = new HashSet<>();
+
+        project.topoSort(new CaseInsensitiveString("a"), state, acyclic);
+        project.topoSort(new CaseInsensitiveString("b"), state, acyclic);
+        project.topoSort(new CaseInsensitiveString("c"), state, acyclic);
+
+        verify(state, times(1)).getDependencyMaterials(new CaseInsensitiveString("c"));
+        assertThat(acyclic, containsInAnyOrder(new CaseInsensitiveString("a"), new CaseInsensitiveString("b"), new CaseInsensitiveString("c")));
+    }
+
+    @Test
+    public void shouldReportACycleFromEveryPipelineThatLeadsToItWhenSharingWhatIsAcyclic() throws Exception {
+        when(state.getDependencyMaterials(new CaseInsensitiveString("a"))).thenReturn(new Node(new Node.DependencyNode(new CaseInsensitiveString("b"), new CaseInsensitiveString("stage"))));
+        when(state.getDependencyMaterials(new CaseInsensitiveString("b"))).thenReturn(new Node(new Node.DependencyNode(new CaseInsensitiveString("a"), new CaseInsensitiveString("stage"))));
+        when(state.getDependencyMaterials(new CaseInsensitiveString("down"))).thenReturn(new Node(new Node.DependencyNode(new CaseInsensitiveString("a"), new CaseInsensitiveString("stage"))));
+        when(state.hasPipeline(new CaseInsensitiveString("a"))).thenReturn(true);
+        when(state.hasPipeline(new CaseInsensitiveString("b"))).thenReturn(true);
+        when(state.hasPipeline(new CaseInsensitiveString("down"))).thenReturn(true);
+        Set<CaseInsensitiveString> acyclic = new HashSet<>();
+
+        try {
+            project.topoSort(new CaseInsensitiveString("a"), state, acyclic);
+            fail("expected a cycle");
+        } catch (Exception e) {
+            assertThat(e.getMessage(), is("Circular dependency: a <- b <- a"));
+        }
+        try {
+            project.topoSort(new CaseInsensitiveString("down"), state, acyclic);
+            fail("expected a cycle");
+        } catch (Exception e) {
+            assertThat(e.getMessage(), is("Circular dependency: a <- b <- a"));
+        }
+        assertThat(acyclic.isEmpty(), is(true));
+    }
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.security.GoCipher;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.thoughtworks.go.config.ConfigCache.isAnnotationPresent;
+import static com.thoughtworks.go.util.ExceptionUtils.bomb;
+import static com.thoughtworks.go.util.ExceptionUtils.bombIf;
+
+/**
+ * @understands computing an MD5 of a config entity straight from its fields
+ * <p>
+ * Walks the same {@link ConfigAttribute}, {@link ConfigValue}, {@link ConfigSubtag} and {@link ConfigCollection}
+ * metadata that {@link MagicalGoConfigXmlWriter} uses to write the entity, so two entities get the same fingerprint
+ * exactly when they would be written the same way, without building the XML partial. Like the writer, fields that
+ * hold their default value and collection items that a new collection already contains are left out.
+ */
+public class ConfigFingerprinter {
+    private static final int NULL = -1;
+    private static final int END_OF_COLLECTION = -2;
+
+    private final ConfigCache configCache;
+    private final ConcurrentMap<Class<?>, ConfigType> configTypes = new ConcurrentHashMap<>();
+
+    public ConfigFingerprinter(ConfigCache configCache) {
+        this.configCache = configCache;
+    }
+
+    public String md5(Object domainObject) {
+        bombIf(!isAnnotationPresent(domainObject.getClass(), ConfigTag.class), "Object " + domainObject + " does not have a ConfigTag");
+        MessageDigest digest = DigestUtils.getMd5Digest();
+        update(digest, domainObject, true);
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private void update(MessageDigest digest, Object value, boolean isRoot) {
+        if (value == null) {
+            update(digest, NULL);
+            return;
+        }
+
+        Class<?> type = value.getClass();
+        update(digest, type.getName());
+        if (!isConfigElement(type)) {
+            update(digest, valueString(value));
+            return;
+        }
+        ConfigType configType = configTypeOf(type);
+        for (ConfigField field : configType.fields) {
+            Object fieldValue = field.get(value);
+            if (configType.isDefault(field, fieldValue)) {
+                continue;
+            }
+            update(digest, field.name);
+            if (field.isScalar) {
+                update(digest, fieldValue == null ? null : valueString(fieldValue));
+            } else {
+                update(digest, fieldValue, false);
+            }
+        }
+
+        if (value instanceof Collection && isAnnotationPresent(type, ConfigCollection.class)) {
+            for (Object item : (Collection<?>) value) {
+                if (!isRoot && configType.isDefaultItem(item)) {
+                    continue;
+                }
+                update(digest, item, false);
+            }
+            update(digest, END_OF_COLLECTION);
+        }
+    }
+
+    private static boolean isConfigElement(Class<?> type) {
+        return isAnnotationPresent(type, ConfigTag.class)
+                || isAnnotationPresent(type, AttributeAwareConfigTag.class)
+                || isAnnotationPresent(type, ConfigCollection.class);
+    }
+
+    private void update(MessageDigest digest, String token) {
+        if (token == null) {
+            update(digest, NULL);
+            return;
+        }
+        byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+        update(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private void update(MessageDigest digest, int number) {
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(number).array());
+    }
+
+    private ConfigType configTypeOf(Class<?> type) {
+        return configTypes.computeIfAbsent(type, this::loadConfigType);
+    }
+
+    private ConfigType loadConfigType(Class<?> type) {
+        List<ConfigField> fields = new ArrayList<>();
+        for (Field field : configCache.getFieldCache().valuesFor(type)) {
+            boolean isScalar = isAnnotationPresent(field, ConfigAttribute.class) || isAnnotationPresent(field, ConfigValue.class);
+            if (isScalar || isAnnotationPresent(field, ConfigSubtag.class)) {
+                field.setAccessible(true);
+                fields.add(new ConfigField(field, isScalar));
+            }
+        }
+        return new ConfigType(fields, defaultInstanceOf(type));
+    }
+
+    private static Object defaultInstanceOf(Class<?> type) {
+        try {
+            return ConfigElementInstantiator.instantiateConfigElement(new GoCipher(), type);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String valueString(Object value) {
+        ConfigAttributeValue attributeValue = value.getClass().getAnnotation(ConfigAttributeValue.class);
+        if (attributeValue == null) {
+            return value.toString();
+        }
+        try {
+            Field field = getField(value.getClass(), attributeValue.fieldName());
+            field.setAccessible(true);
+            return String.valueOf(field.get(value));
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw bomb(e);
+        }
+    }
+
+    private static Field getField(Class<?> type, String fieldName) throws NoSuchFieldException {
+        try {
+            return type.getDeclaredField(fieldName);
+        } catch (NoSuchFieldException e) {
+            Class<?> superClass = type.getSuperclass();
+            if (superClass == null) {
+                throw e;
+            }
+            return getField(superClass, fieldName);
+        }
+    }
+
+    private static class ConfigType {
+        private final List<ConfigField> fields;
+        private final Object defaultInstance;
+
+        private ConfigType(List<ConfigField> fields, Object defaultInstance) {
+            this.fields = fields;
+            this.defaultInstance = defaultInstance;
+        }
+
+        private boolean isDefault(ConfigField field, Object value) {
+            return defaultInstance != null && !field.alwaysWrite && Objects.equals(value, field.get(defaultInstance));
+        }
+
+        private boolean isDefaultItem(Object item) {
+            return defaultInstance instanceof Collection && ((Collection<?>) defaultInstance).contains(item);
+        }
+    }
+
+    private static class ConfigField {
+        private final Field field;
+        private final String name;
+        private final boolean isScalar;
+        private final boolean alwaysWrite;
+
+        private ConfigField(Field field, boolean isScalar) {
+            this.field = field;
+            this.name = field.getDeclaringClass().getName() + "." + field.getName();
+            this.isScalar = isScalar;
+            ConfigAttribute attribute = field.getAnnotation(ConfigAttribute.class);
+            this.alwaysWrite = attribute != null && attribute.alwaysWrite();
+        }
+
+        private Object get(Object owner) {
+            try {
+                return field.get(owner);
+            } catch (IllegalAccessException e) {
+                throw bomb(e);
+            }
+        }
+    }
+}
@@ -20,6 +20,12 @@ import com.rits.cloning.Cloner;
 import com.thoughtworks.go.config.BasicCruiseConfig.AllPipelineConfigs;
 import com.thoughtworks.go.config.BasicCruiseConfig.AllTemplatesWithAssociatedPipelines;
 import com.thoughtworks.go.config.BasicCruiseConfig.PipelineNameToConfigMap;
+import com.thoughtworks.go.domain.packagerepository.PackageRepository;
+import com.thoughtworks.go.domain.scm.SCM;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 // Cloner to handle nullification of specific classes in config objects.
 // A specific field can be ignored from being cloned by setting `cloner.setNullTransient(true)` and marking the field as 'transient',
@@ -34,6 +40,36 @@ public class GoConfigCloner extends Cloner {
     public GoConfigCloner() {
         nullInsteadOfClone(AllPipelineConfigs.class,
                 AllTemplatesWithAssociatedPipelines.class,
-                PipelineNameToConfigMap.class);
+                PipelineNameToConfigMap.class,
+                CompiledConfigIndex.class);
+    }
+
+    /**
+     * Copies a config for a change that only touches the given pipelines. Every other pipeline, the package
+     * repositories and the SCMs are shared with the original instead of being copied, so materials keep pointing at the
+     * same package definitions and SCMs they did before. Whatever holds them (groups, environments, templates...) is
+     * still copied, so pipelines can be added, replaced or removed without the original noticing.
+     * <p>
+     * The shared instances must not be changed through the copy.
+     */
+    public <T extends CruiseConfig> T cloneSharingPipelinesExcept(T config, Set<CaseInsensitiveString> changedPipelines) {
+        List<Object> shared = new ArrayList<>();
+        for (PipelineConfigs group : config.getGroups()) {
+            for (PipelineConfig pipeline : group) {
+                if (!changedPipelines.contains(pipeline.name())) {
+                    shared.add(pipeline);
+                }
+            }
+        }
+        shared.add(config.getPackageRepositories());
+        for (PackageRepository repository : config.getPackageRepositories()) {
+            shared.add(repository);
+            shared.addAll(repository.getPackages());
+        }
+        shared.add(config.getSCMs());
+        for (SCM scm : config.getSCMs()) {
+            shared.add(scm);
+        }
+        return deepCloneDontCloneInstances(config, shared.toArray());
     }
 }
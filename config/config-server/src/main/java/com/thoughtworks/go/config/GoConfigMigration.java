@@ -19,29 +19,52 @@ package com.thoughtworks.go.config;
 import com.thoughtworks.go.config.registry.ConfigElementImplementationRegistry;
 import com.thoughtworks.go.domain.GoConfigRevision;
 import com.thoughtworks.go.util.TimeProvider;
+import com.thoughtworks.go.util.XsdErrorTranslator;
+import com.thoughtworks.go.util.XsdValidationException;
 import org.apache.commons.io.FileUtils;
-import org.jdom2.Document;
-import org.jdom2.Element;
-import org.jdom2.input.SAXBuilder;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
 
-import javax.xml.transform.Transformer;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
 import java.io.*;
 import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 import static com.thoughtworks.go.util.ExceptionUtils.bombIfNull;
-import static com.thoughtworks.go.util.XmlUtils.buildXmlDocument;
 
 /**
  * @understands how to migrate from a previous version of config
@@ -49,9 +72,12 @@ import static com.thoughtworks.go.util.XmlUtils.buildXmlDocument;
 @Component
 public class GoConfigMigration {
     private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(GoConfigMigration.class.getName());
+    private static final ConcurrentMap<String, Templates> TEMPLATES = new ConcurrentHashMap<>();
+    private static final XMLInputFactory INPUT_FACTORY = inputFactory();
     private final String schemaVersion = "schemaVersion";
     private final TimeProvider timeProvider;
     private final ConfigElementImplementationRegistry registry;
+    private final ConcurrentMap<String, Schema> schemas = new ConcurrentHashMap<>();
 
     @Autowired
     public GoConfigMigration(final TimeProvider timeProvider, ConfigElementImplementationRegistry registry) {
@@ -91,38 +117,77 @@ public class GoConfigMigration {
     }
 
     private String upgrade(String content, int currentVersion, int targetVersion) {
+        if (currentVersion == targetVersion) {
+            return content;
+        }
+
         LOG.info("Upgrading config file from version {} to version {}", currentVersion, targetVersion);
         List<URL> upgradeScripts = upgradeScripts(currentVersion, targetVersion);
 
+        RecordedConfig config = parse(content, currentVersion);
+        if (upgradeScripts.isEmpty()) {
+            return content;
+        }
+
+        int version = currentVersion;
         for (URL upgradeScript : upgradeScripts) {
-            validate(content);
-            content = upgrade(content, upgradeScript);
+            config = upgrade(config, upgradeScript, ++version);
         }
-        validate(content);
         LOG.info("Finished upgrading config file");
-        return content;
+        return serialize(config);
     }
 
-    private void validate(String content) {
-        int currentVersion = getCurrentSchemaVersion(content);
+    private RecordedConfig parse(String content, int currentVersion) {
+        RecordedConfig config = new RecordedConfig(schema(currentVersion));
         try {
-            buildXmlDocument(new ByteArrayInputStream(content.getBytes()), GoConfigSchema.getResource(currentVersion), registry.xsds());
-        } catch (Exception e) {
-            throw bomb("Cruise config file with version " + currentVersion + " is invalid. Unable to upgrade.", e);
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            SAXParser parser = factory.newSAXParser();
+            parser.setProperty("http://xml.org/sax/properties/lexical-handler", config);
+            parser.parse(new InputSource(new StringReader(content)), config);
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw invalid(currentVersion, e);
         }
+        return validated(config, currentVersion);
     }
 
-    private String upgrade(String originalContent, URL upgradeScript) {
-        try (InputStream xslt = upgradeScript.openStream()) {
-            ByteArrayOutputStream convertedConfig = new ByteArrayOutputStream();
-            transformer(upgradeScript.getPath(), xslt)
-                    .transform(new StreamSource(new ByteArrayInputStream(originalContent.getBytes())), new StreamResult(convertedConfig));
-            return convertedConfig.toString();
-        } catch (TransformerException e) {
+    private RecordedConfig upgrade(RecordedConfig originalConfig, URL upgradeScript, int version) {
+        RecordedConfig convertedConfig = new RecordedConfig(schema(version));
+        try {
+            TransformerHandler transformer = transformerFactory().newTransformerHandler(templates(upgradeScript));
+            transformer.setResult(convertedConfig.asResult());
+            originalConfig.replay(transformer);
+        } catch (TransformerConfigurationException | SAXException e) {
             throw bomb("Couldn't transform configuration file using upgrade script " + upgradeScript.getPath(), e);
-        } catch (IOException e) {
+        }
+        return validated(convertedConfig, version);
+    }
+
+    private RecordedConfig validated(RecordedConfig config, int currentVersion) {
+        if (config.errors.hasValidationError()) {
+            throw invalid(currentVersion, new XsdValidationException(config.errors.translate()));
+        }
+        return config;
+    }
+
+    private RuntimeException invalid(int currentVersion, Exception e) {
+        return bomb("Cruise config file with version " + currentVersion + " is invalid. Unable to upgrade.", e);
+    }
+
+    private String serialize(RecordedConfig config) {
+        StringWriter convertedConfig = new StringWriter();
+        try {
+            TransformerHandler serializer = transformerFactory().newTransformerHandler();
+            serializer.setResult(new StreamResult(convertedConfig));
+            config.replay(serializer);
+        } catch (TransformerConfigurationException | SAXException e) {
             throw bomb("Couldn't write converted config file", e);
         }
+        return convertedConfig.toString();
+    }
+
+    private SAXTransformerFactory transformerFactory() {
+        return (SAXTransformerFactory) TransformerFactory.newInstance();
     }
 
     private List<URL> upgradeScripts(int currentVersion, int targetVersion) {
@@ -139,24 +204,184 @@ public class GoConfigMigration {
         return GoConfigMigration.class.getResource(script);
     }
 
-    private Transformer transformer(String xsltName, InputStream xslt) {
-        try {
-            return TransformerFactory.newInstance().newTransformer(new StreamSource(xslt));
-        } catch (TransformerConfigurationException tce) {
-            throw bomb("Couldn't parse XSL template " + xsltName, tce);
-        }
+    private Templates templates(URL upgradeScript) {
+        return TEMPLATES.computeIfAbsent(upgradeScript.toExternalForm(), key -> {
+            try (InputStream xslt = upgradeScript.openStream()) {
+                return TransformerFactory.newInstance().newTemplates(new StreamSource(xslt));
+            } catch (TransformerConfigurationException tce) {
+                throw bomb("Couldn't parse XSL template " + upgradeScript.getPath(), tce);
+            } catch (IOException e) {
+                throw bomb("Couldn't read XSL template " + upgradeScript.getPath(), e);
+            }
+        });
+    }
+
+    private Schema schema(int version) {
+        String xsds = registry.xsds();
+        return schemas.computeIfAbsent(version + " " + xsds, key -> {
+            List<Source> sources = new ArrayList<>();
+            sources.add(new StreamSource(GoConfigSchema.getResource(version).toExternalForm()));
+            String[] pluginNamespaces = StringUtils.split(xsds);
+            for (int i = 1; i < pluginNamespaces.length; i += 2) {
+                sources.add(new StreamSource(pluginNamespaces[i]));
+            }
+            try {
+                SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+                // as lenient as the validating parser used to load config, which does not check the schemas themselves
+                factory.setFeature("http://apache.org/xml/features/validation/schema-full-checking", false);
+                return factory.newSchema(sources.toArray(new Source[0]));
+            } catch (SAXException e) {
+                throw bomb("Couldn't parse the schema of config version " + version, e);
+            }
+        });
+    }
+
+    private static XMLInputFactory inputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
     }
 
     private int getCurrentSchemaVersion(String content) {
+        XMLStreamReader reader = null;
         try {
-            SAXBuilder builder = new SAXBuilder();
-            Document document = builder.build(new ByteArrayInputStream(content.getBytes()));
-            Element root = document.getRootElement();
-
-            String currentVersion = root.getAttributeValue(schemaVersion) == null ? "0" : root.getAttributeValue(schemaVersion);
-            return Integer.parseInt(currentVersion);
+            reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(content));
+            while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+            }
+            String currentVersion = reader.getAttributeValue(null, schemaVersion);
+            return Integer.parseInt(currentVersion == null ? "0" : currentVersion);
         } catch (Exception e) {
             throw bomb(e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * @understands a config as the SAX events that make it up, so that it can be handed from one upgrade script to the
+     * next without being serialized and parsed again in between
+     * <p>
+     * The config is validated against the schema of its version as it is recorded.
+     */
+    private static class RecordedConfig extends DefaultHandler implements LexicalHandler {
+        private final List<Event> events = new ArrayList<>();
+        private final ValidatorHandler validator;
+        private final XsdErrorTranslator errors = new XsdErrorTranslator();
+
+        private RecordedConfig(Schema schema) {
+            this.validator = schema.newValidatorHandler();
+            this.validator.setErrorHandler(errors);
+        }
+
+        private SAXResult asResult() {
+            SAXResult result = new SAXResult(this);
+            result.setLexicalHandler(this);
+            return result;
+        }
+
+        private void replay(TransformerHandler handler) throws SAXException {
+            for (Event event : events) {
+                event.replay(handler);
+            }
+        }
+
+        @Override
+        public void startDocument() throws SAXException {
+            validator.startDocument();
+            events.add(ContentHandler::startDocument);
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            validator.endDocument();
+            events.add(ContentHandler::endDocument);
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri) throws SAXException {
+            validator.startPrefixMapping(prefix, uri);
+            events.add(handler -> handler.startPrefixMapping(prefix, uri));
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix) throws SAXException {
+            validator.endPrefixMapping(prefix);
+            events.add(handler -> handler.endPrefixMapping(prefix));
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            validator.startElement(uri, localName, qName, attributes);
+            Attributes copy = new AttributesImpl(attributes);
+            events.add(handler -> handler.startElement(uri, localName, qName, copy));
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            validator.endElement(uri, localName, qName);
+            events.add(handler -> handler.endElement(uri, localName, qName));
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            validator.characters(ch, start, length);
+            char[] text = Arrays.copyOfRange(ch, start, start + length);
+            events.add(handler -> handler.characters(text, 0, text.length));
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            validator.ignorableWhitespace(ch, start, length);
+            char[] text = Arrays.copyOfRange(ch, start, start + length);
+            events.add(handler -> handler.ignorableWhitespace(text, 0, text.length));
+        }
+
+        @Override
+        public void processingInstruction(String target, String data) throws SAXException {
+            validator.processingInstruction(target, data);
+            events.add(handler -> handler.processingInstruction(target, data));
+        }
+
+        @Override
+        public void comment(char[] ch, int start, int length) {
+            char[] text = Arrays.copyOfRange(ch, start, start + length);
+            events.add(handler -> handler.comment(text, 0, text.length));
+        }
+
+        @Override
+        public void startCDATA() {
+            events.add(LexicalHandler::startCDATA);
+        }
+
+        @Override
+        public void endCDATA() {
+            events.add(LexicalHandler::endCDATA);
+        }
+
+        @Override
+        public void startDTD(String name, String publicId, String systemId) {
+        }
+
+        @Override
+        public void endDTD() {
+        }
+
+        @Override
+        public void startEntity(String name) {
+        }
+
+        @Override
+        public void endEntity(String name) {
+        }
+
+        private interface Event {
+            void replay(TransformerHandler handler) throws SAXException;
         }
     }
 }
@@ -21,4 +21,11 @@ import com.thoughtworks.go.domain.materials.MaterialConfig;
 public interface PartialConfigLoadContext {
     Configuration configuration();
     MaterialConfig configMaterial();
+
+    /**
+     * @return the revision of the config material being loaded; null when it is not loaded from a revision
+     */
+    default String revision() {
+        return null;
+    }
 }
@@ -16,8 +16,11 @@
 
 package com.thoughtworks.go.config.commands;
 
+import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.config.CruiseConfig;
 
+import java.util.Set;
+
 public interface EntityConfigUpdateCommand<T> extends CheckedUpdateCommand {
     void update(CruiseConfig preprocessedConfig) throws Exception;
 
@@ -29,4 +32,13 @@ public interface EntityConfigUpdateCommand<T> extends CheckedUpdateCommand {
 
     default void encrypt(CruiseConfig preProcessedConfig) {
     }
+
+    /**
+     * @return the only pipelines {@link #update(CruiseConfig)} may change in place, or null if it may change anything.
+     * When given, the config handed to update shares every other pipeline with the current config; update may still
+     * add, replace or remove pipelines, but must not change the ones it did not name.
+     */
+    default Set<CaseInsensitiveString> pipelinesChangedInPlace() {
+        return null;
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.helper.PipelineConfigMother;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConfigFingerprinterTest {
+    private ConfigFingerprinter fingerprinter;
+
+    @BeforeEach
+    void setUp() {
+        fingerprinter = new ConfigFingerprinter(new ConfigCache());
+    }
+
+    @Test
+    void shouldGiveEntitiesThatAreConfiguredTheSameWayTheSameFingerprint() {
+        PipelineConfig pipelineConfig = PipelineConfigMother.pipelineConfig("up42");
+
+        assertThat(fingerprinter.md5(PipelineConfigMother.pipelineConfig("up42"))).isEqualTo(fingerprinter.md5(pipelineConfig));
+        assertThat(fingerprinter.md5(new GoConfigCloner().deepClone(pipelineConfig))).isEqualTo(fingerprinter.md5(pipelineConfig));
+    }
+
+    @Test
+    void shouldChangeTheFingerprintWhenAnAttributeChanges() {
+        PipelineConfig pipelineConfig = PipelineConfigMother.pipelineConfig("up42");
+        String md5 = fingerprinter.md5(pipelineConfig);
+
+        pipelineConfig.setLabelTemplate("${COUNT}-changed");
+
+        assertThat(fingerprinter.md5(pipelineConfig)).isNotEqualTo(md5);
+    }
+
+    @Test
+    void shouldUseTheAttributeValueOfAnAttributeThatSaysWhichFieldHoldsIt() {
+        assertThat(fingerprinter.md5(PipelineConfigMother.pipelineConfig("UP42"))).isNotEqualTo(fingerprinter.md5(PipelineConfigMother.pipelineConfig("up42")));
+    }
+
+    @Test
+    void shouldChangeTheFingerprintWhenANestedEntityChanges() {
+        PipelineConfig pipelineConfig = PipelineConfigMother.pipelineConfig("up42");
+        String md5 = fingerprinter.md5(pipelineConfig);
+
+        pipelineConfig.first().getJobs().add(new JobConfig(new CaseInsensitiveString("another-job")));
+
+        assertThat(fingerprinter.md5(pipelineConfig)).isNotEqualTo(md5);
+    }
+
+    @Test
+    void shouldChangeTheFingerprintWhenTheItemsOfACollectionAreReordered() {
+        PipelineConfig pipelineConfig = PipelineConfigMother.createPipelineConfigWithStages("up42", "build", "deploy");
+        String md5 = fingerprinter.md5(pipelineConfig);
+
+        pipelineConfig.add(pipelineConfig.remove(0));
+
+        assertThat(fingerprinter.md5(pipelineConfig)).isNotEqualTo(md5);
+    }
+
+    @Test
+    void shouldOnlyFingerprintConfigEntities() {
+        assertThatThrownBy(() -> fingerprinter.md5("not an entity"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("does not have a ConfigTag");
+    }
+}
@@ -16,16 +16,23 @@
 
 package com.thoughtworks.go.config;
 
+import com.thoughtworks.go.config.materials.MaterialConfigs;
+import com.thoughtworks.go.config.materials.PackageMaterialConfig;
+import com.thoughtworks.go.domain.packagerepository.PackageDefinition;
+import com.thoughtworks.go.domain.packagerepository.PackageRepository;
+import com.thoughtworks.go.domain.packagerepository.PackageRepositoryMother;
 import com.thoughtworks.go.helper.GoConfigMother;
 import com.thoughtworks.go.helper.PipelineConfigMother;
 import com.thoughtworks.go.helper.PipelineTemplateConfigMother;
 import com.thoughtworks.go.util.ReflectionUtil;
 import org.junit.Test;
 
+import static java.util.Collections.singleton;
 import static org.junit.Assert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class GoConfigClonerTest {
     @Test
@@ -59,6 +66,18 @@ public class GoConfigClonerTest {
         assertThat(cloned.templatesWithAssociatedPipelines().size(), is(0));
     }
 
+    @Test
+    public void shouldNotCloneCompiledIndex() {
+        BasicCruiseConfig config = GoConfigMother.configWithPipelines("p1", "p2");
+        config.compile();
+
+        BasicCruiseConfig cloned = new GoConfigCloner().deepClone(config);
+        assertThat(ReflectionUtil.getField(config, "compiledIndex"), is(not((nullValue()))));
+        assertThat(ReflectionUtil.getField(cloned, "compiledIndex"), is(nullValue()));
+        cloned.findGroup("defaultGroup").remove(0);
+        assertThat(cloned.allPipelines().size(), is(1));
+    }
+
     @Test
     public void shouldNotClonePipelineNameToConfigMap() {
         BasicCruiseConfig config = GoConfigMother.configWithPipelines("p1", "p2");
@@ -80,4 +99,38 @@ public class GoConfigClonerTest {
         assertThat(cloned.getGroups().size(), is(1));
         assertThat(cloned.getGroups().get(0).getPipelines().size(), is(2));
     }
+
+    @Test
+    public void shouldShareAllButTheChangedPipelinesWithTheOriginal() {
+        BasicCruiseConfig config = GoConfigMother.configWithPipelines("p1", "p2");
+        CaseInsensitiveString p1 = new CaseInsensitiveString("p1");
+        CaseInsensitiveString p2 = new CaseInsensitiveString("p2");
+
+        BasicCruiseConfig cloned = new GoConfigCloner().cloneSharingPipelinesExcept(config, singleton(p1));
+
+        assertThat(cloned.pipelineConfigByName(p2), is(sameInstance(config.pipelineConfigByName(p2))));
+        assertThat(cloned.pipelineConfigByName(p1), is(not(sameInstance(config.pipelineConfigByName(p1)))));
+        assertThat(cloned.pipelineConfigByName(p1), is(config.pipelineConfigByName(p1)));
+
+        cloned.findGroup("defaultGroup").remove(cloned.pipelineConfigByName(p2));
+        assertThat(cloned.getAllPipelineConfigs().size(), is(1));
+        assertThat(config.getAllPipelineConfigs().size(), is(2));
+    }
+
+    @Test
+    public void shouldKeepChangedPipelinesPointingAtTheSharedPackageDefinitions() {
+        PackageRepository repository = PackageRepositoryMother.create("repo-1");
+        PackageDefinition packageDefinition = repository.getPackages().get(0);
+        BasicCruiseConfig config = GoConfigMother.defaultCruiseConfig();
+        config.getPackageRepositories().add(repository);
+        PackageMaterialConfig material = new PackageMaterialConfig(new CaseInsensitiveString("package"), packageDefinition.getId(), packageDefinition);
+        config.addPipelineWithoutValidation("g1", PipelineConfigMother.pipelineConfig("p1", new MaterialConfigs(material)));
+
+        BasicCruiseConfig cloned = new GoConfigCloner().cloneSharingPipelinesExcept(config, singleton(new CaseInsensitiveString("p1")));
+
+        PackageMaterialConfig clonedMaterial = (PackageMaterialConfig) cloned.pipelineConfigByName(new CaseInsensitiveString("p1")).materialConfigs().get(0);
+        assertThat(clonedMaterial, is(not(sameInstance(material))));
+        assertThat(clonedMaterial.getPackageDefinition(), is(sameInstance(packageDefinition)));
+        assertThat(cloned.getPackageRepositories().get(0), is(sameInstance(repository)));
+    }
 }
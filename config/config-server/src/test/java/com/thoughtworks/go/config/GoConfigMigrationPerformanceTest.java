@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.util.ConfigElementImplementationRegistryMother;
+import com.thoughtworks.go.util.TimeProvider;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtworks.go.util.XmlUtils.buildXmlDocument;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Compares upgrading a large generated config from the first schema version one upgrade script at a time, with the
+ * config validated, serialized and parsed again around every script, with upgrading it through the migration. The
+ * migration is timed on its first run, which compiles the upgrade scripts and schemas, and on later runs, which reuse
+ * them. Checking a config that is already at the current version is timed as well.
+ */
+@Ignore
+public class GoConfigMigrationPerformanceTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoConfigMigrationPerformanceTest.class);
+    private static final int RUNS = 5;
+
+    @Test
+    public void shouldReportUpgradeCostAgainstConfigSize() throws Exception {
+        GoConfigMigration migration = new GoConfigMigration(new TimeProvider(), ConfigElementImplementationRegistryMother.withNoPlugins());
+        LOGGER.info("First migration, which compiles the upgrade scripts and schemas: {}ms", time(() -> migration.upgradeIfNecessary(generate(1))));
+
+        for (int pipelines : new int[]{100, 1000, 5000}) {
+            String content = generate(pipelines);
+
+            long scriptByScript = time(() -> upgradeScriptByScript(content));
+            String upgraded = migration.upgradeIfNecessary(content);
+            assertThat(upgraded, containsString("schemaVersion=\"" + GoConfigSchema.currentSchemaVersion() + "\""));
+
+            long warm = 0;
+            long current = 0;
+            for (int i = 0; i < RUNS; i++) {
+                warm += time(() -> migration.upgradeIfNecessary(content));
+                current += time(() -> assertThat(migration.upgradeIfNecessary(upgraded) == upgraded, is(true)));
+            }
+
+            LOGGER.info("{} pipelines ({}KB): script by script {}ms, migration {}ms, already current {}ms",
+                    pipelines, content.length() / 1024, scriptByScript, warm / RUNS, current / RUNS);
+        }
+    }
+
+    private static String upgradeScriptByScript(String content) {
+        try {
+            for (int i = 1; i <= GoConfigSchema.currentSchemaVersion(); i++) {
+                buildXmlDocument(new ByteArrayInputStream(content.getBytes()), GoConfigSchema.getResource(i - 1), "");
+                URL upgradeScript = GoConfigMigration.class.getResource("/upgrades/" + i + ".xsl");
+                try (InputStream xslt = upgradeScript.openStream()) {
+                    StringWriter converted = new StringWriter();
+                    TransformerFactory.newInstance().newTransformer(new StreamSource(xslt))
+                            .transform(new StreamSource(new StringReader(content)), new StreamResult(converted));
+                    content = converted.toString();
+                }
+            }
+            return content;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String generate(int pipelines) {
+        StringBuilder content = new StringBuilder("<cruise><server artifactsdir=\"artifacts\"></server><pipelines>");
+        for (int i = 0; i < pipelines; i++) {
+            content.append("<pipeline name='pipeline-").append(i).append("'>")
+                    .append("<materials><svn url='https://example.com/svn/repo-").append(i).append("'/></materials>")
+                    .append("<stage name='build'><jobs><job name='compile'/><job name='unit'/></jobs></stage>")
+                    .append("<stage name='deploy'><jobs><job name='deploy'/></jobs><approval type='manual'/></stage>")
+                    .append("</pipeline>");
+        }
+        return content.append("</pipelines></cruise>").toString();
+    }
+
+    private static long time(Runnable runnable) {
+        long start = System.nanoTime();
+        runnable.run();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.helper.ConfigFileFixture;
+import com.thoughtworks.go.util.ConfigElementImplementationRegistryMother;
+import com.thoughtworks.go.util.TimeProvider;
+import com.thoughtworks.go.util.XsdValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GoConfigMigrationTest {
+    private GoConfigMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        migration = new GoConfigMigration(new TimeProvider(), ConfigElementImplementationRegistryMother.withNoPlugins());
+    }
+
+    @Test
+    void shouldUpgradeConfigToTheCurrentVersionKeepingTheOrderOfAttributes() {
+        String upgraded = migration.upgradeIfNecessary(ConfigFileFixture.VERSION_0);
+
+        assertThat(upgraded).startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?><cruise ");
+        assertThat(upgraded).contains("schemaVersion=\"" + GoConfigSchema.currentSchemaVersion() + "\"");
+        assertThat(upgraded).contains("<backup emailOnSuccess=\"true\" emailOnFailure=\"true\"/>");
+        assertThat(migration.upgradeIfNecessary(ConfigFileFixture.VERSION_0)).isEqualTo(upgraded);
+    }
+
+    @Test
+    void shouldHandBackConfigThatIsAlreadyAtTheCurrentVersionAsItIs() {
+        String current = "<cruise schemaVersion='" + GoConfigSchema.currentSchemaVersion() + "'><unknown/></cruise>";
+
+        assertThat(migration.upgradeIfNecessary(current)).isSameAs(current);
+    }
+
+    @Test
+    void shouldUpgradeConfigThatHasADoctype() {
+        String config = "<!DOCTYPE cruise [<!ENTITY artifacts 'target/testfiles/tmpCCRoot/data/logs'>]>"
+                + ConfigFileFixture.VERSION_0.replace("target/testfiles/tmpCCRoot/data/logs", "&artifacts;");
+
+        String upgraded = migration.upgradeIfNecessary(config);
+
+        assertThat(upgraded).contains("schemaVersion=\"" + GoConfigSchema.currentSchemaVersion() + "\"");
+        assertThat(upgraded).contains("artifactsdir=\"target/testfiles/tmpCCRoot/data/logs\"");
+    }
+
+    @Test
+    void shouldReportTheVersionTheConfigIsInvalidAt() {
+        assertThatThrownBy(() -> migration.upgradeIfNecessary("<cruise schemaVersion='14'><server artifactsdir='artifacts'/><unknown/></cruise>"))
+                .hasMessage("Cruise config file with version 14 is invalid. Unable to upgrade.")
+                .hasCauseInstanceOf(XsdValidationException.class);
+    }
+}
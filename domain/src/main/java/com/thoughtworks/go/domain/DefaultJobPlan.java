@@ -130,6 +130,9 @@ public class DefaultJobPlan implements JobPlan {
         if (this == o) {
             return true;
         }
+        if (o instanceof ReadOnlyJobPlan) {
+            return equals(((ReadOnlyJobPlan) o).wrapped());
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
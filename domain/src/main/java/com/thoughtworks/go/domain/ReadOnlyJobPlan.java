@@ -0,0 +1,217 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.domain;
+
+import com.rits.cloning.Cloner;
+import com.thoughtworks.go.config.elastic.ClusterProfile;
+import com.thoughtworks.go.config.elastic.ElasticProfile;
+import com.thoughtworks.go.util.command.EnvironmentVariableContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @understands a job plan that is shared between threads and must not be changed by any of them
+ * <p>
+ * Setters throw {@link UnsupportedOperationException}; getters hand out copies, in unmodifiable lists, so changing what
+ * they return does not change the shared plan. A view serializes as the plan it wraps, and is equal to it either way
+ * round.
+ */
+public class ReadOnlyJobPlan implements JobPlan {
+    private static final Cloner CLONER = new Cloner();
+
+    private final JobPlan plan;
+    private final int hashCode;
+
+    public ReadOnlyJobPlan(JobPlan plan) {
+        this.plan = plan;
+        this.hashCode = plan.hashCode();
+    }
+
+    @Override
+    public String getPipelineName() {
+        return plan.getPipelineName();
+    }
+
+    @Override
+    public String getStageName() {
+        return plan.getStageName();
+    }
+
+    @Override
+    public String getName() {
+        return plan.getName();
+    }
+
+    @Override
+    public long getJobId() {
+        return plan.getJobId();
+    }
+
+    @Override
+    public JobIdentifier getIdentifier() {
+        JobIdentifier identifier = plan.getIdentifier();
+        if (identifier == null) {
+            return null;
+        }
+        JobIdentifier copy = new JobIdentifier(identifier.getPipelineName(), identifier.getPipelineCounter(), identifier.getPipelineLabel(),
+                identifier.getStageName(), identifier.getStageCounter(), identifier.getBuildName(), identifier.getBuildId());
+        copy.setRerunOfCounter(identifier.getRerunOfCounter());
+        return copy;
+    }
+
+    @Override
+    public List<ArtifactPropertiesGenerator> getPropertyGenerators() {
+        return unmodifiableCopy(plan.getPropertyGenerators());
+    }
+
+    @Override
+    public List<ArtifactPlan> getArtifactPlans() {
+        return unmodifiableCopy(plan.getArtifactPlans());
+    }
+
+    @Override
+    public Resources getResources() {
+        Resources resources = plan.getResources();
+        if (resources == null) {
+            return null;
+        }
+        Resources copy = new Resources();
+        for (Resource resource : resources) {
+            copy.add(new Resource(resource));
+        }
+        return copy;
+    }
+
+    @Override
+    public String getAgentUuid() {
+        return plan.getAgentUuid();
+    }
+
+    @Override
+    public EnvironmentVariables getVariables() {
+        return CLONER.deepClone(plan.getVariables());
+    }
+
+    @Override
+    public void applyTo(EnvironmentVariableContext variableContext) {
+        plan.applyTo(variableContext);
+    }
+
+    @Override
+    public void setVariables(EnvironmentVariables variables) {
+        throw readOnly();
+    }
+
+    @Override
+    public long getPipelineId() {
+        return plan.getPipelineId();
+    }
+
+    @Override
+    public boolean shouldFetchMaterials() {
+        return plan.shouldFetchMaterials();
+    }
+
+    @Override
+    public void setFetchMaterials(boolean fetchMaterials) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCleanWorkingDir(boolean cleanWorkingDir) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean shouldCleanWorkingDir() {
+        return plan.shouldCleanWorkingDir();
+    }
+
+    @Override
+    public ElasticProfile getElasticProfile() {
+        return CLONER.deepClone(plan.getElasticProfile());
+    }
+
+    @Override
+    public ClusterProfile getClusterProfile() {
+        return CLONER.deepClone(plan.getClusterProfile());
+    }
+
+    @Override
+    public boolean requiresElasticAgent() {
+        return plan.requiresElasticAgent();
+    }
+
+    @Override
+    public boolean assignedToAgent() {
+        return plan.assignedToAgent();
+    }
+
+    @Override
+    public void setElasticProfile(ElasticProfile elasticProfile) {
+        throw readOnly();
+    }
+
+    @Override
+    public List<ArtifactPlan> getArtifactPlansOfType(ArtifactPlanType type) {
+        return unmodifiableCopy(plan.getArtifactPlansOfType(type));
+    }
+
+    @Override
+    public void setClusterProfile(ClusterProfile clusterProfile) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof ReadOnlyJobPlan) {
+            return plan.equals(((ReadOnlyJobPlan) o).plan);
+        }
+        return plan.equals(o);
+    }
+
+    JobPlan wrapped() {
+        return plan;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return plan.toString();
+    }
+
+    private Object writeReplace() {
+        return plan;
+    }
+
+    private static <T> List<T> unmodifiableCopy(List<T> list) {
+        return list == null ? null : Collections.unmodifiableList(CLONER.deepClone(new ArrayList<>(list)));
+    }
+
+    private UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Job plan " + plan.getIdentifier() + " is shared and cannot be changed");
+    }
+}
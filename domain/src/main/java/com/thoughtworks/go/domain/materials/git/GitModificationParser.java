@@ -18,6 +18,7 @@ package com.thoughtworks.go.domain.materials.git;
 
 import com.thoughtworks.go.domain.materials.Modification;
 import com.thoughtworks.go.util.DateUtils;
+import com.thoughtworks.go.util.command.StreamConsumer;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -25,7 +26,13 @@ import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class GitModificationParser {
+import static com.thoughtworks.go.domain.materials.ModifiedAction.parseGitAction;
+
+/**
+ * @understands the output of <code>git log --pretty=medium</code>, including the files listed by
+ * <code>--name-status</code> under each commit
+ */
+public class GitModificationParser implements StreamConsumer {
     private LinkedList<Modification> modifications = new LinkedList<>();
     private static final String SPACES = "\\s+";
     private static final String COMMENT_INDENT = "\\s{4}";
@@ -37,6 +44,7 @@ public class GitModificationParser {
     private static final Pattern AUTHOR_PATTERN = Pattern.compile("^Author:"+ SPACES + AUTHOR + "$");
     private static final Pattern DATE_PATTERN = Pattern.compile("^Date:" + SPACES + DATE + "$");
     private static final Pattern COMMENT_PATTERN = Pattern.compile("^" + COMMENT_INDENT + COMMENT_TEXT + "$");
+    private static final Pattern MODIFIED_FILE_PATTERN = Pattern.compile("^(\\S)\t(.+)$");
 
     public List<Modification> parse(List<String> output) {
         for (String line : output) {
@@ -49,6 +57,11 @@ public class GitModificationParser {
         return modifications;
     }
 
+    @Override
+    public void consumeLine(String line) {
+        processLine(line);
+    }
+
     public void processLine(String line) {
         Matcher matcher = COMMIT_PATTERN.matcher(line);
         if (matcher.matches()) {
@@ -69,5 +82,9 @@ public class GitModificationParser {
             if (!comment.isEmpty()) comment += "\n";
             last.setComment(comment + commentMatcher.group(1));
        }
+        Matcher modifiedFileMatcher = MODIFIED_FILE_PATTERN.matcher(line);
+        if (modifiedFileMatcher.matches() && !modifications.isEmpty()) {
+            modifications.getLast().createModifiedFile(modifiedFileMatcher.group(2), null, parseGitAction(modifiedFileMatcher.group(1).charAt(0)));
+        }
     }
 }
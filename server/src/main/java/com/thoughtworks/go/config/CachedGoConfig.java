@@ -190,6 +190,7 @@ public class CachedGoConfig {
             LOGGER.debug("[Config Save] Saving config to the cache");
             this.lastException = null;
             this.configHolder = configHolder;
+            this.configHolder.config.compile();
             this.currentConfig = this.configHolder.config;
             this.currentConfigForEdit = this.configHolder.configForEdit;
             this.mergedCurrentConfigForEdit = configHolder.mergedConfigForEdit;
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.config;
+
+import com.google.gson.Gson;
+import com.thoughtworks.go.plugin.configrepo.codec.GsonCodec;
+import com.thoughtworks.go.plugin.configrepo.contract.CRConfigurationProperty;
+import com.thoughtworks.go.plugin.configrepo.contract.CRParseResult;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static com.thoughtworks.go.util.CachedDigestUtils.sha256Hex;
+
+/**
+ * @understands keeping what config repo plugins parsed out of a revision on disk, so it does not have to be parsed again
+ * <p>
+ * There is one file per config repo material, holding the result of parsing its last parsed revision. The result is
+ * looked up by a key made of the plugin, its version, the revision and the configuration of the repo; a file with
+ * another key, or one that cannot be read, is a miss. Only results without errors are kept.
+ */
+@Component
+public class ConfigRepoParseCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigRepoParseCache.class);
+    private static final Gson GSON = new GsonCodec().getGson();
+
+    private final boolean enabled;
+    private final File dir;
+
+    @Autowired
+    public ConfigRepoParseCache(SystemEnvironment systemEnvironment) {
+        this(systemEnvironment.isConfigRepoParseCacheEnabled(), systemEnvironment.getConfigRepoParseCacheDir());
+    }
+
+    ConfigRepoParseCache(boolean enabled, File dir) {
+        this.enabled = enabled;
+        this.dir = dir;
+    }
+
+    /**
+     * @return the key of a parse result; null when the revision or plugin version is not known, in which case the
+     * result cannot be cached
+     */
+    public static String key(String pluginId, String pluginVersion, String revision, Collection<CRConfigurationProperty> configurations) {
+        if (pluginVersion == null || revision == null) {
+            return null;
+        }
+        return sha256Hex(GSON.toJson(Arrays.asList(pluginId, pluginVersion, revision, configurations)));
+    }
+
+    /**
+     * @return the cached result for the key; null when there is none
+     */
+    public CRParseResult get(String fingerprint, String key) {
+        if (!enabled || key == null) {
+            return null;
+        }
+        File file = fileFor(fingerprint);
+        if (!file.exists()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new BufferedInputStream(new FileInputStream(file)), StandardCharsets.UTF_8)) {
+            Entry entry = GSON.fromJson(reader, Entry.class);
+            if (entry == null || !key.equals(entry.key) || entry.result == null) {
+                return null;
+            }
+            LOGGER.debug("Using cached parse result {} of config repo material {}", file, fingerprint);
+            return entry.result;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Ignoring cached parse result {} of config repo material {} that could not be read", file, fingerprint, e);
+            return null;
+        }
+    }
+
+    public void put(String fingerprint, String key, CRParseResult result) {
+        if (!enabled || key == null || result.hasErrors()) {
+            return;
+        }
+        File file = fileFor(fingerprint);
+        try {
+            dir.mkdirs();
+            File temp = File.createTempFile(file.getName(), ".tmp", dir);
+            try {
+                try (Writer writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(temp)), StandardCharsets.UTF_8)) {
+                    GSON.toJson(new Entry(key, result), writer);
+                }
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Could not cache parse result {} of config repo material {}", file, fingerprint, e);
+        }
+    }
+
+    private File fileFor(String fingerprint) {
+        return new File(dir, fingerprint + ".json");
+    }
+
+    private static class Entry {
+        private String key;
+        private CRParseResult result;
+
+        private Entry(String key, CRParseResult result) {
+            this.key = key;
+            this.result = result;
+        }
+    }
+}
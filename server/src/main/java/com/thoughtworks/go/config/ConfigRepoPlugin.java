@@ -22,6 +22,7 @@ import com.thoughtworks.go.domain.config.ConfigurationProperty;
 import com.thoughtworks.go.plugin.access.configrepo.ConfigRepoExtension;
 import com.thoughtworks.go.plugin.access.configrepo.ExportedConfig;
 import com.thoughtworks.go.plugin.access.configrepo.InvalidPartialConfigException;
+import com.thoughtworks.go.plugin.api.info.PluginDescriptor;
 import com.thoughtworks.go.plugin.configrepo.contract.CRConfigurationProperty;
 import com.thoughtworks.go.plugin.configrepo.contract.CRParseResult;
 import com.thoughtworks.go.plugin.configrepo.contract.CRPipeline;
@@ -35,11 +36,13 @@ public class ConfigRepoPlugin implements PartialConfigProvider {
     private ConfigConverter configConverter;
     private ConfigRepoExtension crExtension;
     private String pluginId;
+    private ConfigRepoParseCache parseCache;
 
-    public ConfigRepoPlugin(ConfigConverter configConverter, ConfigRepoExtension crExtension, String pluginId) {
+    public ConfigRepoPlugin(ConfigConverter configConverter, ConfigRepoExtension crExtension, String pluginId, ConfigRepoParseCache parseCache) {
         this.configConverter = configConverter;
         this.crExtension = crExtension;
         this.pluginId = pluginId;
+        this.parseCache = parseCache;
     }
 
     public static List<CRConfigurationProperty> getCrConfigurations(Configuration configuration) {
@@ -59,7 +62,13 @@ public class ConfigRepoPlugin implements PartialConfigProvider {
     @Override
     public PartialConfig load(File configRepoCheckoutDirectory, PartialConfigLoadContext context) {
         Collection<CRConfigurationProperty> cRconfigurations = getCrConfigurations(context.configuration());
-        CRParseResult crPartialConfig = parseDirectory(configRepoCheckoutDirectory, cRconfigurations);
+        String cacheKey = ConfigRepoParseCache.key(pluginId, pluginVersion(), context.revision(), cRconfigurations);
+        String fingerprint = cacheKey == null ? null : context.configMaterial().getFingerprint();
+        CRParseResult crPartialConfig = parseCache.get(fingerprint, cacheKey);
+        if (crPartialConfig == null) {
+            crPartialConfig = parseDirectory(configRepoCheckoutDirectory, cRconfigurations);
+            parseCache.put(fingerprint, cacheKey, crPartialConfig);
+        }
         return configConverter.toPartialConfig(crPartialConfig, context);
     }
 
@@ -88,6 +97,11 @@ public class ConfigRepoPlugin implements PartialConfigProvider {
         return crParseResult;
     }
 
+    private String pluginVersion() {
+        PluginDescriptor descriptor = crExtension.pluginDescriptorFor(pluginId);
+        return descriptor == null ? null : descriptor.version();
+    }
+
     public String etagForExport(PipelineConfig pipelineConfig, String groupName) {
         return sha256Hex(Integer.toString(Objects.hash(pipelineConfig, groupName, crExtension.pluginDescriptorFor(pluginId))));
     }
@@ -47,6 +47,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
@@ -231,7 +232,7 @@ public class GoFileConfigDataSource {
     }
 
     public synchronized EntityConfigSaveResult writeEntityWithLock(EntityConfigUpdateCommand updatingCommand, GoConfigHolder configHolder, Username currentUser) {
-        CruiseConfig modifiedConfig = cloner.deepClone(configHolder.configForEdit);
+        CruiseConfig modifiedConfig = cloneForUpdate(updatingCommand, configHolder.configForEdit);
         try {
             updatingCommand.update(modifiedConfig);
         } catch (Exception e) {
@@ -253,8 +254,10 @@ public class GoFileConfigDataSource {
                 errorMessageBuilder.append(message);
                 LOGGER.warn(message, e);
                 updatingCommand.clearErrors();
-                modifiedConfig.setPartials(lastKnownPartials);
-                String configAsXml = configAsXml(modifiedConfig, false);
+                // validating before writing preprocesses the config in place, which must not reach pipelines it shares
+                CruiseConfig configToValidate = cloner.deepClone(modifiedConfig);
+                configToValidate.setPartials(lastKnownPartials);
+                String configAsXml = configAsXml(configToValidate, false);
                 GoConfigHolder holder = internalLoad(configAsXml, new ConfigModifyingUser(currentUser.getUsername().toString()), lastKnownPartials);
                 LOGGER.info("Update operation on merged configuration succeeded with {} KNOWN partials. Now there are {} LAST KNOWN partials",
                         lastKnownPartials.size(), cachedGoPartials.lastKnownPartials().size());
@@ -272,6 +275,14 @@ public class GoFileConfigDataSource {
 
     }
 
+    private CruiseConfig cloneForUpdate(EntityConfigUpdateCommand updatingCommand, CruiseConfig configForEdit) {
+        Set<CaseInsensitiveString> changedPipelines = updatingCommand.pipelinesChangedInPlace();
+        if (changedPipelines == null) {
+            return cloner.deepClone(configForEdit);
+        }
+        return cloner.cloneSharingPipelinesExcept(configForEdit, changedPipelines);
+    }
+
     private EntityConfigSaveResult trySavingEntity(EntityConfigUpdateCommand updatingCommand, Username currentUser, CruiseConfig modifiedConfig, List<PartialConfig> partials) {
         modifiedConfig.setPartials(partials);
         CruiseConfig preprocessedConfig = cloner.deepClone(modifiedConfig);
@@ -290,8 +301,7 @@ public class GoFileConfigDataSource {
                 CruiseConfig mergedCruiseConfigForEdit = modifiedConfig;
                 if (!partials.isEmpty()) {
                     LOGGER.debug("[Config Save] Updating GoConfigHolder with mergedCruiseConfigForEdit: Starting.");
-                    mergedCruiseConfigForEdit = cloner.deepClone(modifiedConfig);
-                    mergedCruiseConfigForEdit.merge(partials, true);
+                    mergedCruiseConfigForEdit = mergedForEdit(modifiedConfig, partials);
                     LOGGER.debug("[Config Save] Updating GoConfigHolder with mergedCruiseConfigForEdit: Done.");
                 }
                 return new EntityConfigSaveResult(updatingCommand.getPreprocessedEntityConfig(), new GoConfigHolder(preprocessedConfig, modifiedConfig, mergedCruiseConfigForEdit));
@@ -413,9 +423,15 @@ public class GoFileConfigDataSource {
 
     private void updateMergedConfigForEdit(GoConfigHolder validatedConfigHolder, List<PartialConfig> partialConfigs) {
         if (partialConfigs.isEmpty()) return;
-        CruiseConfig mergedCruiseConfigForEdit = cloner.deepClone(validatedConfigHolder.configForEdit);
-        mergedCruiseConfigForEdit.merge(partialConfigs, true);
-        validatedConfigHolder.mergedConfigForEdit = mergedCruiseConfigForEdit;
+        validatedConfigHolder.mergedConfigForEdit = mergedForEdit(validatedConfigHolder.configForEdit, partialConfigs);
+    }
+
+    // merging only replaces the groups, environments and SCMs of the config with new collections built around the
+    // existing ones, so a shallow copy is enough to keep the config for edit as it is
+    private CruiseConfig mergedForEdit(CruiseConfig configForEdit, List<PartialConfig> partials) {
+        CruiseConfig mergedCruiseConfigForEdit = cloner.shallowClone(configForEdit);
+        mergedCruiseConfigForEdit.merge(partials, true);
+        return mergedCruiseConfigForEdit;
     }
 
     private GoConfigHolder trySavingFullConfig(FullConfigUpdateCommand updatingCommand, GoConfigHolder configHolder, List<PartialConfig> partials) throws Exception {
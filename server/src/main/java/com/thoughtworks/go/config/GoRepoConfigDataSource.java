@@ -153,9 +153,9 @@ public class GoRepoConfigDataSource implements ChangedRepoConfigWatchListListene
             }
             try {
                 this.modifiedConfigRepoConfigsAwaitingParse.remove(repoConfig);
-                //TODO put modifications and previous partial config in context
+                //TODO put previous partial config in context
                 // the context is just a helper for plugin.
-                PartialConfigLoadContext context = new LoadContext(repoConfig);
+                PartialConfigLoadContext context = new LoadContext(repoConfig, modification);
                 PartialConfig newPart = plugin.load(folder, context);
                 if (newPart == null) {
                     LOGGER.warn("Parsed configuration material {} by {} is null", material.getDisplayName(), plugin.displayName());
@@ -213,9 +213,11 @@ public class GoRepoConfigDataSource implements ChangedRepoConfigWatchListListene
 
     private class LoadContext implements PartialConfigLoadContext {
         private ConfigRepoConfig repoConfig;
+        private Modification modification;
 
-        public LoadContext(ConfigRepoConfig repoConfig) {
+        public LoadContext(ConfigRepoConfig repoConfig, Modification modification) {
             this.repoConfig = repoConfig;
+            this.modification = modification;
         }
 
         @Override
@@ -227,5 +229,10 @@ public class GoRepoConfigDataSource implements ChangedRepoConfigWatchListListene
         public MaterialConfig configMaterial() {
             return this.repoConfig.getMaterialConfig();
         }
+
+        @Override
+        public String revision() {
+            return this.modification.getRevision();
+        }
     }
 }
@@ -17,6 +17,7 @@
 package com.thoughtworks.go.config.update;
 
 import com.thoughtworks.go.config.BasicCruiseConfig;
+import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.config.CruiseConfig;
 import com.thoughtworks.go.config.EnvironmentConfig;
 import com.thoughtworks.go.config.PipelineConfig;
@@ -27,6 +28,9 @@ import com.thoughtworks.go.server.service.GoConfigService;
 import com.thoughtworks.go.server.service.result.LocalizedOperationResult;
 import com.thoughtworks.go.serverhealth.HealthStateType;
 
+import java.util.Collections;
+import java.util.Set;
+
 public class DeletePipelineConfigCommand implements EntityConfigUpdateCommand<PipelineConfig> {
     private final GoConfigService goConfigService;
     private PipelineConfig pipelineConfig;
@@ -48,6 +52,11 @@ public class DeletePipelineConfigCommand implements EntityConfigUpdateCommand<Pi
         cruiseConfig.deletePipeline(pipelineConfig);
     }
 
+    @Override
+    public Set<CaseInsensitiveString> pipelinesChangedInPlace() {
+        return Collections.singleton(pipelineConfig.name());
+    }
+
     @Override
     public boolean isValid(CruiseConfig preprocessedConfig) {
         for (PipelineConfig pipeline : preprocessedConfig.getAllPipelineConfigs()) {
@@ -21,6 +21,9 @@ import com.thoughtworks.go.config.commands.EntityConfigUpdateCommand;
 import com.thoughtworks.go.server.service.ExternalArtifactsService;
 import com.thoughtworks.go.server.service.GoConfigService;
 
+import java.util.Collections;
+import java.util.Set;
+
 public abstract class PipelineConfigCommand implements EntityConfigUpdateCommand<PipelineConfig> {
 
     protected PipelineConfig pipelineConfig;
@@ -44,6 +47,11 @@ public abstract class PipelineConfigCommand implements EntityConfigUpdateCommand
         return preprocessedPipelineConfig;
     }
 
+    @Override
+    public Set<CaseInsensitiveString> pipelinesChangedInPlace() {
+        return Collections.singleton(pipelineConfig.name());
+    }
+
     @Override
     public void encrypt(CruiseConfig preprocessedConfig) {
         preprocessedPipelineConfig = preprocessedConfig.getPipelineConfigByName(pipelineConfig.name());
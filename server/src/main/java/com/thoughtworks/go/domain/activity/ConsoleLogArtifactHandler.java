@@ -19,6 +19,7 @@ package com.thoughtworks.go.domain.activity;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.domain.JobInstance;
 import com.thoughtworks.go.server.domain.JobStatusListener;
+import com.thoughtworks.go.server.service.ConsoleLogSink;
 import com.thoughtworks.go.server.service.ConsoleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -26,10 +27,12 @@ import org.springframework.stereotype.Component;
 @Component
 public class ConsoleLogArtifactHandler implements JobStatusListener {
     private ConsoleService consoleService;
+    private ConsoleLogSink consoleLogSink;
 
     @Autowired
-    public ConsoleLogArtifactHandler(ConsoleService consoleService) {
+    public ConsoleLogArtifactHandler(ConsoleService consoleService, ConsoleLogSink consoleLogSink) {
         this.consoleService = consoleService;
+        this.consoleLogSink = consoleLogSink;
     }
 
     @Override
@@ -42,6 +45,7 @@ public class ConsoleLogArtifactHandler implements JobStatusListener {
         if (!job.isCopy() && job.isCompleted()) {
             try {
                 JobIdentifier identifier = job.getIdentifier();
+                consoleLogSink.close(identifier);
                 consoleService.moveConsoleArtifacts(identifier);
             } catch (Exception e) {
                 throw new RuntimeException(e);
@@ -49,7 +49,7 @@ public class BuildRepositoryRemoteImpl {
     public AgentInstruction ping(AgentRuntimeInfo info) {
         LOGGER.trace("{} ping received.", info);
         try {
-            agentService.updateRuntimeInfo(info);
+            agentService.heartbeatReceived(info);
             return new AgentInstruction(agentService.findAgentAndRefreshStatus(info.getUUId()).isCancelled());
         } catch (AgentWithDuplicateUUIDException agentException) {
             throw wrappedException(agentException);
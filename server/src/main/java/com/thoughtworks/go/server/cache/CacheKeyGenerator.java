@@ -16,6 +16,8 @@
 
 package com.thoughtworks.go.server.cache;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.domain.StageState;
 import org.apache.commons.lang3.StringUtils;
@@ -26,6 +28,7 @@ import java.util.stream.Collectors;
 
 public class CacheKeyGenerator {
     private static final String DELIMITER = ".$";
+    private static final Interner<String> KEYS = Interners.newWeakInterner();
     private final Class<?> clazz;
 
     public CacheKeyGenerator(Class<?> clazz) {
@@ -49,7 +52,16 @@ public class CacheKeyGenerator {
         allArgs.add(0, clazz.getName());
         allArgs.add(1, identifier);
 
-        return StringUtils.join(allArgs, DELIMITER).intern();
+        return intern(StringUtils.join(allArgs, DELIMITER));
+    }
+
+    /**
+     * Returns one instance for all equal cache keys, so that callers can synchronize on a key they built by hand. Unlike
+     * {@link String#intern()}, keys are only held while in use and are never shared with locks taken elsewhere in the
+     * JVM.
+     */
+    public static String intern(String key) {
+        return KEYS.intern(key);
     }
 
     private static boolean isAllowed(Object arg) {
@@ -29,17 +29,27 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
+import java.util.AbstractSet;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 
 /**
  * @understands storing and retrieving objects from an underlying LRU cache
+ * <p>
+ * Changes to a sub-key family are guarded by one of a fixed set of lock stripes picked by the family key, so the cache
+ * never locks on the key strings themselves. Eviction callbacks take no locks, which is safe because families are
+ * concurrent sets.
  */
 public class GoCache {
+    private static final int LOCK_STRIPES = 64;
+
     private final ThreadLocal<Boolean> doNotServeForTransaction = new ThreadLocal<>();
+    private final Object[] familyLocks = new Object[LOCK_STRIPES];
 
     public static final String SUB_KEY_DELIMITER = "!_#$#_!";
 
@@ -50,7 +60,33 @@ public class GoCache {
 
     private final Set<Class<? extends PersistentObject>> nullObjectClasses;
 
-    static class KeyList extends HashSet<String> {
+    static class KeyList extends AbstractSet<String> {
+        private final Set<String> subKeys = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public boolean add(String subKey) {
+            return subKeys.add(subKey);
+        }
+
+        @Override
+        public boolean remove(Object subKey) {
+            return subKeys.remove(subKey);
+        }
+
+        @Override
+        public boolean contains(Object subKey) {
+            return subKeys.contains(subKey);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return subKeys.iterator();
+        }
+
+        @Override
+        public int size() {
+            return subKeys.size();
+        }
     }
 
     /**
@@ -65,6 +101,9 @@ public class GoCache {
         this.transactionSynchronizationManager = transactionSynchronizationManager;
         this.nullObjectClasses = new HashSet<>();
         nullObjectClasses.add(NullUser.class);
+        for (int i = 0; i < familyLocks.length; i++) {
+            familyLocks[i] = new Object();
+        }
         registerAsCacheEvictionListener();
     }
 
@@ -168,7 +207,7 @@ public class GoCache {
     }
 
     public boolean remove(String key) {
-        synchronized (key.intern()) {
+        synchronized (familyLock(key)) {
             Object value = getWithoutTransactionCheck(key);
             if (value instanceof KeyList) {
                 for (String subKey : (KeyList) value) {
@@ -185,7 +224,7 @@ public class GoCache {
 
     public void put(String key, String subKey, Object value) {
         KeyList subKeys;
-        synchronized (key.intern()) {
+        synchronized (familyLock(key)) {
             subKeys = subKeyFamily(key);
             if (subKeys == null) {
                 subKeys = new KeyList();
@@ -202,25 +241,25 @@ public class GoCache {
         }
     }
 
+    /**
+     * Called back by ehcache when an entry is evicted or expires, possibly while the calling thread holds a family lock
+     * of its own; so this takes none.
+     */
     public void removeAssociations(String key, Element element) {
         if (element.getObjectValue() instanceof KeyList) {
-            synchronized (key.intern()) {
-                for (String subkey : (KeyList) element.getObjectValue()) {
-                    remove(compositeKey(key, subkey));
-                }
+            for (String subkey : (KeyList) element.getObjectValue()) {
+                ehCache.remove(compositeKey(key, subkey));
             }
         } else if (key.contains(SUB_KEY_DELIMITER)) {
             String[] parts = StringUtils.splitByWholeSeparator(key, SUB_KEY_DELIMITER);
             String parentKey = parts[0];
             String childKey = parts[1];
-            synchronized (parentKey.intern()) {
-                Element parent = ehCache.get(parentKey);
-                if (parent == null) {
-                    return;
-                }
-                KeyList subKeys = (KeyList) parent.getObjectValue();
-                subKeys.remove(childKey);
+            Element parent = ehCache.get(parentKey);
+            if (parent == null) {
+                return;
             }
+            KeyList subKeys = (KeyList) parent.getObjectValue();
+            subKeys.remove(childKey);
         }
     }
 
@@ -241,16 +280,22 @@ public class GoCache {
     }
 
     public void remove(String key, String subKey) {
-        synchronized (key.intern()) {
+        synchronized (familyLock(key)) {
             KeyList subKeys = subKeyFamily(key);
             if(subKeys == null) {
                 return;
             }
             subKeys.remove(subKey);
-            remove(compositeKey(key, subKey));
+            ehCache.remove(compositeKey(key, subKey));
         }
     }
 
+    private Object familyLock(String key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return familyLocks[hash & (LOCK_STRIPES - 1)];
+    }
+
     public StatisticsGateway statistics() {
         return ehCache.getStatistics();
     }
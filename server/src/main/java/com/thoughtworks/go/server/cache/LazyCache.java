@@ -39,7 +39,7 @@ public class LazyCache {
             return (T) element.getObjectValue();
         }
 
-        synchronized (key.intern()) {
+        synchronized (CacheKeyGenerator.intern(key)) {
             element = ehcache.get(key);
             if (element != null) {
                 return (T) element.getObjectValue();
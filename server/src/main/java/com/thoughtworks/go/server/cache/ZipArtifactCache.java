@@ -17,14 +17,18 @@
 package com.thoughtworks.go.server.cache;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.zip.Deflater;
 
 import com.thoughtworks.go.server.service.ArtifactsDirHolder;
 import com.thoughtworks.go.server.web.ArtifactFolder;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.ZipUtil;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -33,20 +37,29 @@ import static com.thoughtworks.go.util.StringUtil.removeTrailingSlash;
 @Component
 public class ZipArtifactCache extends ArtifactCache<ArtifactFolder> {
     private final ZipUtil zipUtil;
+    private final SystemEnvironment systemEnvironment;
 
     @Autowired
-    public ZipArtifactCache(ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil) {
+    public ZipArtifactCache(ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemEnvironment systemEnvironment) {
         super(artifactsDirHolder);
         this.zipUtil = zipUtil;
+        this.systemEnvironment = systemEnvironment;
+    }
+
+    public ZipArtifactCache(ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil) {
+        this(artifactsDirHolder, zipUtil, new SystemEnvironment());
     }
 
     @Override void createCachedFile(ArtifactFolder artifactFolder) throws IOException {
         File originalFolder = artifactFolder.getRootFolder();
         File cachedZip = cachedFile(artifactFolder);
+        if (cachedZip.exists()) {
+            return;
+        }
         File cachedTempZip = zipToTempFile(cachedZip);
         cachedTempZip.getParentFile().mkdirs();
         try {
-            zipUtil.zip(originalFolder, cachedTempZip, Deflater.DEFAULT_COMPRESSION);
+            zipUtil.zipStoringCompressedFiles(originalFolder, new FileOutputStream(cachedTempZip), Deflater.DEFAULT_COMPRESSION);
         } catch (IOException e) {
             cachedTempZip.delete();
             throw e;
@@ -54,6 +67,40 @@ public class ZipArtifactCache extends ArtifactCache<ArtifactFolder> {
         FileUtils.moveFile(cachedTempZip, cachedZip);
     }
 
+    public boolean streamsZips() {
+        return systemEnvironment.isArtifactZipStreamingEnabled();
+    }
+
+    /**
+     * Zips the folder straight into the stream as it is walked, instead of making the client wait for the zip to be
+     * cached first. When asked to, the zip is also written to the cache, unless another thread is already caching it.
+     */
+    public void streamZip(ArtifactFolder artifactFolder, OutputStream output) throws IOException {
+        if (!systemEnvironment.shouldCacheStreamedArtifactZips() || !pendingCacheFiles.add(artifactFolder)) {
+            zipUtil.zipStoringCompressedFiles(artifactFolder.getRootFolder(), output, Deflater.DEFAULT_COMPRESSION);
+            return;
+        }
+
+        try {
+            File cachedZip = cachedFile(artifactFolder);
+            File cachedTempZip = zipToTempFile(cachedZip);
+            cachedTempZip.getParentFile().mkdirs();
+            try (FileOutputStream cacheOutput = new FileOutputStream(cachedTempZip)) {
+                zipUtil.zipStoringCompressedFiles(artifactFolder.getRootFolder(), new TeeOutputStream(output, cacheOutput), Deflater.DEFAULT_COMPRESSION);
+            } catch (IOException e) {
+                cachedTempZip.delete();
+                throw e;
+            }
+            if (cachedZip.exists()) {
+                cachedTempZip.delete();
+            } else {
+                FileUtils.moveFile(cachedTempZip, cachedZip);
+            }
+        } finally {
+            pendingCacheFiles.remove(artifactFolder);
+        }
+    }
+
     private File zipToTempFile(File cachedZip) {
         File parent = cachedZip.getParentFile();
         return new File(parent, cachedZip.getName() + ".tmp");
@@ -51,9 +51,11 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
 import static com.thoughtworks.go.server.web.ZipArtifactFolderViewFactory.zipViewFactory;
 import static com.thoughtworks.go.util.ArtifactLogUtil.isConsoleOutput;
@@ -167,12 +169,17 @@ public class ArtifactsController {
                 return FileModelAndView.fileAlreadyExists(filePath);
             }
 
+            MultipartFile contentReferences = request.getFile(CONTENT_REFERENCES_MULTIPART_FILENAME);
+            if (contentReferences != null) {
+                return linkStoredContent(jobIdentifier, artifact, contentReferences);
+            }
+
             MultipartFile multipartFile = multipartFile(request);
             if (multipartFile == null) {
                 return FileModelAndView.invalidUploadRequest();
             }
 
-            boolean success = saveFile(convertedAttempt, artifact, multipartFile, shouldUnzipStream(multipartFile));
+            boolean success = saveFile(convertedAttempt, jobIdentifier, artifact, multipartFile, shouldUnzipStream(multipartFile));
 
             if (!success) {
                 return FileModelAndView.errorSavingFile(filePath);
@@ -205,12 +212,26 @@ public class ArtifactsController {
         return true;
     }
 
-    private boolean saveFile(int convertedAttempt, File artifact, MultipartFile multipartFile, boolean shouldUnzip) throws IOException {
+    private ModelAndView linkStoredContent(JobIdentifier jobIdentifier, File artifact, MultipartFile contentReferences) throws IOException, IllegalArtifactLocationException {
+        if (!artifactsService.storesContentByHash()) {
+            return ResponseCodeView.create(HttpServletResponse.SC_NOT_IMPLEMENTED, "Artifacts are not stored by content on this server.");
+        }
+        Properties references = new Properties();
+        try (InputStream inputStream = contentReferences.getInputStream()) {
+            references.load(inputStream);
+        }
+        Properties missing = artifactsService.linkStoredContent(jobIdentifier, artifact, references);
+        StringWriter body = new StringWriter();
+        missing.store(body, "Content to upload");
+        return ResponseCodeView.create(HttpServletResponse.SC_OK, body.toString());
+    }
+
+    private boolean saveFile(int convertedAttempt, JobIdentifier jobIdentifier, File artifact, MultipartFile multipartFile, boolean shouldUnzip) throws IOException {
         InputStream inputStream = null;
         boolean success;
         try {
             inputStream = multipartFile.getInputStream();
-            success = artifactsService.saveFile(artifact, inputStream, shouldUnzip, convertedAttempt);
+            success = artifactsService.saveFile(jobIdentifier, artifact, inputStream, shouldUnzip, convertedAttempt);
         } finally {
             IOUtils.closeQuietly(inputStream);
         }
@@ -319,7 +340,7 @@ public class ArtifactsController {
 
     private ModelAndView putConsoleOutput(final JobIdentifier jobIdentifier, final InputStream inputStream) throws Exception {
         File consoleLogFile = consoleService.consoleLogFile(jobIdentifier);
-        boolean updated = consoleService.updateConsoleLog(consoleLogFile, inputStream);
+        boolean updated = consoleService.updateConsoleLog(jobIdentifier, consoleLogFile, inputStream);
         if (updated) {
             consoleActivityMonitor.consoleUpdatedFor(jobIdentifier);
             return FileModelAndView.fileAppended(consoleLogFile.getPath());
@@ -37,6 +37,7 @@ import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.server.ui.SortOrder;
 import com.thoughtworks.go.server.util.SqlUtil;
 import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.SystemTimeClock;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.config.CacheConfiguration;
@@ -76,6 +77,7 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
     private ArtifactPlanRepository artifactPlanRepository;
     private final ClusterProfilesService clusterProfilesService;
     private ArtifactPropertiesGeneratorRepository artifactPropertiesGeneratorRepository;
+    private final ScheduledJobQueue scheduledJobs;
 
     @Autowired
     public JobInstanceSqlMapDao(EnvironmentVariableDao environmentVariableDao,
@@ -103,6 +105,17 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
         this.jobAgentMetadataDao = jobAgentMetadataDao;
         this.cacheKeyGenerator = new CacheKeyGenerator(getClass());
         this.latestCompletedCache = new LazyCache(createCacheIfRequired(getClass().getName()), transactionSynchronizationManager);
+        this.scheduledJobs = new ScheduledJobQueue(new ScheduledJobQueue.Loader() {
+            @Override
+            public List<Long> scheduledJobIds() {
+                return (List<Long>) getSqlMapClientTemplate().queryForList("scheduledPlanIds");
+            }
+
+            @Override
+            public JobPlan scheduledPlan(long jobId) {
+                return _loadJobPlan(jobId);
+            }
+        }, new SystemTimeClock(), systemEnvironment.getScheduledJobsReconcileInterval());
     }
 
     private static Ehcache createCacheIfRequired(String cacheName) {
@@ -368,10 +381,12 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
             transactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
                 @Override
                 public void afterCommit() {
-                    // Methods not extracted in order to make synchronization visible.
-                    synchronized (cacheKeyForJobPlan(jobInstance.getId())) {
-                        removeCachedJobPlan(jobInstance);
+                    if (jobInstance.getState() == JobState.Scheduled) {
+                        scheduledJobs.scheduled(jobInstance.getId());
+                    } else {
+                        scheduledJobs.departed(jobInstance.getId());
                     }
+                    // Methods not extracted in order to make synchronization visible.
                     synchronized (cacheKeyForActiveJobIds()) {
                         goCache.remove(cacheKeyForActiveJobIds());
                     }
@@ -397,10 +412,6 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
         }
     }
 
-    private void removeCachedJobPlan(JobInstance jobInstance) {
-        goCache.remove(cacheKeyForJobPlan(jobInstance.getId()));
-    }
-
     // TODO: (ketan) do we really need to reload the current state from DB?
     private void logIfJobIsCompleted(JobInstance jobInstance) {
         JobState currentState = getCurrentState(jobInstance.getId());
@@ -510,24 +521,14 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
     }
 
     public List<JobPlan> orderedScheduledBuilds() {
-        List<Long> jobIds = (List<Long>) getSqlMapClientTemplate().queryForList("scheduledPlanIds");
-
-        List<JobPlan> plans = new ArrayList<>();
-        for (Long jobId : jobIds) {
-            String cacheKey = cacheKeyForJobPlan(jobId);
-            synchronized (cacheKey) {
-                JobPlan jobPlan = (JobPlan) goCache.get(cacheKey);
-                if (jobPlan == null) {
-                    jobPlan = _loadJobPlan(jobId);
-                }
-                if (jobPlan != null) {
-                    jobPlan = cloner.deepClone(jobPlan);
-                    goCache.put(cacheKey, jobPlan);
-                    plans.add(jobPlan);
-                }
-            }
-        }
-        return plans;
+        return scheduledJobs.jobPlans();
+    }
+
+    /**
+     * @Deprecated Only for tests
+     */
+    public void clearScheduledJobs() {
+        scheduledJobs.clear();
     }
 
     private JobPlan _loadJobPlan(Long jobId) {
@@ -539,10 +540,6 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
         return jobPlan;
     }
 
-    String cacheKeyForJobPlan(Long jobId) {
-        return cacheKeyGenerator.generate("jobPlan", jobId);
-    }
-
     String cacheKeyForActiveJob(Long jobId) {
         return cacheKeyGenerator.generate("activeJob", jobId);
     }
@@ -564,7 +561,7 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
     }
 
     public JobStateTransition oldestBuild() {
-        String cacheKeyForOldestBuild = (JobInstanceSqlMapDao.class.getName() + "_oldestBuild").intern();
+        String cacheKeyForOldestBuild = CacheKeyGenerator.intern(JobInstanceSqlMapDao.class.getName() + "_oldestBuild");
         JobStateTransition oldestBuild = (JobStateTransition) goCache.get(cacheKeyForOldestBuild);
         if(oldestBuild == null){
             synchronized (cacheKeyForOldestBuild){
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.dao;
+
+import com.thoughtworks.go.domain.JobPlan;
+import com.thoughtworks.go.domain.ReadOnlyJobPlan;
+import com.thoughtworks.go.util.Clock;
+
+import java.util.*;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * @understands the jobs that are waiting for an agent, in the order they were scheduled
+ * <p>
+ * The queue follows job state changes as they are committed, so reading it does not touch the database. The plan of a
+ * job is loaded once, when the job is first read after being queued, and is shared by all readers as a
+ * {@link ReadOnlyJobPlan}. Readers get an immutable snapshot that is only rebuilt after the queue changes.
+ * <p>
+ * The scheduled jobs are read from the database on first use, after {@link #clear()} and then once every reconcile
+ * interval, to pick up changes to jobs that were made without going through the job DAO.
+ */
+class ScheduledJobQueue {
+    interface Loader {
+        List<Long> scheduledJobIds();
+
+        /**
+         * @return the plan of the job; null if it is no longer scheduled
+         */
+        JobPlan scheduledPlan(long jobId);
+    }
+
+    private final Loader loader;
+    private final Clock clock;
+    private final long reconcileInterval;
+
+    private Map<Long, Entry> entries = new LinkedHashMap<>();
+    private volatile long version;
+    private long nextReconcileAt;
+    private volatile Snapshot snapshot = new Snapshot(-1, Collections.emptyList());
+
+    ScheduledJobQueue(Loader loader, Clock clock, long reconcileInterval) {
+        this.loader = loader;
+        this.clock = clock;
+        this.reconcileInterval = reconcileInterval;
+    }
+
+    synchronized void scheduled(long jobId) {
+        if (!entries.containsKey(jobId)) {
+            entries.put(jobId, new Entry(jobId, ++version));
+        }
+    }
+
+    synchronized void departed(long jobId) {
+        if (entries.remove(jobId) != null) {
+            version++;
+        }
+    }
+
+    List<JobPlan> jobPlans() {
+        reconcileIfDue();
+        loadPlans();
+        return snapshot().jobPlans;
+    }
+
+    /**
+     * Forgets every queued job; the queue is read from the database again on next use.
+     */
+    synchronized void clear() {
+        entries.clear();
+        version++;
+        nextReconcileAt = 0;
+    }
+
+    private void reconcileIfDue() {
+        long queriedAt;
+        synchronized (this) {
+            long now = clock.currentTimeMillis();
+            if (now < nextReconcileAt) {
+                return;
+            }
+            nextReconcileAt = now + reconcileInterval;
+            queriedAt = version;
+        }
+
+        List<Long> scheduledJobIds = loader.scheduledJobIds();
+
+        synchronized (this) {
+            Map<Long, Entry> reconciled = new LinkedHashMap<>();
+            for (Long jobId : scheduledJobIds) {
+                Entry entry = entries.get(jobId);
+                reconciled.put(jobId, entry != null ? entry : new Entry(jobId, queriedAt));
+            }
+            // jobs queued after the query may or may not have been seen by it
+            for (Entry entry : entries.values()) {
+                if (entry.queuedAt > queriedAt) {
+                    reconciled.putIfAbsent(entry.jobId, entry);
+                }
+            }
+            entries = reconciled;
+            version++;
+        }
+    }
+
+    private void loadPlans() {
+        List<Entry> unloaded = new ArrayList<>();
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                if (entry.plan == null) {
+                    unloaded.add(entry);
+                }
+            }
+        }
+
+        for (Entry entry : unloaded) {
+            JobPlan plan = loader.scheduledPlan(entry.jobId);
+            synchronized (this) {
+                if (entries.get(entry.jobId) != entry) {
+                    continue;
+                }
+                if (plan == null) {
+                    entries.remove(entry.jobId);
+                } else {
+                    entry.plan = new ReadOnlyJobPlan(plan);
+                }
+                version++;
+            }
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current.version == version) {
+            return current;
+        }
+
+        synchronized (this) {
+            List<JobPlan> jobPlans = new ArrayList<>(entries.size());
+            for (Entry entry : entries.values()) {
+                if (entry.plan != null) {
+                    jobPlans.add(entry.plan);
+                }
+            }
+            snapshot = new Snapshot(version, unmodifiableList(jobPlans));
+            return snapshot;
+        }
+    }
+
+    private static class Snapshot {
+        private final long version;
+        private final List<JobPlan> jobPlans;
+
+        private Snapshot(long version, List<JobPlan> jobPlans) {
+            this.version = version;
+            this.jobPlans = jobPlans;
+        }
+    }
+
+    private static class Entry {
+        private final long jobId;
+        private final long queuedAt;
+        private JobPlan plan;
+
+        private Entry(long jobId, long queuedAt) {
+            this.jobId = jobId;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -471,7 +471,7 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
     }
 
     String mutexForStageHistory(String pipelineName, String stageName) {
-        return String.format("%s_stageHistoryMutex_%s_<>_%s", getClass().getName(), pipelineName, stageName).intern();
+        return CacheKeyGenerator.intern(String.format("%s_stageHistoryMutex_%s_<>_%s", getClass().getName(), pipelineName, stageName));
     }
 
     String cacheKeyForStageHistories(String pipelineName, String stageName) {
@@ -537,7 +537,7 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
     }
 
     String cacheKeyForStageOffset(Stage stage) {
-        return cacheKeyGenerator.generate("stageOffsetMap", stage.getIdentifier().getPipelineName(), stage.getIdentifier().getStageName()).intern();
+        return cacheKeyGenerator.generate("stageOffsetMap", stage.getIdentifier().getPipelineName(), stage.getIdentifier().getStageName());
     }
 
     private List<StageFeedEntry> findForFeed(String baseQuery, FeedModifier modifier, long transitionId, int pageSize) {
@@ -25,9 +25,14 @@ import com.thoughtworks.go.presentation.pipelinehistory.PipelineModel;
 import com.thoughtworks.go.presentation.pipelinehistory.StageInstanceModel;
 
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 /* Represents a pipeline on the dashboard. Cacheable, since the permissions are not specific to a user. */
 public class GoDashboardPipeline {
+    private static final int MAX_RENDERED_FRAGMENTS = 16;
+
     private final PipelineModel pipelineModel;
     private final Permissions permissions;
     private final String groupName;
@@ -35,6 +40,7 @@ public class GoDashboardPipeline {
     private final long lastUpdatedTimeStamp;
     private ConfigOrigin origin;
     private int displayOrderWeight;
+    private final ConcurrentMap<String, String> renderedFragments = new ConcurrentHashMap<>();
 
     public GoDashboardPipeline(PipelineModel pipelineModel, Permissions permissions, String groupName, TrackingTool trackingTool, Counter timeStampBasedCounter, ConfigOrigin origin, int displayOrderWeight) {
         this.pipelineModel = pipelineModel;
@@ -133,4 +139,21 @@ public class GoDashboardPipeline {
     public Integer getdisplayOrderWeight() {
         return displayOrderWeight;
     }
+
+    /**
+     * Serves a rendering of this pipeline that was made before under the same key, or makes it with {@code renderer}.
+     * Renderings are only kept as long as this pipeline is: the dashboard cache replaces a pipeline whenever anything
+     * about it changes. The key must include everything other than this pipeline that the rendering depends on, like
+     * the permissions of the user it is rendered for; only a few different keys are kept.
+     */
+    public String renderedFragment(String key, Supplier<String> renderer) {
+        String fragment = renderedFragments.get(key);
+        if (fragment == null) {
+            fragment = renderer.get();
+            if (renderedFragments.size() < MAX_RENDERED_FRAGMENTS) {
+                renderedFragments.putIfAbsent(key, fragment);
+            }
+        }
+        return fragment;
+    }
 }
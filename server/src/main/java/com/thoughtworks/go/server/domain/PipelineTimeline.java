@@ -23,6 +23,7 @@ import com.thoughtworks.go.listener.TimelineUpdateListener;
 import com.thoughtworks.go.server.persistence.PipelineRepository;
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,35 +31,54 @@ import org.springframework.transaction.support.TransactionCallback;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * @understands a sorted collection of PipelineMaterialModification
+ * <p>
+ * Instances are kept per pipeline, in a lane that has its own lock, so adding an instance of one pipeline does not
+ * hold up readers of any other. A lane keeps ids, counters and natural orders in primitive arrays, indexed by schedule
+ * order, and the natural order as an array of indexes into them. Lookups by id or counter are binary searches whenever
+ * the lane was filled in increasing order, which is how instances are read from the database.
+ * <p>
+ * When a {@link PipelineTimelineSnapshot} is given, the timeline is restored from it on init and only the instances
+ * after the snapshot are read from the database.
  */
 public class PipelineTimeline {
     private static final Logger LOGGER = LoggerFactory.getLogger(PipelineTimeline.class);
 
-    private final Map<CaseInsensitiveString, TreeSet<PipelineTimelineEntry>> naturalOrderPmm;
-    private final Map<CaseInsensitiveString, ArrayList<PipelineTimelineEntry>> scheduleOrderPmm;
+    private final Map<CaseInsensitiveString, Lane> lanes = new ConcurrentHashMap<>();
     private volatile long maximumId;
     private final PipelineRepository pipelineRepository;
     private TransactionTemplate transactionTemplate;
     private TransactionSynchronizationManager transactionSynchronizationManager;
+    private final PipelineTimelineSnapshot snapshot;
     private TimelineUpdateListener[] listeners;
-    private final ReadWriteLock naturalOrderLock = new ReentrantReadWriteLock();
-    private final ReadWriteLock scheduleOrderLock = new ReentrantReadWriteLock();
+    private final Object updateMutex = new Object();
     private final Cloner cloner = new Cloner();
 
     @Autowired
+    public PipelineTimeline(PipelineRepository pipelineRepository, TransactionTemplate transactionTemplate, TransactionSynchronizationManager transactionSynchronizationManager,
+                            SystemEnvironment systemEnvironment, TimelineUpdateListener... listeners) {
+        this(pipelineRepository, transactionTemplate, transactionSynchronizationManager,
+                systemEnvironment.isPipelineTimelineSnapshotEnabled() ? new PipelineTimelineSnapshot(systemEnvironment.getPipelineTimelineSnapshotFile()) : null,
+                listeners);
+    }
+
     public PipelineTimeline(PipelineRepository pipelineRepository, TransactionTemplate transactionTemplate, TransactionSynchronizationManager transactionSynchronizationManager,
                             TimelineUpdateListener... listeners) {
+        this(pipelineRepository, transactionTemplate, transactionSynchronizationManager, (PipelineTimelineSnapshot) null, listeners);
+    }
+
+    PipelineTimeline(PipelineRepository pipelineRepository, TransactionTemplate transactionTemplate, TransactionSynchronizationManager transactionSynchronizationManager,
+                     PipelineTimelineSnapshot snapshot, TimelineUpdateListener... listeners) {
         this.pipelineRepository = pipelineRepository;
         this.transactionTemplate = transactionTemplate;
         this.transactionSynchronizationManager = transactionSynchronizationManager;
+        this.snapshot = snapshot;
         this.listeners = listeners;
-        naturalOrderPmm = new HashMap<>();
-        scheduleOrderPmm = new HashMap<>();
         maximumId = -1;
     }
 
@@ -67,15 +87,15 @@ public class PipelineTimeline {
      */
     @Deprecated
     public Collection<PipelineTimelineEntry> getEntriesFor(String pipelineName) {
-        naturalOrderLock.readLock().lock();
+        Lane lane = lanes.get(new CaseInsensitiveString(pipelineName));
+        if (lane == null) {
+            return Collections.emptyList();
+        }
+        lane.lock.readLock().lock();
         try {
-            TreeSet<PipelineTimelineEntry> tree = naturalOrderPmm.get(new CaseInsensitiveString(pipelineName));
-            if (tree == null) {
-                tree = new TreeSet<>();
-            }
-            return Collections.unmodifiableCollection(cloner.deepClone(tree));
+            return Collections.unmodifiableCollection(cloner.deepClone(new ArrayList<>(lane.naturalOrderView())));
         } finally {
-            naturalOrderLock.readLock().unlock();
+            lane.lock.readLock().unlock();
         }
     }
 
@@ -85,17 +105,18 @@ public class PipelineTimeline {
 
     public void add(PipelineTimelineEntry pipelineTimelineEntry) {
         CaseInsensitiveString pipelineName = new CaseInsensitiveString(pipelineTimelineEntry.getPipelineName());
-        initializedNaturalOrderCollection(pipelineName).add(pipelineTimelineEntry);
-        initializedScheduleOrderCollection(pipelineName).add(pipelineTimelineEntry);
-        pipelineTimelineEntry.setInsertedBefore(naturalOrderAfter(pipelineTimelineEntry));
-        pipelineTimelineEntry.setInsertedAfter(naturalOrderBefore(pipelineTimelineEntry));
-        pipelineTimelineEntry.updateNaturalOrder();
+        Lane lane = lanes.computeIfAbsent(pipelineName, name -> new Lane());
+        lane.lock.writeLock().lock();
+        try {
+            lane.add(pipelineTimelineEntry);
+        } finally {
+            lane.lock.writeLock().unlock();
+        }
         updateMaximumId(pipelineTimelineEntry.getId());
     }
 
     public void update() {
-        acquireAllWriteLocks();
-        try {
+        synchronized (updateMutex) {
             final long maximumIdBeforeUpdate = maximumId;
             transactionTemplate.execute((TransactionCallback) transactionStatus -> {
                 final List<PipelineTimelineEntry> newlyAddedEntries = new ArrayList<>();
@@ -117,9 +138,16 @@ public class PipelineTimeline {
                     }
 
                     private void rollbackNewEntryFor(PipelineTimelineEntry entry) {
-                        CaseInsensitiveString pipelineName = new CaseInsensitiveString(entry.getPipelineName());
-                        initializedNaturalOrderCollection(pipelineName).remove(entry);
-                        initializedScheduleOrderCollection(pipelineName).remove(entry);
+                        Lane lane = lanes.get(new CaseInsensitiveString(entry.getPipelineName()));
+                        if (lane == null) {
+                            return;
+                        }
+                        lane.lock.writeLock().lock();
+                        try {
+                            lane.remove(entry.getId());
+                        } finally {
+                            lane.lock.writeLock().unlock();
+                        }
                     }
 
 
@@ -127,26 +155,9 @@ public class PipelineTimeline {
                 pipelineRepository.updatePipelineTimeline(PipelineTimeline.this, newlyAddedEntries);
                 return null;
             });
-        } finally {
-            releaseAllWriteLocks();
         }
     }
 
-
-    // --------------------------------------------------------
-    // These methods should acquire and release lock in corresponding order.
-    private void acquireAllWriteLocks() {
-        naturalOrderLock.writeLock().lock();
-        scheduleOrderLock.writeLock().lock();
-    }
-
-    //Release in the reverse of the acquired order.
-    private void releaseAllWriteLocks() {
-        scheduleOrderLock.writeLock().unlock();
-        naturalOrderLock.writeLock().unlock();
-    }
-    // --------------------------------------------------------
-
     private void notifyListeners(List<PipelineTimelineEntry> newEntries) {
         Map<CaseInsensitiveString, PipelineTimelineEntry> pipelineToOldestEntry = new HashMap<>();
         for (PipelineTimelineEntry challenger : newEntries) {
@@ -159,10 +170,17 @@ public class PipelineTimeline {
 
         for (TimelineUpdateListener listener : listeners) {
             for (Map.Entry<CaseInsensitiveString, PipelineTimelineEntry> entry : pipelineToOldestEntry.entrySet()) {
+                Lane lane = lanes.get(entry.getKey());
+                if (lane == null) {
+                    continue;
+                }
+                lane.lock.readLock().lock();
                 try {
-                    listener.added(entry.getValue(), naturalOrderPmm.get(entry.getKey()));
+                    listener.added(entry.getValue(), lane.naturalOrderView());
                 } catch (Exception e) {
                     LOGGER.warn("Ignoring exception when notifying listener: {}", listener, e);
+                } finally {
+                    lane.lock.readLock().unlock();
                 }
             }
         }
@@ -172,35 +190,62 @@ public class PipelineTimeline {
      * This is called on system init and is called by Spring. Hence, this is not done in a transaction. At any other time, the method update should be used
      */
     public void updateTimelineOnInit() {
-        acquireAllWriteLocks();
-        try {
+        synchronized (updateMutex) {
+            restoreFromSnapshot();
             pipelineRepository.updatePipelineTimeline(this, new ArrayList<>());
-        } finally {
-            releaseAllWriteLocks();
+            if (snapshot != null) {
+                snapshot.saveInBackground(scheduleOrderOfAllPipelines());
+            }
+        }
+    }
+
+    private void restoreFromSnapshot() {
+        if (snapshot == null) {
+            return;
+        }
+        List<PipelineTimelineEntry> entries = snapshot.load();
+        if (entries.isEmpty()) {
+            return;
+        }
+        PipelineTimelineEntry latest = Collections.max(entries, Comparator.comparingLong(PipelineTimelineEntry::getId));
+        if (!pipelineRepository.hasPipelineInstance(latest.getId(), latest.getPipelineName(), latest.getCounter())) {
+            LOGGER.warn("Ignoring pipeline timeline snapshot, the database does not have {}/{} with id {}. Reading the whole timeline from the database.",
+                    latest.getPipelineName(), latest.getCounter(), latest.getId());
+            return;
+        }
+        try {
+            for (PipelineTimelineEntry entry : entries) {
+                add(entry);
+            }
+            LOGGER.info("Restored {} pipeline instances from the pipeline timeline snapshot", entries.size());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Ignoring pipeline timeline snapshot that does not match the database. Reading the whole timeline from the database.", e);
+            lanes.clear();
+            maximumId = -1;
         }
     }
 
+    private List<List<PipelineTimelineEntry>> scheduleOrderOfAllPipelines() {
+        List<List<PipelineTimelineEntry>> scheduleOrder = new ArrayList<>(lanes.size());
+        for (Lane lane : lanes.values()) {
+            lane.lock.readLock().lock();
+            try {
+                scheduleOrder.add(Arrays.asList(Arrays.copyOf(lane.entries, lane.size)));
+            } finally {
+                lane.lock.readLock().unlock();
+            }
+        }
+        return scheduleOrder;
+    }
+
     /**
      * @param id           for the pipeline
      * @param pipelineName
      * @return PMM which was before the pipeline with this id at the time of insertion of the PTE with the id or null if there was nothing before this pipeline during insertion
      */
     public PipelineTimelineEntry runBefore(long id, final CaseInsensitiveString pipelineName) {
-        naturalOrderLock.readLock().lock();
-        try {
-            TreeSet<PipelineTimelineEntry> treeForPipeline = naturalOrderPmm.get(pipelineName);
-            if (treeForPipeline == null) {
-                return null;
-            }
-            for (PipelineTimelineEntry pipelineTimelineEntry : treeForPipeline) {
-                if (id == pipelineTimelineEntry.getId()) {
-                    return pipelineTimelineEntry.insertedAfter();
-                }
-            }
-            throw new RuntimeException("Cannot find pipeline with id: " + id);
-        } finally {
-            naturalOrderLock.readLock().unlock();
-        }
+        PipelineTimelineEntry entry = entryWithId(id, pipelineName);
+        return entry == null ? null : entry.insertedAfter();
     }
 
     /**
@@ -209,20 +254,24 @@ public class PipelineTimeline {
      * @return PMM which was after the pipeline with this id at the time of insertion of the PTE with the id or null if there was nothing after this pipeline during insertion
      */
     public PipelineTimelineEntry runAfter(long id, final CaseInsensitiveString pipelineName) {
-        naturalOrderLock.readLock().lock();
+        PipelineTimelineEntry entry = entryWithId(id, pipelineName);
+        return entry == null ? null : entry.insertedBefore();
+    }
+
+    private PipelineTimelineEntry entryWithId(long id, CaseInsensitiveString pipelineName) {
+        Lane lane = lanes.get(pipelineName);
+        if (lane == null) {
+            return null;
+        }
+        lane.lock.readLock().lock();
         try {
-            TreeSet<PipelineTimelineEntry> treeForPipeline = naturalOrderPmm.get(pipelineName);
-            if (treeForPipeline == null) {
-                return null;
+            int index = lane.indexOfId(id);
+            if (index < 0) {
+                throw new RuntimeException("Cannot find pipeline with id: " + id);
             }
-            for (PipelineTimelineEntry pipelineTimelineEntry : treeForPipeline) {
-                if (id == pipelineTimelineEntry.getId()) {
-                    return pipelineTimelineEntry.insertedBefore();
-                }
-            }
-            throw new RuntimeException("Cannot find pipeline with id: " + id);
+            return lane.entries[index];
         } finally {
-            naturalOrderLock.readLock().unlock();
+            lane.lock.readLock().unlock();
         }
     }
 
@@ -230,76 +279,47 @@ public class PipelineTimeline {
         maximumId = Math.max(id, maximumId);
     }
 
-    private TreeSet<PipelineTimelineEntry> initializedNaturalOrderCollection(final CaseInsensitiveString pipelineName) {
-        if (!naturalOrderPmm.containsKey(pipelineName)) {
-            naturalOrderPmm.put(pipelineName, new TreeSet<>());
-        }
-        return naturalOrderPmm.get(pipelineName);
-    }
-
-    private ArrayList<PipelineTimelineEntry> initializedScheduleOrderCollection(final CaseInsensitiveString pipelineName) {
-        if (!scheduleOrderPmm.containsKey(pipelineName)) {
-            scheduleOrderPmm.put(pipelineName, new ArrayList<>());
-        }
-        return scheduleOrderPmm.get(pipelineName);
-    }
-
-    private PipelineTimelineEntry naturalOrderAfter(PipelineTimelineEntry pipelineTimelineEntry) {
-        naturalOrderLock.readLock().lock();
-        try {
-            return naturalOrderPmm.get(new CaseInsensitiveString(pipelineTimelineEntry.getPipelineName())).higher(pipelineTimelineEntry);
-        } finally {
-            naturalOrderLock.readLock().unlock();
-        }
-    }
-
     PipelineTimelineEntry naturalOrderBefore(PipelineTimelineEntry pipelineTimelineEntry) {
-        naturalOrderLock.readLock().lock();
+        Lane lane = lanes.get(new CaseInsensitiveString(pipelineTimelineEntry.getPipelineName()));
+        if (lane == null) {
+            return null;
+        }
+        lane.lock.readLock().lock();
         try {
-            return naturalOrderPmm.get(new CaseInsensitiveString(pipelineTimelineEntry.getPipelineName())).lower(pipelineTimelineEntry);
+            int index = lane.indexOfId(pipelineTimelineEntry.getId());
+            if (index < 0) {
+                return null;
+            }
+            int rank = lane.rankOf(index);
+            return rank > 0 ? lane.entries[lane.naturalOrder[rank - 1]] : null;
         } finally {
-            naturalOrderLock.readLock().unlock();
+            lane.lock.readLock().unlock();
         }
     }
 
     public long pipelineBefore(long id) {
-        naturalOrderLock.readLock().lock();
-        try {
-            for (Map.Entry<CaseInsensitiveString, TreeSet<PipelineTimelineEntry>> nameToEntry : naturalOrderPmm.entrySet()) {
-                for (PipelineTimelineEntry entry : nameToEntry.getValue()) {
-                    if (entry.getId() == id) {
-                        PipelineTimelineEntry timelineEntry = naturalOrderBefore(entry);
-                        if (timelineEntry == null) {
-                            return -1;
-                        }
-                        return timelineEntry.getId();
-                    }
-                }
-            }
-            return -1;
-        } finally {
-            naturalOrderLock.readLock().unlock();
-        }
+        return naturalOrderNeighbourOf(id, -1);
     }
 
     public long pipelineAfter(long id) {
-        naturalOrderLock.readLock().lock();
-        try {
-            for (Map.Entry<CaseInsensitiveString, TreeSet<PipelineTimelineEntry>> nameToEntry : naturalOrderPmm.entrySet()) {
-                for (PipelineTimelineEntry entry : nameToEntry.getValue()) {
-                    if (entry.getId() == id) {
-                        PipelineTimelineEntry timelineEntry = naturalOrderAfter(entry);
-                        if (timelineEntry == null) {
-                            return -1;
-                        }
-                        return timelineEntry.getId();
-                    }
+        return naturalOrderNeighbourOf(id, 1);
+    }
+
+    private long naturalOrderNeighbourOf(long id, int offset) {
+        for (Lane lane : lanes.values()) {
+            lane.lock.readLock().lock();
+            try {
+                int index = lane.indexOfId(id);
+                if (index < 0) {
+                    continue;
                 }
+                int neighbour = lane.rankOf(index) + offset;
+                return neighbour < 0 || neighbour >= lane.size ? -1 : lane.ids[lane.naturalOrder[neighbour]];
+            } finally {
+                lane.lock.readLock().unlock();
             }
-            return -1;
-        } finally {
-            naturalOrderLock.readLock().unlock();
         }
+        return -1;
     }
 
     /**
@@ -307,50 +327,242 @@ public class PipelineTimeline {
      */
     @Deprecated
     public void clearWhichIsEvilAndShouldNotBeUsedInRealWorld() {
-        acquireAllWriteLocks();
-        try {
-            naturalOrderPmm.clear();
-            scheduleOrderPmm.clear();
-        } finally {
-            releaseAllWriteLocks();
+        synchronized (updateMutex) {
+            lanes.clear();
         }
     }
 
     public int instanceCount(CaseInsensitiveString pipelineName) {
-        scheduleOrderLock.readLock().lock();
+        Lane lane = lanes.get(pipelineName);
+        if (lane == null) {
+            return 0;
+        }
+        lane.lock.readLock().lock();
         try {
-            ArrayList<PipelineTimelineEntry> instances = scheduleOrderPmm.get(pipelineName);
-            return instances == null ? 0 : instances.size();
+            return lane.size;
         } finally {
-            scheduleOrderLock.readLock().unlock();
+            lane.lock.readLock().unlock();
         }
     }
 
     public PipelineTimelineEntry instanceFor(CaseInsensitiveString pipelineName, int index) {
-        scheduleOrderLock.readLock().lock();
+        Lane lane = lanes.get(pipelineName);
+        if (lane == null) {
+            return null;
+        }
+        lane.lock.readLock().lock();
         try {
-            ArrayList<PipelineTimelineEntry> instances = scheduleOrderPmm.get(pipelineName);
-            return instances == null ? null : instances.get(index);
+            if (index < 0 || index >= lane.size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + lane.size);
+            }
+            return lane.entries[index];
         } finally {
-            scheduleOrderLock.readLock().unlock();
+            lane.lock.readLock().unlock();
         }
     }
 
 
     public PipelineTimelineEntry getEntryFor(CaseInsensitiveString pipelineName, Integer pipelineCounter) {
-        scheduleOrderLock.readLock().lock();
-        try {
-            ArrayList<PipelineTimelineEntry> instances = scheduleOrderPmm.get(pipelineName);
-            for (int i = instances.size() - 1; i >= 0; i--) {
-                PipelineTimelineEntry instance = instances.get(i);
-                if (instance.getCounter() == pipelineCounter) {
-                    return instance;
-                }
-            }
+        Lane lane = lanes.get(pipelineName);
+        if (lane == null) {
             return null;
+        }
+        lane.lock.readLock().lock();
+        try {
+            int index = lane.indexOfCounter(pipelineCounter);
+            return index < 0 ? null : lane.entries[index];
         } finally {
-            scheduleOrderLock.readLock().unlock();
+            lane.lock.readLock().unlock();
         }
     }
 
+    /**
+     * The instances of one pipeline. Callers hold {@link #lock}.
+     */
+    private static class Lane {
+        private static final int INITIAL_CAPACITY = 8;
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        // schedule order
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private int[] counters = new int[INITIAL_CAPACITY];
+        private double[] naturalOrders = new double[INITIAL_CAPACITY];
+        private PipelineTimelineEntry[] entries = new PipelineTimelineEntry[INITIAL_CAPACITY];
+        // natural order, as indexes into the schedule order
+        private int[] naturalOrder = new int[INITIAL_CAPACITY];
+        private int size;
+        private boolean idsAscending = true;
+        private boolean countersAscending = true;
+
+        private void add(PipelineTimelineEntry entry) {
+            int existing = indexOfId(entry.getId());
+            int rank;
+            int higher;
+            if (existing >= 0) {
+                rank = rankOf(existing);
+                higher = rank + 1;
+            } else {
+                rank = insertionRankOf(entry);
+                higher = rank;
+            }
+            entry.setInsertedBefore(higher < size ? entries[naturalOrder[higher]] : null);
+            entry.setInsertedAfter(rank > 0 ? entries[naturalOrder[rank - 1]] : null);
+            entry.updateNaturalOrder();
+            if (existing >= 0) {
+                return;
+            }
+
+            ensureCapacity(size + 1);
+            if (size > 0) {
+                idsAscending &= ids[size - 1] < entry.getId();
+                countersAscending &= counters[size - 1] < entry.getCounter();
+            }
+            ids[size] = entry.getId();
+            counters[size] = entry.getCounter();
+            naturalOrders[size] = entry.naturalOrder();
+            entries[size] = entry;
+            System.arraycopy(naturalOrder, rank, naturalOrder, rank + 1, size - rank);
+            naturalOrder[rank] = size;
+            size++;
+        }
+
+        private void remove(long id) {
+            int index = indexOfId(id);
+            if (index < 0) {
+                return;
+            }
+            int rank = rankOf(index);
+            System.arraycopy(naturalOrder, rank + 1, naturalOrder, rank, size - rank - 1);
+            int tail = size - index - 1;
+            System.arraycopy(ids, index + 1, ids, index, tail);
+            System.arraycopy(counters, index + 1, counters, index, tail);
+            System.arraycopy(naturalOrders, index + 1, naturalOrders, index, tail);
+            System.arraycopy(entries, index + 1, entries, index, tail);
+            size--;
+            entries[size] = null;
+            for (int i = 0; i < size; i++) {
+                if (naturalOrder[i] > index) {
+                    naturalOrder[i]--;
+                }
+            }
+        }
+
+        private int indexOfId(long id) {
+            if (idsAscending) {
+                int index = Arrays.binarySearch(ids, 0, size, id);
+                return index < 0 ? -1 : index;
+            }
+            for (int i = size - 1; i >= 0; i--) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int indexOfCounter(int counter) {
+            if (countersAscending) {
+                int index = Arrays.binarySearch(counters, 0, size, counter);
+                return index < 0 ? -1 : index;
+            }
+            for (int i = size - 1; i >= 0; i--) {
+                if (counters[i] == counter) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the position in natural order of the instance at the given schedule order index
+         */
+        private int rankOf(int index) {
+            double order = naturalOrders[index];
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                double midOrder = naturalOrders[naturalOrder[mid]];
+                if (midOrder < order) {
+                    low = mid + 1;
+                } else if (midOrder > order) {
+                    high = mid - 1;
+                } else {
+                    return rankAmongEqualOrders(mid, index);
+                }
+            }
+            throw new IllegalStateException("Natural order of " + entries[index] + " is out of place in the timeline");
+        }
+
+        private int rankAmongEqualOrders(int rank, int index) {
+            double order = naturalOrders[index];
+            for (int i = rank; i >= 0 && naturalOrders[naturalOrder[i]] == order; i--) {
+                if (naturalOrder[i] == index) {
+                    return i;
+                }
+            }
+            for (int i = rank + 1; i < size && naturalOrders[naturalOrder[i]] == order; i++) {
+                if (naturalOrder[i] == index) {
+                    return i;
+                }
+            }
+            throw new IllegalStateException("Natural order of " + entries[index] + " is out of place in the timeline");
+        }
+
+        private int insertionRankOf(PipelineTimelineEntry entry) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (compare(entries[naturalOrder[mid]], entry) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Instances that already have a natural order, such as those read from the database, are placed by it, which
+         * saves comparing their revisions.
+         */
+        private static int compare(PipelineTimelineEntry entry, PipelineTimelineEntry other) {
+            if (entry.naturalOrder() > 0.0 && other.naturalOrder() > 0.0) {
+                return Double.compare(entry.naturalOrder(), other.naturalOrder());
+            }
+            return entry.compareTo(other);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= ids.length) {
+                return;
+            }
+            int grown = Math.max(capacity, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, grown);
+            counters = Arrays.copyOf(counters, grown);
+            naturalOrders = Arrays.copyOf(naturalOrders, grown);
+            entries = Arrays.copyOf(entries, grown);
+            naturalOrder = Arrays.copyOf(naturalOrder, grown);
+        }
+
+        private List<PipelineTimelineEntry> naturalOrderView() {
+            return new NaturalOrderView();
+        }
+
+        private class NaturalOrderView extends AbstractList<PipelineTimelineEntry> implements RandomAccess {
+            @Override
+            public PipelineTimelineEntry get(int rank) {
+                if (rank < 0 || rank >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + rank + ", Size: " + size);
+                }
+                return entries[naturalOrder[rank]];
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        }
+    }
 }
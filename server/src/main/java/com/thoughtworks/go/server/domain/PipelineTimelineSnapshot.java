@@ -0,0 +1,246 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.domain;
+
+import com.thoughtworks.go.domain.PipelineTimelineEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * @understands keeping the pipeline timeline on disk between server restarts
+ * <p>
+ * The instances of every pipeline are written in schedule order, so that adding them back in that order places each
+ * one next to the same neighbours it had when it was first added. Names, fingerprints and folders are written once and
+ * referred to afterwards, which also shares them between the instances read back. The file ends with a CRC32 of its
+ * contents; a file that is missing, truncated or does not match its checksum is ignored.
+ */
+class PipelineTimelineSnapshot {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineTimelineSnapshot.class);
+    private static final int MAGIC = 0x50544c53;
+    private static final int VERSION = 1;
+    private static final int NULL = 0;
+    private static final int NEW_STRING = -1;
+
+    private final File file;
+
+    PipelineTimelineSnapshot(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the instances in the snapshot, the instances of each pipeline in schedule order; empty when there is no
+     * usable snapshot
+     */
+    List<PipelineTimelineEntry> load() {
+        if (!file.exists()) {
+            return Collections.emptyList();
+        }
+        long startedAt = System.currentTimeMillis();
+        try (InputStream buffered = new BufferedInputStream(new FileInputStream(file))) {
+            CRC32 checksum = new CRC32();
+            List<PipelineTimelineEntry> entries = read(new DataInputStream(new CheckedInputStream(buffered, checksum)));
+            long expected = checksum.getValue();
+            if (new DataInputStream(buffered).readLong() != expected || buffered.read() != -1) {
+                LOGGER.warn("Ignoring pipeline timeline snapshot {}, it does not match its checksum", file);
+                return Collections.emptyList();
+            }
+            LOGGER.info("Read {} pipeline instances from pipeline timeline snapshot {} in {} ms", entries.size(), file, System.currentTimeMillis() - startedAt);
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Ignoring pipeline timeline snapshot {} that could not be read", file, e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * @param scheduleOrder the instances of each pipeline in schedule order; all of them must have been committed
+     */
+    void save(Collection<? extends List<PipelineTimelineEntry>> scheduleOrder) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        File parent = file.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        File temp = File.createTempFile(file.getName(), ".tmp", parent);
+        try {
+            try (OutputStream buffered = new BufferedOutputStream(new FileOutputStream(temp))) {
+                CRC32 checksum = new CRC32();
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(buffered, checksum));
+                write(out, scheduleOrder);
+                out.flush();
+                new DataOutputStream(buffered).writeLong(checksum.getValue());
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        LOGGER.info("Wrote pipeline timeline snapshot {} in {} ms", file, System.currentTimeMillis() - startedAt);
+    }
+
+    void saveInBackground(Collection<? extends List<PipelineTimelineEntry>> scheduleOrder) {
+        Thread thread = new Thread(() -> {
+            try {
+                save(scheduleOrder);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not write pipeline timeline snapshot {}", file, e);
+            }
+        }, "pipeline-timeline-snapshot");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void write(DataOutputStream out, Collection<? extends List<PipelineTimelineEntry>> scheduleOrder) throws IOException {
+        StringTable strings = new StringTable();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(scheduleOrder.size());
+        for (List<PipelineTimelineEntry> entries : scheduleOrder) {
+            out.writeInt(entries.size());
+            for (PipelineTimelineEntry entry : entries) {
+                strings.write(out, entry.getPipelineName());
+                out.writeLong(entry.getId());
+                out.writeInt(entry.getCounter());
+                out.writeDouble(entry.naturalOrder());
+                Map<String, List<PipelineTimelineEntry.Revision>> revisions = entry.revisions();
+                out.writeInt(revisions.size());
+                for (Map.Entry<String, List<PipelineTimelineEntry.Revision>> material : revisions.entrySet()) {
+                    strings.write(out, material.getKey());
+                    out.writeInt(material.getValue().size());
+                    for (PipelineTimelineEntry.Revision revision : material.getValue()) {
+                        out.writeBoolean(revision.date != null);
+                        if (revision.date != null) {
+                            out.writeLong(revision.date.getTime());
+                        }
+                        writeString(out, revision.revision);
+                        strings.write(out, revision.folder);
+                        out.writeLong(revision.id);
+                    }
+                }
+            }
+        }
+    }
+
+    private List<PipelineTimelineEntry> read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a pipeline timeline snapshot of version " + VERSION);
+        }
+        List<String> strings = new ArrayList<>();
+        List<PipelineTimelineEntry> entries = new ArrayList<>();
+        int pipelines = readCount(in);
+        for (int i = 0; i < pipelines; i++) {
+            int instances = readCount(in);
+            for (int j = 0; j < instances; j++) {
+                String pipelineName = readTableString(in, strings);
+                long id = in.readLong();
+                int counter = in.readInt();
+                double naturalOrder = in.readDouble();
+                int materials = readCount(in);
+                Map<String, List<PipelineTimelineEntry.Revision>> revisions = new HashMap<>(materials * 4 / 3 + 1);
+                for (int k = 0; k < materials; k++) {
+                    String fingerprint = readTableString(in, strings);
+                    int count = readCount(in);
+                    List<PipelineTimelineEntry.Revision> materialRevisions = new ArrayList<>(count);
+                    for (int l = 0; l < count; l++) {
+                        Date date = in.readBoolean() ? new Date(in.readLong()) : null;
+                        String revision = readString(in);
+                        String folder = readTableString(in, strings);
+                        materialRevisions.add(new PipelineTimelineEntry.Revision(date, revision, folder, in.readLong()));
+                    }
+                    revisions.put(fingerprint, materialRevisions);
+                }
+                entries.add(new PipelineTimelineEntry(pipelineName, id, counter, revisions, naturalOrder));
+            }
+        }
+        return entries;
+    }
+
+    private int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > file.length()) {
+            throw new IOException("Count " + count + " does not fit in the snapshot");
+        }
+        return count;
+    }
+
+    private String readTableString(DataInputStream in, List<String> strings) throws IOException {
+        int reference = in.readInt();
+        if (reference == NULL) {
+            return null;
+        }
+        if (reference == NEW_STRING) {
+            String string = readString(in);
+            strings.add(string);
+            return string;
+        }
+        if (reference < 0 || reference > strings.size()) {
+            throw new IOException("Unknown string reference " + reference);
+        }
+        return strings.get(reference - 1);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > file.length()) {
+            throw new IOException("String of " + length + " bytes is longer than the snapshot");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Strings written once and referred to by their position afterwards; position 0 stands for null.
+     */
+    private static class StringTable {
+        private final Map<String, Integer> references = new HashMap<>();
+
+        private void write(DataOutputStream out, String string) throws IOException {
+            if (string == null) {
+                out.writeInt(NULL);
+                return;
+            }
+            Integer reference = references.get(string);
+            if (reference != null) {
+                out.writeInt(reference);
+                return;
+            }
+            references.put(string, references.size() + 1);
+            out.writeInt(NEW_STRING);
+            writeString(out, string);
+        }
+    }
+}
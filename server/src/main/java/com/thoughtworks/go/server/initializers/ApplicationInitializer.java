@@ -38,6 +38,7 @@ import com.thoughtworks.go.server.service.support.ResourceMonitoring;
 import com.thoughtworks.go.server.service.support.toggle.FeatureToggleService;
 import com.thoughtworks.go.server.service.support.toggle.Toggles;
 import com.thoughtworks.go.server.util.ServletHelper;
+import com.thoughtworks.go.server.websocket.ConsoleLogSender;
 import com.thoughtworks.go.service.ConfigRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -72,6 +73,8 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
     @Autowired private GoDiskSpaceMonitor goDiskSpaceMonitor;
     @Autowired private ArtifactsService artifactsService;
     @Autowired private ConsoleService consoleService;
+    @Autowired private ConsoleLogSink consoleLogSink;
+    @Autowired private ConsoleLogSender consoleLogSender;
     @Autowired private ConfigElementImplementationRegistrar configElementImplementationRegistrar;
     @Autowired private ConfigCipherUpdater configCipherUpdater;
     @Autowired private RailsAssetsService railsAssetsService;
@@ -117,6 +120,8 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
 
             //console logs
             consoleService.initialize();
+            consoleLogSink.initialize();
+            consoleLogSender.initialize();
 
             //change listener
             environmentConfigService.initialize();
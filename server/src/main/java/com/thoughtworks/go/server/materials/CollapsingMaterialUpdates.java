@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.materials;
+
+import com.thoughtworks.go.domain.materials.Material;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Predicate;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * @understands turning a burst of update requests for a material into a single update
+ * <p>
+ * The update is sent a window after the first request; requests that come in before it is sent are folded into it.
+ * A request that comes in after it is sent waits for an update of its own. When an update is refused because one is
+ * already in progress, it is requested again once that update has {@link #completed(Material) completed}, so every
+ * request is followed by an update that started after it.
+ */
+class CollapsingMaterialUpdates {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CollapsingMaterialUpdates.class);
+
+    private final ScheduledExecutorService scheduler;
+    private final long windowInMillis;
+    private final Predicate<Material> update;
+    private final ConcurrentMap<String, Material> pending = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Material> waitingForUpdateInProgress = new ConcurrentHashMap<>();
+
+    /**
+     * @param update starts an update of the material, answering false when it was refused because an update of the
+     *               material is already in progress
+     */
+    CollapsingMaterialUpdates(ScheduledExecutorService scheduler, long windowInMillis, Predicate<Material> update) {
+        this.scheduler = scheduler;
+        this.windowInMillis = windowInMillis;
+        this.update = update;
+    }
+
+    void request(Material material) {
+        String fingerprint = material.getFingerprint();
+        if (pending.putIfAbsent(fingerprint, material) != null) {
+            LOGGER.debug("[Material Update] Update of material {} has already been requested, not requesting it again", material);
+            return;
+        }
+        scheduler.schedule(() -> send(fingerprint), windowInMillis, MILLISECONDS);
+    }
+
+    /**
+     * Requests the update again for requests that came in while the update of the material that has now completed was
+     * in progress.
+     */
+    void completed(Material material) {
+        if (waitingForUpdateInProgress.isEmpty()) {
+            return;
+        }
+        Material waiting = waitingForUpdateInProgress.remove(material.getFingerprint());
+        if (waiting != null) {
+            LOGGER.debug("[Material Update] Requesting update of material {} again, it was requested while an update was in progress", waiting);
+            request(waiting);
+        }
+    }
+
+    private void send(String fingerprint) {
+        Material material = pending.remove(fingerprint);
+        waitingForUpdateInProgress.put(fingerprint, material);
+        try {
+            if (update.test(material)) {
+                waitingForUpdateInProgress.remove(fingerprint, material);
+            }
+        } catch (RuntimeException e) {
+            waitingForUpdateInProgress.remove(fingerprint, material);
+            LOGGER.error("[Material Update] Could not request update of material {}", material, e);
+        }
+    }
+}
@@ -18,7 +18,6 @@ package com.thoughtworks.go.server.materials;
 
 import com.thoughtworks.go.config.*;
 import com.thoughtworks.go.config.materials.dependency.DependencyMaterial;
-import com.thoughtworks.go.config.materials.git.GitMaterial;
 import com.thoughtworks.go.domain.materials.Material;
 import com.thoughtworks.go.domain.materials.MaterialConfig;
 import com.thoughtworks.go.listener.ConfigChangedListener;
@@ -27,6 +26,7 @@ import com.thoughtworks.go.server.domain.Username;
 import com.thoughtworks.go.server.materials.postcommit.PostCommitHookImplementer;
 import com.thoughtworks.go.server.materials.postcommit.PostCommitHookMaterialType;
 import com.thoughtworks.go.server.materials.postcommit.PostCommitHookMaterialTypeResolver;
+import com.thoughtworks.go.server.materials.postcommit.PostCommitMaterialIndex;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
 import com.thoughtworks.go.server.messaging.GoMessageQueue;
 import com.thoughtworks.go.server.perf.MDUPerformanceLogger;
@@ -41,6 +41,7 @@ import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.serverhealth.ServerHealthState;
 import com.thoughtworks.go.util.ProcessManager;
 import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -49,8 +50,7 @@ import org.springframework.stereotype.Service;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executors;
 
 import static com.thoughtworks.go.serverhealth.HealthStateType.general;
 import static com.thoughtworks.go.serverhealth.ServerHealthState.warning;
@@ -79,6 +79,8 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
     private final MaterialConfigConverter materialConfigConverter;
     private final Set<MaterialSource> materialSources = new HashSet<>();
     private final Set<MaterialUpdateCompleteListener> materialUpdateCompleteListeners = new HashSet<>();
+    private final CollapsingMaterialUpdates postCommitUpdates;
+    private volatile PostCommitMaterialIndex postCommitMaterialIndex;
     public static final String TYPE = "post_commit_hook_material_type";
 
     @Autowired
@@ -101,6 +103,9 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
         this.dependencyMaterialUpdateQueue = dependencyMaterialUpdateQueue;
         this.maintenanceModeService = maintenanceModeService;
         this.secretParamResolver = secretParamResolver;
+        this.postCommitUpdates = new CollapsingMaterialUpdates(
+                Executors.newSingleThreadScheduledExecutor(new BasicThreadFactory.Builder().namingPattern("post-commit-material-updates-%d").daemon(true).build()),
+                systemEnvironment.get(SystemEnvironment.POST_COMMIT_HOOK_COLLAPSE_WINDOW), this::updateMaterial);
         completed.addListener(this);
     }
 
@@ -159,15 +164,23 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
     }
 
     public boolean updateGitMaterial(String branchName, Collection<String> possibleUrls) {
-        final CruiseConfig cruiseConfig = goConfigService.currentCruiseConfig();
-        Set<Material> allUniquePostCommitSchedulableMaterials = materialConfigConverter.toMaterials(cruiseConfig.getAllUniquePostCommitSchedulableMaterials());
+        Set<MaterialConfig> gitMaterials = postCommitMaterialIndex().gitMaterials(branchName, possibleUrls);
 
-        Predicate<Material> predicate = new MaterialPredicate(branchName, possibleUrls);
-        Set<Material> allGitMaterials = allUniquePostCommitSchedulableMaterials.stream().filter(predicate).collect(Collectors.toSet());
+        for (MaterialConfig gitMaterial : gitMaterials) {
+            postCommitUpdates.request(materialConfigConverter.toMaterial(gitMaterial));
+        }
 
-        allGitMaterials.forEach(MaterialUpdateService.this::updateMaterial);
+        return !gitMaterials.isEmpty();
+    }
 
-        return !allGitMaterials.isEmpty();
+    private PostCommitMaterialIndex postCommitMaterialIndex() {
+        CruiseConfig cruiseConfig = goConfigService.currentCruiseConfig();
+        PostCommitMaterialIndex index = postCommitMaterialIndex;
+        if (index == null || !index.isFor(cruiseConfig)) {
+            index = new PostCommitMaterialIndex(cruiseConfig, materialConfigConverter);
+            postCommitMaterialIndex = index;
+        }
+        return index;
     }
 
     public boolean updateMaterial(Material material) {
@@ -212,6 +225,7 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
     public void onMessage(MaterialUpdateCompletedMessage message) {
         if (message instanceof MaterialUpdateSkippedMessage) {
             inProgress.remove(message.getMaterial());
+            postCommitUpdates.completed(message.getMaterial());
             return;
         }
 
@@ -219,6 +233,7 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
             LOGGER.debug("[Material Update] Material update completed for material {}", message.getMaterial());
 
             Date addedOn = inProgress.remove(message.getMaterial());
+            postCommitUpdates.completed(message.getMaterial());
             serverHealthService.removeByScope(HealthStateScope.forMaterialUpdate(message.getMaterial()));
             if (addedOn == null) {
                 LOGGER.warn("[Material Update] Material {} was not removed from those inProgress. This might result in it's pipelines not getting scheduled. in-progress: {}", message.getMaterial(), inProgress);
@@ -291,21 +306,4 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
     public void registerMaterialUpdateCompleteListener(MaterialUpdateCompleteListener materialUpdateCompleteListener) {
         this.materialUpdateCompleteListeners.add(materialUpdateCompleteListener);
     }
-
-    private static class MaterialPredicate implements Predicate<Material> {
-        private final String branchName;
-        private final Set<String> possibleUrls;
-
-        public MaterialPredicate(String branchName, Collection<String> possibleUrls) {
-            this.branchName = branchName;
-            this.possibleUrls = new HashSet<>(possibleUrls);
-        }
-
-        @Override
-        public boolean test(Material material) {
-            return material instanceof GitMaterial &&
-                    ((GitMaterial) material).getBranch().equals(branchName) &&
-                    possibleUrls.contains(((GitMaterial) material).getUrlArgument().withoutCredentials());
-        }
-    }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.materials.postcommit;
+
+import com.thoughtworks.go.config.CruiseConfig;
+import com.thoughtworks.go.config.materials.git.GitMaterial;
+import com.thoughtworks.go.domain.materials.Material;
+import com.thoughtworks.go.domain.materials.MaterialConfig;
+import com.thoughtworks.go.server.service.MaterialConfigConverter;
+
+import java.util.*;
+
+/**
+ * @understands which of the post commit schedulable git materials of a config a push to a repository and branch is for
+ * <p>
+ * Materials are keyed by their url without credentials and their branch, so a notification finds its materials without
+ * going through every material in the config. An index belongs to the config it was built from and is built again when
+ * that config is replaced.
+ */
+public class PostCommitMaterialIndex {
+    private final CruiseConfig config;
+    private final Map<String, Map<String, List<MaterialConfig>>> gitMaterialsByUrlAndBranch = new HashMap<>();
+
+    public PostCommitMaterialIndex(CruiseConfig config, MaterialConfigConverter materialConfigConverter) {
+        this.config = config;
+        for (MaterialConfig materialConfig : config.getAllUniquePostCommitSchedulableMaterials()) {
+            Material material = materialConfigConverter.toMaterial(materialConfig);
+            if (material instanceof GitMaterial) {
+                GitMaterial gitMaterial = (GitMaterial) material;
+                gitMaterialsByUrlAndBranch.computeIfAbsent(gitMaterial.getUrlArgument().withoutCredentials(), url -> new HashMap<>())
+                        .computeIfAbsent(gitMaterial.getBranch(), branch -> new ArrayList<>())
+                        .add(materialConfig);
+            }
+        }
+    }
+
+    public boolean isFor(CruiseConfig config) {
+        return this.config == config;
+    }
+
+    public Set<MaterialConfig> gitMaterials(String branchName, Collection<String> possibleUrls) {
+        Set<MaterialConfig> materialConfigs = new HashSet<>();
+        for (String url : new HashSet<>(possibleUrls)) {
+            Map<String, List<MaterialConfig>> byBranch = gitMaterialsByUrlAndBranch.get(url);
+            if (byBranch != null && byBranch.containsKey(branchName)) {
+                materialConfigs.addAll(byBranch.get(branchName));
+            }
+        }
+        return materialConfigs;
+    }
+}
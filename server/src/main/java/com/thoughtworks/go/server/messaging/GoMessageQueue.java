@@ -16,8 +16,6 @@
 
 package com.thoughtworks.go.server.messaging;
 
-import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
-
 public class GoMessageQueue<T extends GoMessage> implements GoMessageChannel<T> {
     private MessagingService messaging;
     protected String queueName;
@@ -35,7 +33,7 @@ public class GoMessageQueue<T extends GoMessage> implements GoMessageChannel<T>
         return queueSender;
     }
 
-    public JMSMessageListenerAdapter addListener(GoMessageListener<T> listener) {
+    public MessageListenerAdapter addListener(GoMessageListener<T> listener) {
         return messaging.addQueueListener(queueName, listener);
     }
 
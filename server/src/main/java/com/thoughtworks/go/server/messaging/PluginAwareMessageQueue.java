@@ -16,7 +16,6 @@
 
 package com.thoughtworks.go.server.messaging;
 
-import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
 import org.slf4j.LoggerFactory;
 
 import javax.jms.JMSException;
@@ -26,7 +25,7 @@ import java.util.HashMap;
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 
 public class PluginAwareMessageQueue extends GoMessageQueue {
-    protected final HashMap<String, ArrayList<JMSMessageListenerAdapter>> listeners = new HashMap<>();
+    protected final HashMap<String, ArrayList<MessageListenerAdapter>> listeners = new HashMap<>();
     private final String pluginId;
     private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(PluginAwareMessageQueue.class.getName());
 
@@ -35,7 +34,7 @@ public class PluginAwareMessageQueue extends GoMessageQueue {
         super(messaging, queueName);
         this.pluginId = pluginId;
         for (int i = 0; i < numberOfListeners; i++) {
-            JMSMessageListenerAdapter listenerAdapter = this.addListener(listenerFactory.create());
+            MessageListenerAdapter listenerAdapter = this.addListener(listenerFactory.create());
             if (!listeners.containsKey(pluginId)) {
                 this.listeners.put(pluginId, new ArrayList<>());
             }
@@ -46,12 +45,12 @@ public class PluginAwareMessageQueue extends GoMessageQueue {
     @Override
     public void stop() {
         super.stop();
-        ArrayList<JMSMessageListenerAdapter> listenerAdapters = listeners.get(pluginId);
-        for (JMSMessageListenerAdapter listenerAdapter : listenerAdapters) {
+        ArrayList<MessageListenerAdapter> listenerAdapters = listeners.get(pluginId);
+        for (MessageListenerAdapter listenerAdapter : listenerAdapters) {
             try {
                 listenerAdapter.stop();
             } catch (JMSException e) {
-                LOGGER.error("Unable to stop listener for {} {}, ERROR: {}", queueName, listenerAdapter.thread.getName(), e.getMessage(), e);
+                LOGGER.error("Unable to stop listener for {} {}, ERROR: {}", queueName, listenerAdapter, e.getMessage(), e);
                 bomb(e);
             } finally {
                 this.listeners.remove(pluginId);
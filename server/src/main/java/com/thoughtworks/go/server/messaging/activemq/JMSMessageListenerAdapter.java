@@ -18,6 +18,7 @@ package com.thoughtworks.go.server.messaging.activemq;
 
 import com.thoughtworks.go.server.messaging.GoMessage;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.MessageListenerAdapter;
 import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
 import com.thoughtworks.go.serverhealth.HealthStateScope;
 import com.thoughtworks.go.serverhealth.HealthStateType;
@@ -36,7 +37,7 @@ import java.io.File;
 
 import static com.thoughtworks.go.serverhealth.HealthStateScope.GLOBAL;
 
-public class JMSMessageListenerAdapter implements Runnable {
+public class JMSMessageListenerAdapter implements MessageListenerAdapter, Runnable {
     private static final Logger LOG = LoggerFactory.getLogger(JMSMessageListenerAdapter.class);
 
     private final MessageConsumer consumer;
@@ -69,10 +70,16 @@ public class JMSMessageListenerAdapter implements Runnable {
         }
     }
 
+    @Override
     public void stop() throws JMSException {
         consumer.close();
     }
 
+    @Override
+    public String toString() {
+        return thread.getName();
+    }
+
     protected boolean runImpl() {
         try {
             Message message = consumer.receive();
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.MessageListenerAdapter;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.util.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtworks.go.util.ExceptionUtils.bomb;
+
+/**
+ * @understands handing the messages of an inbox to a listener, one at a time, on a thread of its own
+ */
+public class InMemoryMessageListenerAdapter implements MessageListenerAdapter, Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(InMemoryMessageListenerAdapter.class);
+    private static final long STOP_CHECK_INTERVAL_MILLIS = 1000;
+
+    private final BlockingQueue<Delivery> inbox;
+    private final GoMessageListener listener;
+    private final DaemonThreadStatsCollector daemonThreadStatsCollector;
+    private final Clock clock;
+    private final Thread thread;
+    private volatile boolean stopped;
+
+    InMemoryMessageListenerAdapter(BlockingQueue<Delivery> inbox, GoMessageListener listener, DaemonThreadStatsCollector daemonThreadStatsCollector, Clock clock) {
+        this.inbox = inbox;
+        this.listener = listener;
+        this.daemonThreadStatsCollector = daemonThreadStatsCollector;
+        this.clock = clock;
+
+        thread = new Thread(this);
+        thread.setName(thread.getId() + "@MessageListener for " + listener.getClass().getSimpleName());
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Waits for room in the inbox for as long as this listener is running.
+     */
+    void deliver(Delivery delivery) {
+        try {
+            while (!stopped) {
+                if (inbox.offer(delivery, STOP_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw bomb("Interrupted while posting a message for " + this, e);
+        }
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+
+    @Override
+    public void run() {
+        while (!stopped) {
+            Delivery delivery;
+            try {
+                delivery = inbox.poll(STOP_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                LOG.debug("Listener {} was interrupted.", this);
+                return;
+            }
+            if (delivery != null) {
+                handle(delivery);
+            }
+        }
+        LOG.debug("Listener {} was stopped.", this);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void handle(Delivery delivery) {
+        if (delivery.hasExpired(clock.currentTimeMillis())) {
+            LOG.debug("Dropping expired message {} for {}", delivery.message(), this);
+            return;
+        }
+        try {
+            daemonThreadStatsCollector.captureStats(thread.getId());
+            listener.onMessage(delivery.message());
+        } catch (Exception e) {
+            LOG.error("Exception thrown in message handling by listener {}", listener, e);
+        } finally {
+            daemonThreadStatsCollector.clearStats(thread.getId());
+        }
+    }
+
+    /**
+     * Lets a message that is being handled finish; messages still in the inbox are left for other listeners, if any.
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public String toString() {
+        return thread.getName();
+    }
+}
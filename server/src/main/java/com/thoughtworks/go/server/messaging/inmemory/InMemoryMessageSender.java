@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessage;
+import com.thoughtworks.go.server.messaging.GoTextMessage;
+import com.thoughtworks.go.server.messaging.MessageSender;
+import com.thoughtworks.go.util.Clock;
+
+import java.util.function.Consumer;
+
+public class InMemoryMessageSender implements MessageSender {
+    private final Consumer<Delivery> destination;
+    private final Clock clock;
+
+    InMemoryMessageSender(Consumer<Delivery> destination, Clock clock) {
+        this.destination = destination;
+        this.clock = clock;
+    }
+
+    @Override
+    public void sendMessage(GoMessage goMessage) {
+        destination.accept(new Delivery(goMessage, 0));
+    }
+
+    @Override
+    public void sendMessage(GoMessage goMessage, long timeToLive) {
+        destination.accept(new Delivery(goMessage, timeToLive > 0 ? clock.currentTimeMillis() + timeToLive : 0));
+    }
+
+    @Override
+    public void sendText(String message) {
+        sendMessage(new GoTextMessage(message));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.MessageSender;
+import com.thoughtworks.go.server.messaging.MessagingService;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.util.Clock;
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.SystemTimeClock;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static com.thoughtworks.go.util.ExceptionUtils.bomb;
+
+/**
+ * @understands passing messages between the topics, queues and listeners of this server without going through a broker
+ * <p>
+ * Messages are handed to listeners as they were posted, without being copied or serialized, so a message must not be
+ * changed once it has been posted. Every listener of a topic has a bounded inbox of its own and gets every message
+ * posted after it was added. The listeners of a queue take turns on one bounded inbox, so that each message goes to
+ * exactly one of them. Posting to a full inbox waits for room.
+ */
+public class InMemoryMessagingService implements MessagingService {
+    private final DaemonThreadStatsCollector daemonThreadStatsCollector;
+    private final Clock clock;
+    private final int capacity;
+    private final ConcurrentMap<String, Topic> topics = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Queue> queues = new ConcurrentHashMap<>();
+
+    public InMemoryMessagingService(DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment) {
+        this(daemonThreadStatsCollector, new SystemTimeClock(), systemEnvironment.get(SystemEnvironment.IN_MEMORY_MESSAGING_CAPACITY));
+    }
+
+    InMemoryMessagingService(DaemonThreadStatsCollector daemonThreadStatsCollector, Clock clock, int capacity) {
+        this.daemonThreadStatsCollector = daemonThreadStatsCollector;
+        this.clock = clock;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public MessageSender createSender(String topic) {
+        return new InMemoryMessageSender(delivery -> topic(topic).post(delivery), clock);
+    }
+
+    @Override
+    public InMemoryMessageListenerAdapter addListener(String topic, GoMessageListener listener) {
+        InMemoryMessageListenerAdapter adapter = new InMemoryMessageListenerAdapter(new LinkedBlockingQueue<>(capacity), listener, daemonThreadStatsCollector, clock);
+        topic(topic).listeners.add(adapter);
+        adapter.start();
+        return adapter;
+    }
+
+    @Override
+    public MessageSender createQueueSender(String queueName) {
+        return new InMemoryMessageSender(delivery -> queue(queueName).post(delivery), clock);
+    }
+
+    @Override
+    public InMemoryMessageListenerAdapter addQueueListener(String queueName, GoMessageListener listener) {
+        Queue queue = queue(queueName);
+        InMemoryMessageListenerAdapter adapter = new InMemoryMessageListenerAdapter(queue.inbox, listener, daemonThreadStatsCollector, clock);
+        queue.listeners.add(adapter);
+        adapter.start();
+        return adapter;
+    }
+
+    /**
+     * Stops the listeners of the queue and drops the messages waiting in it. Posting to the queue again starts an empty
+     * one.
+     */
+    @Override
+    public void removeQueue(String queueName) {
+        Queue queue = queues.remove(queueName);
+        if (queue != null) {
+            stopAll(queue.listeners);
+            queue.inbox.clear();
+        }
+    }
+
+    @Override
+    public void stop() {
+        for (Topic topic : topics.values()) {
+            stopAll(topic.listeners);
+        }
+        for (Queue queue : queues.values()) {
+            stopAll(queue.listeners);
+        }
+        topics.clear();
+        queues.clear();
+    }
+
+    private Topic topic(String name) {
+        return topics.computeIfAbsent(name, key -> new Topic());
+    }
+
+    private Queue queue(String name) {
+        return queues.computeIfAbsent(name, key -> new Queue(capacity));
+    }
+
+    private static void stopAll(List<InMemoryMessageListenerAdapter> listeners) {
+        for (InMemoryMessageListenerAdapter listener : listeners) {
+            listener.stop();
+        }
+    }
+
+    private static class Topic {
+        private final List<InMemoryMessageListenerAdapter> listeners = new CopyOnWriteArrayList<>();
+
+        private void post(Delivery delivery) {
+            for (InMemoryMessageListenerAdapter listener : listeners) {
+                if (listener.isStopped()) {
+                    listeners.remove(listener);
+                } else {
+                    listener.deliver(delivery);
+                }
+            }
+        }
+    }
+
+    private static class Queue {
+        private final BlockingQueue<Delivery> inbox;
+        private final List<InMemoryMessageListenerAdapter> listeners = new CopyOnWriteArrayList<>();
+
+        private Queue(int capacity) {
+            this.inbox = new LinkedBlockingQueue<>(capacity);
+        }
+
+        private void post(Delivery delivery) {
+            try {
+                inbox.put(delivery);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw bomb("Interrupted while posting a message", e);
+            }
+        }
+    }
+}
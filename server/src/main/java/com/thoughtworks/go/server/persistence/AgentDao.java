@@ -17,6 +17,7 @@
 package com.thoughtworks.go.server.persistence;
 
 import com.thoughtworks.go.remote.AgentIdentifier;
+import com.thoughtworks.go.server.cache.CacheKeyGenerator;
 import com.thoughtworks.go.server.cache.GoCache;
 import com.thoughtworks.go.server.domain.Agent;
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
@@ -100,7 +101,7 @@ public class AgentDao extends HibernateDaoSupport {
     }
 
     String agentCacheKey(String uuid) {
-        return (AgentDao.class.getName() + "_agent_" + uuid).intern();
+        return CacheKeyGenerator.intern(AgentDao.class.getName() + "_agent_" + uuid);
     }
 
     private Agent fetchAgentByUuid(final String uuid) {
@@ -349,7 +349,7 @@ public class MaterialRepository extends HibernateDaoSupport {
     }
 
     private String pipelinePmrsKey(long pipelineId) {
-        return (MaterialRepository.class.getName() + "_pipelinePMRs_" + pipelineId).intern();
+        return CacheKeyGenerator.intern(MaterialRepository.class.getName() + "_pipelinePMRs_" + pipelineId);
     }
 
     @SuppressWarnings("unchecked")
@@ -377,7 +377,7 @@ public class MaterialRepository extends HibernateDaoSupport {
 
     private String pmrModificationsKey(PipelineMaterialRevision pmr) {
         // we intern() it because we might synchronize on the returned String
-        return (MaterialRepository.class.getName() + "_pmrModifications_" + pmr.getId()).intern();
+        return CacheKeyGenerator.intern(MaterialRepository.class.getName() + "_pmrModifications_" + pmr.getId());
     }
 
     private List<String> pmrModificationsKey(Modification modification, List<PipelineMaterialRevision> pmrs) {
@@ -398,17 +398,17 @@ public class MaterialRepository extends HibernateDaoSupport {
 
     String latestMaterialModificationsKey(MaterialInstance materialInstance) {
         // we intern() it because we might synchronize on the returned String
-        return (MaterialRepository.class.getName() + "_latestMaterialModifications_" + materialInstance.getId()).intern();
+        return CacheKeyGenerator.intern(MaterialRepository.class.getName() + "_latestMaterialModifications_" + materialInstance.getId());
     }
 
     String materialModificationCountKey(MaterialInstance materialInstance) {
         // we intern() it because we might synchronize on the returned String
-        return (MaterialRepository.class.getName() + "_materialModificationCount_" + materialInstance.getId()).intern();
+        return CacheKeyGenerator.intern(MaterialRepository.class.getName() + "_materialModificationCount_" + materialInstance.getId());
     }
 
     String materialModificationsWithPaginationKey(MaterialInstance materialInstance) {
         // we intern() it because we might synchronize on the returned String
-        return (MaterialRepository.class.getName() + "_materialModificationsWithPagination_" + materialInstance.getId()).intern();
+        return CacheKeyGenerator.intern(MaterialRepository.class.getName() + "_materialModificationsWithPagination_" + materialInstance.getId());
     }
 
     String materialModificationsWithPaginationSubKey(Pagination pagination) {
@@ -469,7 +469,7 @@ public class MaterialRepository extends HibernateDaoSupport {
     }
 
     private String materialKey(String fingerprint) {
-        return (MaterialRepository.class.getName() + "_materialInstance_" + fingerprint).intern();
+        return CacheKeyGenerator.intern(MaterialRepository.class.getName() + "_materialInstance_" + fingerprint);
     }
 
     public MaterialInstance findMaterialInstance(Material material) {
@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.thoughtworks.go.domain.PipelineTimelineEntry;
+import com.thoughtworks.go.server.cache.CacheKeyGenerator;
 import com.thoughtworks.go.server.cache.GoCache;
 import com.thoughtworks.go.server.domain.PipelineTimeline;
 import com.thoughtworks.go.server.domain.user.PipelineSelections;
@@ -151,17 +152,17 @@ public class PipelineRepository extends HibernateDaoSupport {
                     Object[] row = matches.get(i);
                     long id = id(row);
                     if (curId != id) {
-                        name = pipelineName(row);
+                        name = pipelineName(row).intern();
                         curId = id;
                         counter = counter(row);
                         revisions = new HashMap<>();
                         naturalOrder = naturalOrder(row);
                     }
 
-                    String fingerprint = fingerprint(row);
+                    String fingerprint = fingerprint(row).intern();
 
                     if (!revisions.containsKey(fingerprint)) {
-                        revisions.put(fingerprint, new ArrayList<>());
+                        revisions.put(fingerprint, new ArrayList<>(1));
                     }
                     revisions.get(fingerprint).add(rev(row));
 
@@ -176,7 +177,8 @@ public class PipelineRepository extends HibernateDaoSupport {
             }
 
             private String folder(Object[] row) {
-                return (String) row[FOLDER];
+                String folder = (String) row[FOLDER];
+                return folder == null ? null : folder.intern();
             }
 
             private PipelineTimelineEntry.Revision rev(Object[] row) {
@@ -221,6 +223,20 @@ public class PipelineRepository extends HibernateDaoSupport {
         });
     }
 
+    /**
+     * @return true if the database has the instance with this id, and it is the given run of the given pipeline
+     */
+    public boolean hasPipelineInstance(final long id, final String pipelineName, final int counter) {
+        return (Boolean) getHibernateTemplate().execute((HibernateCallback) session -> {
+            SQLQuery query = session.createSQLQuery("SELECT name, counter FROM pipelines WHERE id = :id");
+            query.setLong("id", id);
+            Object[] pipeline = (Object[]) query.uniqueResult();
+            return pipeline != null
+                    && pipelineName.equalsIgnoreCase((String) pipeline[0])
+                    && pipeline[1] != null && ((Number) pipeline[1]).intValue() == counter;
+        });
+    }
+
     private void addEntriesToPipelineTimeline(List<PipelineTimelineEntry> newEntries, PipelineTimeline pipelineTimeline, List<PipelineTimelineEntry> tempEntriesForRollback) {
         for (PipelineTimelineEntry newEntry : newEntries) {
             tempEntriesForRollback.add(newEntry);
@@ -308,10 +324,10 @@ public class PipelineRepository extends HibernateDaoSupport {
     }
 
     String pipelineSelectionForUserIdKey(Long userId) {
-        return (PipelineRepository.class.getName() + "_userIdPipelineSelection_" + userId).intern();
+        return CacheKeyGenerator.intern(PipelineRepository.class.getName() + "_userIdPipelineSelection_" + userId);
     }
 
     String pipelineSelectionForCookieKey(long id) {
-        return (PipelineRepository.class.getName() + "_cookiePipelineSelection_" + id).intern();
+        return CacheKeyGenerator.intern(PipelineRepository.class.getName() + "_cookiePipelineSelection_" + id);
     }
 }
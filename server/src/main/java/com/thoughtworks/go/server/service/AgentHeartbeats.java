@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * @understands applying the runtime info that agents report with every ping
+ * <p>
+ * Pings are not applied on the thread that received them. Only the latest runtime info of each agent is kept, and a
+ * dedicated thread applies whatever has arrived since its last batch, so an agent that pings again before its previous
+ * ping was applied costs nothing more.
+ * <p>
+ * Changes to an agent that do not come from a ping are made through {@link #supersede(String, Runnable)}. They drop
+ * any ping of that agent that has not been applied yet, so an older ping cannot undo them.
+ */
+class AgentHeartbeats {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AgentHeartbeats.class);
+    private static final int LOCK_STRIPES = 64;
+
+    private final Consumer<AgentRuntimeInfo> updater;
+    private final ConcurrentHashMap<String, AgentRuntimeInfo> latest = new ConcurrentHashMap<>();
+    private final BlockingQueue<String> queued = new LinkedBlockingQueue<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    AgentHeartbeats(Consumer<AgentRuntimeInfo> updater) {
+        this.updater = updater;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    void start() {
+        new BasicThreadFactory.Builder().namingPattern("agent-heartbeats-%d").daemon(true).build().newThread(() -> {
+            while (true) {
+                try {
+                    apply(queued.take());
+                    applyQueued();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    LOGGER.error("Error applying agent pings", e);
+                }
+            }
+        }).start();
+    }
+
+    void received(AgentRuntimeInfo info) {
+        if (latest.put(info.getUUId(), info) == null) {
+            queued.add(info.getUUId());
+        }
+    }
+
+    void supersede(String uuid, Runnable change) {
+        synchronized (lockFor(uuid)) {
+            latest.remove(uuid);
+            change.run();
+        }
+    }
+
+    void applyQueued() {
+        String uuid;
+        while ((uuid = queued.poll()) != null) {
+            apply(uuid);
+        }
+    }
+
+    private void apply(String uuid) {
+        synchronized (lockFor(uuid)) {
+            AgentRuntimeInfo info = latest.remove(uuid);
+            if (info == null) {
+                return;
+            }
+            try {
+                updater.accept(info);
+            } catch (AgentNoCookieSetException | AgentWithDuplicateUUIDException e) {
+                LOGGER.debug("Rejected {} ping.", info, e);
+            } catch (Exception e) {
+                LOGGER.error("Error occurred in {} ping.", info, e);
+            }
+        }
+    }
+
+    private Object lockFor(String uuid) {
+        return locks[Math.floorMod(uuid.hashCode(), locks.length)];
+    }
+}
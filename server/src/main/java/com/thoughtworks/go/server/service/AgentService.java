@@ -68,6 +68,7 @@ public class AgentService {
     private final AgentDao agentDao;
 
     private AgentInstances agentInstances;
+    private final AgentHeartbeats heartbeats = new AgentHeartbeats(this::applyRuntimeInfo);
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AgentService.class);
 
@@ -97,6 +98,7 @@ public class AgentService {
     public void initialize() {
         this.sync(this.agentConfigService.agents());
         agentConfigService.register(new AgentChangeListener(this));
+        heartbeats.start();
     }
 
     public void sync(Agents agents) {
@@ -287,7 +289,20 @@ public class AgentService {
         }
     }
 
+    /**
+     * Takes the runtime info an agent sent with a ping. The cookie is checked right away, so an agent is never answered
+     * before it is rejected; the rest is applied in the background, together with other pings.
+     */
+    public void heartbeatReceived(AgentRuntimeInfo info) {
+        rejectUnlessCookieMatches(info);
+        heartbeats.received(info);
+    }
+
     public void updateRuntimeInfo(AgentRuntimeInfo info) {
+        heartbeats.supersede(info.getUUId(), () -> applyRuntimeInfo(info));
+    }
+
+    private void rejectUnlessCookieMatches(AgentRuntimeInfo info) {
         if (!info.hasCookie()) {
             LOGGER.warn("Agent [{}] has no cookie set", info.agentInfoDebugString());
             throw new AgentNoCookieSetException(format("Agent [%s] has no cookie set", info.agentInfoDebugString()));
@@ -300,6 +315,10 @@ public class AgentService {
                             HealthStateType.duplicateAgent(HealthStateScope.forAgent(info.getCookie())), Timeout.THIRTY_SECONDS));
             throw new AgentWithDuplicateUUIDException(format("Agent [%s] has invalid cookie", info.agentInfoDebugString()));
         }
+    }
+
+    private void applyRuntimeInfo(AgentRuntimeInfo info) {
+        rejectUnlessCookieMatches(info);
         AgentInstance agentInstance = findAgentAndRefreshStatus(info.getUUId());
         if (agentInstance.isIpChangeRequired(info.getIpAdress())) {
             AgentConfig agentConfig = agentInstance.agentConfig();
@@ -355,7 +374,7 @@ public class AgentService {
     }
 
     public void building(String uuid, AgentBuildingInfo agentBuildingInfo) {
-        agentInstances.building(uuid, agentBuildingInfo);
+        heartbeats.supersede(uuid, () -> agentInstances.building(uuid, agentBuildingInfo));
     }
 
     public String assignCookie(AgentIdentifier identifier) {
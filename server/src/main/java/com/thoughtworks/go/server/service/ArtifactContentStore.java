@@ -0,0 +1,196 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.util.ArtifactLogUtil;
+import com.thoughtworks.go.util.FileUtil;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * @understands artifact files that are stored once, by the SHA-256 of their content
+ * <p>
+ * Every distinct content is kept as a blob at {@code <root>/<first two digits of the hash>/<hash>}. The artifacts of a
+ * job are hard links to the blobs, so they are read and served like any other file, and the number of links to a blob
+ * is its reference count: the store holds one link and every job artifact with that content holds another.
+ * <p>
+ * The hashes a job refers to are listed in its cruise-output folder, which is kept when artifacts are purged, so that
+ * blobs no job links to any more can be released once the artifacts of the job are deleted.
+ */
+class ArtifactContentStore {
+    static final String REFERENCES_FILE = "content.references";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactContentStore.class);
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    private static final int LOCK_STRIPES = 64;
+
+    private final File root;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    ArtifactContentStore(File root) {
+        this.root = root;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @return whether files in the folder can be hard linked and their links counted
+     */
+    static boolean isSupportedIn(File folder) {
+        try {
+            folder.mkdirs();
+            return Files.getFileStore(folder.toPath()).supportsFileAttributeView("unix");
+        } catch (IOException e) {
+            LOGGER.warn("Could not find out whether artifacts can be stored by content in [{}]", folder, e);
+            return false;
+        }
+    }
+
+    static boolean isHash(String sha256) {
+        return SHA256.matcher(sha256).matches();
+    }
+
+    /**
+     * Stores the content of a job artifact that has just been written, or replaces the artifact with a link to the
+     * content if the store already has it. Files in the cruise-output folder are appended to, so they are left alone.
+     *
+     * @return whether the artifact now refers to stored content
+     */
+    boolean store(File jobRoot, File artifact, String sha256) throws IOException {
+        if (FileUtil.isSubdirectoryOf(cruiseOutput(jobRoot), artifact)) {
+            return false;
+        }
+        File blob = blobFor(sha256);
+        synchronized (lockFor(sha256)) {
+            if (blob.exists()) {
+                File link = new File(artifact.getParentFile(), "." + artifact.getName() + ".link");
+                Files.deleteIfExists(link.toPath());
+                Files.createLink(link.toPath(), blob.toPath());
+                Files.move(link.toPath(), artifact.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+            } else {
+                blob.getParentFile().mkdirs();
+                Files.createLink(blob.toPath(), artifact.toPath());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the artifact as a link to stored content.
+     *
+     * @return false if the store does not have the content
+     */
+    boolean link(File artifact, String sha256) throws IOException {
+        File blob = blobFor(sha256);
+        synchronized (lockFor(sha256)) {
+            if (!blob.exists()) {
+                return false;
+            }
+            artifact.getParentFile().mkdirs();
+            Files.createLink(artifact.toPath(), blob.toPath());
+        }
+        return true;
+    }
+
+    /**
+     * Gives the artifact its own copy of its content before it is changed, so that the change does not reach the
+     * store or other jobs.
+     */
+    void detach(File artifact) throws IOException {
+        if (!artifact.exists() || linkCount(artifact.toPath()) < 2) {
+            return;
+        }
+        File copy = new File(artifact.getParentFile(), "." + artifact.getName() + ".copy");
+        Files.copy(artifact.toPath(), copy.toPath(), REPLACE_EXISTING);
+        Files.move(copy.toPath(), artifact.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    void recordReferences(File jobRoot, Collection<String> hashes) throws IOException {
+        if (hashes.isEmpty()) {
+            return;
+        }
+        File references = referencesOf(jobRoot);
+        synchronized (lockFor(references.getAbsolutePath())) {
+            FileUtils.writeLines(references, UTF_8.name(), hashes, true);
+        }
+    }
+
+    /**
+     * Deletes the blobs the job referred to that are no longer linked to by any job. To be called once the artifacts of
+     * the job have been deleted.
+     */
+    void release(File jobRoot) throws IOException {
+        File references = referencesOf(jobRoot);
+        Set<String> hashes;
+        synchronized (lockFor(references.getAbsolutePath())) {
+            if (!references.exists()) {
+                return;
+            }
+            hashes = new LinkedHashSet<>(FileUtils.readLines(references, UTF_8));
+            Files.delete(references.toPath());
+        }
+
+        for (String sha256 : hashes) {
+            if (!isHash(sha256)) {
+                continue;
+            }
+            File blob = blobFor(sha256);
+            synchronized (lockFor(sha256)) {
+                if (blob.exists() && linkCount(blob.toPath()) == 1) {
+                    Files.delete(blob.toPath());
+                }
+            }
+        }
+    }
+
+    File blobFor(String sha256) {
+        return new File(new File(root, sha256.substring(0, 2)), sha256);
+    }
+
+    private File referencesOf(File jobRoot) {
+        return new File(cruiseOutput(jobRoot), REFERENCES_FILE);
+    }
+
+    private File cruiseOutput(File jobRoot) {
+        return new File(jobRoot, ArtifactLogUtil.CRUISE_OUTPUT_FOLDER);
+    }
+
+    /**
+     * @param key the hash of a blob or the path of a references file; no lock is held while taking another
+     */
+    private Object lockFor(String key) {
+        return locks[Math.floorMod(key.hashCode(), locks.length)];
+    }
+
+    private static int linkCount(Path path) throws IOException {
+        return (Integer) Files.getAttribute(path, "unix:nlink");
+    }
+}
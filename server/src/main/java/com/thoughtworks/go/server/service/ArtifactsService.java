@@ -35,6 +35,10 @@ import org.springframework.stereotype.Service;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.Set;
 import java.util.zip.ZipInputStream;
 
 import static java.lang.String.format;
@@ -46,23 +50,33 @@ public class ArtifactsService implements ArtifactUrlReader {
     private final JobResolverService jobResolverService;
     private final StageDao stageDao;
     private SystemService systemService;
+    private final SystemEnvironment systemEnvironment;
     public static final Logger LOGGER = LoggerFactory.getLogger(ArtifactsService.class);
     public static final String LOG_XML_NAME = "log.xml";
+    static final String CONTENT_STORE_DIR = "content";
     private ArtifactDirectoryChooser chooser;
+    private ArtifactContentStore contentStore;
 
-    @Autowired
     public ArtifactsService(JobResolverService jobResolverService, StageDao stageDao,
                             ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemService systemService) {
-        this(jobResolverService, stageDao, artifactsDirHolder, zipUtil, systemService, new ArtifactDirectoryChooser());
+        this(jobResolverService, stageDao, artifactsDirHolder, zipUtil, systemService, new SystemEnvironment());
+    }
+
+    @Autowired
+    public ArtifactsService(JobResolverService jobResolverService, StageDao stageDao,
+                            ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemService systemService, SystemEnvironment systemEnvironment) {
+        this(jobResolverService, stageDao, artifactsDirHolder, zipUtil, systemService, systemEnvironment, new ArtifactDirectoryChooser());
     }
 
     protected ArtifactsService(JobResolverService jobResolverService, StageDao stageDao,
-                               ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemService systemService, ArtifactDirectoryChooser chooser) {
+                               ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemService systemService, SystemEnvironment systemEnvironment,
+                               ArtifactDirectoryChooser chooser) {
         this.artifactsDirHolder = artifactsDirHolder;
         this.zipUtil = zipUtil;
         this.jobResolverService = jobResolverService;
         this.stageDao = stageDao;
         this.systemService = systemService;
+        this.systemEnvironment = systemEnvironment;
 
         //This is a Chain of Responsibility to decide which view should be shown for a particular artifact URL
         this.chooser = chooser;
@@ -72,13 +86,36 @@ public class ArtifactsService implements ArtifactUrlReader {
     public void initialize() {
         chooser.add(new PathBasedArtifactsLocator(artifactsDirHolder.getArtifactsDir()));
         chooser.add(new BuildIdArtifactLocator(artifactsDirHolder.getArtifactsDir()));
+
+        if (systemEnvironment.isContentAddressedArtifactStorageEnabled()) {
+            File contentRoot = new File(artifactsDirHolder.getArtifactsDir(), CONTENT_STORE_DIR);
+            if (ArtifactContentStore.isSupportedIn(contentRoot)) {
+                contentStore = new ArtifactContentStore(contentRoot);
+            } else {
+                LOGGER.warn("Artifacts cannot be stored by content in [{}] as the file system does not support hard links. Artifacts will be stored as they are uploaded.", contentRoot);
+            }
+        }
+    }
+
+    public boolean storesContentByHash() {
+        return contentStore != null;
     }
 
     public boolean saveFile(File dest, InputStream stream, boolean shouldUnzip, int attempt) {
+        return saveFile(null, dest, stream, shouldUnzip, attempt);
+    }
+
+    /**
+     * Saves an artifact uploaded for the job. When artifacts are stored by content, every unzipped file that the store
+     * already has is replaced with a link to the stored content, and the content of the others is added to the store.
+     */
+    public boolean saveFile(JobIdentifier jobIdentifier, File dest, InputStream stream, boolean shouldUnzip, int attempt) {
         String destPath = dest.getAbsolutePath();
         try {
             LOGGER.trace("Saving file [{}]", destPath);
-            if (shouldUnzip) {
+            if (shouldUnzip && jobIdentifier != null && storesContentByHash()) {
+                unzipIntoContentStore(jobIdentifier, dest, stream);
+            } else if (shouldUnzip) {
                 zipUtil.unzip(new ZipInputStream(stream), dest);
             } else {
                 systemService.streamToFile(stream, dest);
@@ -97,13 +134,68 @@ public class ArtifactsService implements ArtifactUrlReader {
             final String message = format("Failed to save the file to: [%s]", destPath);
             LOGGER.error(message, e);
             return false;
+        } catch (IllegalArtifactLocationException e) {
+            LOGGER.error("Failed to find the artifacts of the job for [{}]", destPath, e);
+            return false;
+        }
+    }
+
+    private void unzipIntoContentStore(JobIdentifier jobIdentifier, File dest, InputStream stream) throws IOException, IllegalArtifactLocationException {
+        File jobRoot = findArtifact(jobIdentifier, "");
+        Set<String> references = new LinkedHashSet<>();
+        try {
+            zipUtil.unzip(new ZipInputStream(stream), dest, (file, sha256) -> {
+                if (contentStore.store(jobRoot, file, sha256)) {
+                    references.add(sha256);
+                }
+            });
+        } finally {
+            contentStore.recordReferences(jobRoot, references);
         }
     }
 
+    /**
+     * Links the stored content of the files of an artifact into the job, for files that an agent did not upload as the
+     * server already had their content.
+     *
+     * @param contentReferences the SHA-256 of each file, by its path in the artifact
+     * @return the files whose content is not stored and still has to be uploaded, by their path in the artifact
+     */
+    public Properties linkStoredContent(JobIdentifier jobIdentifier, File dest, Properties contentReferences) throws IOException, IllegalArtifactLocationException {
+        File jobRoot = findArtifact(jobIdentifier, "");
+        Properties missing = new Properties();
+        Set<String> references = new LinkedHashSet<>();
+        try {
+            for (String path : contentReferences.stringPropertyNames()) {
+                String sha256 = contentReferences.getProperty(path);
+                File artifact = new File(dest, path);
+                if (path.contains("..") || !ArtifactContentStore.isHash(sha256) || !FileUtil.isSubdirectoryOf(dest, artifact)) {
+                    throw new IllegalArtifactLocationException("Illegal content reference " + path + "=" + sha256);
+                }
+                if (FileUtil.isSubdirectoryOf(new File(jobRoot, ArtifactLogUtil.CRUISE_OUTPUT_FOLDER), artifact)) {
+                    missing.setProperty(path, sha256);
+                    continue;
+                }
+                Files.deleteIfExists(artifact.toPath());
+                if (contentStore.link(artifact, sha256)) {
+                    references.add(sha256);
+                } else {
+                    missing.setProperty(path, sha256);
+                }
+            }
+        } finally {
+            contentStore.recordReferences(jobRoot, references);
+        }
+        return missing;
+    }
+
     public boolean saveOrAppendFile(File dest, InputStream stream) {
         String destPath = dest.getAbsolutePath();
         try {
             LOGGER.trace("Appending file [{}]", destPath);
+            if (storesContentByHash()) {
+                contentStore.detach(dest);
+            }
             systemService.streamToFile(stream, dest);
             LOGGER.trace("File [{}] appended.", destPath);
             return true;
@@ -190,6 +282,9 @@ public class ArtifactsService implements ArtifactUrlReader {
                 }
                 didDelete &= deleteFile(artifact);
             }
+            if (storesContentByHash()) {
+                contentStore.release(jobRoot);
+            }
         }
         return didDelete;
     }
@@ -72,7 +72,7 @@ public class BuildAssignmentService implements ConfigChangedListener {
     private TransactionTemplate transactionTemplate;
     private final ScheduledPipelineLoader scheduledPipelineLoader;
 
-    private List<JobPlan> jobPlans = new ArrayList<>();
+    private final JobPlanMatcher jobPlanMatcher;
     private final UpstreamPipelineResolver resolver;
     private final BuilderFactory builderFactory;
     private AgentRemoteHandler agentRemoteHandler;
@@ -108,11 +108,17 @@ public class BuildAssignmentService implements ConfigChangedListener {
         this.secretParamResolver = secretParamResolver;
         this.jobStatusTopic = jobStatusTopic;
         this.consoleService = consoleService;
+        this.jobPlanMatcher = new JobPlanMatcher(environmentConfigService);
     }
 
     public void initialize() {
         goConfigService.register(this);
         goConfigService.register(pipelineConfigChangedListener());
+        jobInstanceService.registerJobStateChangeListener(job -> {
+            if (job.getState() != JobState.Scheduled) {
+                jobPlanMatcher.remove(job.getId());
+            }
+        });
     }
 
 
@@ -122,16 +128,14 @@ public class BuildAssignmentService implements ConfigChangedListener {
             public void onEntityConfigChange(PipelineConfig pipelineConfig) {
                 LOGGER.info("[Configuration Changed] Removing deleted jobs for pipeline {}.", pipelineConfig.name());
 
-                synchronized (BuildAssignmentService.this) {
-                    List<JobPlan> jobsToRemove;
-                    if (goConfigService.hasPipelineNamed(pipelineConfig.name())) {
-                        jobsToRemove = getMismatchingJobPlansFromUpdatedPipeline(pipelineConfig, jobPlans);
-                    } else {
-                        jobsToRemove = getAllJobPlansFromDeletedPipeline(pipelineConfig, jobPlans);
-                    }
-
-                    IterableUtils.forEach(jobsToRemove, o -> removeJob(o));
+                List<JobPlan> jobsToRemove;
+                if (goConfigService.hasPipelineNamed(pipelineConfig.name())) {
+                    jobsToRemove = getMismatchingJobPlansFromUpdatedPipeline(pipelineConfig, jobPlanMatcher.jobPlans());
+                } else {
+                    jobsToRemove = getAllJobPlansFromDeletedPipeline(pipelineConfig, jobPlanMatcher.jobPlans());
                 }
+
+                IterableUtils.forEach(jobsToRemove, o -> removeJob(o));
             }
         };
     }
@@ -175,7 +179,7 @@ public class BuildAssignmentService implements ConfigChangedListener {
             return new DeniedAgentWork(agent.getUuid());
         }
 
-        synchronized (this) {
+        synchronized (jobPlanMatcher.assignmentLockFor(agent)) {
 //          check to ensure agent is not disabled after entering the synchronized block
             if (agent.isDisabled()) {
                 return new DeniedAgentWork(agent.getUuid());
@@ -184,7 +188,7 @@ public class BuildAssignmentService implements ConfigChangedListener {
             scheduleService.rescheduleAbandonedBuildIfNecessary(agent.getAgentIdentifier());
             final JobPlan job = findMatchingJob(agent);
             if (job != null) {
-                Work buildWork = createWork(agent, job);
+                Work buildWork = createWorkOrReleaseJob(agent, job);
                 AgentBuildingInfo buildingInfo = new AgentBuildingInfo(job.getIdentifier().buildLocatorForDisplay(),
                         job.getIdentifier().buildLocator());
                 agentService.building(agent.getUuid(), buildingInfo);
@@ -198,22 +202,7 @@ public class BuildAssignmentService implements ConfigChangedListener {
     }
 
     JobPlan findMatchingJob(AgentInstance agent) {
-        List<JobPlan> filteredJobPlans = environmentConfigService.filterJobsByAgent(jobPlans, agent.getUuid());
-        JobPlan match = null;
-        if (!agent.isElastic()) {
-            match = agent.firstMatching(filteredJobPlans);
-        } else {
-            for (JobPlan jobPlan : filteredJobPlans) {
-                if (jobPlan.requiresElasticAgent() && elasticAgentPluginService.shouldAssignWork(agent.elasticAgentMetadata(), environmentConfigService.envForPipeline(jobPlan.getPipelineName()), jobPlan.getElasticProfile(), jobPlan.getIdentifier())) {
-                    match = jobPlan;
-                    break;
-                }
-            }
-        }
-        if (match != null) {
-            jobPlans.remove(match);
-        }
-        return match;
+        return jobPlanMatcher.claimFirstMatch(agent, jobPlan -> elasticAgentPluginService.shouldAssignWork(agent.elasticAgentMetadata(), environmentConfigService.envForPipeline(jobPlan.getPipelineName()), jobPlan.getElasticProfile(), jobPlan.getIdentifier()));
     }
 
     public void onTimer() {
@@ -227,17 +216,9 @@ public class BuildAssignmentService implements ConfigChangedListener {
     }
 
     private void reloadJobPlans() {
-        synchronized (this) {
-            if (jobPlans == null) {
-                jobPlans = jobInstanceService.orderedScheduledBuilds();
-                elasticAgentPluginService.createAgentsFor(jobPlans, new ArrayList<>());
-            } else {
-                List<JobPlan> old = jobPlans;
-                List<JobPlan> newPlan = jobInstanceService.orderedScheduledBuilds();
-                jobPlans = newPlan;
-                elasticAgentPluginService.createAgentsFor(old, newPlan);
-            }
-        }
+        List<JobPlan> newPlan = jobInstanceService.orderedScheduledBuilds();
+        List<JobPlan> old = jobPlanMatcher.reload(newPlan);
+        elasticAgentPluginService.createAgentsFor(old, newPlan);
     }
 
     private void matchingJobForRegisteredAgents() {
@@ -268,7 +249,7 @@ public class BuildAssignmentService implements ConfigChangedListener {
                 }
             }
         }
-        LOGGER.debug("Matching {} agents with {} jobs took: {}ms", agents.size(), jobPlans.size(), System.currentTimeMillis() - start);
+        LOGGER.debug("Matching {} agents with {} jobs took: {}ms", agents.size(), jobPlanMatcher.size(), System.currentTimeMillis() - start);
     }
 
     private BuildSettings createBuildSettings(BuildAssignment assignment) {
@@ -289,15 +270,13 @@ public class BuildAssignmentService implements ConfigChangedListener {
 
     public void onConfigChange(CruiseConfig newCruiseConfig) {
         LOGGER.info("[Configuration Changed] Removing jobs for pipelines that no longer exist in configuration.");
-        synchronized (this) {
-            List<JobPlan> jobsToRemove = new ArrayList<>();
-            for (JobPlan jobPlan : jobPlans) {
-                if (!newCruiseConfig.hasBuildPlan(new CaseInsensitiveString(jobPlan.getPipelineName()), new CaseInsensitiveString(jobPlan.getStageName()), jobPlan.getName(), true)) {
-                    jobsToRemove.add(jobPlan);
-                }
+        List<JobPlan> jobsToRemove = new ArrayList<>();
+        for (JobPlan jobPlan : jobPlanMatcher.jobPlans()) {
+            if (!newCruiseConfig.hasBuildPlan(new CaseInsensitiveString(jobPlan.getPipelineName()), new CaseInsensitiveString(jobPlan.getStageName()), jobPlan.getName(), true)) {
+                jobsToRemove.add(jobPlan);
             }
-            forAllDo(jobsToRemove, o -> removeJob((JobPlan) o));
         }
+        forAllDo(jobsToRemove, o -> removeJob((JobPlan) o));
     }
 
     private void removeJobIfNotPresentInCruiseConfig(CruiseConfig newCruiseConfig, JobPlan jobPlan) {
@@ -308,7 +287,7 @@ public class BuildAssignmentService implements ConfigChangedListener {
 
     private void removeJob(JobPlan jobPlan) {
         try {
-            jobPlans.remove(jobPlan);
+            jobPlanMatcher.remove(jobPlan);
             LOGGER.info("Removing job plan {} that no longer exists in the config", jobPlan);
             JobInstance instance = jobInstanceService.buildByIdWithTransitions(jobPlan.getJobId());
             //#2846 - remove this hack
@@ -321,6 +300,18 @@ public class BuildAssignmentService implements ConfigChangedListener {
         }
     }
 
+    private Work createWorkOrReleaseJob(final AgentInstance agent, final JobPlan job) {
+        Work work = null;
+        try {
+            work = createWork(agent, job);
+            return work;
+        } finally {
+            if (work == null || work == NO_WORK) {
+                jobPlanMatcher.release(job);
+            }
+        }
+    }
+
     private Work createWork(final AgentInstance agent, final JobPlan job) {
         try {
             return (Work) transactionTemplate.transactionSurrounding(() -> {
@@ -409,6 +400,6 @@ public class BuildAssignmentService implements ConfigChangedListener {
     }
 
     List<JobPlan> jobPlans() {
-        return jobPlans;
+        return jobPlanMatcher.jobPlans();
     }
 }
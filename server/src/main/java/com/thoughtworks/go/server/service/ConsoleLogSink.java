@@ -0,0 +1,251 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
+import com.thoughtworks.go.server.messaging.JobStatusTopic;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * @understands appending the console output that agents stream for running jobs to their console logs
+ * <p>
+ * Appends are handed to a small pool of writers through bounded queues, and appending blocks while the queue is full.
+ * The output of a job always goes to the same writer, so it is written in the order it arrived. A writer keeps the
+ * logs it writes to open, up to a limit, and closes the least recently written one when it needs to open another.
+ * Listeners of the console service are notified once per job for every batch of appends a writer takes off its queue.
+ * <p>
+ * The log of a job is closed when the job completes. {@link #close(JobIdentifier)} waits for what was appended before
+ * it to be written, so the log can be moved afterwards.
+ */
+@Component
+public class ConsoleLogSink {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleLogSink.class);
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final ConsoleService consoleService;
+    private final JobStatusTopic jobStatusTopic;
+    private final Writer[] writers;
+
+    @Autowired
+    public ConsoleLogSink(ConsoleService consoleService, JobStatusTopic jobStatusTopic, SystemEnvironment systemEnvironment) {
+        this(consoleService, jobStatusTopic, systemEnvironment.get(SystemEnvironment.CONSOLE_LOG_WRITER_THREADS),
+                systemEnvironment.get(SystemEnvironment.CONSOLE_LOG_WRITER_QUEUE_SIZE), systemEnvironment.get(SystemEnvironment.CONSOLE_LOG_WRITER_OPEN_FILES));
+    }
+
+    ConsoleLogSink(ConsoleService consoleService, JobStatusTopic jobStatusTopic, int threads, int queueSize, int openFiles) {
+        this.consoleService = consoleService;
+        this.jobStatusTopic = jobStatusTopic;
+        this.writers = new Writer[Math.max(1, threads)];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = new Writer(queueSize, Math.max(1, openFiles / writers.length));
+        }
+    }
+
+    public void initialize() {
+        jobStatusTopic.addListener(message -> {
+            if (message.getJobState().isCompleted()) {
+                // output that arrives after the log was closed for the move reopens it, so close it again
+                enqueue(new Close(message.getJobIdentifier()));
+            }
+        });
+        ThreadFactory threadFactory = new BasicThreadFactory.Builder().namingPattern("console-log-writer-%d").daemon(true).build();
+        for (Writer writer : writers) {
+            threadFactory.newThread(writer).start();
+        }
+    }
+
+    public void append(JobIdentifier jobIdentifier, byte[] content) throws InterruptedException {
+        writerFor(jobIdentifier).queue.put(new Append(jobIdentifier, content));
+    }
+
+    /**
+     * Writes what was appended for the job so far and closes its log.
+     */
+    public void close(JobIdentifier jobIdentifier) {
+        Close close = new Close(jobIdentifier);
+        enqueue(close);
+        try {
+            if (!close.done.await(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("Timed out waiting for the console log of {} to be written", jobIdentifier);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Task task) {
+        try {
+            writerFor(task.jobIdentifier).queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Writer writerFor(JobIdentifier jobIdentifier) {
+        return writers[Math.floorMod(Objects.hashCode(jobIdentifier.getBuildId()), writers.length)];
+    }
+
+    private class Writer implements Runnable {
+        private final BlockingQueue<Task> queue;
+        private final Map<Long, OpenLog> openLogs;
+
+        private Writer(int queueSize, int openFiles) {
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+            this.openLogs = new LinkedHashMap<Long, OpenLog>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, OpenLog> eldest) {
+                    if (size() > openFiles) {
+                        eldest.getValue().close();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public void run() {
+            List<Task> batch = new ArrayList<>();
+            while (true) {
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                    write(batch);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    LOGGER.error("Error writing console logs", e);
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void write(List<Task> batch) {
+            Map<Long, OpenLog> written = new LinkedHashMap<>();
+            for (Task task : batch) {
+                Long buildId = task.jobIdentifier.getBuildId();
+                if (task instanceof Close) {
+                    OpenLog log = openLogs.remove(buildId);
+                    if (log != null) {
+                        log.close();
+                    }
+                    notifyAppended(written.remove(buildId));
+                    ((Close) task).done.countDown();
+                    continue;
+                }
+
+                OpenLog log = openLogs.get(buildId);
+                try {
+                    if (log == null) {
+                        log = new OpenLog(task.jobIdentifier, consoleService.consoleLogFile(task.jobIdentifier));
+                        openLogs.put(buildId, log);
+                    }
+                    log.write(((Append) task).content);
+                    written.put(buildId, log);
+                } catch (IOException | IllegalArtifactLocationException e) {
+                    LOGGER.error("Failed to update console log of {}", task.jobIdentifier, e);
+                    if (log != null) {
+                        openLogs.remove(buildId);
+                        log.close();
+                    }
+                }
+            }
+            for (OpenLog log : written.values()) {
+                notifyAppended(log);
+            }
+        }
+
+        private void notifyAppended(OpenLog log) {
+            if (log != null) {
+                consoleService.consoleLogAppended(log.jobIdentifier, log.file);
+            }
+        }
+    }
+
+    private static class OpenLog {
+        private final JobIdentifier jobIdentifier;
+        private final File file;
+        private FileChannel channel;
+
+        private OpenLog(JobIdentifier jobIdentifier, File file) {
+            this.jobIdentifier = jobIdentifier;
+            this.file = file;
+        }
+
+        private void write(byte[] content) throws IOException {
+            if (channel == null) {
+                file.getParentFile().mkdirs();
+                channel = FileChannel.open(file.toPath(), CREATE, WRITE, APPEND);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void close() {
+            IOUtils.closeQuietly(channel);
+        }
+    }
+
+    private static class Task {
+        private final JobIdentifier jobIdentifier;
+
+        private Task(JobIdentifier jobIdentifier) {
+            this.jobIdentifier = jobIdentifier;
+        }
+    }
+
+    private static class Append extends Task {
+        private final byte[] content;
+
+        private Append(JobIdentifier jobIdentifier, byte[] content) {
+            super(jobIdentifier);
+            this.content = content;
+        }
+    }
+
+    private static class Close extends Task {
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private Close(JobIdentifier jobIdentifier) {
+            super(jobIdentifier);
+        }
+    }
+}
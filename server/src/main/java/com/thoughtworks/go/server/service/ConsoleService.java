@@ -17,11 +17,13 @@
 package com.thoughtworks.go.server.service;
 
 import com.thoughtworks.go.domain.ConsoleConsumer;
+import com.thoughtworks.go.domain.ConsoleLogIndex;
 import com.thoughtworks.go.domain.ConsoleStreamer;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.domain.LocatableEntity;
 import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.domain.ConsoleLogListener;
 import com.thoughtworks.go.server.view.artifacts.ArtifactDirectoryChooser;
 import com.thoughtworks.go.server.view.artifacts.BuildIdArtifactLocator;
 import com.thoughtworks.go.server.view.artifacts.PathBasedArtifactsLocator;
@@ -33,7 +35,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static com.thoughtworks.go.util.ArtifactLogUtil.getConsoleOutputFolderAndFileName;
 
@@ -44,7 +49,7 @@ public class ConsoleService {
     private ArtifactDirectoryChooser chooser;
     public static final int DEFAULT_CONSOLE_LOG_LINE_BUFFER_SIZE = 1024;
     private ArtifactsDirHolder artifactsDirHolder;
-
+    private final List<ConsoleLogListener> listeners = new CopyOnWriteArrayList<>();
 
     public ConsoleService(ArtifactDirectoryChooser chooser) {
         this.chooser = chooser;
@@ -61,8 +66,16 @@ public class ConsoleService {
         chooser.add(new BuildIdArtifactLocator(artifactsDirHolder.getArtifactsDir()));
     }
 
+    public void addListener(ConsoleLogListener listener) {
+        listeners.add(listener);
+    }
+
     public ConsoleConsumer getStreamer(long startingLine, JobIdentifier identifier) throws IllegalArtifactLocationException {
         Path path = consoleLogFile(identifier).toPath();
+        if (startingLine >= ConsoleLogIndex.CHECKPOINT_INTERVAL && Files.exists(path)) {
+            // logs written before indexing existed get indexed on first use, so that later reconnects can seek
+            updateIndex(path);
+        }
         return new ConsoleStreamer(path, startingLine);
     }
 
@@ -84,7 +97,15 @@ public class ConsoleService {
     }
 
     public void appendToConsoleLog(JobIdentifier jobIdentifier, String text) throws IllegalArtifactLocationException, IOException {
-        updateConsoleLog(consoleLogFile(jobIdentifier), new ByteArrayInputStream(text.getBytes()));
+        updateConsoleLog(jobIdentifier, consoleLogFile(jobIdentifier), new ByteArrayInputStream(text.getBytes()));
+    }
+
+    public boolean updateConsoleLog(JobIdentifier jobIdentifier, File dest, InputStream in) {
+        boolean updated = updateConsoleLog(dest, in);
+        if (updated) {
+            notifyListeners(jobIdentifier);
+        }
+        return updated;
     }
 
     public boolean updateConsoleLog(File dest, InputStream in) {
@@ -102,6 +123,33 @@ public class ConsoleService {
         return true;
     }
 
+    /**
+     * Called once for every batch of output written for a job, which is also when its index is brought up to date.
+     * Logs updated through {@link #updateConsoleLog(File, InputStream)} are indexed when a reader needs to seek.
+     */
+    void consoleLogAppended(JobIdentifier jobIdentifier, File dest) {
+        updateIndex(dest.toPath());
+        notifyListeners(jobIdentifier);
+    }
+
+    private void updateIndex(Path log) {
+        try {
+            ConsoleLogIndex.update(log);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to update console log index for [{}]", log.toAbsolutePath(), e);
+        }
+    }
+
+    private void notifyListeners(JobIdentifier jobIdentifier) {
+        for (ConsoleLogListener listener : listeners) {
+            try {
+                listener.consoleLogUpdated(jobIdentifier);
+            } catch (Exception e) {
+                LOGGER.error("Error notifying listener of console log update for {}", jobIdentifier, e);
+            }
+        }
+    }
+
     public void moveConsoleArtifacts(LocatableEntity locatableEntity) {
         try {
             File from = chooser.temporaryConsoleFile(locatableEntity);
@@ -111,6 +159,13 @@ public class ConsoleService {
 
             File to = consoleLogArtifact(locatableEntity);
             FileUtils.moveFile(from, to);
+
+            File index = ConsoleLogIndex.indexFileFor(from.toPath()).toFile();
+            if (index.exists()) {
+                File movedIndex = ConsoleLogIndex.indexFileFor(to.toPath()).toFile();
+                FileUtils.deleteQuietly(movedIndex);
+                FileUtils.moveFile(index, movedIndex);
+            }
         } catch (IOException | IllegalArtifactLocationException e) {
             throw new RuntimeException(e);
         }
@@ -21,7 +21,6 @@ import com.thoughtworks.go.config.*;
 import com.thoughtworks.go.config.elastic.ClusterProfile;
 import com.thoughtworks.go.config.elastic.ElasticProfile;
 import com.thoughtworks.go.config.merge.MergePipelineConfigs;
-import com.thoughtworks.go.config.registry.ConfigElementImplementationRegistry;
 import com.thoughtworks.go.config.remote.ConfigRepoConfig;
 import com.thoughtworks.go.domain.PipelineGroups;
 import com.thoughtworks.go.domain.UsageStatisticsReporting;
@@ -40,26 +39,34 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Supplier;
 
+/**
+ * @understands the etags of config and database entities
+ * <p>
+ * Config entities are fingerprinted from their config fields by {@link ConfigFingerprinter}. Their fingerprints are
+ * kept across config changes and remember the entity they were computed for; a fingerprint is only recomputed once the
+ * entity it belongs to has been replaced by a different instance, so a config change re-fingerprints the entities it
+ * touches rather than all of them.
+ */
 @Component
 public class EntityHashingService implements ConfigChangedListener, Initializer {
     private GoConfigService goConfigService;
     private GoCache goCache;
     private static final String ETAG_CACHE_KEY = "GO_ETAG_CACHE".intern();
-    private ConfigCache configCache;
-    private ConfigElementImplementationRegistry registry;
+    private static final String CONFIG_ETAG_CACHE_KEY = "GO_CONFIG_ETAG_CACHE".intern();
+    private final ConfigFingerprinter fingerprinter;
 
     @Autowired
-    public EntityHashingService(GoConfigService goConfigService, GoCache goCache, ConfigCache configCache, ConfigElementImplementationRegistry registry) {
+    public EntityHashingService(GoConfigService goConfigService, GoCache goCache, ConfigCache configCache) {
         this.goConfigService = goConfigService;
         this.goCache = goCache;
-        this.configCache = configCache;
-        this.registry = registry;
+        this.fingerprinter = new ConfigFingerprinter(configCache);
     }
 
     public void initialize() {
@@ -179,7 +186,14 @@ public class EntityHashingService implements ConfigChangedListener, Initializer
     }
 
     private String getDomainEntityMd5FromCache(Object domainObject, String cacheKey) {
-        return getFromCache(cacheKey, () -> getDomainObjectXmlPartial(domainObject));
+        Fingerprint cached = (Fingerprint) goCache.get(CONFIG_ETAG_CACHE_KEY, cacheKey);
+        if (cached != null && cached.isOf(domainObject)) {
+            return cached.md5;
+        }
+        Fingerprint fingerprint = new Fingerprint(domainObject, fingerprinter.md5(domainObject));
+        goCache.put(CONFIG_ETAG_CACHE_KEY, cacheKey, fingerprint);
+
+        return fingerprint.md5;
     }
 
     private String getFromCache(String cacheKey, Supplier<String> fingerprintSupplier) {
@@ -199,7 +213,9 @@ public class EntityHashingService implements ConfigChangedListener, Initializer
     }
 
     public void removeFromCache(Object domainObject, String name) {
-        goCache.remove(ETAG_CACHE_KEY, cacheKey(domainObject, name));
+        String cacheKey = cacheKey(domainObject, name);
+        goCache.remove(ETAG_CACHE_KEY, cacheKey);
+        goCache.remove(CONFIG_ETAG_CACHE_KEY, cacheKey);
     }
 
     private String getFromCache(String cacheKey) {
@@ -210,10 +226,6 @@ public class EntityHashingService implements ConfigChangedListener, Initializer
         return entity.getClass().getName();
     }
 
-    private String getDomainObjectXmlPartial(Object domainObject) {
-        return new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(domainObject);
-    }
-
     public String md5ForEntity(RolesConfig roles) {
         List<String> md5s = new ArrayList<>();
         for (Role role : roles) {
@@ -377,4 +389,18 @@ public class EntityHashingService implements ConfigChangedListener, Initializer
             removeFromCache(pipelineConfigs, pipelineConfigs.getGroup());
         }
     }
+
+    private static class Fingerprint {
+        private final WeakReference<Object> entity;
+        private final String md5;
+
+        private Fingerprint(Object entity, String md5) {
+            this.entity = new WeakReference<>(entity);
+            this.md5 = md5;
+        }
+
+        private boolean isOf(Object entity) {
+            return this.entity.get() == entity;
+        }
+    }
 }
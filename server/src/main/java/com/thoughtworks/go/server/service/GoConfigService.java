@@ -27,7 +27,6 @@ import com.thoughtworks.go.config.remote.ConfigOrigin;
 import com.thoughtworks.go.config.update.*;
 import com.thoughtworks.go.config.validation.GoConfigValidity;
 import com.thoughtworks.go.domain.*;
-import com.thoughtworks.go.domain.config.Admin;
 import com.thoughtworks.go.domain.materials.MaterialConfig;
 import com.thoughtworks.go.domain.packagerepository.PackageDefinition;
 import com.thoughtworks.go.domain.packagerepository.PackageRepositories;
@@ -476,32 +475,7 @@ public class GoConfigService implements Initializer, CruiseConfigProvider {
     }
 
     GoAcl readAclBy(String pipelineName, String stageName) {
-        PipelineConfig pipelineConfig = pipelineConfigNamed(new CaseInsensitiveString(pipelineName));
-        StageConfig stageConfig = pipelineConfig.findBy(new CaseInsensitiveString(stageName));
-        AdminsConfig adminsConfig = stageConfig.getApproval().getAuthConfig();
-        List<CaseInsensitiveString> users = getAuthorizedUsers(adminsConfig);
-        return new GoAcl(users);
-    }
-
-    private List<CaseInsensitiveString> getAuthorizedUsers(AdminsConfig authorizedAdmins) {
-        ArrayList<CaseInsensitiveString> users = new ArrayList<>();
-        for (Admin admin : authorizedAdmins) {
-            if (admin instanceof AdminRole) {
-                addRoleUsers(users, admin.getName());
-            } else {
-                users.add(admin.getName());
-            }
-        }
-        return users;
-    }
-
-    private void addRoleUsers(List<CaseInsensitiveString> users, final CaseInsensitiveString roleName) {
-        Role role = security().getRoles().findByName(roleName);
-        if (role != null) {
-            for (RoleUser roleUser : role.getUsers()) {
-                users.add(roleUser.getName());
-            }
-        }
+        return new GoAcl(getCurrentConfig().usersAuthorizedToOperateStage(new CaseInsensitiveString(pipelineName), new CaseInsensitiveString(stageName)));
     }
 
     public GoMailSender getMailSender() {
@@ -535,11 +509,12 @@ public class GoConfigService implements Initializer, CruiseConfigProvider {
     }
 
     public String findGroupNameByPipeline(final CaseInsensitiveString pipelineName) {
-        return getCurrentConfig().getGroups().findGroupNameByPipeline(pipelineName);
+        PipelineConfigs group = findGroupByPipeline(pipelineName);
+        return group == null ? null : group.getGroup();
     }
 
     public PipelineConfigs findGroupByPipeline(CaseInsensitiveString pipelineName) {
-        return getCurrentConfig().getGroups().findGroupByPipeline(pipelineName);
+        return getCurrentConfig().findGroupByPipeline(pipelineName);
     }
 
     public void populateAdminModel(Map<String, String> model) {
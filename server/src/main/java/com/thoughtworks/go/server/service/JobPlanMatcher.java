@@ -0,0 +1,330 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.ResourceConfig;
+import com.thoughtworks.go.config.ResourceConfigs;
+import com.thoughtworks.go.domain.AgentInstance;
+import com.thoughtworks.go.domain.JobPlan;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static java.util.Comparator.comparingLong;
+
+/**
+ * @understands finding the first scheduled job an agent can run without scanning every scheduled job
+ * <p>
+ * Scheduled jobs are indexed by the environment of their pipeline and then by what an agent needs to run them: the
+ * agent they are pinned to, the set of resources they require, or the elastic plugin they require. An agent only
+ * looks at the earliest job in each group it can satisfy, so the cost of a match grows with the number of distinct
+ * groups rather than with the number of scheduled jobs.
+ * <p>
+ * A job handed out by {@link #claimFirstMatch} or taken out by {@link #remove} is remembered as claimed until a reload
+ * no longer reports it as scheduled, so that a reload racing with an assignment does not put it back in the queue.
+ */
+class JobPlanMatcher {
+    private static final String NO_ENVIRONMENT = "";
+
+    private final EnvironmentConfigService environmentConfigService;
+    private final ConcurrentMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, EnvironmentJobs> environments = new ConcurrentHashMap<>();
+    private final Set<Long> claimed = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, Object> assignmentLocks = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    JobPlanMatcher(EnvironmentConfigService environmentConfigService) {
+        this.environmentConfigService = environmentConfigService;
+    }
+
+    /**
+     * Brings the index in line with the jobs that are currently scheduled. Jobs seen for the first time are queued
+     * behind the ones already indexed, in the order given.
+     *
+     * @return the jobs that were waiting before the reload
+     */
+    synchronized List<JobPlan> reload(List<JobPlan> scheduledJobs) {
+        List<JobPlan> previous = jobPlans();
+
+        Set<Long> scheduledIds = new HashSet<>();
+        for (JobPlan jobPlan : scheduledJobs) {
+            scheduledIds.add(jobPlan.getJobId());
+            if (!entries.containsKey(jobPlan.getJobId()) && !claimed.contains(jobPlan.getJobId())) {
+                link(new Entry(jobPlan, sequence.incrementAndGet(), environmentOf(jobPlan)));
+            }
+        }
+        claimed.retainAll(scheduledIds);
+
+        for (Entry entry : entries.values()) {
+            if (!scheduledIds.contains(entry.jobId()) && entries.remove(entry.jobId(), entry)) {
+                unlink(entry);
+            }
+        }
+        environments.values().forEach(EnvironmentJobs::removeEmptyGroups);
+
+        return previous;
+    }
+
+    /**
+     * Finds the earliest scheduled job the agent can run and takes it out of the queue. Elastic agents are only
+     * offered jobs that require their plugin and that {@code elasticAgentAccepts}.
+     */
+    JobPlan claimFirstMatch(AgentInstance agent, Predicate<JobPlan> elasticAgentAccepts) {
+        Set<String> agentEnvironments = environmentsOf(agent);
+        return agent.isElastic() ? claimForElasticAgent(agent, agentEnvironments, elasticAgentAccepts) : claimForAgent(agent, agentEnvironments);
+    }
+
+    /**
+     * Takes a job out of the queue so that it is not handed out to any agent.
+     *
+     * @return true if the job was waiting to be assigned
+     */
+    boolean remove(JobPlan jobPlan) {
+        return remove(jobPlan.getJobId());
+    }
+
+    boolean remove(long jobId) {
+        claimed.add(jobId);
+        Entry entry = entries.remove(jobId);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry);
+        return true;
+    }
+
+    /**
+     * Forgets a claim on a job that could not be assigned after all, so that it is queued again on the next reload
+     * if it is still scheduled.
+     */
+    void release(JobPlan jobPlan) {
+        claimed.remove(jobPlan.getJobId());
+    }
+
+    /**
+     * Agents that share the same environments assign work one at a time; agents in different environments do not
+     * wait for each other.
+     */
+    Object assignmentLockFor(AgentInstance agent) {
+        String key = String.join(",", environmentsOf(agent));
+        return assignmentLocks.computeIfAbsent(key, k -> new Object());
+    }
+
+    List<JobPlan> jobPlans() {
+        List<Entry> waiting = new ArrayList<>(entries.values());
+        waiting.sort(comparingLong(Entry::sequence));
+        List<JobPlan> jobPlans = new ArrayList<>(waiting.size());
+        for (Entry entry : waiting) {
+            jobPlans.add(entry.jobPlan);
+        }
+        return jobPlans;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private JobPlan claimForAgent(AgentInstance agent, Set<String> agentEnvironments) {
+        ResourceConfigs agentResources = agent.getResourceConfigs();
+        while (true) {
+            Entry earliest = null;
+            for (String environment : agentEnvironments) {
+                EnvironmentJobs jobs = environments.get(environment);
+                if (jobs == null) {
+                    continue;
+                }
+                earliest = earlier(earliest, head(jobs.pinnedToAgent.get(agent.getUuid())));
+                for (Map.Entry<Set<ResourceConfig>, NavigableSet<Entry>> group : jobs.byResources.entrySet()) {
+                    if (agentResources.containsAll(group.getKey())) {
+                        earliest = earlier(earliest, head(group.getValue()));
+                    }
+                }
+            }
+
+            if (earliest == null) {
+                return null;
+            }
+            if (isInCurrentEnvironment(earliest) && claim(earliest)) {
+                return earliest.jobPlan;
+            }
+        }
+    }
+
+    private JobPlan claimForElasticAgent(AgentInstance agent, Set<String> agentEnvironments, Predicate<JobPlan> elasticAgentAccepts) {
+        String pluginId = agent.elasticAgentMetadata().elasticPluginId();
+        List<Entry> candidates = new ArrayList<>();
+        for (String environment : agentEnvironments) {
+            EnvironmentJobs jobs = environments.get(environment);
+            NavigableSet<Entry> group = jobs == null ? null : jobs.elasticByPlugin.get(pluginId);
+            if (group != null) {
+                candidates.addAll(group);
+            }
+        }
+        candidates.sort(comparingLong(Entry::sequence));
+
+        for (Entry candidate : candidates) {
+            if (isInCurrentEnvironment(candidate) && elasticAgentAccepts.test(candidate.jobPlan) && claim(candidate)) {
+                return candidate.jobPlan;
+            }
+        }
+        return null;
+    }
+
+    private boolean claim(Entry entry) {
+        if (!claimed.add(entry.jobId())) {
+            return false;
+        }
+        boolean waiting = entries.remove(entry.jobId(), entry);
+        unlink(entry);
+        if (!waiting) {
+            claimed.remove(entry.jobId());
+        }
+        return waiting;
+    }
+
+    // a pipeline may have moved to another environment since its jobs were indexed; move the job before matching it
+    private boolean isInCurrentEnvironment(Entry entry) {
+        String environment = environmentOf(entry.jobPlan);
+        if (environment.equals(entry.environment)) {
+            return true;
+        }
+
+        synchronized (this) {
+            Entry moved = new Entry(entry.jobPlan, entry.sequence, environment);
+            if (entries.replace(entry.jobId(), entry, moved)) {
+                link(moved);
+            }
+            unlink(entry);
+        }
+        return false;
+    }
+
+    private void link(Entry entry) {
+        entries.put(entry.jobId(), entry);
+        environments.computeIfAbsent(entry.environment, environment -> new EnvironmentJobs()).groupOf(entry).add(entry);
+    }
+
+    private void unlink(Entry entry) {
+        EnvironmentJobs jobs = environments.get(entry.environment);
+        if (jobs != null) {
+            NavigableSet<Entry> group = jobs.existingGroupOf(entry);
+            if (group != null) {
+                group.remove(entry);
+            }
+        }
+    }
+
+    private String environmentOf(JobPlan jobPlan) {
+        String environment = environmentConfigService.envForPipeline(jobPlan.getPipelineName());
+        return StringUtils.isBlank(environment) ? NO_ENVIRONMENT : environment.toLowerCase();
+    }
+
+    private Set<String> environmentsOf(AgentInstance agent) {
+        Set<String> agentEnvironments = new TreeSet<>();
+        for (String environment : environmentConfigService.environmentsFor(agent.getUuid())) {
+            agentEnvironments.add(environment.toLowerCase());
+        }
+        if (agentEnvironments.isEmpty()) {
+            agentEnvironments.add(NO_ENVIRONMENT);
+        }
+        return agentEnvironments;
+    }
+
+    private static Entry head(NavigableSet<Entry> group) {
+        if (group == null) {
+            return null;
+        }
+        Iterator<Entry> iterator = group.iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private static Entry earlier(Entry current, Entry candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        return current == null || candidate.sequence < current.sequence ? candidate : current;
+    }
+
+    private static Set<ResourceConfig> requiredResources(JobPlan jobPlan) {
+        return jobPlan.getResources() == null ? Collections.emptySet() : new HashSet<>(jobPlan.getResources().toResourceConfigs());
+    }
+
+    private static class EnvironmentJobs {
+        private final ConcurrentMap<String, NavigableSet<Entry>> pinnedToAgent = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Set<ResourceConfig>, NavigableSet<Entry>> byResources = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, NavigableSet<Entry>> elasticByPlugin = new ConcurrentHashMap<>();
+
+        private NavigableSet<Entry> groupOf(Entry entry) {
+            JobPlan jobPlan = entry.jobPlan;
+            if (jobPlan.requiresElasticAgent()) {
+                return elasticByPlugin.computeIfAbsent(jobPlan.getElasticProfile().getPluginId(), key -> newGroup());
+            }
+            if (!jobPlan.assignedToAgent()) {
+                return pinnedToAgent.computeIfAbsent(jobPlan.getAgentUuid(), key -> newGroup());
+            }
+            return byResources.computeIfAbsent(entry.resources, key -> newGroup());
+        }
+
+        private NavigableSet<Entry> existingGroupOf(Entry entry) {
+            JobPlan jobPlan = entry.jobPlan;
+            if (jobPlan.requiresElasticAgent()) {
+                return elasticByPlugin.get(jobPlan.getElasticProfile().getPluginId());
+            }
+            if (!jobPlan.assignedToAgent()) {
+                return pinnedToAgent.get(jobPlan.getAgentUuid());
+            }
+            return byResources.get(entry.resources);
+        }
+
+        private void removeEmptyGroups() {
+            pinnedToAgent.values().removeIf(Set::isEmpty);
+            byResources.values().removeIf(Set::isEmpty);
+            elasticByPlugin.values().removeIf(Set::isEmpty);
+        }
+
+        private static NavigableSet<Entry> newGroup() {
+            return new ConcurrentSkipListSet<>(comparingLong(Entry::sequence));
+        }
+    }
+
+    private static class Entry {
+        private final JobPlan jobPlan;
+        private final long sequence;
+        private final String environment;
+        private final Set<ResourceConfig> resources;
+
+        private Entry(JobPlan jobPlan, long sequence, String environment) {
+            this.jobPlan = jobPlan;
+            this.sequence = sequence;
+            this.environment = environment;
+            this.resources = requiredResources(jobPlan);
+        }
+
+        private long jobId() {
+            return jobPlan.getJobId();
+        }
+
+        private long sequence() {
+            return sequence;
+        }
+    }
+}
@@ -393,10 +393,11 @@ public class PipelineHistoryService {
                 activePipeline.setMingleConfig(pipelineConfig.getMingleConfig());
                 populatePlaceHolderStages(activePipeline);
 
-                String groupName = groups.findGroupNameByPipeline(pipelineName);
-                if (groupName == null) {
+                PipelineConfigs group = currentConfig.findGroupByPipeline(pipelineName);
+                if (group == null) {
                     throw new RuntimeException("Unable to find group find pipeline " + pipelineName);
                 }
+                String groupName = group.getGroup();
                 populatePreviousStageState(activePipeline);
                 populateLockStatus(activePipeline.getName(), username, activePipeline);
                 boolean canForce = schedulingCheckerService.canManuallyTrigger(CaseInsensitiveString.str(pipelineName), username);
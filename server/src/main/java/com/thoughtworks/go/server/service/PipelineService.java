@@ -33,6 +33,7 @@ import com.thoughtworks.go.server.domain.PipelineConfigDependencyGraph;
 import com.thoughtworks.go.server.domain.PipelineTimeline;
 import com.thoughtworks.go.server.persistence.MaterialRepository;
 import com.thoughtworks.go.server.service.dd.FanInGraph;
+import com.thoughtworks.go.server.service.dd.FanInResolutionCache;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.lang.StringUtils;
@@ -60,10 +61,12 @@ public class PipelineService implements UpstreamPipelineResolver {
     private final SystemEnvironment systemEnvironment;
     private final GoConfigService goConfigService;
     private MaterialConfigConverter materialConfigConverter;
+    private final FanInResolutionCache fanInResolutionCache;
 
     @Autowired
     public PipelineService(PipelineSqlMapDao pipelineDao, StageService stageService, PipelineLockService pipelineLockService, PipelineTimeline pipelineTimeline, MaterialRepository materialRepository,
-                           TransactionTemplate transactionTemplate, SystemEnvironment systemEnvironment, GoConfigService goConfigService, MaterialConfigConverter materialConfigConverter) {
+                           TransactionTemplate transactionTemplate, SystemEnvironment systemEnvironment, GoConfigService goConfigService, MaterialConfigConverter materialConfigConverter,
+                           FanInResolutionCache fanInResolutionCache) {
         this.pipelineDao = pipelineDao;
         this.stageService = stageService;
         this.pipelineLockService = pipelineLockService;
@@ -73,6 +76,7 @@ public class PipelineService implements UpstreamPipelineResolver {
         this.systemEnvironment = systemEnvironment;
         this.goConfigService = goConfigService;
         this.materialConfigConverter = materialConfigConverter;
+        this.fanInResolutionCache = fanInResolutionCache;
     }
 
     public Pipeline fullPipelineById(long pipelineId) {
@@ -217,7 +221,7 @@ public class PipelineService implements UpstreamPipelineResolver {
     /* DIAMOND BEGIN */
 
     public MaterialRevisions getRevisionsBasedOnDependencies(MaterialRevisions actualRevisions, CruiseConfig cruiseConfig, CaseInsensitiveString pipelineName) {
-        FanInGraph fanInGraph = new FanInGraph(cruiseConfig, pipelineName, materialRepository, pipelineDao, systemEnvironment, materialConfigConverter);
+        FanInGraph fanInGraph = new FanInGraph(cruiseConfig, pipelineName, materialRepository, pipelineDao, systemEnvironment, materialConfigConverter, fanInResolutionCache);
         final MaterialRevisions computedRevisions = fanInGraph.computeRevisions(actualRevisions, pipelineTimeline);
         fillUpNonOverridableRevisions(actualRevisions, computedRevisions);
         return restoreOriginalMaterialConfigAndMaterialOrderUsingFingerprint(actualRevisions, computedRevisions);
@@ -226,7 +230,7 @@ public class PipelineService implements UpstreamPipelineResolver {
     // This is for debugging purposes
     public String getRevisionsBasedOnDependenciesForDebug(CaseInsensitiveString pipelineName, final Integer targetIterationCount) {
         CruiseConfig cruiseConfig = goConfigService.getCurrentConfig();
-        FanInGraph fanInGraph = new FanInGraph(cruiseConfig, pipelineName, materialRepository, pipelineDao, systemEnvironment, materialConfigConverter);
+        FanInGraph fanInGraph = new FanInGraph(cruiseConfig, pipelineName, materialRepository, pipelineDao, systemEnvironment, materialConfigConverter, fanInResolutionCache);
         final String[] iterationData = {null};
         fanInGraph.setFanInEventListener((iterationCount, dependencyFanInNodes) -> {
             if (iterationCount == targetIterationCount) {
@@ -267,7 +271,7 @@ public class PipelineService implements UpstreamPipelineResolver {
     //Srikant & Sachin
     @Deprecated
     public Collection<MaterialRevision> getRevisionsBasedOnDependenciesForReporting(CruiseConfig cruiseConfig, CaseInsensitiveString pipelineName) {
-        FanInGraph fanInGraph = new FanInGraph(cruiseConfig, pipelineName, materialRepository, pipelineDao, systemEnvironment, materialConfigConverter);
+        FanInGraph fanInGraph = new FanInGraph(cruiseConfig, pipelineName, materialRepository, pipelineDao, systemEnvironment, materialConfigConverter, fanInResolutionCache);
         return fanInGraph.computeRevisionsForReporting(pipelineName, pipelineTimeline);
     }
 
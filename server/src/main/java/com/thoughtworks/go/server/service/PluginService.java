@@ -28,6 +28,7 @@ import com.thoughtworks.go.plugin.api.response.validation.ValidationError;
 import com.thoughtworks.go.plugin.api.response.validation.ValidationResult;
 import com.thoughtworks.go.plugin.domain.common.PluginInfo;
 import com.thoughtworks.go.plugin.infra.PluginManager;
+import com.thoughtworks.go.server.cache.CacheKeyGenerator;
 import com.thoughtworks.go.server.dao.PluginDao;
 import com.thoughtworks.go.server.domain.PluginSettings;
 import com.thoughtworks.go.server.domain.Username;
@@ -199,7 +200,7 @@ public class PluginService {
     }
 
     private String keyToLockOn(String pluginId) {
-        return (getClass().getName() + "_plugin_settings_" + pluginId).intern();
+        return CacheKeyGenerator.intern(getClass().getName() + "_plugin_settings_" + pluginId);
     }
 
     private GoPluginExtension findExtensionWhichCanHandleSettingsFor(String pluginId) {
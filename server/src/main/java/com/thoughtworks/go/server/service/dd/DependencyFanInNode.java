@@ -21,8 +21,6 @@ import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
 import com.thoughtworks.go.domain.PipelineTimelineEntry;
 import com.thoughtworks.go.domain.StageIdentifier;
 import com.thoughtworks.go.domain.materials.MaterialConfig;
-import com.thoughtworks.go.domain.materials.dependency.DependencyMaterialRevision;
-import com.thoughtworks.go.server.domain.PipelineTimeline;
 import com.thoughtworks.go.server.service.NoCompatibleUpstreamRevisionsException;
 import com.thoughtworks.go.util.Pair;
 import org.apache.commons.collections4.CollectionUtils;
@@ -30,7 +28,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static com.thoughtworks.go.server.service.dd.DependencyFanInNode.RevisionAlteration.*;
 
@@ -133,28 +130,14 @@ public class DependencyFanInNode extends FanInNode {
     }
 
     private Pair<StageIdentifier, List<FaninScmMaterial>> getRevisionNthFor(int n, FanInGraphContext context) {
-        List<FaninScmMaterial> scmMaterials = new ArrayList<>();
-        PipelineTimeline pipelineTimeline = context.pipelineTimeline;
-        Queue<PipelineTimelineEntry.Revision> revisionQueue = new ConcurrentLinkedQueue<>();
         DependencyMaterialConfig dependencyMaterial = (DependencyMaterialConfig) materialConfig;
-        PipelineTimelineEntry entry = pipelineTimeline.instanceFor(dependencyMaterial.getPipelineName(), totalInstanceCount - n);
-
-        Set<CaseInsensitiveString> visitedNodes = new HashSet<>();
+        PipelineTimelineEntry entry = context.pipelineTimeline.instanceFor(dependencyMaterial.getPipelineName(), totalInstanceCount - n);
 
         StageIdentifier dependentStageIdentifier = dependentStageIdentifier(context, entry, CaseInsensitiveString.str(dependencyMaterial.getStageName()));
-        if (!StageIdentifier.NULL.equals(dependentStageIdentifier)) {
-            addToRevisionQueue(entry, revisionQueue, scmMaterials, context, visitedNodes);
-        } else {
+        if (StageIdentifier.NULL.equals(dependentStageIdentifier)) {
             return null;
         }
-        while (!revisionQueue.isEmpty()) {
-            PipelineTimelineEntry.Revision revision = revisionQueue.poll();
-            DependencyMaterialRevision dmr = DependencyMaterialRevision.create(revision.revision, null);
-            PipelineTimelineEntry pte = pipelineTimeline.getEntryFor(new CaseInsensitiveString(dmr.getPipelineName()), dmr.getPipelineCounter());
-            addToRevisionQueue(pte, revisionQueue, scmMaterials, context, visitedNodes);
-        }
-
-        return new Pair<>(dependentStageIdentifier, scmMaterials);
+        return new Pair<>(dependentStageIdentifier, context.fanInResolutionCache.scmMaterialsFor(entry, context));
     }
 
     private boolean validateAllScmRevisionsAreSameWithinAFingerprint(Pair<StageIdentifier, List<FaninScmMaterial>> pIdScmPair) {
@@ -204,31 +187,6 @@ public class DependencyFanInNode extends FanInNode {
         return context.pipelineDao.latestPassedStageIdentifier(entry.getId(), stageName);
     }
 
-    private void addToRevisionQueue(PipelineTimelineEntry entry, Queue<PipelineTimelineEntry.Revision> revisionQueue, List<FaninScmMaterial> scmMaterials,
-                                    FanInGraphContext context, Set<CaseInsensitiveString> visitedNodes) {
-        for (Map.Entry<String, List<PipelineTimelineEntry.Revision>> revisionList : entry.revisions().entrySet()) {
-            String fingerprint = revisionList.getKey();
-            PipelineTimelineEntry.Revision revision = revisionList.getValue().get(0);
-            if (isScmMaterial(fingerprint, context)) {
-                scmMaterials.add(new FaninScmMaterial(fingerprint, revision));
-                continue;
-            }
-
-            if (isDependencyMaterial(fingerprint, context) && !visitedNodes.contains(new CaseInsensitiveString(revision.revision))) {
-                revisionQueue.add(revision);
-                visitedNodes.add(new CaseInsensitiveString(revision.revision));
-            }
-        }
-    }
-
-    private boolean isDependencyMaterial(String fingerprint, FanInGraphContext context) {
-        return context.fingerprintDepMaterialMap.containsKey(fingerprint);
-    }
-
-    private boolean isScmMaterial(String fingerprint, FanInGraphContext context) {
-        return context.fingerprintScmMaterialMap.containsKey(fingerprint);
-    }
-
     private boolean hasMoreInstances() {
         if (currentCount > maxBackTrackLimit) {
             throw new MaxBackTrackLimitReachedException(materialConfig);
@@ -35,6 +35,7 @@ import com.thoughtworks.go.server.persistence.MaterialRepository;
 import com.thoughtworks.go.server.service.MaterialConfigConverter;
 import com.thoughtworks.go.server.service.NoCompatibleUpstreamRevisionsException;
 import com.thoughtworks.go.server.service.NoModificationsPresentForDependentMaterialException;
+import com.thoughtworks.go.util.CachedDigestUtils;
 import com.thoughtworks.go.util.Pair;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.collections4.CollectionUtils;
@@ -50,6 +51,7 @@ public class FanInGraph {
     private final CruiseConfig cruiseConfig;
     private final MaterialRepository materialRepository;
     private MaterialConfigConverter materialConfigConverter;
+    private final FanInResolutionCache fanInResolutionCache;
 
     private final Map<String, FanInNode> nodes = new HashMap<>();
     private final Map<String, MaterialConfig> fingerprintScmMaterialMap = new HashMap<>();
@@ -62,13 +64,14 @@ public class FanInGraph {
     private FanInEventListener fanInEventListener;
 
     public FanInGraph(CruiseConfig cruiseConfig, CaseInsensitiveString root, MaterialRepository materialRepository, PipelineDao pipelineDao, SystemEnvironment systemEnvironment,
-                      MaterialConfigConverter materialConfigConverter) {
+                      MaterialConfigConverter materialConfigConverter, FanInResolutionCache fanInResolutionCache) {
         this.cruiseConfig = cruiseConfig;
         this.materialRepository = materialRepository;
         this.pipelineDao = pipelineDao;
         this.pipelineName = root;
         this.systemEnvironment = systemEnvironment;
         this.materialConfigConverter = materialConfigConverter;
+        this.fanInResolutionCache = fanInResolutionCache;
 
         PipelineConfig target = cruiseConfig.pipelineConfigByName(root);
         this.root = (DependencyFanInNode) FanInNodeFactory.create(new DependencyMaterialConfig(target.name(), target.get(0).name()));
@@ -388,9 +391,15 @@ public class FanInGraph {
         context.fingerprintDepMaterialMap = fingerprintDepMaterialMap;
         context.pipelineDao = pipelineDao;
         context.maxBackTrackLimit = systemEnvironment.get(SystemEnvironment.RESOLVE_FANIN_MAX_BACK_TRACK_LIMIT);
+        context.fanInResolutionCache = fanInResolutionCache;
+        context.graphShape = graphShape();
         return context;
     }
 
+    private String graphShape() {
+        return CachedDigestUtils.md5Hex(new TreeSet<>(fingerprintScmMaterialMap.keySet()) + "/" + new TreeSet<>(fingerprintDepMaterialMap.keySet()));
+    }
+
     private Collection<MaterialRevision> getMaterialsFromCurrentPipeline(List<MaterialRevision> finalRevisionsForScmChildren, MaterialRevisions actualRevisions) {
         List<MaterialRevision> updatedRevisions = new ArrayList<>();
         for (MaterialRevision revisionsForScmChild : finalRevisionsForScmChildren) {
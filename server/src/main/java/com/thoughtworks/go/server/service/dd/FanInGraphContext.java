@@ -16,6 +16,8 @@
 
 package com.thoughtworks.go.server.service.dd;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -32,4 +34,7 @@ public class FanInGraphContext {
     public Map<String, DependencyMaterialConfig> fingerprintDepMaterialMap;
     public PipelineDao pipelineDao;
     public int maxBackTrackLimit;
+    FanInResolutionCache fanInResolutionCache;
+    String graphShape;
+    Map<Long, List<FaninScmMaterial>> resolvedScmMaterials = new HashMap<>();
 }
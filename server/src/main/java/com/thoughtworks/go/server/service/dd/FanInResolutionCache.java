@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service.dd;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.domain.PipelineTimelineEntry;
+import com.thoughtworks.go.domain.materials.dependency.DependencyMaterialRevision;
+import com.thoughtworks.go.server.cache.CacheKeyGenerator;
+import com.thoughtworks.go.server.cache.GoCache;
+import com.thoughtworks.go.util.Pair;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * @understands the scm revisions that went into a pipeline instance, as seen by the fan-in graph of a pipeline
+ * <p>
+ * The scm revisions of an instance are its own scm revisions and those of the upstream instances it was triggered by.
+ * They are resolved once for each graph shape and instance, from the resolutions of the upstream instances, so an
+ * instance newly added to the pipeline timeline is resolved from its direct materials instead of by walking its
+ * history again. Timeline entries do not change once added, so a resolution never has to be invalidated; resolutions
+ * for graph shapes that are no longer configured age out of the cache.
+ */
+@Component
+public class FanInResolutionCache {
+    private final GoCache goCache;
+    private final CacheKeyGenerator cacheKeyGenerator;
+
+    @Autowired
+    public FanInResolutionCache(GoCache goCache) {
+        this.goCache = goCache;
+        this.cacheKeyGenerator = new CacheKeyGenerator(getClass());
+    }
+
+    /**
+     * @return every distinct scm revision that went into the instance, including conflicting revisions of one material
+     */
+    List<FaninScmMaterial> scmMaterialsFor(PipelineTimelineEntry entry, FanInGraphContext context) {
+        List<FaninScmMaterial> scmMaterials = context.resolvedScmMaterials.get(entry.getId());
+        if (scmMaterials != null) {
+            return scmMaterials;
+        }
+
+        String cacheKey = cacheKeyGenerator.generate("scmMaterialsFor", context.graphShape, entry.getId());
+        scmMaterials = (List<FaninScmMaterial>) goCache.get(cacheKey);
+        if (scmMaterials == null) {
+            scmMaterials = resolve(entry, context);
+            goCache.put(cacheKey, scmMaterials);
+        }
+        context.resolvedScmMaterials.put(entry.getId(), scmMaterials);
+        return scmMaterials;
+    }
+
+    private List<FaninScmMaterial> resolve(PipelineTimelineEntry entry, FanInGraphContext context) {
+        List<FaninScmMaterial> scmMaterials = new ArrayList<>();
+        Set<Pair<String, PipelineTimelineEntry.Revision>> seen = new HashSet<>();
+        for (Map.Entry<String, List<PipelineTimelineEntry.Revision>> revisionList : entry.revisions().entrySet()) {
+            String fingerprint = revisionList.getKey();
+            PipelineTimelineEntry.Revision revision = revisionList.getValue().get(0);
+            if (context.fingerprintScmMaterialMap.containsKey(fingerprint)) {
+                addIfNotSeen(scmMaterials, seen, new FaninScmMaterial(fingerprint, revision));
+            } else if (context.fingerprintDepMaterialMap.containsKey(fingerprint)) {
+                DependencyMaterialRevision dmr = DependencyMaterialRevision.create(revision.revision, null);
+                PipelineTimelineEntry upstream = context.pipelineTimeline.getEntryFor(new CaseInsensitiveString(dmr.getPipelineName()), dmr.getPipelineCounter());
+                for (FaninScmMaterial scmMaterial : scmMaterialsFor(upstream, context)) {
+                    addIfNotSeen(scmMaterials, seen, scmMaterial);
+                }
+            }
+        }
+        return Collections.unmodifiableList(scmMaterials);
+    }
+
+    private void addIfNotSeen(List<FaninScmMaterial> scmMaterials, Set<Pair<String, PipelineTimelineEntry.Revision>> seen, FaninScmMaterial scmMaterial) {
+        if (seen.add(new Pair<>(scmMaterial.fingerprint, scmMaterial.revision))) {
+            scmMaterials.add(scmMaterial);
+        }
+    }
+}
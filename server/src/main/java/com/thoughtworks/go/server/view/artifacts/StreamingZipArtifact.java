@@ -0,0 +1,44 @@
+/*************************GO-LICENSE-START*********************************
+ * Copyright 2014 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *************************GO-LICENSE-END***********************************/
+
+package com.thoughtworks.go.server.view.artifacts;
+
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.thoughtworks.go.server.cache.ZipArtifactCache;
+import com.thoughtworks.go.server.web.ArtifactFolder;
+import org.springframework.web.servlet.view.AbstractView;
+
+/**
+ * @understands sending an artifact folder as a zip that is made while it is sent
+ */
+public class StreamingZipArtifact extends AbstractView {
+    private final ZipArtifactCache zipArtifactCache;
+    private final ArtifactFolder artifactFolder;
+
+    public StreamingZipArtifact(ZipArtifactCache zipArtifactCache, ArtifactFolder artifactFolder) {
+        this.zipArtifactCache = zipArtifactCache;
+        this.artifactFolder = artifactFolder;
+        setContentType("application/zip");
+    }
+
+    protected void renderMergedOutputModel(Map model, HttpServletRequest request, HttpServletResponse response) throws Exception {
+        response.setContentType(getContentType());
+        zipArtifactCache.streamZip(artifactFolder, response.getOutputStream());
+    }
+}
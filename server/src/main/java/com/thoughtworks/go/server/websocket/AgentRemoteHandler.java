@@ -22,7 +22,7 @@ import com.thoughtworks.go.remote.AgentInstruction;
 import com.thoughtworks.go.remote.BuildRepositoryRemote;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
 import com.thoughtworks.go.server.service.AgentService;
-import com.thoughtworks.go.server.service.ConsoleService;
+import com.thoughtworks.go.server.service.ConsoleLogSink;
 import com.thoughtworks.go.server.service.JobInstanceService;
 import com.thoughtworks.go.websocket.*;
 import org.slf4j.Logger;
@@ -31,7 +31,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -49,14 +48,14 @@ public class AgentRemoteHandler {
     private AgentService agentService;
     @Autowired
     private JobInstanceService jobInstanceService;
-    private ConsoleService consoleService;
+    private ConsoleLogSink consoleLogSink;
 
     @Autowired
-    public AgentRemoteHandler(@Qualifier("buildRepositoryMessageProducer") BuildRepositoryRemote buildRepositoryRemote, AgentService agentService, JobInstanceService jobInstanceService, ConsoleService consoleService) {
+    public AgentRemoteHandler(@Qualifier("buildRepositoryMessageProducer") BuildRepositoryRemote buildRepositoryRemote, AgentService agentService, JobInstanceService jobInstanceService, ConsoleLogSink consoleLogSink) {
         this.buildRepositoryRemote = buildRepositoryRemote;
         this.agentService = agentService;
         this.jobInstanceService = jobInstanceService;
-        this.consoleService = consoleService;
+        this.consoleLogSink = consoleLogSink;
     }
 
     public void process(Agent agent, Message msg) throws Exception {
@@ -70,7 +69,7 @@ public class AgentRemoteHandler {
     public void processWithoutAcknowledgement(Agent agent, Message msg) throws Exception {
         switch (msg.getAction()) {
             case ping:
-                AgentRuntimeInfo info = MessageEncoding.decodeData(msg.getData(), AgentRuntimeInfo.class);
+                AgentRuntimeInfo info = msg.getPayload(AgentRuntimeInfo.class);
                 if (!sessionIds.containsKey(agent)) {
                     LOGGER.info("{} is connected with websocket {}", info.getIdentifier(), agent);
                     sessionIds.put(agent, info.getUUId());
@@ -91,21 +90,21 @@ public class AgentRemoteHandler {
                 }
                 break;
             case reportCurrentStatus:
-                Report report = MessageEncoding.decodeData(msg.getData(), Report.class);
+                Report report = msg.getPayload(Report.class);
                 buildRepositoryRemote.reportCurrentStatus(report.getAgentRuntimeInfo(), findJobIdentifier(report), report.getJobState());
                 break;
             case reportCompleting:
-                report = MessageEncoding.decodeData(msg.getData(), Report.class);
+                report = msg.getPayload(Report.class);
                 buildRepositoryRemote.reportCompleting(report.getAgentRuntimeInfo(), findJobIdentifier(report), report.getResult());
                 break;
             case reportCompleted:
-                report = MessageEncoding.decodeData(msg.getData(), Report.class);
+                report = msg.getPayload(Report.class);
                 buildRepositoryRemote.reportCompleted(report.getAgentRuntimeInfo(), findJobIdentifier(report), report.getResult());
                 break;
             case consoleOut:
                 ConsoleTransmission consoleTransmission = MessageEncoding.decodeData(msg.getData(), ConsoleTransmission.class);
-                File consoleLogFile = consoleService.consoleLogFile(findJobIdentifier(consoleTransmission));
-                consoleService.updateConsoleLog(consoleLogFile, consoleTransmission.getLineAsStream());
+                JobIdentifier jobIdentifier = findJobIdentifier(consoleTransmission);
+                consoleLogSink.append(jobIdentifier, consoleTransmission.getLine().getBytes());
                 break;
             default:
                 throw new RuntimeException("Unknown action: " + msg.getAction());
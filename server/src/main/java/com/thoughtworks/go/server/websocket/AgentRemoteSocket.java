@@ -30,10 +30,15 @@ import java.nio.ByteBuffer;
 public class AgentRemoteSocket implements Agent {
     private static final Logger LOGGER = LoggerFactory.getLogger(AgentRemoteSocket.class);
     private AgentRemoteHandler handler;
+    private final boolean binaryMessages;
     private Session session;
 
-    public AgentRemoteSocket(AgentRemoteHandler handler) {
+    /**
+     * @param binaryMessages whether the agent asked for messages in their binary form
+     */
+    public AgentRemoteSocket(AgentRemoteHandler handler, boolean binaryMessages) {
         this.handler = handler;
+        this.binaryMessages = binaryMessages;
     }
 
     @OnWebSocketConnect
@@ -68,7 +73,7 @@ public class AgentRemoteSocket implements Agent {
     @Override
     public void send(final Message msg) {
         LOGGER.debug("{} send message: {}", sessionName(), msg);
-        session.getRemote().sendBytesByFuture(ByteBuffer.wrap(MessageEncoding.encodeMessage(msg)));
+        session.getRemote().sendBytesByFuture(ByteBuffer.wrap(MessageEncoding.encodeMessage(msg, binaryMessages)));
     }
 
     private String sessionName() {
@@ -18,12 +18,14 @@ package com.thoughtworks.go.server.websocket;
 
 import com.thoughtworks.go.domain.ConsoleConsumer;
 import com.thoughtworks.go.domain.JobIdentifier;
-import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.messaging.JobStatusTopic;
 import com.thoughtworks.go.server.service.ConsoleService;
+import com.thoughtworks.go.server.service.JobInstanceService;
 import com.thoughtworks.go.server.util.Retryable;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.io.output.ProxyOutputStream;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,6 +36,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
 import java.util.zip.GZIPOutputStream;
 
 @Component
@@ -45,6 +53,8 @@ public class ConsoleLogSender {
     private static final int BUF_SIZE = 1024 * 1024; // 1MB
     private static final int FILL_INTERVAL = 500;
     private final Charset charset;
+    private final ScheduledExecutorService executor;
+    private final ConcurrentHashMap<Long, ConsoleLogTail> tails = new ConcurrentHashMap<>();
 
     @Autowired
     private ConsoleService consoleService;
@@ -55,14 +65,43 @@ public class ConsoleLogSender {
     @Autowired
     private SocketHealthService socketHealthService;
 
+    private JobStatusTopic jobStatusTopic;
+    private JobInstanceService jobInstanceService;
+
     @Autowired
-    ConsoleLogSender(ConsoleService consoleService, JobInstanceDao jobInstanceDao, SocketHealthService socketHealthService, SystemEnvironment systemEnvironment) {
+    ConsoleLogSender(ConsoleService consoleService, JobInstanceDao jobInstanceDao, SocketHealthService socketHealthService, SystemEnvironment systemEnvironment,
+                     JobStatusTopic jobStatusTopic, JobInstanceService jobInstanceService) {
+        this(consoleService, jobInstanceDao, socketHealthService, systemEnvironment, jobStatusTopic, jobInstanceService,
+                Executors.newScheduledThreadPool(systemEnvironment.get(SystemEnvironment.CONSOLE_LOG_TAIL_THREADS),
+                        new BasicThreadFactory.Builder().namingPattern("console-log-tail-%d").daemon(true).build()));
+    }
+
+    ConsoleLogSender(ConsoleService consoleService, JobInstanceDao jobInstanceDao, SocketHealthService socketHealthService, SystemEnvironment systemEnvironment,
+                     JobStatusTopic jobStatusTopic, JobInstanceService jobInstanceService, ScheduledExecutorService executor) {
         this.consoleService = consoleService;
         this.jobInstanceDao = jobInstanceDao;
         this.socketHealthService = socketHealthService;
+        this.jobStatusTopic = jobStatusTopic;
+        this.jobInstanceService = jobInstanceService;
+        this.executor = executor;
         this.charset = systemEnvironment.consoleLogCharsetAsCharset();
     }
 
+    public void initialize() {
+        consoleService.addListener(this::consoleLogUpdated);
+        jobStatusTopic.addListener(message -> {
+            if (message.getJobState().isCompleted()) {
+                jobCompleted(message.getJobIdentifier());
+            }
+        });
+        // cancellations and reschedules do not go through the job status topic
+        jobInstanceService.registerJobStateChangeListener(job -> {
+            if (job.isCompleted() || job.isRescheduled()) {
+                jobCompleted(job.getIdentifier());
+            }
+        });
+    }
+
     public void process(final SocketEndpoint webSocket, JobIdentifier jobIdentifier, long start) throws Exception {
         if (start < 0L) start = 0L;
 
@@ -74,8 +113,6 @@ public class ConsoleLogSender {
             return;
         }
 
-        boolean isRunningBuild = !detectCompleted;
-
         // Sometimes the log file may not have been created yet; leave it up to the client to handle reconnect logic.
         try {
             waitForLogToExist(webSocket, jobIdentifier);
@@ -84,35 +121,63 @@ public class ConsoleLogSender {
             return;
         }
 
-        try (ConsoleConsumer streamer = consoleService.getStreamer(start, jobIdentifier)) {
-            do {
-                start += sendLogs(webSocket, streamer, jobIdentifier);
-
-                // allow buffers to fill to avoid sending 1 line at a time for running builds
-                if (isRunningBuild) {
-                    Thread.sleep(FILL_INTERVAL);
-                }
-            } while (webSocket.isOpen() && !detectCompleted(jobIdentifier));
-
-            LOGGER.debug("Sent {} log lines for {} from {}", streamer.totalLinesConsumed(), jobIdentifier, consoleService.consoleLogFile(jobIdentifier).toPath());
-            // empty the tail end of the file because the build could have been marked completed, and exited the
-            // loop before we've seen the last content update
-            if (isRunningBuild) sendLogs(webSocket, streamer, jobIdentifier);
-
-            //send the remaining logs if any
-            if (detectCompleted(jobIdentifier)) {
-                try (ConsoleConsumer consoleFileStreamer = consoleService.getStreamer(start, jobIdentifier)) {
-                    start += sendLogs(webSocket, consoleFileStreamer, jobIdentifier);
-                    LOGGER.debug("Sent {} log lines for {} from {}", streamer.totalLinesConsumed(), jobIdentifier, consoleService.consoleLogFile(jobIdentifier).toPath());
-                }
+        if (detectCompleted) {
+            try (ConsoleConsumer streamer = consoleService.getStreamer(start, jobIdentifier)) {
+                sendLogs(Collections.singletonList(webSocket), streamer, jobIdentifier, Long.MAX_VALUE, false);
+                LOGGER.debug("Sent {} log lines for {} from {}", streamer.totalLinesConsumed(), jobIdentifier, consoleService.consoleLogFile(jobIdentifier).toPath());
+            } finally {
+                webSocket.close();
             }
+            return;
+        }
+
+        // the tail sends content as the console log is updated and closes the socket once the job completes
+        subscribe(webSocket, jobIdentifier, start);
 
-            LOGGER.debug("Sent {} log lines for {} from all sources", start, jobIdentifier);
-        } finally {
-            webSocket.close();
+        // the job may have completed before the subscription was in place, in which case its completion event was missed
+        if (detectCompleted(jobIdentifier)) {
+            jobCompleted(jobIdentifier);
         }
     }
 
+    private void subscribe(SocketEndpoint webSocket, JobIdentifier jobIdentifier, long start) {
+        ConsoleLogTail subscribed = tails.compute(jobIdentifier.getBuildId(), (buildId, existing) -> {
+            ConsoleLogTail tail = (existing == null || existing.isDetached()) ? new ConsoleLogTail(jobIdentifier, start, this, consoleService, executor, FILL_INTERVAL) : existing;
+            tail.subscribe(webSocket, start);
+            return tail;
+        });
+        subscribed.scheduleCatchUp();
+    }
+
+    void consoleLogUpdated(JobIdentifier jobIdentifier) {
+        ConsoleLogTail tail = tails.get(jobIdentifier.getBuildId());
+        if (tail != null) {
+            tail.consoleUpdated();
+        }
+    }
+
+    void jobCompleted(JobIdentifier jobIdentifier) {
+        ConsoleLogTail tail = tails.get(jobIdentifier.getBuildId());
+        if (tail != null) {
+            tail.complete();
+        }
+    }
+
+    void detach(ConsoleLogTail tail, JobIdentifier jobIdentifier) {
+        tails.computeIfPresent(jobIdentifier.getBuildId(), (buildId, existing) -> existing == tail ? null : existing);
+        tail.detach();
+    }
+
+    void detachIfIdle(ConsoleLogTail tail, JobIdentifier jobIdentifier) {
+        tails.computeIfPresent(jobIdentifier.getBuildId(), (buildId, existing) -> {
+            if (existing == tail && tail.isIdle()) {
+                tail.detach();
+                return null;
+            }
+            return existing;
+        });
+    }
+
     private boolean doesLogExists(JobIdentifier jobIdentifier) {
         return consoleService.doesLogExist(jobIdentifier);
     }
@@ -125,10 +190,22 @@ public class ConsoleLogSender {
         return jobInstanceDao.isJobCompleted(jobIdentifier);
     }
 
-    private long sendLogs(final SocketEndpoint webSocket, final ConsoleConsumer console, final JobIdentifier jobIdentifier) throws IOException {
+    /**
+     * Streams lines from the console to every socket, encoding (and compressing) each frame only once.
+     *
+     * @param lineLimit         lines past this many are read but not sent
+     * @param completeLinesOnly whether a last line that is still being written is left for a later call
+     * @return the number of lines read from the console
+     */
+    long sendLogs(final Collection<SocketEndpoint> webSockets, final ConsoleConsumer console, final JobIdentifier jobIdentifier, final long lineLimit,
+                  boolean completeLinesOnly) throws IOException {
         final ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUF_SIZE);
-        final OutputStream proxyOutputStream = new AutoFlushingStream(buffer, webSocket, BUF_SIZE);
-        long linesProcessed = console.stream(line -> {
+        final OutputStream proxyOutputStream = new AutoFlushingStream(buffer, webSockets, BUF_SIZE);
+        final long[] linesSeen = {0L};
+        Consumer<String> sendLine = line -> {
+            if (linesSeen[0]++ >= lineLimit) {
+                return;
+            }
             try {
                 byte[] bytes = line.getBytes(charset);
                 ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(bytes.length);
@@ -138,16 +215,26 @@ public class ConsoleLogSender {
             } catch (IOException e) {
                 LOGGER.error("Failed to send log line {} for {}", console.totalLinesConsumed(), jobIdentifier, e);
             }
-        });
+        };
+        long linesProcessed = completeLinesOnly ? console.streamCompleteLines(sendLine) : console.stream(sendLine);
 
-        flushBuffer(buffer, webSocket);
+        flushBuffer(buffer, webSockets);
         return linesProcessed;
     }
 
-    private void flushBuffer(ByteArrayOutputStream buffer, SocketEndpoint webSocket) throws IOException {
+    private void flushBuffer(ByteArrayOutputStream buffer, Collection<SocketEndpoint> webSockets) {
         if (buffer.size() == 0) return;
-        webSocket.send(ByteBuffer.wrap(maybeGzipIfLargeEnough(buffer.toByteArray())));
+        byte[] frame = maybeGzipIfLargeEnough(buffer.toByteArray());
         buffer.reset();
+        for (SocketEndpoint webSocket : webSockets) {
+            if (!webSocket.isOpen()) continue;
+            try {
+                webSocket.send(ByteBuffer.wrap(frame));
+            } catch (Exception e) {
+                LOGGER.debug("Failed to send console log to {}, closing it", webSocket.key(), e);
+                webSocket.close();
+            }
+        }
     }
 
     byte[] maybeGzipIfLargeEnough(byte[] input) {
@@ -169,13 +256,13 @@ public class ConsoleLogSender {
     // Flushes stream just before it becomes larger than `bufSize`
     private class AutoFlushingStream extends ProxyOutputStream {
         private final ByteArrayOutputStream buffer;
-        private final SocketEndpoint webSocket;
+        private final Collection<SocketEndpoint> webSockets;
         private final int bufSize;
 
-        public AutoFlushingStream(ByteArrayOutputStream buffer, SocketEndpoint webSocket, int bufSize) {
+        public AutoFlushingStream(ByteArrayOutputStream buffer, Collection<SocketEndpoint> webSockets, int bufSize) {
             super(buffer);
             this.buffer = buffer;
-            this.webSocket = webSocket;
+            this.webSockets = webSockets;
             this.bufSize = bufSize;
         }
 
@@ -189,9 +276,9 @@ public class ConsoleLogSender {
             maybeFlush(n);
         }
 
-        private void maybeFlush(int n) throws IOException {
+        private void maybeFlush(int n) {
             if (buffer.size() + n >= bufSize) {
-                flushBuffer(buffer, webSocket);
+                flushBuffer(buffer, webSockets);
             }
         }
     }
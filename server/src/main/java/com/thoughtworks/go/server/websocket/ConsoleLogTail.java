@@ -0,0 +1,207 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.domain.ConsoleConsumer;
+import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.server.service.ConsoleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tails the console log of a single running job on behalf of every socket watching it. New content is read from
+ * disk once per drain and each resulting frame is fanned out to all subscribers that have caught up with the tail.
+ * A subscriber that joins at an earlier line is first caught up from its own starting line before it is added to
+ * the live set. Drains are scheduled on the shared executor only when the log changes or the job completes.
+ */
+class ConsoleLogTail {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleLogTail.class);
+
+    private final JobIdentifier jobIdentifier;
+    private final ConsoleLogSender sender;
+    private final ConsoleService consoleService;
+    private final ScheduledExecutorService executor;
+    private final long fillInterval;
+    private final Queue<Subscriber> pending = new ConcurrentLinkedQueue<>();
+    private final List<SocketEndpoint> live = new ArrayList<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private volatile boolean completed;
+    private volatile boolean detached;
+    private boolean closed;
+
+    private ConsoleConsumer streamer;
+    private long linesRead;
+
+    ConsoleLogTail(JobIdentifier jobIdentifier, long startingLine, ConsoleLogSender sender, ConsoleService consoleService, ScheduledExecutorService executor, long fillInterval) {
+        this.jobIdentifier = jobIdentifier;
+        this.linesRead = startingLine;
+        this.sender = sender;
+        this.consoleService = consoleService;
+        this.executor = executor;
+        this.fillInterval = fillInterval;
+    }
+
+    void subscribe(SocketEndpoint socket, long startingLine) {
+        pending.add(new Subscriber(socket, startingLine));
+    }
+
+    void scheduleCatchUp() {
+        scheduleDrain(0);
+    }
+
+    void consoleUpdated() {
+        // allow buffers to fill to avoid sending 1 line at a time
+        scheduleDrain(fillInterval);
+    }
+
+    void complete() {
+        completed = true;
+        drainScheduled.set(true);
+        executor.execute(this::drain);
+    }
+
+    boolean isDetached() {
+        return detached;
+    }
+
+    boolean isIdle() {
+        return pending.isEmpty() && live.isEmpty();
+    }
+
+    void detach() {
+        detached = true;
+    }
+
+    private void scheduleDrain(long delay) {
+        if (drainScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::drain, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized void drain() {
+        drainScheduled.set(false);
+        if (closed) {
+            return;
+        }
+
+        boolean lastDrain = completed;
+        if (lastDrain) {
+            sender.detach(this, jobIdentifier);
+        }
+
+        try {
+            catchUpPendingSubscribers();
+            streamToLiveSubscribers();
+            if (!pending.isEmpty()) {
+                catchUpPendingSubscribers();
+            }
+
+            if (lastDrain) {
+                // the log may have been moved to its final location on completion; pick up anything written since
+                try (ConsoleConsumer remaining = consoleService.getStreamer(linesRead, jobIdentifier)) {
+                    linesRead += sender.sendLogs(live, remaining, jobIdentifier, Long.MAX_VALUE, false);
+                }
+                LOGGER.debug("Sent {} log lines for {} to {} subscriber(s)", linesRead, jobIdentifier, live.size());
+                closeAll();
+            } else {
+                live.removeIf(socket -> !socket.isOpen());
+                if (isIdle()) {
+                    sender.detachIfIdle(this, jobIdentifier);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.error("Failed to tail console log for {}", jobIdentifier, e);
+            sender.detach(this, jobIdentifier);
+            closeAll();
+        }
+    }
+
+    private void catchUpPendingSubscribers() throws Exception {
+        for (Iterator<Subscriber> iterator = pending.iterator(); iterator.hasNext(); ) {
+            Subscriber subscriber = iterator.next();
+            if (!subscriber.socket.isOpen()) {
+                iterator.remove();
+                continue;
+            }
+
+            // subscribers that asked for a line that has not been written yet wait until the tail reaches it
+            if (subscriber.startingLine > linesRead) {
+                continue;
+            }
+
+            if (subscriber.startingLine < linesRead) {
+                try (ConsoleConsumer catchUp = consoleService.getStreamer(subscriber.startingLine, jobIdentifier)) {
+                    sender.sendLogs(Collections.singletonList(subscriber.socket), catchUp, jobIdentifier, linesRead - subscriber.startingLine, true);
+                }
+            }
+
+            iterator.remove();
+            live.add(subscriber.socket);
+        }
+    }
+
+    private void streamToLiveSubscribers() throws Exception {
+        if (isIdle()) {
+            return;
+        }
+
+        if (null == streamer) {
+            streamer = consoleService.getStreamer(linesRead, jobIdentifier);
+        }
+
+        // a line the agent is still writing is sent once it is complete, and with everything else on completion
+        linesRead += sender.sendLogs(live, streamer, jobIdentifier, Long.MAX_VALUE, true);
+    }
+
+    private void closeAll() {
+        closed = true;
+        if (null != streamer) {
+            try {
+                streamer.close();
+            } catch (Exception e) {
+                LOGGER.debug("Failed to close console log streamer for {}", jobIdentifier, e);
+            }
+            streamer = null;
+        }
+
+        for (Subscriber subscriber : pending) {
+            subscriber.socket.close();
+        }
+        pending.clear();
+
+        for (SocketEndpoint socket : live) {
+            socket.close();
+        }
+        live.clear();
+    }
+
+    private static class Subscriber {
+        private final SocketEndpoint socket;
+        private final long startingLine;
+
+        private Subscriber(SocketEndpoint socket, long startingLine) {
+            this.socket = socket;
+            this.startingLine = startingLine;
+        }
+    }
+}
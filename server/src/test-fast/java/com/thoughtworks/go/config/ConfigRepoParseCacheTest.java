@@ -0,0 +1,137 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.plugin.configrepo.contract.*;
+import com.thoughtworks.go.plugin.configrepo.contract.material.CRDependencyMaterial;
+import com.thoughtworks.go.plugin.configrepo.contract.material.CRGitMaterial;
+import com.thoughtworks.go.plugin.configrepo.contract.tasks.CRBuildTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConfigRepoParseCacheTest {
+    private static final String FINGERPRINT = "fingerprint";
+
+    private File dir;
+    private ConfigRepoParseCache cache;
+    private CRParseResult parseResult;
+    private List<CRConfigurationProperty> configurations;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) {
+        dir = tempDir.resolve("cache").toFile();
+        cache = new ConfigRepoParseCache(true, dir);
+
+        CRPipeline pipeline = new CRPipeline("up42", "first", new CRGitMaterial("git", "dir1", false, true, "https://example.com/repo.git", "master", false), null,
+                new CRStage("build", new CRJob("compile", CRBuildTask.rake())));
+        pipeline.addMaterial(new CRDependencyMaterial("upstream", "upstream", "build"));
+        parseResult = new CRParseResult(singletonList(new CREnvironment("dev")), singletonList(pipeline), new ErrorCollection());
+        configurations = singletonList(new CRConfigurationProperty("file_pattern", "*.gocd.yaml", null));
+    }
+
+    @Test
+    void shouldReadBackWhatWasParsedFromTheSameRevision() {
+        String key = ConfigRepoParseCache.key("yaml", "1.0", "r1", configurations);
+
+        cache.put(FINGERPRINT, key, parseResult);
+        CRParseResult cached = cache.get(FINGERPRINT, key);
+
+        assertThat(cached).isNotSameAs(parseResult);
+        assertThat(cached.getPipelines()).containsExactlyElementsOf(parseResult.getPipelines());
+        assertThat(cached.getEnvironments()).containsExactlyElementsOf(parseResult.getEnvironments());
+        assertThat(cached.hasErrors()).isFalse();
+    }
+
+    @Test
+    void shouldMissWhenTheRevisionPluginOrConfigurationHasChanged() {
+        cache.put(FINGERPRINT, ConfigRepoParseCache.key("yaml", "1.0", "r1", configurations), parseResult);
+
+        assertThat(cache.get(FINGERPRINT, ConfigRepoParseCache.key("yaml", "1.0", "r2", configurations))).isNull();
+        assertThat(cache.get(FINGERPRINT, ConfigRepoParseCache.key("yaml", "1.1", "r1", configurations))).isNull();
+        assertThat(cache.get(FINGERPRINT, ConfigRepoParseCache.key("json", "1.0", "r1", configurations))).isNull();
+        assertThat(cache.get(FINGERPRINT, ConfigRepoParseCache.key("yaml", "1.0", "r1", singletonList(new CRConfigurationProperty("file_pattern", "*.yaml", null))))).isNull();
+        assertThat(cache.get("another", ConfigRepoParseCache.key("yaml", "1.0", "r1", configurations))).isNull();
+    }
+
+    @Test
+    void shouldKeepOnlyTheLastParsedRevisionOfAMaterial() {
+        String first = ConfigRepoParseCache.key("yaml", "1.0", "r1", configurations);
+        String second = ConfigRepoParseCache.key("yaml", "1.0", "r2", configurations);
+
+        cache.put(FINGERPRINT, first, parseResult);
+        cache.put(FINGERPRINT, second, new CRParseResult(asList(), asList(), new ErrorCollection()));
+
+        assertThat(cache.get(FINGERPRINT, first)).isNull();
+        assertThat(cache.get(FINGERPRINT, second).getPipelines()).isEmpty();
+        assertThat(dir.list()).containsExactly(FINGERPRINT + ".json");
+    }
+
+    @Test
+    void shouldNotCacheWhenTheRevisionOrPluginVersionIsNotKnown() {
+        assertThat(ConfigRepoParseCache.key("yaml", "1.0", null, configurations)).isNull();
+        assertThat(ConfigRepoParseCache.key("yaml", null, "r1", configurations)).isNull();
+
+        cache.put(FINGERPRINT, null, parseResult);
+
+        assertThat(cache.get(FINGERPRINT, null)).isNull();
+        assertThat(dir).doesNotExist();
+    }
+
+    @Test
+    void shouldNotCacheResultsWithErrors() {
+        String key = ConfigRepoParseCache.key("yaml", "1.0", "r1", configurations);
+        ErrorCollection errors = new ErrorCollection();
+        errors.addError("up42.gocd.yaml", "invalid");
+
+        cache.put(FINGERPRINT, key, new CRParseResult(errors));
+
+        assertThat(cache.get(FINGERPRINT, key)).isNull();
+    }
+
+    @Test
+    void shouldIgnoreAFileThatCannotBeRead() throws Exception {
+        String key = ConfigRepoParseCache.key("yaml", "1.0", "r1", configurations);
+        cache.put(FINGERPRINT, key, parseResult);
+
+        Files.write(new File(dir, FINGERPRINT + ".json").toPath(), "{\"key\": \"".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(cache.get(FINGERPRINT, key)).isNull();
+    }
+
+    @Test
+    void shouldDoNothingWhenDisabled() {
+        ConfigRepoParseCache disabled = new ConfigRepoParseCache(false, dir);
+        String key = ConfigRepoParseCache.key("yaml", "1.0", "r1", configurations);
+
+        disabled.put(FINGERPRINT, key, parseResult);
+
+        assertThat(dir).doesNotExist();
+        cache.put(FINGERPRINT, key, parseResult);
+        assertThat(disabled.get(FINGERPRINT, key)).isNull();
+    }
+}
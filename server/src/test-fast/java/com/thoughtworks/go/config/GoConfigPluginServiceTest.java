@@ -15,14 +15,20 @@
  */
 package com.thoughtworks.go.config;
 
+import com.thoughtworks.go.config.materials.git.GitMaterialConfig;
+import com.thoughtworks.go.domain.config.Configuration;
+import com.thoughtworks.go.domain.materials.MaterialConfig;
 import com.thoughtworks.go.plugin.access.configrepo.ConfigRepoExtension;
+import com.thoughtworks.go.plugin.api.info.PluginDescriptor;
 import com.thoughtworks.go.plugin.configrepo.contract.ErrorCollection;
 import com.thoughtworks.go.plugin.configrepo.contract.CREnvironment;
 import com.thoughtworks.go.plugin.configrepo.contract.CRParseResult;
 import com.thoughtworks.go.plugin.configrepo.contract.CRPipeline;
 import com.thoughtworks.go.util.ConfigElementImplementationRegistryMother;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -32,8 +38,7 @@ import static junit.framework.TestCase.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 public class GoConfigPluginServiceTest {
 
@@ -44,12 +49,15 @@ public class GoConfigPluginServiceTest {
     private Collection<CRPipeline> pipelines = new ArrayList<>();
     private ErrorCollection errors = new ErrorCollection();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
-    public void SetUp()
+    public void SetUp() throws Exception
     {
         extension = mock(ConfigRepoExtension.class);
         service = new GoConfigPluginService(extension,mock(ConfigCache.class), ConfigElementImplementationRegistryMother.withNoPlugins(),
-                mock(CachedGoConfig.class));
+                mock(CachedGoConfig.class), new ConfigRepoParseCache(true, temporaryFolder.newFolder("cache")));
         parseResult = new CRParseResult(environments,pipelines,errors);
 
         when(extension.parseDirectory(any(String.class), any(String.class), any(Collection.class)))
@@ -65,4 +73,38 @@ public class GoConfigPluginServiceTest {
         assertSame(pipelines, parseResult.getPipelines());
         assertSame(errors, parseResult.getErrors());
     }
+
+    @Test
+    public void shouldNotAskExtensionToParseARevisionThatHasAlreadyBeenParsed() {
+        PluginDescriptor descriptor = mock(PluginDescriptor.class);
+        when(descriptor.version()).thenReturn("1.0");
+        when(extension.pluginDescriptorFor("plugin-id")).thenReturn(descriptor);
+        PartialConfigProvider plugin = service.partialConfigProviderFor("plugin-id");
+
+        plugin.load(new File("dir"), loadContext("r1"));
+        plugin.load(new File("dir"), loadContext("r1"));
+        verify(extension, times(1)).parseDirectory(any(String.class), any(String.class), any(Collection.class));
+
+        plugin.load(new File("dir"), loadContext("r2"));
+        verify(extension, times(2)).parseDirectory(any(String.class), any(String.class), any(Collection.class));
+    }
+
+    private PartialConfigLoadContext loadContext(String revision) {
+        return new PartialConfigLoadContext() {
+            @Override
+            public Configuration configuration() {
+                return new Configuration();
+            }
+
+            @Override
+            public MaterialConfig configMaterial() {
+                return new GitMaterialConfig("https://example.com/repo.git");
+            }
+
+            @Override
+            public String revision() {
+                return revision;
+            }
+        };
+    }
 }
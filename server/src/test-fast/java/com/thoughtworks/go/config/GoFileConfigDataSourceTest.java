@@ -17,6 +17,7 @@
 package com.thoughtworks.go.config;
 
 import com.thoughtworks.go.ClearSingleton;
+import com.thoughtworks.go.config.commands.EntityConfigUpdateCommand;
 import com.thoughtworks.go.config.exceptions.GoConfigInvalidException;
 import com.thoughtworks.go.config.registry.ConfigElementImplementationRegistry;
 import com.thoughtworks.go.config.remote.ConfigRepoConfig;
@@ -27,6 +28,8 @@ import com.thoughtworks.go.domain.ConfigErrors;
 import com.thoughtworks.go.helper.GoConfigMother;
 import com.thoughtworks.go.helper.MaterialConfigsMother;
 import com.thoughtworks.go.helper.PartialConfigMother;
+import com.thoughtworks.go.helper.PipelineConfigMother;
+import com.thoughtworks.go.server.domain.Username;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.service.ConfigRepository;
 import com.thoughtworks.go.util.SystemEnvironment;
@@ -43,6 +46,8 @@ import java.util.*;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
@@ -319,4 +324,51 @@ public class GoFileConfigDataSourceTest {
         assertThat(listArgumentCaptor.getValue(), is(lastValidPartials));
         assertThat(stringArgumentCaptor.getValue(), is("Filesystem"));
     }
+
+    @Test
+    public void shouldShareThePipelinesAnEntitySaveDidNotTouchWithThePreviousConfig() {
+        BasicCruiseConfig configForEdit = GoConfigMother.configWithPipelines("p1", "p2");
+        CaseInsensitiveString p1 = new CaseInsensitiveString("p1");
+        CaseInsensitiveString p2 = new CaseInsensitiveString("p2");
+        PipelineConfig previousP1 = configForEdit.pipelineConfigByName(p1);
+        PipelineConfig updatedP1 = PipelineConfigMother.pipelineConfig("p1");
+
+        EntityConfigSaveResult result = dataSource.writeEntityWithLock(new EntityConfigUpdateCommand<PipelineConfig>() {
+            @Override
+            public void update(CruiseConfig preprocessedConfig) {
+                preprocessedConfig.update("defaultGroup", "p1", updatedP1);
+            }
+
+            @Override
+            public boolean isValid(CruiseConfig preprocessedConfig) {
+                return true;
+            }
+
+            @Override
+            public void clearErrors() {
+            }
+
+            @Override
+            public PipelineConfig getPreprocessedEntityConfig() {
+                return null;
+            }
+
+            @Override
+            public Set<CaseInsensitiveString> pipelinesChangedInPlace() {
+                return Collections.singleton(p1);
+            }
+
+            @Override
+            public boolean canContinue(CruiseConfig cruiseConfig) {
+                return true;
+            }
+        }, new GoConfigHolder(configForEdit, configForEdit), new Username("user"));
+
+        CruiseConfig savedConfigForEdit = result.getConfigHolder().configForEdit;
+        assertThat(savedConfigForEdit.pipelineConfigByName(p1), is(sameInstance(updatedP1)));
+        assertThat(savedConfigForEdit.pipelineConfigByName(p2), is(sameInstance(configForEdit.pipelineConfigByName(p2))));
+        assertThat(savedConfigForEdit.getGroups(), is(not(sameInstance(configForEdit.getGroups()))));
+        assertThat(configForEdit.pipelineConfigByName(p1), is(sameInstance(previousP1)));
+        assertThat(result.getConfigHolder().config.pipelineConfigByName(p2), is(not(sameInstance(configForEdit.pipelineConfigByName(p2)))));
+    }
 }
@@ -17,15 +17,18 @@ package com.thoughtworks.go.domain.activity;
 
 import com.thoughtworks.go.domain.JobInstance;
 import com.thoughtworks.go.helper.JobInstanceMother;
+import com.thoughtworks.go.server.service.ConsoleLogSink;
 import com.thoughtworks.go.server.service.ConsoleService;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 import static org.mockito.Mockito.*;
 
 public class ConsoleLogArtifactHandlerTest {
 
     private ConsoleService consoleService;
+    private ConsoleLogSink consoleLogSink;
     private ConsoleLogArtifactHandler handler;
     private JobInstance completedJobInstance;
     private JobInstance buildingJobInstance;
@@ -33,7 +36,8 @@ public class ConsoleLogArtifactHandlerTest {
     @Before
     public void setUp() throws Exception {
         consoleService = mock(ConsoleService.class);
-        handler = new ConsoleLogArtifactHandler(consoleService);
+        consoleLogSink = mock(ConsoleLogSink.class);
+        handler = new ConsoleLogArtifactHandler(consoleService, consoleLogSink);
         completedJobInstance = JobInstanceMother.completed("job");
         buildingJobInstance = JobInstanceMother.building("job");
     }
@@ -45,6 +49,16 @@ public class ConsoleLogArtifactHandlerTest {
         verify(consoleService).moveConsoleArtifacts(completedJobInstance.getIdentifier());
     }
 
+    @Test
+    public void shouldCloseTheConsoleLogBeforeMovingIt() throws Exception {
+        completedJobInstance.setOriginalJobId(null);
+        handler.jobStatusChanged(completedJobInstance);
+
+        InOrder inOrder = inOrder(consoleLogSink, consoleService);
+        inOrder.verify(consoleLogSink).close(completedJobInstance.getIdentifier());
+        inOrder.verify(consoleService).moveConsoleArtifacts(completedJobInstance.getIdentifier());
+    }
+
     @Test
     public void shouldNotMoveConsoleArtifactWhenJobCompletedIsWasNotActuallyRunWhenAnotherJobInItsStageWasRerun() throws Exception {
         completedJobInstance.setOriginalJobId(1L);
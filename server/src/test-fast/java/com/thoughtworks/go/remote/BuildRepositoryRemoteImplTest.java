@@ -69,14 +69,14 @@ public class BuildRepositoryRemoteImplTest {
         when(agentService.findAgentAndRefreshStatus(info.getUUId())).thenReturn(AgentInstance.createFromLiveAgent(info, new SystemEnvironment(), null));
         AgentInstruction instruction = buildRepository.ping(info);
         assertThat(instruction.isShouldCancelJob(), is(true));
-        verify(agentService).updateRuntimeInfo(info);
+        verify(agentService).heartbeatReceived(info);
         assertThat(logFixture.getRawMessages(), hasItem(info + " ping received."));
     }
 
     @Test
     public void shouldLogFailureToUpdateAgentServiceOnPing() {
         RuntimeException runtimeException = new RuntimeException("holy smoke");
-        doThrow(runtimeException).when(agentService).updateRuntimeInfo(info);
+        doThrow(runtimeException).when(agentService).heartbeatReceived(info);
         try {
             buildRepository.ping(info);
             fail("should have bombed because agentService could not be updated");
@@ -51,10 +51,16 @@ class CacheKeyGeneratorTest {
     }
 
     @Test
-    void shouldAlwaysReturnInternedString() {
+    void shouldAlwaysReturnTheSameInstanceForEqualKeys() {
         final String generatedCacheKey = cacheKeyGenerator.generate("foo", "bar", new CaseInsensitiveString("1"), 1L);
-        assertThat(generatedCacheKey == "com.thoughtworks.go.domain.Pipeline.$foo.$bar.$1.$1")
-                .describedAs("Using '==' to check returned key is interned String").isTrue();
+        assertThat(generatedCacheKey).isSameAs(cacheKeyGenerator.generate("foo", "bar", new CaseInsensitiveString("1"), 1L));
+        assertThat(generatedCacheKey).isSameAs(CacheKeyGenerator.intern(new String("com.thoughtworks.go.domain.Pipeline.$foo.$bar.$1.$1")));
+    }
+
+    @Test
+    void shouldNotShareKeysWithTheJvmStringPool() {
+        final String generatedCacheKey = cacheKeyGenerator.generate("foo", "bar", "not-a-literal", 1L);
+        assertThat(generatedCacheKey).isNotSameAs("com.thoughtworks.go.domain.Pipeline.$foo.$bar.$not-a-literal.$1");
     }
 
     @Test
@@ -32,7 +32,10 @@ import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import static com.thoughtworks.go.util.LogFixture.logFixtureFor;
 import static org.hamcrest.Matchers.containsString;
@@ -288,6 +291,40 @@ public class GoCacheTest {
         assertThat(goCache.get("unrelatedkey"), is("value"));
     }
 
+    @Test
+    public void shouldKeepEverySubKeyAddedToAFamilyConcurrently() throws InterruptedException {
+        goCache.configuration().setMaxEntriesLocalHeap(10000);
+        String parentKey = "parent";
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String prefix = "thread-" + i + "-child";
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 100; j++) {
+                    goCache.put(parentKey, prefix + j, "value");
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        GoCache.KeyList list = (GoCache.KeyList) goCache.get(parentKey);
+        assertThat(list.size(), is(800));
+        assertThat(goCache.get(parentKey, "thread-7-child99"), is("value"));
+
+        goCache.remove(parentKey);
+        assertThat(goCache.getKeys().size(), is(0));
+    }
+
     @Test
     public void shouldHandleNonSerializableValuesDuringEviction() throws InterruptedException {
         goCache.configuration().setMaxEntriesLocalHeap(1);
@@ -19,6 +19,7 @@ package com.thoughtworks.go.server.cache;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.service.ArtifactsDirHolder;
 import com.thoughtworks.go.server.web.ArtifactFolder;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TestFileUtil;
 import com.thoughtworks.go.util.ZipUtil;
 import org.apache.commons.io.FileUtils;
@@ -28,8 +29,14 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static com.thoughtworks.go.matchers.FileExistsMatcher.exists;
 import static org.hamcrest.Matchers.*;
@@ -106,6 +113,40 @@ public class ZipArtifactCacheTest {
         assertThat(new File(cacheDir, "dir/file1"), exists());
     }
 
+    @Test public void shouldStreamZipWithoutCachingIt() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        zipArtifactCache.streamZip(artifactFolder, output);
+
+        assertThat(zipEntries(output), hasItems("dir/", "dir/file1"));
+        assertThat(zipArtifactCache.cachedFile(artifactFolder), not(exists()));
+    }
+
+    @Test public void shouldCacheTheStreamedZipWhenAskedTo() throws Exception {
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.shouldCacheStreamedArtifactZips()).thenReturn(true);
+        zipArtifactCache = new ZipArtifactCache(artifactsDirHolder, new ZipUtil(), systemEnvironment);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        zipArtifactCache.streamZip(artifactFolder, output);
+
+        File cachedZip = zipArtifactCache.cachedFile(artifactFolder);
+        assertThat(cachedZip, exists());
+        assertThat(new File(cachedZip.getPath() + ".tmp"), not(exists()));
+        assertThat(FileUtils.readFileToByteArray(cachedZip), is(output.toByteArray()));
+        assertThat(zipArtifactCache, cacheCreated(artifactFolder));
+    }
+
+    private List<String> zipEntries(ByteArrayOutputStream output) throws IOException {
+        List<String> entries = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.add(entry.getName());
+            }
+        }
+        return entries;
+    }
+
     private void waitForCacheCreated() throws Exception {
         int timesTried = 10;
         while (timesTried > 0 && !zipArtifactCache.cacheCreated(artifactFolder)) {
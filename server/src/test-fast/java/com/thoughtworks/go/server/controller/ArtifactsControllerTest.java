@@ -37,6 +37,8 @@ import org.springframework.web.servlet.ModelAndView;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.util.Properties;
 
 import static com.thoughtworks.go.util.GoConstants.*;
 import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
@@ -82,7 +84,7 @@ public class ArtifactsControllerTest {
         String path = "cruise-output/console.log";
         File artifactFile = new File("junk");
         when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(artifactFile);
-        when(consoleService.updateConsoleLog(eq(artifactFile), any(InputStream.class))).thenReturn(true);
+        when(consoleService.updateConsoleLog(eq(jobIdentifier), eq(artifactFile), any(InputStream.class))).thenReturn(true);
         assertThat(((ResponseCodeView) artifactsController.putArtifact("pipeline", "10", "stage", "2", "build", 103l, path, "agent-id", request).getView()).getStatusCode(), is(HttpServletResponse.SC_OK));
         verify(consoleActivityMonitor).consoleUpdatedFor(jobIdentifier);
     }
@@ -108,7 +110,7 @@ public class ArtifactsControllerTest {
         JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122l);
         when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122l)).thenReturn(jobIdentifier);
         when(artifactService.findArtifact(any(JobIdentifier.class), eq("some-path"))).thenReturn(artifactFile);
-        when(artifactService.saveFile(any(File.class), any(InputStream.class), eq(false), eq(1))).thenReturn(true);
+        when(artifactService.saveFile(eq(jobIdentifier), any(File.class), any(InputStream.class), eq(false), eq(1))).thenReturn(true);
         when(artifactService.saveOrAppendFile(any(File.class), any(InputStream.class))).thenReturn(false);
 
         MockMultipartHttpServletRequest mockMultipartHttpServletRequest = new MockMultipartHttpServletRequest();
@@ -123,6 +125,71 @@ public class ArtifactsControllerTest {
         assertThat(view.getContent(), is("Error saving checksum file for the artifact at path 'some-path'"));
     }
 
+    @Test
+    public void shouldUnzipAStreamedArtifactAndSaveTheChecksumsThatFollowIt() throws Exception {
+        File artifactFile = new File("junk");
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122l);
+        when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122l)).thenReturn(jobIdentifier);
+        when(artifactService.findArtifact(any(JobIdentifier.class), eq("some-path"))).thenReturn(artifactFile);
+        when(artifactService.findArtifactRoot(jobIdentifier)).thenReturn("pipelines/pipeline-1");
+        when(artifactService.getArtifactLocation(any(String.class))).thenReturn(new File("checksum"));
+        when(artifactService.saveFile(eq(jobIdentifier), eq(artifactFile), any(InputStream.class), eq(true), eq(1))).thenReturn(true);
+        when(artifactService.saveOrAppendFile(any(File.class), any(InputStream.class))).thenReturn(true);
+
+        MockMultipartHttpServletRequest mockMultipartHttpServletRequest = new MockMultipartHttpServletRequest();
+        mockMultipartHttpServletRequest.addFile(new MockMultipartFile(ZIP_MULTIPART_FILENAME, "some-path.zip", "application/octet-stream", "zip-content".getBytes()));
+        mockMultipartHttpServletRequest.addFile(new MockMultipartFile(CHECKSUM_MULTIPART_FILENAME, "checksum_file", "application/octet-stream", "checksum-content".getBytes()));
+
+        ModelAndView modelAndView = artifactsController.postArtifact("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "some-path", 1, mockMultipartHttpServletRequest);
+
+        assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode(), is(HttpServletResponse.SC_CREATED));
+        verify(artifactService).saveFile(eq(jobIdentifier), eq(artifactFile), any(InputStream.class), eq(true), eq(1));
+        verify(artifactService).saveOrAppendFile(eq(new File("checksum")), any(InputStream.class));
+    }
+
+    @Test
+    public void shouldLinkStoredContentAndReplyWithTheFilesThatStillHaveToBeUploaded() throws Exception {
+        File artifactFile = new File("junk");
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122l);
+        when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122l)).thenReturn(jobIdentifier);
+        when(artifactService.findArtifact(any(JobIdentifier.class), eq("some-path"))).thenReturn(artifactFile);
+        when(artifactService.storesContentByHash()).thenReturn(true);
+        Properties missing = new Properties();
+        missing.setProperty("dist/b.jar", "b-hash");
+        when(artifactService.linkStoredContent(eq(jobIdentifier), eq(artifactFile), any(Properties.class))).thenReturn(missing);
+
+        MockMultipartHttpServletRequest mockMultipartHttpServletRequest = new MockMultipartHttpServletRequest();
+        mockMultipartHttpServletRequest.addFile(new MockMultipartFile(CONTENT_REFERENCES_MULTIPART_FILENAME, "dist/a.jar=a-hash\ndist/b.jar=b-hash".getBytes()));
+
+        ModelAndView modelAndView = artifactsController.postArtifact("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "some-path", 1, mockMultipartHttpServletRequest);
+
+        ResponseCodeView view = (ResponseCodeView) modelAndView.getView();
+        assertThat(view.getStatusCode(), is(HttpServletResponse.SC_OK));
+        Properties toUpload = new Properties();
+        toUpload.load(new StringReader(view.getContent()));
+        assertThat(toUpload, is(missing));
+        Properties references = new Properties();
+        references.setProperty("dist/a.jar", "a-hash");
+        references.setProperty("dist/b.jar", "b-hash");
+        verify(artifactService).linkStoredContent(jobIdentifier, artifactFile, references);
+        verify(artifactService, never()).saveFile(any(JobIdentifier.class), any(File.class), any(InputStream.class), anyBoolean(), anyInt());
+    }
+
+    @Test
+    public void shouldRefuseContentReferencesWhenArtifactsAreNotStoredByContent() throws Exception {
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122l);
+        when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122l)).thenReturn(jobIdentifier);
+        when(artifactService.findArtifact(any(JobIdentifier.class), eq("some-path"))).thenReturn(new File("junk"));
+
+        MockMultipartHttpServletRequest mockMultipartHttpServletRequest = new MockMultipartHttpServletRequest();
+        mockMultipartHttpServletRequest.addFile(new MockMultipartFile(CONTENT_REFERENCES_MULTIPART_FILENAME, "dist/a.jar=a-hash".getBytes()));
+
+        ModelAndView modelAndView = artifactsController.postArtifact("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "some-path", 1, mockMultipartHttpServletRequest);
+
+        assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode(), is(HttpServletResponse.SC_NOT_IMPLEMENTED));
+        verify(artifactService, never()).linkStoredContent(any(JobIdentifier.class), any(File.class), any(Properties.class));
+    }
+
     @Test
     public void shouldFunnelAll_GET_calls() throws Exception {
         final ModelAndView returnVal = new ModelAndView();
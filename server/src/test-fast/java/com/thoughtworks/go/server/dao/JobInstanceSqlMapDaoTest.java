@@ -195,15 +195,6 @@ class JobInstanceSqlMapDaoTest {
         }
     }
 
-    @Nested
-    class CacheKeyForJobPlan {
-        @Test
-        void shouldGenerateCacheKey() {
-            assertThat(jobInstanceSqlMapDao.cacheKeyForJobPlan(1L))
-                    .isEqualTo("com.thoughtworks.go.server.dao.JobInstanceSqlMapDao.$jobPlan.$1");
-        }
-    }
-
     @Nested
     class CacheKeyForActiveJob {
         @Test
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.dao;
+
+import com.thoughtworks.go.config.elastic.ElasticProfile;
+import com.thoughtworks.go.domain.*;
+import com.thoughtworks.go.util.TestingClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScheduledJobQueueTest {
+    private static final long RECONCILE_INTERVAL = 60000;
+
+    private StubLoader loader;
+    private TestingClock clock;
+    private ScheduledJobQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        loader = new StubLoader();
+        clock = new TestingClock();
+        queue = new ScheduledJobQueue(loader, clock, RECONCILE_INTERVAL);
+    }
+
+    @Test
+    void shouldReadScheduledJobsFromTheDatabaseOnFirstUse() {
+        loader.schedule(1, 2);
+
+        assertThat(jobIds(queue.jobPlans())).containsExactly(1L, 2L);
+        assertThat(loader.idQueries).isEqualTo(1);
+        assertThat(loader.planLoads).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void shouldNotGoToTheDatabaseOrRebuildTheSnapshotWhenNothingHasChanged() {
+        loader.schedule(1, 2);
+        List<JobPlan> first = queue.jobPlans();
+
+        List<JobPlan> second = queue.jobPlans();
+
+        assertThat(second).isSameAs(first);
+        assertThat(loader.idQueries).isEqualTo(1);
+        assertThat(loader.planLoads).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void shouldFollowJobsAsTheyAreScheduledAndLeaveTheQueue() {
+        loader.schedule(1);
+        queue.jobPlans();
+
+        loader.schedule(2);
+        queue.scheduled(2);
+        loader.unschedule(1);
+        queue.departed(1);
+
+        assertThat(jobIds(queue.jobPlans())).containsExactly(2L);
+        assertThat(loader.idQueries).isEqualTo(1);
+        assertThat(loader.planLoads).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void shouldDropJobsThatAreNoLongerScheduledWhenTheirPlanIsLoaded() {
+        loader.schedule(1);
+        queue.jobPlans();
+
+        queue.scheduled(2);
+
+        assertThat(jobIds(queue.jobPlans())).containsExactly(1L);
+    }
+
+    @Test
+    void shouldHandOutPlansThatCannotBeChanged() {
+        loader.schedule(1);
+
+        JobPlan plan = queue.jobPlans().get(0);
+
+        assertThat(plan).isInstanceOf(ReadOnlyJobPlan.class);
+        assertThat(plan).isEqualTo(loader.plans.get(1L));
+        assertThatThrownBy(() -> plan.setCleanWorkingDir(true)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> plan.getArtifactPlans().add(new ArtifactPlan(ArtifactPlanType.file, "src", "dest"))).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> queue.jobPlans().clear()).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void shouldNotLetChangesToWhatAPlanHandsOutReachTheQueuedPlan() {
+        loader.schedule(1);
+        DefaultJobPlan loaded = (DefaultJobPlan) loader.plans.get(1L);
+        loaded.setResources(Collections.singletonList(new Resource("linux")));
+        loaded.setVariables(new EnvironmentVariables(new EnvironmentVariable("GREETING", "hello")));
+        loaded.setArtifactPlans(new ArrayList<>(Collections.singletonList(new ArtifactPlan(ArtifactPlanType.file, "src", "dest"))));
+        loaded.setElasticProfile(new ElasticProfile("docker", "cd.go.docker"));
+
+        JobPlan plan = queue.jobPlans().get(0);
+        plan.getResources().add(new Resource("windows"));
+        plan.getResources().get(0).setName("mac");
+        plan.getVariables().get(0).setValue("goodbye");
+        plan.getVariables().add(new EnvironmentVariable("EXTRA", "value"));
+        plan.getArtifactPlans().get(0).setSrc("elsewhere");
+        plan.getIdentifier().setBuildName("another-job");
+        plan.getElasticProfile().setPluginId("cd.go.k8s");
+
+        JobPlan queued = queue.jobPlans().get(0);
+        assertThat(queued.getResources()).containsExactly(new Resource("linux"));
+        assertThat(queued.getVariables()).containsExactly(new EnvironmentVariable("GREETING", "hello"));
+        assertThat(queued.getArtifactPlans()).containsExactly(new ArtifactPlan(ArtifactPlanType.file, "src", "dest"));
+        assertThat(queued.getIdentifier().getBuildName()).isEqualTo("job-1");
+        assertThat(queued.getElasticProfile().getPluginId()).isEqualTo("cd.go.docker");
+        assertThat(loaded.getResources()).containsExactly(new Resource("linux"));
+        assertThat(loaded.getVariables().get(0).getValue()).isEqualTo("hello");
+    }
+
+    @Test
+    void shouldHandOutPlansThatAreEqualToTheLoadedPlansEitherWayRound() {
+        loader.schedule(1, 2);
+
+        JobPlan plan = queue.jobPlans().get(0);
+
+        assertThat(plan).isEqualTo(loader.plans.get(1L));
+        assertThat(loader.plans.get(1L)).isEqualTo(plan);
+        assertThat(loader.plans.get(1L).hashCode()).isEqualTo(plan.hashCode());
+        assertThat(loader.plans.get(2L)).isNotEqualTo(plan);
+        assertThat(plan).isNotEqualTo(loader.plans.get(2L));
+    }
+
+    @Test
+    void shouldReconcileWithTheDatabaseOnceEveryInterval() {
+        loader.schedule(1, 2);
+        queue.jobPlans();
+
+        loader.unschedule(1);
+        loader.schedule(3);
+        assertThat(jobIds(queue.jobPlans())).containsExactly(1L, 2L);
+
+        clock.addMillis((int) RECONCILE_INTERVAL);
+        assertThat(jobIds(queue.jobPlans())).containsExactly(2L, 3L);
+        assertThat(loader.idQueries).isEqualTo(2);
+        assertThat(loader.planLoads).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void shouldKeepJobsQueuedWhileReconcilingEvenIfTheDatabaseDidNotReportThem() {
+        loader.onIdQuery = () -> {
+            loader.schedule(2);
+            queue.scheduled(2);
+        };
+        loader.schedule(1);
+
+        assertThat(jobIds(queue.jobPlans())).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void shouldReadTheDatabaseAgainAfterBeingCleared() {
+        loader.schedule(1);
+        queue.jobPlans();
+
+        queue.clear();
+        loader.unschedule(1);
+        loader.schedule(2);
+
+        assertThat(jobIds(queue.jobPlans())).containsExactly(2L);
+        assertThat(loader.idQueries).isEqualTo(2);
+    }
+
+    private static List<Long> jobIds(List<JobPlan> jobPlans) {
+        List<Long> jobIds = new ArrayList<>();
+        for (JobPlan jobPlan : jobPlans) {
+            jobIds.add(jobPlan.getJobId());
+        }
+        return jobIds;
+    }
+
+    private static class StubLoader implements ScheduledJobQueue.Loader {
+        private final Map<Long, JobPlan> plans = new LinkedHashMap<>();
+        private final List<Long> planLoads = new ArrayList<>();
+        private int idQueries;
+        private Runnable onIdQuery = () -> {
+        };
+
+        private void schedule(long... jobIds) {
+            for (long jobId : jobIds) {
+                JobIdentifier identifier = new JobIdentifier("up42", 1, "1", "stage", "1", "job-" + jobId, jobId);
+                plans.put(jobId, new DefaultJobPlan(new Resources(), new ArrayList<>(), new ArrayList<>(), jobId, identifier, null,
+                        new EnvironmentVariables(), new EnvironmentVariables(), null, null));
+            }
+        }
+
+        private void unschedule(long jobId) {
+            plans.remove(jobId);
+        }
+
+        @Override
+        public List<Long> scheduledJobIds() {
+            idQueries++;
+            List<Long> jobIds = new ArrayList<>(plans.keySet());
+            onIdQuery.run();
+            return jobIds;
+        }
+
+        @Override
+        public JobPlan scheduledPlan(long jobId) {
+            planLoads.add(jobId);
+            return plans.get(jobId);
+        }
+    }
+}
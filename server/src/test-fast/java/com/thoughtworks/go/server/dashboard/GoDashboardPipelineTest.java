@@ -25,6 +25,7 @@ import com.thoughtworks.go.presentation.pipelinehistory.PipelineModel;
 import org.junit.Test;
 
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.thoughtworks.go.domain.PipelinePauseInfo.notPaused;
 import static com.thoughtworks.go.util.DataStructureUtils.s;
@@ -106,4 +107,26 @@ public class GoDashboardPipelineTest {
 
         assertThat(pipeline.getLastUpdatedTimeStamp(), is(1000L));
     }
+
+    @Test
+    public void shouldServeAFragmentRenderedBeforeUnderTheSameKey() throws Exception {
+        GoDashboardPipeline pipeline = new GoDashboardPipeline(new PipelineModel("pipeline1", false, false, notPaused()), null, "group1", null, mock(TimeStampBasedCounter.class), new FileConfigOrigin(), 0);
+        AtomicInteger renders = new AtomicInteger();
+
+        assertThat(pipeline.renderedFragment("operator", () -> "operator-" + renders.incrementAndGet()), is("operator-1"));
+        assertThat(pipeline.renderedFragment("operator", () -> "operator-" + renders.incrementAndGet()), is("operator-1"));
+        assertThat(pipeline.renderedFragment("viewer", () -> "viewer-" + renders.incrementAndGet()), is("viewer-2"));
+    }
+
+    @Test
+    public void shouldRenderFragmentsForTooManyDifferentKeysEveryTime() throws Exception {
+        GoDashboardPipeline pipeline = new GoDashboardPipeline(new PipelineModel("pipeline1", false, false, notPaused()), null, "group1", null, mock(TimeStampBasedCounter.class), new FileConfigOrigin(), 0);
+        AtomicInteger renders = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            pipeline.renderedFragment("key-" + i, () -> "fragment-" + renders.incrementAndGet());
+        }
+
+        assertThat(pipeline.renderedFragment("key-0", () -> "fragment-" + renders.incrementAndGet()), is("fragment-1"));
+        assertThat(pipeline.renderedFragment("key-99", () -> "fragment-" + renders.incrementAndGet()), is("fragment-101"));
+    }
 }
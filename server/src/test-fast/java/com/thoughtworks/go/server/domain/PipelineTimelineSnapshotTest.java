@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.domain;
+
+import com.thoughtworks.go.domain.PipelineTimelineEntry;
+import com.thoughtworks.go.helper.PipelineMaterialModificationMother;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PipelineTimelineSnapshotTest {
+    private File file;
+    private PipelineTimelineSnapshot snapshot;
+    private List<PipelineTimelineEntry> up42;
+    private List<PipelineTimelineEntry> downstream;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) {
+        file = tempDir.resolve("snapshot").toFile();
+        snapshot = new PipelineTimelineSnapshot(file);
+        DateTime now = new DateTime();
+        List<String> materials = asList("git", "svn");
+        up42 = asList(
+                PipelineMaterialModificationMother.modification("up42", 1, materials, asList(now, now), 1, "r1"),
+                PipelineMaterialModificationMother.modification("up42", 3, materials, asList(now.plusMinutes(1), now), 2, "r2"));
+        downstream = Collections.singletonList(
+                PipelineMaterialModificationMother.modification("downstream", 2, materials, asList(now, now.plusMinutes(1)), 1, "r3"));
+    }
+
+    @Test
+    void shouldReadBackTheInstancesOfEachPipelineInScheduleOrder() throws Exception {
+        snapshot.save(asList(up42, downstream));
+
+        List<PipelineTimelineEntry> saved = asList(up42.get(0), up42.get(1), downstream.get(0));
+        List<PipelineTimelineEntry> loaded = snapshot.load();
+
+        assertThat(loaded).isEqualTo(saved);
+        for (int i = 0; i < loaded.size(); i++) {
+            PipelineTimelineEntry expected = saved.get(i);
+            assertThat(loaded.get(i).getPipelineName()).isEqualTo(expected.getPipelineName());
+            assertThat(loaded.get(i).getCounter()).isEqualTo(expected.getCounter());
+            assertThat(loaded.get(i).naturalOrder()).isEqualTo(expected.naturalOrder());
+            assertThat(loaded.get(i).revisions()).isEqualTo(expected.revisions());
+            assertThat(loaded.get(i).revisions().get("git").get(0).folder).isEqualTo("git");
+            assertThat(loaded.get(i).revisions().get("git").get(0).id).isEqualTo(expected.revisions().get("git").get(0).id);
+        }
+    }
+
+    @Test
+    void shouldShareTheNamesAndFingerprintsOfTheInstancesReadBack() throws Exception {
+        snapshot.save(Collections.singletonList(up42));
+
+        List<PipelineTimelineEntry> loaded = snapshot.load();
+
+        assertThat(loaded.get(0).getPipelineName()).isSameAs(loaded.get(1).getPipelineName());
+        String fingerprint = loaded.get(0).revisions().keySet().iterator().next();
+        assertThat(loaded.get(1).revisions().keySet()).anyMatch(other -> other == fingerprint);
+    }
+
+    @Test
+    void shouldReadNothingWhenThereIsNoSnapshot() {
+        assertThat(snapshot.load()).isEmpty();
+    }
+
+    @Test
+    void shouldIgnoreASnapshotThatDoesNotMatchItsChecksum() throws Exception {
+        snapshot.save(asList(up42, downstream));
+        try (RandomAccessFile contents = new RandomAccessFile(file, "rw")) {
+            contents.seek(20);
+            int original = contents.read();
+            contents.seek(20);
+            contents.write(original ^ 0xFF);
+        }
+
+        assertThat(snapshot.load()).isEmpty();
+    }
+
+    @Test
+    void shouldIgnoreATruncatedSnapshot() throws Exception {
+        snapshot.save(asList(up42, downstream));
+        byte[] contents = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(contents, contents.length - 9));
+
+        assertThat(snapshot.load()).isEmpty();
+    }
+
+    @Test
+    void shouldReplaceThePreviousSnapshot() throws Exception {
+        snapshot.save(asList(up42, downstream));
+
+        snapshot.save(Collections.singletonList(downstream));
+
+        assertThat(snapshot.load()).containsExactly(downstream.get(0));
+        assertThat(file.getParentFile().list()).containsExactly(file.getName());
+    }
+}
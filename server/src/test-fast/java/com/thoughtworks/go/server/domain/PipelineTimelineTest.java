@@ -41,6 +41,7 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.junit.matchers.JUnitMatchers.hasItems;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyListOf;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
@@ -195,7 +196,7 @@ public class PipelineTimelineTest {
         final List<PipelineTimelineEntry>[] entries = new List[1];
         entries[0] = new ArrayList<>();
         final PipelineTimeline timeline = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager, new TimelineUpdateListener() {
-            public void added(PipelineTimelineEntry newlyAddedEntry, TreeSet<PipelineTimelineEntry> timeline) {
+            public void added(PipelineTimelineEntry newlyAddedEntry, List<PipelineTimelineEntry> timeline) {
                 assertThat(timeline.contains(newlyAddedEntry), is(true));
                 assertThat(timeline.containsAll(entries[0]), is(true));
                 entries[0].add(newlyAddedEntry);
@@ -214,7 +215,7 @@ public class PipelineTimelineTest {
         setupTransactionTemplateStub(TransactionSynchronization.STATUS_COMMITTED, true);
         TimelineUpdateListener anotherListener = mock(TimelineUpdateListener.class);
         final PipelineTimeline timeline = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager, new TimelineUpdateListener() {
-            public void added(PipelineTimelineEntry newlyAddedEntry, TreeSet<PipelineTimelineEntry> timeline) {
+            public void added(PipelineTimelineEntry newlyAddedEntry, List<PipelineTimelineEntry> timeline) {
                 throw new RuntimeException();
             }
         }, anotherListener);
@@ -224,7 +225,7 @@ public class PipelineTimelineTest {
         } catch (Exception e) {
             fail("should not have failed because of exception thrown by listener");
         }
-        verify(anotherListener).added(eq(first), any(TreeSet.class));
+        verify(anotherListener).added(eq(first), anyList());
     }
 
     @Test public void updateOnInitShouldBeDoneOutsideTransaction() throws Exception {
@@ -241,6 +242,92 @@ public class PipelineTimelineTest {
         assertThat(timeline.pipelineAfter(1L), is(2L));
     }
 
+    @Test public void updateOnInitShouldRestoreTheSnapshotAndOnlyReadLaterInstancesFromTheDatabase() throws Exception {
+        PipelineTimeline before = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager);
+        before.add(first);
+        before.add(third);
+        PipelineTimelineSnapshot snapshot = mock(PipelineTimelineSnapshot.class);
+        when(snapshot.load()).thenReturn(Arrays.asList(copyOf(first), copyOf(third)));
+        when(pipelineRepository.hasPipelineInstance(3L, "pipeline", 3)).thenReturn(true);
+        PipelineTimeline timeline = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager, snapshot);
+        final long[] maximumIdWhenReadingTheDatabase = new long[1];
+        doAnswer(invocation -> {
+            maximumIdWhenReadingTheDatabase[0] = timeline.maximumId();
+            timeline.add(second);
+            timeline.add(fourth);
+            return null;
+        }).when(pipelineRepository).updatePipelineTimeline(eq(timeline), anyListOf(PipelineTimelineEntry.class));
+
+        timeline.updateTimelineOnInit();
+
+        assertThat(maximumIdWhenReadingTheDatabase[0], is(3L));
+        assertThat(timeline.maximumId(), is(4L));
+        assertThat(timeline.instanceCount(new CaseInsensitiveString("pipeline")), is(4));
+        assertThat(timeline.pipelineAfter(first.getId()), is(second.getId()));
+        assertThat(timeline.pipelineAfter(second.getId()), is(third.getId()));
+        assertThat(timeline.runBefore(second.getId(), new CaseInsensitiveString("pipeline")).getId(), is(first.getId()));
+        assertThat(timeline.getEntryFor(new CaseInsensitiveString("pipeline"), 4), is(fourth));
+        verify(snapshot).saveInBackground(Collections.singletonList(Arrays.asList(first, third, second, fourth)));
+    }
+
+    @Test public void updateOnInitShouldIgnoreASnapshotOfInstancesTheDatabaseDoesNotHave() throws Exception {
+        PipelineTimeline before = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager);
+        before.add(first);
+        PipelineTimelineSnapshot snapshot = mock(PipelineTimelineSnapshot.class);
+        when(snapshot.load()).thenReturn(Collections.singletonList(copyOf(first)));
+        when(pipelineRepository.hasPipelineInstance(1L, "pipeline", 1)).thenReturn(false);
+        PipelineTimeline timeline = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager, snapshot);
+        final long[] maximumIdWhenReadingTheDatabase = new long[1];
+        doAnswer(invocation -> {
+            maximumIdWhenReadingTheDatabase[0] = timeline.maximumId();
+            return null;
+        }).when(pipelineRepository).updatePipelineTimeline(eq(timeline), anyListOf(PipelineTimelineEntry.class));
+
+        timeline.updateTimelineOnInit();
+
+        assertThat(maximumIdWhenReadingTheDatabase[0], is(-1L));
+        assertThat(timeline.instanceCount(new CaseInsensitiveString("pipeline")), is(0));
+    }
+
+    @Test public void updateOnInitShouldReadTheWholeTimelineWhenTheSnapshotDoesNotAddUp() throws Exception {
+        PipelineTimelineSnapshot snapshot = mock(PipelineTimelineSnapshot.class);
+        PipelineTimelineEntry misplaced = new PipelineTimelineEntry("pipeline", 2, 2, second.revisions(), 7.0);
+        when(snapshot.load()).thenReturn(Arrays.asList(new PipelineTimelineEntry("pipeline", 1, 1, first.revisions(), 1.0), misplaced));
+        when(pipelineRepository.hasPipelineInstance(2L, "pipeline", 2)).thenReturn(true);
+        PipelineTimeline timeline = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager, snapshot);
+        final long[] maximumIdWhenReadingTheDatabase = new long[1];
+        doAnswer(invocation -> {
+            maximumIdWhenReadingTheDatabase[0] = timeline.maximumId();
+            return null;
+        }).when(pipelineRepository).updatePipelineTimeline(eq(timeline), anyListOf(PipelineTimelineEntry.class));
+
+        timeline.updateTimelineOnInit();
+
+        assertThat(maximumIdWhenReadingTheDatabase[0], is(-1L));
+        assertThat(timeline.instanceCount(new CaseInsensitiveString("pipeline")), is(0));
+    }
+
+    @Test public void shouldFindInstancesOfAPipelineAddedOutOfIdAndCounterOrder() throws Exception {
+        PipelineTimeline timeline = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager);
+        timeline.add(third);
+        timeline.add(first);
+        timeline.add(fourth);
+        timeline.add(second);
+
+        assertThat(timeline.getEntryFor(new CaseInsensitiveString("pipeline"), 1), is(first));
+        assertThat(timeline.getEntryFor(new CaseInsensitiveString("pipeline"), 4), is(fourth));
+        assertThat(timeline.getEntryFor(new CaseInsensitiveString("pipeline"), 5), is(nullValue()));
+        assertThat(timeline.getEntryFor(new CaseInsensitiveString("not-present"), 1), is(nullValue()));
+        assertThat(timeline.runAfter(first.getId(), new CaseInsensitiveString("pipeline")), is(third));
+        assertThat(timeline.runBefore(second.getId(), new CaseInsensitiveString("pipeline")), is(first));
+        assertThat(timeline.pipelineBefore(second.getId()), is(first.getId()));
+        assertThat(timeline.pipelineAfter(third.getId()), is(fourth.getId()));
+    }
+
+    private PipelineTimelineEntry copyOf(PipelineTimelineEntry entry) {
+        return new PipelineTimelineEntry(entry.getPipelineName(), entry.getId(), entry.getCounter(), entry.revisions(), entry.naturalOrder());
+    }
+
     @Test public void updateShouldLoadNewInstancesFromTheDatabase() throws Exception {
         stubTransactionSynchronization();
         setupTransactionTemplateStub(TransactionSynchronization.STATUS_COMMITTED, true);
@@ -38,6 +38,7 @@ import com.thoughtworks.go.server.service.datasharing.DataSharingUsageStatistics
 import com.thoughtworks.go.server.service.support.ResourceMonitoring;
 import com.thoughtworks.go.server.service.support.toggle.FeatureToggleService;
 import com.thoughtworks.go.server.service.support.toggle.Toggles;
+import com.thoughtworks.go.server.websocket.ConsoleLogSender;
 import com.thoughtworks.go.service.ConfigRepository;
 import com.thoughtworks.go.util.ReflectionUtil;
 import org.junit.Before;
@@ -119,6 +120,10 @@ public class ApplicationInitializerTest {
     @Mock
     private ConsoleService consoleService;
     @Mock
+    private ConsoleLogSink consoleLogSink;
+    @Mock
+    private ConsoleLogSender consoleLogSender;
+    @Mock
     private ContextRefreshedEvent contextRefreshedEvent;
     @Mock
     private PipelineConfigService pipelineConfigService;
@@ -177,6 +182,20 @@ public class ApplicationInitializerTest {
         inOrder.verify(goConfigService).initialize();
     }
 
+    @Test
+    public void shouldStartWritingConsoleLogsOnceTheConsoleServiceIsInitialized() {
+        InOrder inOrder = inOrder(consoleService, consoleLogSink);
+        inOrder.verify(consoleService).initialize();
+        inOrder.verify(consoleLogSink).initialize();
+    }
+
+    @Test
+    public void shouldStartTailingConsoleLogsOnceTheConsoleServiceIsInitialized() {
+        InOrder inOrder = inOrder(consoleService, consoleLogSender);
+        inOrder.verify(consoleService).initialize();
+        inOrder.verify(consoleLogSender).initialize();
+    }
+
     @Test
     public void shouldInitializeDataSharingConsentSettings() throws Exception {
         verify(dataSharingSettingsService, times(1)).initialize();
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.materials;
+
+import com.thoughtworks.go.config.materials.svn.SvnMaterial;
+import com.thoughtworks.go.domain.materials.Material;
+import com.thoughtworks.go.helper.MaterialsMother;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CollapsingMaterialUpdatesTest {
+    private ScheduledExecutorService scheduler;
+    private List<Material> updated;
+    private CollapsingMaterialUpdates updates;
+    private int alreadyRun;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = mock(ScheduledExecutorService.class);
+        updated = new ArrayList<>();
+        updates = new CollapsingMaterialUpdates(scheduler, 1000, updated::add);
+    }
+
+    @Test
+    void shouldSendOneUpdateForABurstOfRequestsForTheSameMaterial() {
+        SvnMaterial material = MaterialsMother.svnMaterial();
+
+        updates.request(material);
+        updates.request(material);
+        updates.request(material);
+
+        runScheduled(1);
+        assertThat(updated).containsExactly(material);
+    }
+
+    @Test
+    void shouldSendAnUpdateForEachMaterial() {
+        SvnMaterial first = MaterialsMother.svnMaterial("http://example.com/first");
+        SvnMaterial second = MaterialsMother.svnMaterial("http://example.com/second");
+
+        updates.request(first);
+        updates.request(second);
+
+        runScheduled(2);
+        assertThat(updated).containsExactly(first, second);
+    }
+
+    @Test
+    void shouldSendAnotherUpdateForARequestThatComesInAfterTheUpdateWasSent() {
+        SvnMaterial material = MaterialsMother.svnMaterial();
+        updates.request(material);
+        runScheduled(1);
+
+        updates.request(material);
+
+        runScheduled(2);
+        assertThat(updated).containsExactly(material, material);
+    }
+
+    @Test
+    void shouldRequestTheUpdateAgainOnceAnUpdateThatWasInProgressCompletes() {
+        SvnMaterial material = MaterialsMother.svnMaterial();
+        List<Material> refused = new ArrayList<>();
+        updates = new CollapsingMaterialUpdates(scheduler, 1000, m -> refused.isEmpty() ? !refused.add(m) : updated.add(m));
+        updates.request(material);
+        runScheduled(1);
+        assertThat(refused).containsExactly(material);
+        assertThat(updated).isEmpty();
+
+        updates.completed(material);
+
+        runScheduled(2);
+        assertThat(updated).containsExactly(material);
+    }
+
+    @Test
+    void shouldNotRequestTheUpdateAgainWhenItWasNotRefused() {
+        SvnMaterial material = MaterialsMother.svnMaterial();
+        updates.request(material);
+        runScheduled(1);
+
+        updates.completed(material);
+        updates.completed(MaterialsMother.svnMaterial("http://example.com/other"));
+
+        verify(scheduler, times(1)).schedule(any(Runnable.class), eq(1000L), eq(MILLISECONDS));
+        assertThat(updated).containsExactly(material);
+    }
+
+    @Test
+    void shouldKeepCollapsingRequestsAfterAnUpdateFails() {
+        SvnMaterial material = MaterialsMother.svnMaterial();
+        updates = new CollapsingMaterialUpdates(scheduler, 1000, m -> {
+            throw new RuntimeException("queue is down");
+        });
+        updates.request(material);
+        runScheduled(1);
+
+        updates.request(material);
+        updates.request(material);
+
+        verify(scheduler, times(2)).schedule(any(Runnable.class), eq(1000L), eq(MILLISECONDS));
+    }
+
+    private void runScheduled(int expected) {
+        ArgumentCaptor<Runnable> scheduled = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler, times(expected)).schedule(scheduled.capture(), eq(1000L), eq(MILLISECONDS));
+        scheduled.getAllValues().subList(alreadyRun, expected).forEach(Runnable::run);
+        alreadyRun = expected;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.*;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.util.TestingClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryMessagingServiceTest {
+    private TestingClock clock;
+    private InMemoryMessagingService messaging;
+
+    @BeforeEach
+    void setUp() {
+        clock = new TestingClock();
+        messaging = new InMemoryMessagingService(new DaemonThreadStatsCollector(), clock, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        messaging.stop();
+    }
+
+    @Test
+    void shouldDeliverEveryMessageOfATopicToEveryListener() throws InterruptedException {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        CollectingListener first = new CollectingListener();
+        CollectingListener second = new CollectingListener();
+        topic.addListener(first);
+        topic.addListener(second);
+
+        topic.post(new GoTextMessage("one"));
+        topic.post(new GoTextMessage("two"));
+
+        assertThat(first.take(2)).containsExactly("one", "two");
+        assertThat(second.take(2)).containsExactly("one", "two");
+    }
+
+    @Test
+    void shouldOnlyDeliverMessagesOfATopicPostedAfterTheListenerWasAdded() throws InterruptedException {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        topic.post(new GoTextMessage("before"));
+        CollectingListener listener = new CollectingListener();
+        topic.addListener(listener);
+
+        topic.sendText("after");
+
+        assertThat(listener.take(1)).containsExactly("after");
+        assertThat(listener.received.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void shouldHandEachMessageOfAQueueToOneListenerWithoutWaitingForBusyOnes() throws InterruptedException {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        HangingListener hanging = new HangingListener();
+        CollectingListener fast = new CollectingListener();
+        queue.addListener(hanging);
+        queue.post(new GoTextMessage("one"));
+        hanging.started.await(5, TimeUnit.SECONDS);
+        queue.addListener(fast);
+
+        queue.post(new GoTextMessage("two"));
+        queue.post(new GoTextMessage("three"));
+
+        assertThat(fast.take(2)).containsExactly("two", "three");
+        hanging.finish.countDown();
+    }
+
+    @Test
+    void shouldKeepMessagesOfAQueueUntilAListenerIsAdded() throws InterruptedException {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        queue.post(new GoTextMessage("one"));
+        CollectingListener listener = new CollectingListener();
+
+        queue.addListener(listener);
+
+        assertThat(listener.take(1)).containsExactly("one");
+    }
+
+    @Test
+    void shouldDropMessagesThatExpiredBeforeTheyWereHandled() throws InterruptedException {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        queue.post(new GoTextMessage("expired"), 1000);
+        queue.post(new GoTextMessage("fresh"), 5000);
+        queue.post(new GoTextMessage("forever"));
+        clock.addMillis(1000);
+        CollectingListener listener = new CollectingListener();
+
+        queue.addListener(listener);
+
+        assertThat(listener.take(2)).containsExactly("fresh", "forever");
+    }
+
+    @Test
+    void shouldKeepHandingOutMessagesAfterAListenerThrows() throws InterruptedException {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        CollectingListener listener = new CollectingListener() {
+            @Override
+            public void onMessage(GoTextMessage message) {
+                super.onMessage(message);
+                throw new RuntimeException(message.getText());
+            }
+        };
+        queue.addListener(listener);
+
+        queue.post(new GoTextMessage("one"));
+        queue.post(new GoTextMessage("two"));
+
+        assertThat(listener.take(2)).containsExactly("one", "two");
+    }
+
+    @Test
+    void shouldStopListenersAndDropWaitingMessagesWhenAQueueIsRemoved() throws InterruptedException {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        CollectingListener removed = new CollectingListener();
+        MessageListenerAdapter adapter = queue.addListener(removed);
+
+        queue.stop();
+        queue.post(new GoTextMessage("after removal"));
+
+        assertThat(((InMemoryMessageListenerAdapter) adapter).isStopped()).isTrue();
+        assertThat(removed.received.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        CollectingListener listener = new CollectingListener();
+        queue.addListener(listener);
+        assertThat(listener.take(1)).containsExactly("after removal");
+    }
+
+    private static class CollectingListener implements GoMessageListener<GoTextMessage> {
+        private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onMessage(GoTextMessage message) {
+            received.add(message.getText());
+        }
+
+        private List<String> take(int count) throws InterruptedException {
+            List<String> messages = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String message = received.poll(5, TimeUnit.SECONDS);
+                if (message == null) {
+                    break;
+                }
+                messages.add(message);
+            }
+            return messages;
+        }
+    }
+
+    private static class HangingListener implements GoMessageListener<GoTextMessage> {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch finish = new CountDownLatch(1);
+
+        @Override
+        public void onMessage(GoTextMessage message) {
+            started.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+}
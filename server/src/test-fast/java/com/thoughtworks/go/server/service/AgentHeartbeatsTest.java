@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.domain.AgentRuntimeStatus;
+import com.thoughtworks.go.remote.AgentIdentifier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AgentHeartbeatsTest {
+    private List<AgentRuntimeInfo> applied;
+    private AgentHeartbeats heartbeats;
+
+    @BeforeEach
+    void setUp() {
+        applied = new ArrayList<>();
+        heartbeats = new AgentHeartbeats(applied::add);
+    }
+
+    @Test
+    void shouldNotApplyPingsOnTheThreadThatReceivedThem() {
+        heartbeats.received(ping("uuid1", AgentRuntimeStatus.Idle));
+
+        assertThat(applied).isEmpty();
+    }
+
+    @Test
+    void shouldApplyOnlyTheLatestPingOfEachAgent() {
+        AgentRuntimeInfo latestOfFirst = ping("uuid1", AgentRuntimeStatus.Building);
+        AgentRuntimeInfo onlyOfSecond = ping("uuid2", AgentRuntimeStatus.Idle);
+        heartbeats.received(ping("uuid1", AgentRuntimeStatus.Idle));
+        heartbeats.received(onlyOfSecond);
+        heartbeats.received(latestOfFirst);
+
+        heartbeats.applyQueued();
+
+        assertThat(applied).containsExactly(latestOfFirst, onlyOfSecond);
+    }
+
+    @Test
+    void shouldApplyPingsThatArriveAfterTheLastBatch() {
+        AgentRuntimeInfo first = ping("uuid1", AgentRuntimeStatus.Idle);
+        AgentRuntimeInfo second = ping("uuid1", AgentRuntimeStatus.Building);
+        heartbeats.received(first);
+        heartbeats.applyQueued();
+
+        heartbeats.received(second);
+        heartbeats.applyQueued();
+
+        assertThat(applied).containsExactly(first, second);
+    }
+
+    @Test
+    void shouldDropPingsThatWereNotAppliedBeforeAnotherChangeToTheAgent() {
+        AgentRuntimeInfo report = ping("uuid1", AgentRuntimeStatus.Building);
+        heartbeats.received(ping("uuid1", AgentRuntimeStatus.Idle));
+
+        heartbeats.supersede("uuid1", () -> applied.add(report));
+        heartbeats.applyQueued();
+
+        assertThat(applied).containsExactly(report);
+    }
+
+    @Test
+    void shouldKeepApplyingPingsWhenOneOfThemFails() {
+        AgentRuntimeInfo rejected = ping("uuid1", AgentRuntimeStatus.Idle);
+        AgentRuntimeInfo accepted = ping("uuid2", AgentRuntimeStatus.Idle);
+        heartbeats = new AgentHeartbeats(info -> {
+            if (info == rejected) {
+                throw new AgentWithDuplicateUUIDException("duplicate");
+            }
+            applied.add(info);
+        });
+        heartbeats.received(rejected);
+        heartbeats.received(accepted);
+
+        heartbeats.applyQueued();
+
+        assertThat(applied).containsExactly(accepted);
+    }
+
+    @Test
+    void shouldApplyPingsInTheBackgroundOnceStarted() throws Exception {
+        CountDownLatch appliedInBackground = new CountDownLatch(1);
+        heartbeats = new AgentHeartbeats(info -> appliedInBackground.countDown());
+        heartbeats.start();
+
+        heartbeats.received(ping("uuid1", AgentRuntimeStatus.Idle));
+
+        assertThat(appliedInBackground.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static AgentRuntimeInfo ping(String uuid, AgentRuntimeStatus status) {
+        return new AgentRuntimeInfo(new AgentIdentifier("host", "127.0.0.1", uuid), status, "/var/lib/go-agent", "cookie", false);
+    }
+}
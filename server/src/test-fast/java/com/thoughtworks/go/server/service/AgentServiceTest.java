@@ -126,6 +126,32 @@ public class AgentServiceTest {
         verifyNoMoreInteractions(agentInstances);
     }
 
+    @Test
+    public void shouldRejectAPingWithNoCookieBeforeItIsAnswered() throws Exception {
+        AgentRuntimeInfo runtimeInfo = new AgentRuntimeInfo(agentIdentifier, AgentRuntimeStatus.Idle, currentWorkingDirectory(), null, false);
+
+        try {
+            agentService.heartbeatReceived(runtimeInfo);
+            fail("should throw exception when no cookie is set");
+        } catch (AgentNoCookieSetException e) {
+            assertThat(e.getMessage(), is(format("Agent [%s] has no cookie set", runtimeInfo.agentInfoDebugString())));
+        }
+        verifyZeroInteractions(agentInstances);
+    }
+
+    @Test
+    public void shouldRejectAPingWithADuplicateCookieBeforeItIsAnswered() throws Exception {
+        AgentRuntimeInfo runtimeInfo = new AgentRuntimeInfo(agentIdentifier, AgentRuntimeStatus.Idle, currentWorkingDirectory(), "invalid_cookie", false);
+
+        try {
+            agentService.heartbeatReceived(runtimeInfo);
+            fail("should throw exception when cookie mismatched");
+        } catch (AgentWithDuplicateUUIDException e) {
+            assertThat(e.getMessage(), is(format("Agent [%s] has invalid cookie", runtimeInfo.agentInfoDebugString())));
+        }
+        verify(agentInstances, never()).updateAgentRuntimeInfo(runtimeInfo);
+    }
+
     @Test
     public void shouldAssociateCookieForAnAgent() throws Exception {
         when(uuidGenerator.randomUuid()).thenReturn("foo");
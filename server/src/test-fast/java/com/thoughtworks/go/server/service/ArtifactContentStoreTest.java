@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisabledOnOs(OS.WINDOWS)
+class ArtifactContentStoreTest {
+    private static final String CONTENT = "hello world";
+    private static final String SHA256 = DigestUtils.sha256Hex(CONTENT);
+
+    private ArtifactContentStore store;
+    private File job1;
+    private File job2;
+
+    @BeforeEach
+    void setUp(@TempDir Path artifactsDir) {
+        store = new ArtifactContentStore(artifactsDir.resolve("content").toFile());
+        job1 = artifactsDir.resolve("pipelines/up42/1/stage/1/job1").toFile();
+        job2 = artifactsDir.resolve("pipelines/up42/1/stage/1/job2").toFile();
+    }
+
+    @Test
+    void shouldStoreContentItDoesNotHaveByLinkingTheArtifact() throws IOException {
+        File artifact = artifact(job1, "dist/a.txt", CONTENT);
+
+        assertThat(store.store(job1, artifact, SHA256)).isTrue();
+
+        assertThat(store.blobFor(SHA256)).hasContent(CONTENT);
+        assertThat(sameFile(artifact, store.blobFor(SHA256))).isTrue();
+    }
+
+    @Test
+    void shouldReplaceAnArtifactWithALinkToContentItAlreadyHas() throws IOException {
+        store.store(job1, artifact(job1, "dist/a.txt", CONTENT), SHA256);
+        File duplicate = artifact(job2, "other/b.txt", CONTENT);
+
+        store.store(job2, duplicate, SHA256);
+
+        assertThat(duplicate).hasContent(CONTENT);
+        assertThat(sameFile(duplicate, store.blobFor(SHA256))).isTrue();
+        assertThat(new File(duplicate.getParentFile(), ".b.txt.link")).doesNotExist();
+    }
+
+    @Test
+    void shouldLeaveFilesInCruiseOutputAlone() throws IOException {
+        File consoleLog = artifact(job1, "cruise-output/console.log", CONTENT);
+
+        assertThat(store.store(job1, consoleLog, SHA256)).isFalse();
+
+        assertThat(store.blobFor(SHA256)).doesNotExist();
+    }
+
+    @Test
+    void shouldOnlyLinkContentItHas() throws IOException {
+        File artifact = new File(job2, "dist/a.txt");
+
+        assertThat(store.link(artifact, SHA256)).isFalse();
+        assertThat(artifact).doesNotExist();
+
+        store.store(job1, artifact(job1, "dist/a.txt", CONTENT), SHA256);
+        assertThat(store.link(artifact, SHA256)).isTrue();
+        assertThat(artifact).hasContent(CONTENT);
+    }
+
+    @Test
+    void shouldGiveAnArtifactItsOwnCopyBeforeItIsChanged() throws IOException {
+        File artifact = artifact(job1, "dist/a.txt", CONTENT);
+        store.store(job1, artifact, SHA256);
+
+        store.detach(artifact);
+        FileUtils.writeStringToFile(artifact, " again", UTF_8, true);
+
+        assertThat(artifact).hasContent(CONTENT + " again");
+        assertThat(store.blobFor(SHA256)).hasContent(CONTENT);
+    }
+
+    @Test
+    void shouldReleaseContentOnceNoJobLinksToIt() throws IOException {
+        File artifact1 = artifact(job1, "dist/a.txt", CONTENT);
+        File artifact2 = artifact(job2, "dist/a.txt", CONTENT);
+        store.store(job1, artifact1, SHA256);
+        store.store(job2, artifact2, SHA256);
+        store.recordReferences(job1, singletonList(SHA256));
+        store.recordReferences(job2, singletonList(SHA256));
+
+        FileUtils.deleteQuietly(artifact1);
+        store.release(job1);
+        assertThat(store.blobFor(SHA256)).exists();
+        assertThat(new File(job1, "cruise-output/" + ArtifactContentStore.REFERENCES_FILE)).doesNotExist();
+
+        FileUtils.deleteQuietly(artifact2);
+        store.release(job2);
+        assertThat(store.blobFor(SHA256)).doesNotExist();
+    }
+
+    private static File artifact(File jobRoot, String path, String content) throws IOException {
+        File artifact = new File(jobRoot, path);
+        FileUtils.writeStringToFile(artifact, content, UTF_8);
+        return artifact;
+    }
+
+    private static boolean sameFile(File file, File other) throws IOException {
+        return Files.isSameFile(file.toPath(), other.toPath());
+    }
+}
@@ -27,6 +27,7 @@ import com.thoughtworks.go.server.dao.StageDao;
 import com.thoughtworks.go.server.view.artifacts.ArtifactDirectoryChooser;
 import com.thoughtworks.go.util.LogFixture;
 import com.thoughtworks.go.util.ReflectionUtil;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.ZipUtil;
 import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
@@ -42,18 +43,25 @@ import org.mockito.Mockito;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Properties;
+import java.util.zip.Deflater;
 import java.util.zip.ZipInputStream;
 
 import static com.thoughtworks.go.server.service.ArtifactsService.LOG_XML_NAME;
 import static com.thoughtworks.go.util.GoConstants.PUBLISH_MAX_RETRIES;
 import static com.thoughtworks.go.util.LogFixture.logFixtureFor;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.codec.digest.DigestUtils.sha256Hex;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 @EnableRuleMigrationSupport
@@ -382,6 +390,107 @@ public class ArtifactsServiceTest {
         assertThat(job1CacheDirFromADifferentStageRun.exists()).isTrue();
     }
 
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void shouldStoreTheContentOfUnzippedArtifactsOnceAndReleaseItWhenNoStageRefersToIt() throws Exception {
+        File artifactsRoot = temporaryFolder.newFolder();
+        assumeArtifactsRoot(artifactsRoot);
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.isContentAddressedArtifactStorageEnabled()).thenReturn(true);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, new ZipUtil(), systemService, systemEnvironment);
+        artifactsService.initialize();
+        File source = temporaryFolder.newFolder("dist");
+        FileUtils.writeStringToFile(new File(source, "app.jar"), "the same jar", UTF_8);
+        File zip = temporaryFolder.newFile("dist.zip");
+        new ZipUtil().zip(source, zip, Deflater.NO_COMPRESSION);
+
+        JobIdentifier job1 = new JobIdentifier("pipeline", 10, "label-10", "stage", "20", "job1", 1L);
+        JobIdentifier job2 = new JobIdentifier("pipeline", 10, "label-10", "stage", "20", "job2", 2L);
+        JobIdentifier jobOfAnotherStage = new JobIdentifier("pipeline", 10, "label-10", "stage", "21", "job1", 3L);
+        for (JobIdentifier job : Arrays.asList(job1, job2, jobOfAnotherStage)) {
+            try (FileInputStream stream = new FileInputStream(zip)) {
+                assertThat(artifactsService.saveFile(job, artifactsService.findArtifact(job, "dest"), stream, true, 1)).isTrue();
+            }
+        }
+
+        File blob = new File(artifactsRoot, "content/" + sha256Hex("the same jar").substring(0, 2) + "/" + sha256Hex("the same jar"));
+        File artifactOfJob1 = artifactsService.findArtifact(job1, "dest/dist/app.jar");
+        File artifactOfJob2 = artifactsService.findArtifact(job2, "dest/dist/app.jar");
+        File artifactOfAnotherStage = artifactsService.findArtifact(jobOfAnotherStage, "dest/dist/app.jar");
+        assertThat(blob).hasContent("the same jar");
+        assertThat(Files.isSameFile(artifactOfJob1.toPath(), blob.toPath())).isTrue();
+        assertThat(Files.isSameFile(artifactOfJob2.toPath(), blob.toPath())).isTrue();
+        assertThat(Files.isSameFile(artifactOfAnotherStage.toPath(), blob.toPath())).isTrue();
+
+        artifactsService.purgeArtifactsForStage(StageMother.createPassedStage("pipeline", 10, "stage", 20, "job1", new Date()));
+        assertThat(artifactOfJob1).doesNotExist();
+        assertThat(artifactOfJob2).doesNotExist();
+        assertThat(blob).exists();
+
+        artifactsService.purgeArtifactsForStage(StageMother.createPassedStage("pipeline", 10, "stage", 21, "job1", new Date()));
+        assertThat(artifactOfAnotherStage).doesNotExist();
+        assertThat(blob).doesNotExist();
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void shouldLinkStoredContentIntoAJobAndReportTheContentItDoesNotHave() throws Exception {
+        File artifactsRoot = temporaryFolder.newFolder();
+        assumeArtifactsRoot(artifactsRoot);
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.isContentAddressedArtifactStorageEnabled()).thenReturn(true);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, new ZipUtil(), systemService, systemEnvironment);
+        artifactsService.initialize();
+        File source = temporaryFolder.newFolder("dist");
+        FileUtils.writeStringToFile(new File(source, "app.jar"), "the same jar", UTF_8);
+        File zip = temporaryFolder.newFile("dist.zip");
+        new ZipUtil().zip(source, zip, Deflater.NO_COMPRESSION);
+        JobIdentifier job1 = new JobIdentifier("pipeline", 10, "label-10", "stage", "20", "job1", 1L);
+        try (FileInputStream stream = new FileInputStream(zip)) {
+            artifactsService.saveFile(job1, artifactsService.findArtifact(job1, "dest"), stream, true, 1);
+        }
+
+        JobIdentifier job2 = new JobIdentifier("pipeline", 10, "label-10", "stage", "20", "job2", 2L);
+        Properties references = new Properties();
+        references.setProperty("dist/app.jar", sha256Hex("the same jar"));
+        references.setProperty("dist/other.jar", sha256Hex("another jar"));
+        Properties missing = artifactsService.linkStoredContent(job2, artifactsService.findArtifact(job2, "dest"), references);
+
+        assertThat(missing.stringPropertyNames()).containsExactly("dist/other.jar");
+        assertThat(artifactsService.findArtifact(job2, "dest/dist/app.jar")).hasContent("the same jar");
+        assertThat(artifactsService.findArtifact(job2, "dest/dist/other.jar")).doesNotExist();
+
+        Properties outsideOfTheArtifact = new Properties();
+        outsideOfTheArtifact.setProperty("../../job1/app.jar", sha256Hex("the same jar"));
+        assertThatThrownBy(() -> artifactsService.linkStoredContent(job2, artifactsService.findArtifact(job2, "dest"), outsideOfTheArtifact))
+                .isInstanceOf(IllegalArtifactLocationException.class);
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void shouldNotChangeStoredContentWhenAnArtifactIsAppendedTo() throws Exception {
+        File artifactsRoot = temporaryFolder.newFolder();
+        assumeArtifactsRoot(artifactsRoot);
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.isContentAddressedArtifactStorageEnabled()).thenReturn(true);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, new ZipUtil(), new SystemService(null, null), systemEnvironment);
+        artifactsService.initialize();
+        File source = temporaryFolder.newFolder("dist");
+        FileUtils.writeStringToFile(new File(source, "app.log"), "first line", UTF_8);
+        File zip = temporaryFolder.newFile("dist.zip");
+        new ZipUtil().zip(source, zip, Deflater.NO_COMPRESSION);
+        JobIdentifier job1 = new JobIdentifier("pipeline", 10, "label-10", "stage", "20", "job1", 1L);
+        try (FileInputStream stream = new FileInputStream(zip)) {
+            artifactsService.saveFile(job1, artifactsService.findArtifact(job1, "dest"), stream, true, 1);
+        }
+
+        File artifact = artifactsService.findArtifact(job1, "dest/dist/app.log");
+        artifactsService.saveOrAppendFile(artifact, new ByteArrayInputStream(", second line".getBytes(UTF_8)));
+
+        assertThat(artifact).hasContent("first line, second line");
+        assertThat(new File(artifactsRoot, "content/" + sha256Hex("first line").substring(0, 2) + "/" + sha256Hex("first line"))).hasContent("first line");
+    }
+
     private File createJobArtifactFolder(final String path) throws IOException {
         File jobDir = new File(path);
         jobDir.mkdirs();
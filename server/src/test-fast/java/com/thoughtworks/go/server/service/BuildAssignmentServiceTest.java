@@ -37,7 +37,6 @@ import com.thoughtworks.go.util.command.EnvironmentVariableContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentMatchers;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.springframework.transaction.PlatformTransactionManager;
@@ -47,7 +46,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.UUID;
 
-import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.mockito.ArgumentMatchers.any;
@@ -98,6 +96,7 @@ class BuildAssignmentServiceTest {
     private String elasticProfileId1;
     private String elasticProfileId2;
     private AgentInstance regularAgentInstance;
+    private long lastJobId;
 
     @BeforeEach
     void setUp() throws Exception {
@@ -120,7 +119,6 @@ class BuildAssignmentServiceTest {
         profiles.put(elasticProfile2.getId(), elasticProfile2);
         schedulingContext = new DefaultSchedulingContext("me", new Agents(elasticAgent), profiles);
         when(jobInstanceService.orderedScheduledBuilds()).thenReturn(jobPlans);
-        when(environmentConfigService.filterJobsByAgent(ArgumentMatchers.eq(jobPlans), any(String.class))).thenReturn(jobPlans);
         when(environmentConfigService.envForPipeline(any(String.class))).thenReturn("");
         when(maintenanceModeService.isMaintenanceMode()).thenReturn(false);
     }
@@ -128,7 +126,7 @@ class BuildAssignmentServiceTest {
     @Test
     void shouldMatchAnElasticJobToAnElasticAgentOnlyIfThePluginAgreesToTheAssignment() {
         PipelineConfig pipelineWithElasticJob = PipelineConfigMother.pipelineWithElasticJob(elasticProfileId1);
-        JobPlan jobPlan = new InstanceFactory().createJobPlan(pipelineWithElasticJob.first().getJobs().first(), schedulingContext);
+        JobPlan jobPlan = jobPlan(pipelineWithElasticJob.first().getJobs().first(), schedulingContext);
         jobPlans.add(jobPlan);
         when(elasticAgentPluginService.shouldAssignWork(elasticAgentInstance.elasticAgentMetadata(), null, jobPlan.getElasticProfile(), jobPlan.getIdentifier())).thenReturn(true);
         buildAssignmentService.onTimer();
@@ -141,7 +139,7 @@ class BuildAssignmentServiceTest {
     @Test
     void shouldNotMatchAnElasticJobToAnElasticAgentOnlyIfThePluginIdMatches() {
         PipelineConfig pipelineWithElasticJob = PipelineConfigMother.pipelineWithElasticJob(elasticProfileId1);
-        JobPlan jobPlan1 = new InstanceFactory().createJobPlan(pipelineWithElasticJob.first().getJobs().first(), schedulingContext);
+        JobPlan jobPlan1 = jobPlan(pipelineWithElasticJob.first().getJobs().first(), schedulingContext);
         jobPlans.add(jobPlan1);
         when(elasticAgentPluginService.shouldAssignWork(elasticAgentInstance.elasticAgentMetadata(), null, jobPlan1.getElasticProfile(), null)).thenReturn(false);
         buildAssignmentService.onTimer();
@@ -154,8 +152,8 @@ class BuildAssignmentServiceTest {
     @Test
     void shouldMatchAnElasticJobToAnElasticAgentOnlyIfThePluginAgreesToTheAssignmentWhenMultipleElasticJobsRequiringTheSamePluginAreScheduled() {
         PipelineConfig pipelineWith2ElasticJobs = PipelineConfigMother.pipelineWithElasticJob(elasticProfileId1, elasticProfileId2);
-        JobPlan jobPlan1 = new InstanceFactory().createJobPlan(pipelineWith2ElasticJobs.first().getJobs().first(), schedulingContext);
-        JobPlan jobPlan2 = new InstanceFactory().createJobPlan(pipelineWith2ElasticJobs.first().getJobs().last(), schedulingContext);
+        JobPlan jobPlan1 = jobPlan(pipelineWith2ElasticJobs.first().getJobs().first(), schedulingContext);
+        JobPlan jobPlan2 = jobPlan(pipelineWith2ElasticJobs.first().getJobs().last(), schedulingContext);
         jobPlans.add(jobPlan1);
         jobPlans.add(jobPlan2);
         when(elasticAgentPluginService.shouldAssignWork(elasticAgentInstance.elasticAgentMetadata(), null, jobPlan1.getElasticProfile(), jobPlan1.getIdentifier())).thenReturn(false);
@@ -173,8 +171,8 @@ class BuildAssignmentServiceTest {
         PipelineConfig pipeline = PipelineConfigMother.pipelineConfig(UUID.randomUUID().toString());
         pipeline.first().getJobs().add(JobConfigMother.jobWithNoResourceRequirement());
         pipeline.first().getJobs().add(JobConfigMother.elasticJob(elasticProfileId1));
-        JobPlan elasticJobPlan = new InstanceFactory().createJobPlan(pipeline.first().getJobs().last(), schedulingContext);
-        JobPlan regularJobPlan = new InstanceFactory().createJobPlan(pipeline.first().getJobs().first(), schedulingContext);
+        JobPlan elasticJobPlan = jobPlan(pipeline.first().getJobs().last(), schedulingContext);
+        JobPlan regularJobPlan = jobPlan(pipeline.first().getJobs().first(), schedulingContext);
         jobPlans.add(elasticJobPlan);
         jobPlans.add(regularJobPlan);
         buildAssignmentService.onTimer();
@@ -191,8 +189,8 @@ class BuildAssignmentServiceTest {
         PipelineConfig pipeline = PipelineConfigMother.pipelineConfig(UUID.randomUUID().toString());
         pipeline.first().getJobs().add(JobConfigMother.jobWithNoResourceRequirement());
         pipeline.first().getJobs().add(JobConfigMother.elasticJob(elasticProfileId1));
-        JobPlan elasticJobPlan = new InstanceFactory().createJobPlan(pipeline.first().getJobs().last(), schedulingContext);
-        JobPlan regularJobPlan = new InstanceFactory().createJobPlan(pipeline.first().getJobs().first(), schedulingContext);
+        JobPlan elasticJobPlan = jobPlan(pipeline.first().getJobs().last(), schedulingContext);
+        JobPlan regularJobPlan = jobPlan(pipeline.first().getJobs().first(), schedulingContext);
         jobPlans.add(elasticJobPlan);
         jobPlans.add(regularJobPlan);
         buildAssignmentService.onTimer();
@@ -219,24 +217,20 @@ class BuildAssignmentServiceTest {
         JobPlan jobPlan2 = getJobPlan(pipeline.getName(), pipeline.get(1).name(), pipeline.get(1).getJobs().first());
         JobPlan jobPlan3 = getJobPlan(irrelevantPipeline.getName(), irrelevantPipeline.get(0).name(), irrelevantPipeline.get(0).getJobs().first());
 
-        //need to get hold of original jobPlans in the tests
-        jobPlans = (ArrayList<JobPlan>) buildAssignmentService.jobPlans();
-
         jobPlans.add(jobPlan1);
         jobPlans.add(jobPlan2);
         jobPlans.add(jobPlan3);
+        buildAssignmentService.onTimer();
 
         //delete a stage
         pipeline.remove(1);
 
-        assertThat(jobPlans.size()).isEqualTo(3);
+        assertThat(buildAssignmentService.jobPlans().size()).isEqualTo(3);
 
         when(goConfigService.hasPipelineNamed(pipeline.getName())).thenReturn(true);
         buildAssignmentService.pipelineConfigChangedListener().onEntityConfigChange(pipeline);
 
-        assertThat(jobPlans.size()).isEqualTo(2);
-        assertThat(jobPlans.get(0)).isEqualTo(jobPlan1);
-        assertThat(jobPlans.get(1)).isEqualTo(jobPlan3);
+        assertThat(buildAssignmentService.jobPlans()).containsExactly(jobPlan1, jobPlan3);
     }
 
     @Test
@@ -255,18 +249,15 @@ class BuildAssignmentServiceTest {
         JobPlan jobPlan2 = getJobPlan(pipeline.getName(), pipeline.get(1).name(), pipeline.get(1).getJobs().first());
         JobPlan jobPlan3 = getJobPlan(irrelevantPipeline.getName(), irrelevantPipeline.get(0).name(), irrelevantPipeline.get(0).getJobs().first());
 
-        //need to get hold of original jobPlans in the tests
-        jobPlans = (ArrayList<JobPlan>) buildAssignmentService.jobPlans();
-
         jobPlans.add(jobPlan1);
         jobPlans.add(jobPlan2);
         jobPlans.add(jobPlan3);
+        buildAssignmentService.onTimer();
 
         when(goConfigService.hasPipelineNamed(pipeline.getName())).thenReturn(false);
         buildAssignmentService.pipelineConfigChangedListener().onEntityConfigChange(pipeline);
 
-        assertThat(jobPlans.size()).isEqualTo(1);
-        assertThat(jobPlans.get(0)).isEqualTo(jobPlan3);
+        assertThat(buildAssignmentService.jobPlans()).containsExactly(jobPlan3);
     }
 
     @Nested
@@ -285,9 +276,11 @@ class BuildAssignmentServiceTest {
 
             when(agentInstance.isRegistered()).thenReturn(true);
             when(agentInstance.agentConfig()).thenReturn(mock(AgentConfig.class));
-            when(agentInstance.firstMatching(anyList())).thenReturn(jobPlan1);
+            when(agentInstance.getUuid()).thenReturn("agent_uuid");
+            when(agentInstance.getResourceConfigs()).thenReturn(new ResourceConfigs());
+            jobPlans.add(jobPlan1);
+            buildAssignmentService.onTimer();
             when(pipeline.getBuildCause()).thenReturn(BuildCause.createNeverRun());
-            when(environmentConfigService.filterJobsByAgent(any(), any())).thenReturn(singletonList(jobPlan1));
             when(scheduledPipelineLoader.pipelineWithPasswordAwareBuildCauseByBuildId(anyLong())).thenReturn(pipeline);
             when(scheduleService.updateAssignedInfo(anyString(), any())).thenReturn(false);
             when(goConfigService.artifactStores()).thenReturn(new ArtifactStores());
@@ -311,9 +304,11 @@ class BuildAssignmentServiceTest {
 
             when(agentInstance.isRegistered()).thenReturn(true);
             when(agentInstance.agentConfig()).thenReturn(mock(AgentConfig.class));
-            when(agentInstance.firstMatching(anyList())).thenReturn(jobPlan1);
+            when(agentInstance.getUuid()).thenReturn("agent_uuid");
+            when(agentInstance.getResourceConfigs()).thenReturn(new ResourceConfigs());
+            jobPlans.add(jobPlan1);
+            buildAssignmentService.onTimer();
             when(pipeline.getBuildCause()).thenReturn(BuildCause.createWithModifications(materialRevisions, "bob"));
-            when(environmentConfigService.filterJobsByAgent(any(), any())).thenReturn(singletonList(jobPlan1));
             when(scheduledPipelineLoader.pipelineWithPasswordAwareBuildCauseByBuildId(anyLong())).thenReturn(pipeline);
             when(scheduleService.updateAssignedInfo(anyString(), any())).thenReturn(false);
             when(goConfigService.artifactStores()).thenReturn(new ArtifactStores());
@@ -338,7 +333,9 @@ class BuildAssignmentServiceTest {
             JobInstance jobInstance = mock(JobInstance.class);
 
             when(agentInstance.isRegistered()).thenReturn(true);
-            when(agentInstance.firstMatching(anyList())).thenReturn(jobPlan1);
+            when(agentInstance.getResourceConfigs()).thenReturn(new ResourceConfigs());
+            jobPlans.add(jobPlan1);
+            buildAssignmentService.onTimer();
             when(pipeline.getBuildCause()).thenReturn(BuildCause.createWithModifications(materialRevisions, "bob"));
             when(scheduledPipelineLoader.pipelineWithPasswordAwareBuildCauseByBuildId(anyLong())).thenReturn(pipeline);
             when(goConfigService.artifactStores()).thenReturn(new ArtifactStores());
@@ -358,8 +355,14 @@ class BuildAssignmentServiceTest {
         }
     }
 
+    private JobPlan jobPlan(JobConfig job, SchedulingContext context) {
+        DefaultJobPlan jobPlan = (DefaultJobPlan) new InstanceFactory().createJobPlan(job, context);
+        jobPlan.setJobId(++lastJobId);
+        return jobPlan;
+    }
+
     private JobPlan getJobPlan(CaseInsensitiveString pipelineName, CaseInsensitiveString stageName, JobConfig job) {
-        JobPlan jobPlan = new InstanceFactory().createJobPlan(job, schedulingContext);
+        JobPlan jobPlan = jobPlan(job, schedulingContext);
 
         jobPlan.getIdentifier().setPipelineName(pipelineName.toString());
         jobPlan.getIdentifier().setStageName(stageName.toString());
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.domain.JobState;
+import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.JobStatusMessage;
+import com.thoughtworks.go.server.messaging.JobStatusTopic;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ConsoleLogSinkTest {
+    private ConsoleService consoleService;
+    private JobStatusTopic jobStatusTopic;
+    private JobIdentifier first;
+    private JobIdentifier second;
+    private Path firstLog;
+    private Path secondLog;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) throws Exception {
+        consoleService = mock(ConsoleService.class);
+        jobStatusTopic = mock(JobStatusTopic.class);
+        first = new JobIdentifier("up42", "1", "stage", "1", "first", 1L);
+        second = new JobIdentifier("up42", "1", "stage", "1", "second", 2L);
+        firstLog = tempDir.resolve("first/console.log");
+        secondLog = tempDir.resolve("second/console.log");
+        when(consoleService.consoleLogFile(first)).thenReturn(firstLog.toFile());
+        when(consoleService.consoleLogFile(second)).thenReturn(secondLog.toFile());
+    }
+
+    @Test
+    void shouldAppendToTheConsoleLogOfAJobInTheOrderOutputArrived() throws Exception {
+        ConsoleLogSink sink = startedSink(2, 512);
+
+        sink.append(first, "one\n".getBytes(UTF_8));
+        sink.append(second, "uno\n".getBytes(UTF_8));
+        sink.append(first, "two\n".getBytes(UTF_8));
+        sink.close(first);
+        sink.close(second);
+
+        assertThat(content(firstLog)).isEqualTo("one\ntwo\n");
+        assertThat(content(secondLog)).isEqualTo("uno\n");
+        verify(consoleService, times(1)).consoleLogFile(first);
+        verify(consoleService, atLeastOnce()).consoleLogAppended(first, firstLog.toFile());
+        verify(consoleService, atLeastOnce()).consoleLogAppended(second, secondLog.toFile());
+    }
+
+    @Test
+    void shouldCloseTheLeastRecentlyWrittenLogToStayWithinTheOpenFileLimit() throws Exception {
+        ConsoleLogSink sink = startedSink(1, 1);
+
+        sink.append(first, "one\n".getBytes(UTF_8));
+        sink.append(second, "uno\n".getBytes(UTF_8));
+        sink.append(first, "two\n".getBytes(UTF_8));
+        sink.close(first);
+
+        assertThat(content(firstLog)).isEqualTo("one\ntwo\n");
+        assertThat(content(secondLog)).isEqualTo("uno\n");
+        verify(consoleService, times(2)).consoleLogFile(first);
+    }
+
+    @Test
+    void shouldCloseTheLogOfAJobOnceItCompletes() throws Exception {
+        ConsoleLogSink sink = startedSink(1, 512);
+        ArgumentCaptor<GoMessageListener<JobStatusMessage>> listener = ArgumentCaptor.forClass(GoMessageListener.class);
+        verify(jobStatusTopic).addListener(listener.capture());
+
+        sink.append(first, "one\n".getBytes(UTF_8));
+        listener.getValue().onMessage(new JobStatusMessage(first, JobState.Building, "agent"));
+        sink.append(first, "two\n".getBytes(UTF_8));
+        listener.getValue().onMessage(new JobStatusMessage(first, JobState.Completed, "agent"));
+        sink.append(first, "three\n".getBytes(UTF_8));
+        sink.close(first);
+
+        assertThat(content(firstLog)).isEqualTo("one\ntwo\nthree\n");
+        verify(consoleService, times(2)).consoleLogFile(first);
+    }
+
+    @Test
+    void shouldKeepWritingOtherLogsWhenALogCannotBeWritten() throws Exception {
+        when(consoleService.consoleLogFile(first)).thenThrow(new IllegalArtifactLocationException("no way"));
+        ConsoleLogSink sink = startedSink(1, 512);
+
+        sink.append(first, "one\n".getBytes(UTF_8));
+        sink.append(second, "uno\n".getBytes(UTF_8));
+        sink.close(second);
+
+        assertThat(content(secondLog)).isEqualTo("uno\n");
+        verify(consoleService, never()).consoleLogAppended(eq(first), any(File.class));
+    }
+
+    private ConsoleLogSink startedSink(int threads, int openFiles) {
+        ConsoleLogSink sink = new ConsoleLogSink(consoleService, jobStatusTopic, threads, 100, openFiles);
+        sink.initialize();
+        return sink;
+    }
+
+    private static String content(Path log) throws Exception {
+        return new String(Files.readAllBytes(log), UTF_8);
+    }
+}
@@ -16,22 +16,26 @@
 
 package com.thoughtworks.go.server.service;
 
+import com.thoughtworks.go.domain.ConsoleLogIndex;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.helper.JobIdentifierMother;
+import com.thoughtworks.go.server.domain.ConsoleLogListener;
 import com.thoughtworks.go.server.view.artifacts.ArtifactDirectoryChooser;
+import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 
 import static com.thoughtworks.go.util.ArtifactLogUtil.getConsoleOutputFolderAndFileName;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 public class ConsoleServiceTest {
 
@@ -139,4 +143,52 @@ public class ConsoleServiceTest {
         assertThat(finalConsoleLog.exists(), is(true));
     }
 
+    @Test
+    public void shouldNotifyListenersWhenConsoleLogIsUpdated() throws Exception {
+        JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
+        ConsoleLogListener listener = mock(ConsoleLogListener.class);
+        service.addListener(listener);
+
+        File consoleLog = new File(testFolder.getRoot(), "console.log");
+        assertThat(service.updateConsoleLog(jobIdentifier, consoleLog, new ByteArrayInputStream("foo\n".getBytes())), is(true));
+
+        verify(listener).consoleLogUpdated(jobIdentifier);
+        assertThat(FileUtils.readFileToString(consoleLog, UTF_8), is("foo\n"));
+    }
+
+    @Test
+    public void shouldIndexConsoleLogOncePerAppendedBatchAndMoveIndexWithConsoleArtifacts() throws Exception {
+        JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
+
+        File temporaryConsoleLog = new File(testFolder.getRoot(), "temporary_console.log");
+        File finalConsoleLog = new File(testFolder.getRoot(), "final_console.log");
+        when(chooser.temporaryConsoleFile(jobIdentifier)).thenReturn(temporaryConsoleLog);
+        when(chooser.findArtifact(jobIdentifier, getConsoleOutputFolderAndFileName())).thenReturn(finalConsoleLog);
+
+        FileUtils.writeStringToFile(temporaryConsoleLog, "foo\n", UTF_8);
+        service.consoleLogAppended(jobIdentifier, temporaryConsoleLog);
+        assertThat(ConsoleLogIndex.indexFileFor(temporaryConsoleLog.toPath()).toFile().exists(), is(true));
+
+        service.moveConsoleArtifacts(jobIdentifier);
+
+        assertThat(ConsoleLogIndex.indexFileFor(temporaryConsoleLog.toPath()).toFile().exists(), is(false));
+        assertThat(ConsoleLogIndex.indexFileFor(finalConsoleLog.toPath()).toFile().exists(), is(true));
+    }
+
+    @Test
+    public void shouldIndexLogsUpdatedOneMessageAtATimeOnlyWhenReadersSeekIntoThem() throws Exception {
+        JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
+        File consoleLog = new File(testFolder.getRoot(), "console.log");
+        when(chooser.findArtifact(jobIdentifier, getConsoleOutputFolderAndFileName())).thenReturn(consoleLog);
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < ConsoleLogIndex.CHECKPOINT_INTERVAL + 1; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        service.updateConsoleLog(jobIdentifier, consoleLog, new ByteArrayInputStream(content.toString().getBytes(UTF_8)));
+        assertThat(ConsoleLogIndex.indexFileFor(consoleLog.toPath()).toFile().exists(), is(false));
+
+        service.getStreamer(ConsoleLogIndex.CHECKPOINT_INTERVAL, jobIdentifier).close();
+        assertThat(ConsoleLogIndex.checkpointBefore(consoleLog.toPath(), ConsoleLogIndex.CHECKPOINT_INTERVAL).line(), is((long) ConsoleLogIndex.CHECKPOINT_INTERVAL));
+    }
 }
@@ -15,23 +15,23 @@
  */
 package com.thoughtworks.go.server.service;
 
-import com.thoughtworks.go.config.ConfigCache;
-import com.thoughtworks.go.config.EnvironmentConfig;
-import com.thoughtworks.go.config.MagicalGoConfigXmlWriter;
-import com.thoughtworks.go.config.PipelineConfig;
-import com.thoughtworks.go.config.registry.ConfigElementImplementationRegistry;
+import com.google.gson.GsonBuilder;
+import com.thoughtworks.go.config.*;
 import com.thoughtworks.go.helper.PipelineConfigMother;
 import com.thoughtworks.go.server.cache.GoCache;
 import com.thoughtworks.go.server.domain.PluginSettings;
+import com.thoughtworks.go.server.transaction.TestTransactionSynchronizationManager;
 import com.thoughtworks.go.util.CachedDigestUtils;
-import com.thoughtworks.go.util.ConfigElementImplementationRegistryMother;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class EntityHashingServiceTest {
@@ -39,7 +39,6 @@ public class EntityHashingServiceTest {
     private GoCache goCache;
     private EntityHashingService entityHashingService;
     private ConfigCache configCache;
-    private ConfigElementImplementationRegistry registry;
 
     @Rule
     public ExpectedException thrown = ExpectedException.none();
@@ -49,8 +48,7 @@ public class EntityHashingServiceTest {
         this.goConfigService = mock(GoConfigService.class);
         this.goCache = mock(GoCache.class);
         this.configCache = new ConfigCache();
-        this.registry = ConfigElementImplementationRegistryMother.withNoPlugins();
-        this.entityHashingService = new EntityHashingService(this.goConfigService, this.goCache, configCache, registry);
+        this.entityHashingService = new EntityHashingService(this.goConfigService, this.goCache, configCache);
     }
 
     @Test
@@ -60,11 +58,10 @@ public class EntityHashingServiceTest {
     }
 
     @Test
-    public void shouldComputeTheMD5OfAGivenXmlPartialGeneratedFromAnObject() {
+    public void shouldComputeTheMD5OfAGivenObjectFromItsConfigFields() {
         PipelineConfig pipelineConfig = PipelineConfigMother.pipelineConfig("P1");
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
 
-        assertThat(entityHashingService.md5ForEntity(pipelineConfig), is(CachedDigestUtils.md5Hex(xml)));
+        assertThat(entityHashingService.md5ForEntity(pipelineConfig), is(new ConfigFingerprinter(configCache).md5(pipelineConfig)));
     }
 
     @Test
@@ -85,11 +82,40 @@ public class EntityHashingServiceTest {
         verify(goCache).put("GO_ETAG_CACHE", "com.thoughtworks.go.server.domain.PluginSettings.com.foo.plugin", expectedMd5);
     }
 
+    @Test
+    public void shouldUseTheJsonOfAnArtifactStoreForItsMD5() {
+        ArtifactStore artifactStore = new ArtifactStore("docker", "cd.go.artifact.docker");
+        String expectedMd5 = CachedDigestUtils.md5Hex(new GsonBuilder().create().toJson(artifactStore));
+
+        String actualMd5 = entityHashingService.md5ForEntity(artifactStore);
+
+        assertThat(actualMd5, is(expectedMd5));
+        verify(goCache).put("GO_ETAG_CACHE", "com.thoughtworks.go.config.ArtifactStore.docker", expectedMd5);
+        verify(goCache, never()).put(eq("GO_CONFIG_ETAG_CACHE"), any(), any());
+    }
+
     @Test
     public void shouldInvalidatePipelineConfigEtagsFromCacheOnConfigChange() {
         entityHashingService.onConfigChange(null);
 
         verify(goCache).remove("GO_ETAG_CACHE");
+        verify(goCache, never()).remove("GO_CONFIG_ETAG_CACHE");
+    }
+
+    @Test
+    public void shouldKeepTheMD5OfAConfigEntityAcrossConfigChangesUntilTheEntityIsReplaced() {
+        EntityHashingService entityHashingService = new EntityHashingService(goConfigService, new StubGoCache(new TestTransactionSynchronizationManager()), configCache);
+        PipelineConfig pipelineConfig = PipelineConfigMother.pipelineConfig("P1");
+        String md5 = entityHashingService.md5ForEntity(pipelineConfig);
+
+        pipelineConfig.setLabelTemplate("${COUNT}-changed");
+        entityHashingService.onConfigChange(null);
+        assertThat(entityHashingService.md5ForEntity(pipelineConfig), is(md5));
+
+        PipelineConfig replacement = PipelineConfigMother.pipelineConfig("P1");
+        replacement.setLabelTemplate("${COUNT}-changed");
+        assertThat(entityHashingService.md5ForEntity(replacement), is(not(md5)));
+        assertThat(entityHashingService.md5ForEntity(replacement), is(new ConfigFingerprinter(configCache).md5(replacement)));
     }
 
     @Test
@@ -100,15 +126,16 @@ public class EntityHashingServiceTest {
         listener.onEntityConfigChange(pipelineConfig);
 
         verify(goCache).remove("GO_ETAG_CACHE", (pipelineConfig.getClass().getName() + "." + "p1"));
+        verify(goCache).remove("GO_CONFIG_ETAG_CACHE", (pipelineConfig.getClass().getName() + "." + "p1"));
     }
 
     @Test
     public void entityChecksumIsIdenticalForObjectsWithCaseInsensitiveName() throws Exception {
         PipelineConfig pipelineConfig = PipelineConfigMother.pipelineConfig("UPPER_CASE_NAME");
-        when(goCache.get("GO_ETAG_CACHE", "com.thoughtworks.go.config.PipelineConfig.upper_case_name")).thenReturn("foo");
         String checksum = entityHashingService.md5ForEntity(pipelineConfig);
-        assertThat(checksum, is("foo"));
-        verify(goCache).get("GO_ETAG_CACHE", "com.thoughtworks.go.config.PipelineConfig.upper_case_name");
+        verify(goCache).get("GO_CONFIG_ETAG_CACHE", "com.thoughtworks.go.config.PipelineConfig.upper_case_name");
+        verify(goCache).put(eq("GO_CONFIG_ETAG_CACHE"), eq("com.thoughtworks.go.config.PipelineConfig.upper_case_name"), any());
         verifyNoMoreInteractions(goCache);
+        assertThat(checksum, is(new ConfigFingerprinter(configCache).md5(pipelineConfig)));
     }
 }
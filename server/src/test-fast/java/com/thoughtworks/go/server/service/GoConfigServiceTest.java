@@ -172,6 +172,22 @@ public class GoConfigServiceTest {
         return configWith(createPipelineConfig(PIPELINE, STAGE, JOB));
     }
 
+    @Test
+    public void shouldFailToReadTheAclOfAStageThatDoesNotExist() {
+        cruiseConfig.compile();
+
+        try {
+            goConfigService.readAclBy(PIPELINE, "unknown-stage");
+            fail("should not read the acl of a stage that does not exist");
+        } catch (NullPointerException expected) {
+        }
+        try {
+            goConfigService.readAclBy("unknown-pipeline", STAGE);
+            fail("should not read the acl of a pipeline that does not exist");
+        } catch (RecordNotFoundException expected) {
+        }
+    }
+
     @Test
     public void shouldGetAllStagesWithOne() throws Exception {
         final PipelineConfigs newPipeline = new BasicPipelineConfigs();
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.AgentConfig;
+import com.thoughtworks.go.config.ResourceConfig;
+import com.thoughtworks.go.config.ResourceConfigs;
+import com.thoughtworks.go.domain.*;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JobPlanMatcherTest {
+    private EnvironmentConfigService environmentConfigService;
+    private JobPlanMatcher matcher;
+
+    @BeforeEach
+    void setUp() {
+        environmentConfigService = mock(EnvironmentConfigService.class);
+        when(environmentConfigService.environmentsFor(anyString())).thenReturn(new TreeSet<>());
+        matcher = new JobPlanMatcher(environmentConfigService);
+    }
+
+    @Test
+    void shouldMatchTheEarliestJobWhoseResourcesTheAgentHas() {
+        JobPlan needsFirefox = jobPlan(1, "up42", null, "firefox");
+        JobPlan needsLinux = jobPlan(2, "up42", null, "linux");
+        JobPlan needsNothing = jobPlan(3, "up42", null);
+        matcher.reload(asList(needsFirefox, needsLinux, needsNothing));
+
+        AgentInstance linuxAgent = agent("linux-agent", "LINUX", "java");
+
+        assertThat(matcher.claimFirstMatch(linuxAgent, job -> true)).isEqualTo(needsLinux);
+        assertThat(matcher.claimFirstMatch(linuxAgent, job -> true)).isEqualTo(needsNothing);
+        assertThat(matcher.claimFirstMatch(linuxAgent, job -> true)).isNull();
+        assertThat(matcher.jobPlans()).containsExactly(needsFirefox);
+    }
+
+    @Test
+    void shouldOnlyMatchJobsPinnedToAnAgentWithThatAgent() {
+        JobPlan pinned = jobPlan(1, "up42", "agent-1", "firefox");
+        matcher.reload(Collections.singletonList(pinned));
+
+        assertThat(matcher.claimFirstMatch(agent("agent-2", "firefox"), job -> true)).isNull();
+        assertThat(matcher.claimFirstMatch(agent("agent-1"), job -> true)).isEqualTo(pinned);
+    }
+
+    @Test
+    void shouldOnlyMatchJobsOfPipelinesInTheEnvironmentsOfTheAgent() {
+        when(environmentConfigService.envForPipeline("prod-deploy")).thenReturn("Prod");
+        when(environmentConfigService.environmentsFor("prod-agent")).thenReturn(new TreeSet<>(Collections.singletonList("prod")));
+        JobPlan build = jobPlan(1, "build", null);
+        JobPlan deploy = jobPlan(2, "prod-deploy", null);
+        matcher.reload(asList(build, deploy));
+
+        assertThat(matcher.claimFirstMatch(agent("prod-agent"), job -> true)).isEqualTo(deploy);
+        assertThat(matcher.claimFirstMatch(agent("prod-agent"), job -> true)).isNull();
+        assertThat(matcher.claimFirstMatch(agent("other-agent"), job -> true)).isEqualTo(build);
+    }
+
+    @Test
+    void shouldMatchJobsOfPipelinesThatMovedToAnotherEnvironmentSinceTheyWereQueued() {
+        JobPlan deploy = jobPlan(1, "deploy", null);
+        matcher.reload(Collections.singletonList(deploy));
+        when(environmentConfigService.envForPipeline("deploy")).thenReturn("prod");
+        when(environmentConfigService.environmentsFor("prod-agent")).thenReturn(new TreeSet<>(Collections.singletonList("prod")));
+
+        assertThat(matcher.claimFirstMatch(agent("other-agent"), job -> true)).isNull();
+        assertThat(matcher.claimFirstMatch(agent("prod-agent"), job -> true)).isEqualTo(deploy);
+    }
+
+    @Test
+    void shouldNotQueueClaimedJobsAgainUntilTheyAreReleased() {
+        JobPlan first = jobPlan(1, "up42", null);
+        JobPlan second = jobPlan(2, "up42", null);
+        matcher.reload(asList(first, second));
+
+        AgentInstance agent = agent("agent-1");
+        assertThat(matcher.claimFirstMatch(agent, job -> true)).isEqualTo(first);
+
+        matcher.reload(asList(first, second));
+        assertThat(matcher.jobPlans()).containsExactly(second);
+
+        matcher.release(first);
+        matcher.reload(asList(first, second));
+        assertThat(matcher.jobPlans()).containsExactly(second, first);
+    }
+
+    @Test
+    void shouldDropJobsThatAreNoLongerScheduledOnReload() {
+        JobPlan first = jobPlan(1, "up42", null);
+        JobPlan second = jobPlan(2, "up42", null);
+        matcher.reload(asList(first, second));
+
+        assertThat(matcher.reload(Collections.singletonList(second))).containsExactly(first, second);
+        assertThat(matcher.jobPlans()).containsExactly(second);
+        assertThat(matcher.claimFirstMatch(agent("agent-1"), job -> true)).isEqualTo(second);
+    }
+
+    @Test
+    void shouldNotMatchRemovedJobs() {
+        JobPlan job = jobPlan(1, "up42", null);
+        matcher.reload(Collections.singletonList(job));
+
+        assertThat(matcher.remove(job)).isTrue();
+        assertThat(matcher.remove(job)).isFalse();
+        assertThat(matcher.claimFirstMatch(agent("agent-1"), plan -> true)).isNull();
+
+        matcher.reload(Collections.singletonList(job));
+        assertThat(matcher.jobPlans()).isEmpty();
+    }
+
+    private AgentInstance agent(String uuid, String... resources) {
+        ResourceConfigs resourceConfigs = new ResourceConfigs(Arrays.stream(resources).map(ResourceConfig::new).toArray(ResourceConfig[]::new));
+        return AgentInstance.createFromConfig(new AgentConfig(uuid, "host-" + uuid, "127.0.0.1", resourceConfigs), new SystemEnvironment(), null);
+    }
+
+    private JobPlan jobPlan(long id, String pipelineName, String agentUuid, String... resources) {
+        JobIdentifier identifier = new JobIdentifier(pipelineName, 1, "1", "stage", "1", "job-" + id, id);
+        Resources jobResources = new Resources();
+        Arrays.stream(resources).map(Resource::new).forEach(jobResources::add);
+        return new DefaultJobPlan(jobResources, new ArrayList<>(), new ArrayList<>(), id, identifier, agentUuid,
+                new EnvironmentVariables(), new EnvironmentVariables(), null, null);
+    }
+}
@@ -48,7 +48,7 @@ public class FanInGraphTest {
         PipelineConfig p4 = PipelineConfigMother.pipelineConfig("p4", new MaterialConfigs(p2Dep, p3Dep));
 
         CruiseConfig cruiseConfig = new BasicCruiseConfig(new BasicPipelineConfigs(p1, p2, p3, p4));
-        FanInGraph faninGraph = new FanInGraph(cruiseConfig, p4.name(), null, null, null, null);
+        FanInGraph faninGraph = new FanInGraph(cruiseConfig, p4.name(), null, null, null, null, null);
         List<ScmMaterialConfig> scmMaterialNodes = faninGraph.getScmMaterials();
         List<String> scmMaterialUrls = new ArrayList<>();
         for (ScmMaterialConfig scmMaterialNode : scmMaterialNodes) {
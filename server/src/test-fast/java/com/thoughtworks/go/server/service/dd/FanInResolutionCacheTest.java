@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.service.dd;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.domain.PipelineTimelineEntry;
+import com.thoughtworks.go.helper.MaterialConfigsMother;
+import com.thoughtworks.go.server.domain.PipelineTimeline;
+import com.thoughtworks.go.server.service.StubGoCache;
+import com.thoughtworks.go.server.transaction.TestTransactionSynchronizationManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class FanInResolutionCacheTest {
+    private static final String GIT = "git-fingerprint";
+    private static final String UPSTREAM = "upstream-fingerprint";
+    private static final String MIDDLE = "middle-fingerprint";
+
+    private PipelineTimeline pipelineTimeline;
+    private FanInResolutionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        pipelineTimeline = mock(PipelineTimeline.class);
+        cache = new FanInResolutionCache(new StubGoCache(new TestTransactionSynchronizationManager()));
+    }
+
+    @Test
+    void shouldResolveTheScmRevisionsOfAnInstanceAndOfTheUpstreamInstancesItWasTriggeredBy() {
+        PipelineTimelineEntry.Revision r1 = revision("r1");
+        upstreamInstance(1, r1);
+        PipelineTimelineEntry downstream = entry("downstream", 2, 1, revisions(GIT, r1, UPSTREAM, revision("upstream/1/stage/1")));
+
+        List<FaninScmMaterial> scmMaterials = cache.scmMaterialsFor(downstream, context("shape"));
+
+        assertThat(scmMaterials).hasSize(1);
+        assertThat(scmMaterials.get(0).revision).isEqualTo(r1);
+    }
+
+    @Test
+    void shouldKeepConflictingRevisionsOfAMaterial() {
+        upstreamInstance(1, revision("r1"));
+        PipelineTimelineEntry downstream = entry("downstream", 2, 1, revisions(GIT, revision("r2"), UPSTREAM, revision("upstream/1/stage/1")));
+
+        List<FaninScmMaterial> scmMaterials = cache.scmMaterialsFor(downstream, context("shape"));
+
+        assertThat(scmMaterials).extracting(scmMaterial -> scmMaterial.revision.revision).containsExactlyInAnyOrder("r1", "r2");
+    }
+
+    @Test
+    void shouldReuseResolutionsAcrossChecks() {
+        upstreamInstance(1, revision("r1"));
+        PipelineTimelineEntry downstream = entry("downstream", 2, 1, revisions(UPSTREAM, revision("upstream/1/stage/1")));
+
+        cache.scmMaterialsFor(downstream, context("shape"));
+        List<FaninScmMaterial> scmMaterials = cache.scmMaterialsFor(downstream, context("shape"));
+
+        assertThat(scmMaterials).extracting(scmMaterial -> scmMaterial.revision.revision).containsExactly("r1");
+        verify(pipelineTimeline, times(1)).getEntryFor(new CaseInsensitiveString("upstream"), 1);
+    }
+
+    @Test
+    void shouldResolveANewInstanceFromTheResolutionsOfItsUpstreamInstances() {
+        upstreamInstance(1, revision("r1"));
+        PipelineTimelineEntry middle = entry("middle", 2, 1, revisions(UPSTREAM, revision("upstream/1/stage/1")));
+        when(pipelineTimeline.getEntryFor(new CaseInsensitiveString("middle"), 1)).thenReturn(middle);
+        cache.scmMaterialsFor(entry("downstream", 3, 1, revisions(MIDDLE, revision("middle/1/stage/1"))), context("shape"));
+
+        List<FaninScmMaterial> scmMaterials = cache.scmMaterialsFor(entry("downstream", 4, 2, revisions(MIDDLE, revision("middle/1/stage/1"))), context("shape"));
+
+        assertThat(scmMaterials).extracting(scmMaterial -> scmMaterial.revision.revision).containsExactly("r1");
+        verify(pipelineTimeline, times(2)).getEntryFor(new CaseInsensitiveString("middle"), 1);
+        verify(pipelineTimeline, times(1)).getEntryFor(new CaseInsensitiveString("upstream"), 1);
+    }
+
+    @Test
+    void shouldResolveInstancesAgainForADifferentGraphShape() {
+        upstreamInstance(1, revision("r1"));
+        PipelineTimelineEntry downstream = entry("downstream", 2, 1, revisions(UPSTREAM, revision("upstream/1/stage/1")));
+
+        cache.scmMaterialsFor(downstream, context("shape"));
+        FanInGraphContext withoutGit = context("another-shape");
+        withoutGit.fingerprintScmMaterialMap = new HashMap<>();
+
+        assertThat(cache.scmMaterialsFor(downstream, withoutGit)).isEmpty();
+    }
+
+    private void upstreamInstance(int counter, PipelineTimelineEntry.Revision gitRevision) {
+        PipelineTimelineEntry upstream = entry("upstream", counter, counter, revisions(GIT, gitRevision));
+        when(pipelineTimeline.getEntryFor(new CaseInsensitiveString("upstream"), counter)).thenReturn(upstream);
+    }
+
+    private FanInGraphContext context(String graphShape) {
+        FanInGraphContext context = new FanInGraphContext();
+        context.pipelineTimeline = pipelineTimeline;
+        context.fingerprintScmMaterialMap = new HashMap<>(Collections.singletonMap(GIT, MaterialConfigsMother.gitMaterialConfig()));
+        context.fingerprintDepMaterialMap = new HashMap<>();
+        context.fingerprintDepMaterialMap.put(UPSTREAM, new DependencyMaterialConfig(new CaseInsensitiveString("upstream"), new CaseInsensitiveString("stage")));
+        context.fingerprintDepMaterialMap.put(MIDDLE, new DependencyMaterialConfig(new CaseInsensitiveString("middle"), new CaseInsensitiveString("stage")));
+        context.fanInResolutionCache = cache;
+        context.graphShape = graphShape;
+        return context;
+    }
+
+    private static PipelineTimelineEntry entry(String pipelineName, long id, int counter, Map<String, List<PipelineTimelineEntry.Revision>> revisions) {
+        return new PipelineTimelineEntry(pipelineName, id, counter, revisions);
+    }
+
+    private static Map<String, List<PipelineTimelineEntry.Revision>> revisions(Object... fingerprintsAndRevisions) {
+        Map<String, List<PipelineTimelineEntry.Revision>> revisions = new LinkedHashMap<>();
+        for (int i = 0; i < fingerprintsAndRevisions.length; i += 2) {
+            revisions.put((String) fingerprintsAndRevisions[i], Collections.singletonList((PipelineTimelineEntry.Revision) fingerprintsAndRevisions[i + 1]));
+        }
+        return revisions;
+    }
+
+    private static PipelineTimelineEntry.Revision revision(String revision) {
+        return new PipelineTimelineEntry.Revision(new Date(), revision, "folder", revision.hashCode());
+    }
+}
@@ -19,6 +19,7 @@ package com.thoughtworks.go.server.web;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.cache.ZipArtifactCache;
 import com.thoughtworks.go.server.view.artifacts.PreparingArtifactFile;
+import com.thoughtworks.go.server.view.artifacts.StreamingZipArtifact;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -63,6 +64,38 @@ public class ZipArtifactFolderViewFactoryTest {
         assertThat(targetFile, is(cacheZipFile));
     }
 
+    @Test public void shouldStreamZipWhenStreamingIsEnabledAndTheZipIsNotCached() throws Exception {
+        cacheZipFile.delete();
+        folderViewFactory = new ZipArtifactFolderViewFactory(streamingCache());
+
+        ModelAndView modelAndView = folderViewFactory.createView(JOB_IDENTIFIER, new ArtifactFolder(JOB_IDENTIFIER, folder, "dir"));
+        assertThat(modelAndView.getView(), is(instanceOf(StreamingZipArtifact.class)));
+    }
+
+    @Test public void shouldViewCachedZipArtifactWhenStreamingIsEnabledAndTheZipIsCached() throws Exception {
+        folderViewFactory = new ZipArtifactFolderViewFactory(streamingCache());
+
+        ModelAndView modelAndView = folderViewFactory.createView(JOB_IDENTIFIER, new ArtifactFolder(JOB_IDENTIFIER, folder, "dir"));
+        assertThat(modelAndView.getViewName(), is("fileView"));
+        assertThat(modelAndView.getModel().get("targetFile"), is(cacheZipFile));
+    }
+
+    private ZipArtifactCache streamingCache() {
+        return new ZipArtifactCache(null, null) {
+            public boolean streamsZips() {
+                return true;
+            }
+
+            public boolean cacheCreated(ArtifactFolder artifactFolder) {
+                return cacheZipFile.exists();
+            }
+
+            public File cachedFile(ArtifactFolder artifactFolder) {
+                return cacheZipFile;
+            }
+        };
+    }
+
     private ZipArtifactCache cacheAlreadyCreated() {
         return new ZipArtifactCache(null, null) {
             public boolean cacheCreated(ArtifactFolder artifactFolder) {
@@ -23,17 +23,13 @@ import com.thoughtworks.go.remote.AgentInstruction;
 import com.thoughtworks.go.remote.BuildRepositoryRemote;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
 import com.thoughtworks.go.server.service.AgentService;
-import com.thoughtworks.go.server.service.ConsoleService;
+import com.thoughtworks.go.server.service.ConsoleLogSink;
 import com.thoughtworks.go.server.service.JobInstanceService;
 import com.thoughtworks.go.websocket.*;
-import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
-import java.io.File;
-import java.io.InputStream;
-
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertEquals;
@@ -45,14 +41,14 @@ public class AgentRemoteHandlerTest {
     private BuildRepositoryRemote remote;
     private AgentService agentService;
     private AgentStub agent = new AgentStub();
-    private ConsoleService consoleService;
+    private ConsoleLogSink consoleLogSink;
 
     @Before
     public void setUp() {
         remote = mock(BuildRepositoryRemote.class);
         agentService = mock(AgentService.class);
-        consoleService = mock(ConsoleService.class);
-        handler = new AgentRemoteHandler(remote, agentService, mock(JobInstanceService.class), consoleService);
+        consoleLogSink = mock(ConsoleLogSink.class);
+        handler = new AgentRemoteHandler(remote, agentService, mock(JobInstanceService.class), consoleLogSink);
     }
 
     @Test
@@ -166,15 +162,12 @@ public class AgentRemoteHandlerTest {
     public void consoleOut() throws Exception {
         JobIdentifier jobIdentifier = new JobIdentifier();
         String consoleLine = "wubba lubba dub dub!!!!!";
-        File consoleFile = new File("/some/dir");
         ConsoleTransmission msg = new ConsoleTransmission(null, consoleLine, jobIdentifier);
-        when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(consoleFile);
 
         handler.process(agent, new Message(Action.consoleOut, MessageEncoding.encodeData(msg)));
-        verify(consoleService).consoleLogFile(eq(jobIdentifier));
-        ArgumentCaptor<InputStream> arg = ArgumentCaptor.forClass(InputStream.class);
-        verify(consoleService).updateConsoleLog(eq(consoleFile), arg.capture());
-        assertThat(IOUtils.toString(arg.getValue()), containsString(consoleLine + "\n"));
+        ArgumentCaptor<byte[]> arg = ArgumentCaptor.forClass(byte[].class);
+        verify(consoleLogSink).append(eq(jobIdentifier), arg.capture());
+        assertThat(new String(arg.getValue()), containsString(consoleLine + "\n"));
     }
 
     @Test
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.websocket.MessageEncoding;
+import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
+import org.eclipse.jetty.websocket.servlet.ServletUpgradeResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class AgentRemoteSocketCreatorTest {
+    private SystemEnvironment systemEnvironment;
+    private ServletUpgradeRequest request;
+    private ServletUpgradeResponse response;
+    private AgentRemoteSocketCreator creator;
+
+    @BeforeEach
+    void setUp() {
+        systemEnvironment = mock(SystemEnvironment.class);
+        request = mock(ServletUpgradeRequest.class);
+        response = mock(ServletUpgradeResponse.class);
+        creator = new AgentRemoteSocketCreator(mock(AgentRemoteHandler.class), systemEnvironment);
+    }
+
+    @Test
+    void shouldAcceptBinaryMessagesWhenTheAgentAsksForThem() {
+        when(systemEnvironment.isWebsocketBinaryMessagesEnabled()).thenReturn(true);
+        when(request.getSubProtocols()).thenReturn(singletonList(MessageEncoding.BINARY_SUB_PROTOCOL));
+
+        AgentRemoteSocket socket = (AgentRemoteSocket) creator.createWebSocket(request, response);
+
+        verify(response).setAcceptedSubProtocol(MessageEncoding.BINARY_SUB_PROTOCOL);
+        assertThat(socket).isNotNull();
+    }
+
+    @Test
+    void shouldFallBackToGzippedJsonMessagesWhenTheAgentDoesNotAskForBinaryOnes() {
+        when(systemEnvironment.isWebsocketBinaryMessagesEnabled()).thenReturn(true);
+        when(request.getSubProtocols()).thenReturn(emptyList());
+
+        creator.createWebSocket(request, response);
+
+        verify(response, never()).setAcceptedSubProtocol(anyString());
+    }
+
+    @Test
+    void shouldNotAcceptBinaryMessagesWhenTheyAreDisabled() {
+        when(request.getSubProtocols()).thenReturn(singletonList(MessageEncoding.BINARY_SUB_PROTOCOL));
+
+        creator.createWebSocket(request, response);
+
+        verify(response, never()).setAcceptedSubProtocol(anyString());
+    }
+}
@@ -20,14 +20,21 @@ import com.thoughtworks.go.domain.ConsoleConsumer;
 import com.thoughtworks.go.domain.ConsoleStreamer;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.domain.JobInstance;
+import com.thoughtworks.go.domain.JobState;
 import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.domain.ConsoleLogListener;
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.JobStatusMessage;
+import com.thoughtworks.go.server.messaging.JobStatusTopic;
 import com.thoughtworks.go.server.service.ConsoleService;
+import com.thoughtworks.go.server.service.JobInstanceService;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -35,6 +42,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.zip.GZIPInputStream;
 
@@ -53,7 +63,7 @@ public class ConsoleLogSenderTest {
     private SocketHealthService socketHealthService;
     private JobInstanceDao jobInstanceDao;
     private SystemEnvironment systemEnvironment;
-
+    private ScheduledExecutorService executor;
 
     @Before
     public void setUp() throws Exception {
@@ -64,8 +74,18 @@ public class ConsoleLogSenderTest {
         when(socket.isOpen()).thenReturn(true);
         systemEnvironment = mock(SystemEnvironment.class);
         when(systemEnvironment.consoleLogCharsetAsCharset()).thenReturn(UTF_8);
-        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, socketHealthService, systemEnvironment);
+        executor = mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(executor).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(executor).execute(any(Runnable.class));
+        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, socketHealthService, systemEnvironment, mock(JobStatusTopic.class), mock(JobInstanceService.class), executor);
         jobIdentifier = mock(JobIdentifier.class);
+        when(jobIdentifier.getBuildId()).thenReturn(42L);
         jobInstance = mock(JobInstance.class);
     }
 
@@ -107,16 +127,21 @@ public class ConsoleLogSenderTest {
         File fakeFile = mock(File.class);
         when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(fakeFile);
 
-        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false).thenReturn(true);
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
         when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
 
         when(consoleService.getStreamer(anyLong(), eq(jobIdentifier))).
                 thenReturn(new FakeConsoleStreamer("First Output", "Second Output"));
 
         consoleLogSender.process(socket, jobIdentifier, 0L);
-
         verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("First Output\n".getBytes(UTF_8))));
+
+        consoleLogSender.consoleLogUpdated(jobIdentifier);
         verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("Second Output\n".getBytes(UTF_8))));
+        verify(socket, never()).close();
+
+        consoleLogSender.jobCompleted(jobIdentifier);
+        verify(socket).close();
     }
 
     @Test
@@ -124,34 +149,127 @@ public class ConsoleLogSenderTest {
         File fakeFile = mock(File.class);
         when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(fakeFile);
 
-        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false).thenReturn(true);
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
         when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
 
         when(consoleService.getStreamer(0L, jobIdentifier))
                 .thenReturn(new FakeConsoleStreamer("First Output", "Second Output"));
-        when(consoleService.getStreamer(1L, jobIdentifier))
+        when(consoleService.getStreamer(2L, jobIdentifier))
                 .thenReturn(new FakeConsoleStreamer("More Output"));
 
         consoleLogSender.process(socket, jobIdentifier, 0L);
+        consoleLogSender.consoleLogUpdated(jobIdentifier);
+        consoleLogSender.jobCompleted(jobIdentifier);
 
         verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("First Output\n".getBytes(UTF_8))));
         verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("Second Output\n".getBytes(UTF_8))));
         verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("More Output\n".getBytes(UTF_8))));
+        verify(socket).close();
     }
 
     @Test
-    public void shouldNotSendMessagesWhenOutputHasNotAdvanced() throws Exception {
+    public void shouldCloseSocketIfJobCompletedWhileSubscribing() throws Exception {
         File console = makeConsoleFile("First Output");
         when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false).thenReturn(true);
         when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
+        when(consoleService.getStreamer(anyLong(), eq(jobIdentifier))).
+                thenAnswer(invocation -> new ConsoleStreamer(console.toPath(), invocation.getArgument(0)));
+
+        consoleLogSender.process(socket, jobIdentifier, 0L);
 
+        verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("First Output\n".getBytes(UTF_8))));
+        verify(socket).close();
+    }
+
+    @Test
+    public void shouldNotQueryJobStatusWhileTailingRunningBuild() throws Exception {
+        File console = makeConsoleFile("First Output\n");
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
+        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
         when(consoleService.getStreamer(anyLong(), eq(jobIdentifier))).
-                thenReturn(new ConsoleStreamer(console.toPath(), 0L));
+                thenAnswer(invocation -> new ConsoleStreamer(console.toPath(), invocation.getArgument(0)));
 
         consoleLogSender.process(socket, jobIdentifier, 0L);
+        for (int i = 0; i < 5; i++) {
+            Files.write(console.toPath(), ("Line " + i + "\n").getBytes(UTF_8), StandardOpenOption.APPEND);
+            consoleLogSender.consoleLogUpdated(jobIdentifier);
+        }
+
+        verify(jobInstanceDao, times(2)).isJobCompleted(jobIdentifier);
+        verify(socket, times(6)).send(any(ByteBuffer.class));
+        verify(socket, never()).close();
+    }
+
+    @Test
+    public void shouldFanOutNewContentToEverySubscriberOfAJob() throws Exception {
+        File console = makeConsoleFile("First Output\n");
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
+        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
+        when(consoleService.getStreamer(anyLong(), eq(jobIdentifier))).
+                thenAnswer(invocation -> new ConsoleStreamer(console.toPath(), invocation.getArgument(0)));
+
+        SocketEndpoint anotherSocket = mock(SocketEndpoint.class);
+        when(anotherSocket.isOpen()).thenReturn(true);
 
-        verify(jobInstanceDao, times(3)).isJobCompleted(jobIdentifier);
-        verify(socket, times(1)).send(anyObject());
+        consoleLogSender.process(socket, jobIdentifier, 0L);
+        consoleLogSender.process(anotherSocket, jobIdentifier, 0L);
+
+        Files.write(console.toPath(), "Second Output\n".getBytes(UTF_8), StandardOpenOption.APPEND);
+        consoleLogSender.consoleLogUpdated(jobIdentifier);
+
+        for (SocketEndpoint endpoint : new SocketEndpoint[]{socket, anotherSocket}) {
+            verify(endpoint).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("First Output\n".getBytes(UTF_8))));
+            verify(endpoint).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("Second Output\n".getBytes(UTF_8))));
+        }
+        // one streamer tails the log for all subscribers; the other only catches the late subscriber up
+        verify(consoleService, times(2)).getStreamer(anyLong(), eq(jobIdentifier));
+    }
+
+    @Test
+    public void shouldSendALineThatIsStillBeingWrittenOnlyOnceItIsComplete() throws Exception {
+        File console = makeConsoleFile("First Output\nSecond");
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
+        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
+        when(consoleService.getStreamer(anyLong(), eq(jobIdentifier))).
+                thenAnswer(invocation -> new ConsoleStreamer(console.toPath(), invocation.getArgument(0)));
+
+        consoleLogSender.process(socket, jobIdentifier, 0L);
+        verify(socket).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("First Output\n".getBytes(UTF_8))));
+
+        Files.write(console.toPath(), " Output\nThird".getBytes(UTF_8), StandardOpenOption.APPEND);
+        consoleLogSender.consoleLogUpdated(jobIdentifier);
+        verify(socket).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("Second Output\n".getBytes(UTF_8))));
+
+        consoleLogSender.jobCompleted(jobIdentifier);
+        verify(socket).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("Third\n".getBytes(UTF_8))));
+        verify(socket, times(3)).send(any(ByteBuffer.class));
+        verify(socket).close();
+    }
+
+    @Test
+    public void shouldFollowConsoleUpdatesAndJobCompletionOnceInitialized() throws Exception {
+        JobStatusTopic jobStatusTopic = mock(JobStatusTopic.class);
+        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, socketHealthService, systemEnvironment, jobStatusTopic, mock(JobInstanceService.class), executor);
+        File console = makeConsoleFile("First Output\n");
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
+        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
+        when(consoleService.getStreamer(anyLong(), eq(jobIdentifier))).
+                thenAnswer(invocation -> new ConsoleStreamer(console.toPath(), invocation.getArgument(0)));
+
+        consoleLogSender.initialize();
+        ArgumentCaptor<ConsoleLogListener> consoleListener = ArgumentCaptor.forClass(ConsoleLogListener.class);
+        verify(consoleService).addListener(consoleListener.capture());
+        ArgumentCaptor<GoMessageListener<JobStatusMessage>> jobStatusListener = ArgumentCaptor.forClass(GoMessageListener.class);
+        verify(jobStatusTopic).addListener(jobStatusListener.capture());
+
+        consoleLogSender.process(socket, jobIdentifier, 0L);
+        Files.write(console.toPath(), "Second Output\n".getBytes(UTF_8), StandardOpenOption.APPEND);
+        consoleListener.getValue().consoleLogUpdated(jobIdentifier);
+        verify(socket).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("Second Output\n".getBytes(UTF_8))));
+        verify(socket, never()).close();
+
+        jobStatusListener.getValue().onMessage(new JobStatusMessage(jobIdentifier, JobState.Completed, "agent-uuid"));
+        verify(socket).close();
     }
 
     @Test
@@ -212,12 +330,11 @@ public class ConsoleLogSenderTest {
 
         @Override
         public long stream(Consumer<String> action) throws IOException {
-            // this is necessary for showing no logs has been missed out even after job completion
-            if(mockedLines.length <= count) {
-                return mockedLines.length;
+            if (mockedLines.length <= count) {
+                return 0;
             }
-            action.accept(mockedLines[count]);
-            return ++count;
+            action.accept(mockedLines[count++]);
+            return 1;
         }
 
         @Override
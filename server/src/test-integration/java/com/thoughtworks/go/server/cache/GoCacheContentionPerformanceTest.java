@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.cache;
+
+import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
+import com.thoughtworks.go.util.PerfTimer;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures sub-key puts and removes from many threads, both when every thread works on a family of its own and when
+ * they all share one family. The cache is small enough that puts keep evicting entries, so eviction callbacks run
+ * alongside.
+ */
+@Ignore
+public class GoCacheContentionPerformanceTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoCacheContentionPerformanceTest.class);
+    private static final int OPERATIONS_PER_THREAD = 200000;
+    private static final int SUB_KEYS_PER_FAMILY = 50;
+
+    private CacheManager cacheManager;
+    private GoCache goCache;
+
+    @Before
+    public void setUp() {
+        cacheManager = CacheManager.newInstance(new Configuration().name(getClass().getName()));
+        Cache cache = new Cache(new CacheConfiguration(getClass().getName(), 10000).memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU));
+        cacheManager.addCache(cache);
+        goCache = new GoCache(cache, mock(TransactionSynchronizationManager.class));
+    }
+
+    @After
+    public void tearDown() {
+        cacheManager.shutdown();
+    }
+
+    @Test
+    public void shouldReportThroughputAgainstThreadCount() throws Exception {
+        for (int threads : new int[]{1, 2, 4, 8, 16}) {
+            long distinctFamilies = run(threads, false);
+            long sharedFamily = run(threads, true);
+            LOGGER.info("{} threads: {} ops/s with a family per thread, {} ops/s with one shared family", threads,
+                    throughput(threads, distinctFamilies), throughput(threads, sharedFamily));
+        }
+    }
+
+    private long run(int threadCount, boolean shareFamily) throws InterruptedException {
+        goCache.clear();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            String family = shareFamily ? "family" : "family-" + i;
+            String prefix = "thread-" + i + "-";
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                    String subKey = prefix + (j % SUB_KEYS_PER_FAMILY);
+                    if (j % 4 == 3) {
+                        goCache.remove(family, subKey);
+                    } else {
+                        goCache.put(family, subKey, j);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        PerfTimer timer = PerfTimer.start(threadCount + " threads, " + (shareFamily ? "shared family" : "family per thread"));
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        timer.stop();
+        return Math.max(timer.elapsed(), 1);
+    }
+
+    private static long throughput(int threads, long elapsedMillis) {
+        return (long) threads * OPERATIONS_PER_THREAD * 1000 / elapsedMillis;
+    }
+}
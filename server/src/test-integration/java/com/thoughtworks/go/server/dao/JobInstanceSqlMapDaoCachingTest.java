@@ -34,6 +34,7 @@ import java.util.*;
 import static com.thoughtworks.go.util.IBatisUtil.arguments;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -53,11 +54,13 @@ public class JobInstanceSqlMapDaoCachingTest {
     @Before
     public void setup() {
         mockTemplate = mock(SqlMapClientTemplate.class);
+        jobInstanceDao.clearScheduledJobs();
     }
 
     @After
     public void tearDown() {
         goCache.clear();
+        jobInstanceDao.clearScheduledJobs();
     }
 
     @Test
@@ -95,7 +98,7 @@ public class JobInstanceSqlMapDaoCachingTest {
     }
 
     @Test
-    public void orderedScheduledBuilds_shouldNotCacheJobPlanWhichIsNoLongerScheduled() {
+    public void orderedScheduledBuilds_shouldNotQueueJobPlanWhichIsNoLongerScheduled() {
         when(mockTemplate.queryForList(eq("scheduledPlanIds"))).thenReturn(Arrays.asList(1L, 2L));
 
         final DefaultJobPlan firstJob = jobPlan(1);
@@ -116,7 +119,7 @@ public class JobInstanceSqlMapDaoCachingTest {
     }
 
     @Test
-    public void orderedScheduledBuilds_shouldCacheJobPlan() {
+    public void orderedScheduledBuilds_shouldLoadScheduledJobsOnlyOnce() {
         when(mockTemplate.queryForList(eq("scheduledPlanIds"))).thenReturn(Arrays.asList(1L, 2L));
 
         final DefaultJobPlan firstJob = jobPlan(1);
@@ -129,38 +132,77 @@ public class JobInstanceSqlMapDaoCachingTest {
         when(mockTemplate.queryForObject("scheduledPlan", arguments("id", 2L).asMap())).thenReturn(secondJob);
 
         jobInstanceDao.setSqlMapClientTemplate(mockTemplate);
-        jobInstanceDao.orderedScheduledBuilds();
+        List<JobPlan> firstRead = jobInstanceDao.orderedScheduledBuilds();
 
         List<JobPlan> plans = jobInstanceDao.orderedScheduledBuilds();
 
         assertThat(plans, is(expectedPlans));
+        assertThat(plans == firstRead, is(true));
 
         verify(mockTemplate, times(2)).queryForObject(eq("scheduledPlan"), any());
-        verify(mockTemplate, times(2)).queryForList(eq("scheduledPlanIds"));
+        verify(mockTemplate, times(1)).queryForList(eq("scheduledPlanIds"));
     }
 
     @Test
-    public void updateStatus_shouldRemoveCachedJobPlan() {
+    public void orderedScheduledBuilds_shouldHandOutJobPlansThatCannotBeChanged() {
+        when(mockTemplate.queryForList(eq("scheduledPlanIds"))).thenReturn(Arrays.asList(1L));
+        when(mockTemplate.queryForObject("scheduledPlan", arguments("id", 1L).asMap())).thenReturn(jobPlan(1));
+        jobInstanceDao.setSqlMapClientTemplate(mockTemplate);
+
+        JobPlan plan = jobInstanceDao.orderedScheduledBuilds().get(0);
+
+        try {
+            plan.setFetchMaterials(false);
+            fail("should not allow a scheduled job plan to be changed");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void updateStatus_shouldRemoveJobFromTheScheduledJobs() {
+        when(mockTemplate.queryForList(eq("scheduledPlanIds"))).thenReturn(Arrays.asList(1L));
+        when(mockTemplate.queryForObject("scheduledPlan", arguments("id", 1L).asMap())).thenReturn(jobPlan(1));
+
+        jobInstanceDao.setSqlMapClientTemplate(mockTemplate);
+        jobInstanceDao.orderedScheduledBuilds();//populate the queue
+
+        JobInstance instance = instance(1);
+        instance.changeState(JobState.Assigned);
+        jobInstanceDao.updateStateAndResult(instance);
+
+        List<JobPlan> plans = jobInstanceDao.orderedScheduledBuilds();
+
+        assertThat(plans.isEmpty(), is(true));
+
+        verify(mockTemplate, times(1)).queryForObject("scheduledPlan", arguments("id", 1L).asMap());
+        verify(mockTemplate, times(1)).queryForList(eq("scheduledPlanIds"));
+    }
+
+    @Test
+    public void updateStatus_shouldAddNewlyScheduledJobToTheScheduledJobs() {
         when(mockTemplate.queryForList(eq("scheduledPlanIds"))).thenReturn(Arrays.asList(1L));
 
         final DefaultJobPlan firstJob = jobPlan(1);
+        final DefaultJobPlan secondJob = jobPlan(2);
         List<JobPlan> expectedPlans = new ArrayList<JobPlan>() {{
             add(firstJob);
+            add(secondJob);
         }};
         when(mockTemplate.queryForObject("scheduledPlan", arguments("id", 1L).asMap())).thenReturn(firstJob);
+        when(mockTemplate.queryForObject("scheduledPlan", arguments("id", 2L).asMap())).thenReturn(secondJob);
 
         jobInstanceDao.setSqlMapClientTemplate(mockTemplate);
-        jobInstanceDao.orderedScheduledBuilds();//populate the cache
+        jobInstanceDao.orderedScheduledBuilds();//populate the queue
 
-        JobInstance instance = instance(1);
-        jobInstanceDao.updateStateAndResult(instance);
+        jobInstanceDao.updateStateAndResult(instance(2));
 
         List<JobPlan> plans = jobInstanceDao.orderedScheduledBuilds();
 
         assertThat(plans, is(expectedPlans));
 
-        verify(mockTemplate, times(2)).queryForObject("scheduledPlan", arguments("id", 1L).asMap());//because the cache is cleared
-        verify(mockTemplate, times(2)).queryForList(eq("scheduledPlanIds"));
+        verify(mockTemplate, times(1)).queryForObject("scheduledPlan", arguments("id", 1L).asMap());
+        verify(mockTemplate, times(1)).queryForObject("scheduledPlan", arguments("id", 2L).asMap());
+        verify(mockTemplate, times(1)).queryForList(eq("scheduledPlanIds"));
     }
 
     private JobInstance instance(long id) {
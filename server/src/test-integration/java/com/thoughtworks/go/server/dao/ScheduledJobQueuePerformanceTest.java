@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.dao;
+
+import com.thoughtworks.go.domain.JobPlan;
+import com.thoughtworks.go.util.PerfTimer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Measures what each build assignment tick pays to find out which jobs are scheduled, as the number of scheduled jobs
+ * grows. A tick that has to go to the database (what every tick used to do) is compared with a tick served from the
+ * scheduled job queue.
+ */
+@Ignore
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {
+        "classpath:WEB-INF/applicationContext-global.xml",
+        "classpath:WEB-INF/applicationContext-dataLocalAccess.xml",
+        "classpath:testPropertyConfigurer.xml",
+        "classpath:WEB-INF/spring-all-servlet.xml",
+})
+public class ScheduledJobQueuePerformanceTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduledJobQueuePerformanceTest.class);
+    private static final int JOBS_PER_PIPELINE = 100;
+    private static final int TICKS = 20;
+
+    @Autowired
+    private DatabaseAccessHelper dbHelper;
+    @Autowired
+    private JobInstanceSqlMapDao jobInstanceDao;
+
+    @Before
+    public void setUp() throws Exception {
+        dbHelper.onSetUp();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dbHelper.onTearDown();
+    }
+
+    @Test
+    public void shouldReportTickCostAgainstQueueDepth() throws Exception {
+        int scheduled = 0;
+        for (int depth : new int[]{100, 1000, 5000}) {
+            for (; scheduled < depth; scheduled += JOBS_PER_PIPELINE) {
+                dbHelper.saveTestPipeline("pipeline-" + scheduled, "stage", jobNames());
+            }
+
+            long fromDatabase = 0;
+            for (int i = 0; i < TICKS; i++) {
+                jobInstanceDao.clearScheduledJobs();
+                PerfTimer timer = PerfTimer.start("Reading " + depth + " scheduled jobs from the database");
+                assertThat(jobInstanceDao.orderedScheduledBuilds().size(), is(depth));
+                fromDatabase += timer.elapsed();
+            }
+
+            List<JobPlan> warm = jobInstanceDao.orderedScheduledBuilds();
+            long fromQueue = 0;
+            for (int i = 0; i < TICKS; i++) {
+                PerfTimer timer = PerfTimer.start("Reading " + depth + " scheduled jobs from the queue");
+                assertThat(jobInstanceDao.orderedScheduledBuilds() == warm, is(true));
+                fromQueue += timer.elapsed();
+            }
+
+            LOGGER.info("Queue depth {}: {}ms per tick from the database, {}ms per tick from the queue", depth,
+                    (double) fromDatabase / TICKS, (double) fromQueue / TICKS);
+        }
+    }
+
+    private static String[] jobNames() {
+        String[] jobNames = new String[JOBS_PER_PIPELINE];
+        for (int i = 0; i < JOBS_PER_PIPELINE; i++) {
+            jobNames[i] = "job-" + i;
+        }
+        return jobNames;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.go.server.messaging;
+
+import com.thoughtworks.go.server.messaging.activemq.ActiveMqMessagingService;
+import com.thoughtworks.go.server.messaging.inmemory.InMemoryMessagingService;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Compares the embedded ActiveMQ broker with the in-memory messaging service: how many messages a topic with a few
+ * listeners and a queue with competing listeners get through per second, and how long a message waits between being
+ * posted and being handled.
+ */
+@Ignore
+public class MessagingServicePerformanceTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessagingServicePerformanceTest.class);
+    private static final int MESSAGES = 100000;
+    private static final int LISTENERS = 4;
+
+    @Test
+    public void shouldReportThroughputAndLatencyOfActiveMq() throws Exception {
+        report("ActiveMQ", new ActiveMqMessagingService(new DaemonThreadStatsCollector(), new SystemEnvironment(), new ServerHealthService()));
+    }
+
+    @Test
+    public void shouldReportThroughputAndLatencyOfTheInMemoryMessagingService() throws Exception {
+        report("In-memory", new InMemoryMessagingService(new DaemonThreadStatsCollector(), new SystemEnvironment()));
+    }
+
+    private void report(String name, MessagingService messaging) throws Exception {
+        try {
+            GoMessageTopic<TimedMessage> topic = new GoMessageTopic<>(messaging, "perf-topic");
+            Run topicRun = new Run(MESSAGES * LISTENERS);
+            for (int i = 0; i < LISTENERS; i++) {
+                topic.addListener(topicRun);
+            }
+            topicRun.postAll(topic);
+
+            GoMessageQueue<TimedMessage> queue = new GoMessageQueue<>(messaging, "perf-queue");
+            Run queueRun = new Run(MESSAGES);
+            for (int i = 0; i < LISTENERS; i++) {
+                queue.addListener(queueRun);
+            }
+            queueRun.postAll(queue);
+
+            LOGGER.info("{} topic with {} listeners: {} messages/s, latency {}", name, LISTENERS, topicRun.throughput(), topicRun.latency());
+            LOGGER.info("{} queue with {} listeners: {} messages/s, latency {}", name, LISTENERS, queueRun.throughput(), queueRun.latency());
+        } finally {
+            messaging.stop();
+        }
+    }
+
+    private static class TimedMessage implements GoMessage {
+        private final long postedAt = System.nanoTime();
+    }
+
+    private static class Run implements GoMessageListener<TimedMessage> {
+        private final CountDownLatch handled;
+        private final long[] latencies;
+        private int handledCount;
+        private long elapsedNanos;
+
+        private Run(int expected) {
+            this.handled = new CountDownLatch(expected);
+            this.latencies = new long[expected];
+        }
+
+        private void postAll(GoMessageChannel<TimedMessage> channel) throws InterruptedException {
+            long start = System.nanoTime();
+            for (int i = 0; i < MESSAGES; i++) {
+                channel.post(new TimedMessage());
+            }
+            assertThat(handled.await(5, TimeUnit.MINUTES), is(true));
+            elapsedNanos = System.nanoTime() - start;
+        }
+
+        @Override
+        public void onMessage(TimedMessage message) {
+            long latency = System.nanoTime() - message.postedAt;
+            synchronized (this) {
+                latencies[handledCount++] = latency;
+            }
+            handled.countDown();
+        }
+
+        private long throughput() {
+            return (long) latencies.length * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        private synchronized String latency() {
+            long[] sorted = Arrays.copyOf(latencies, handledCount);
+            Arrays.sort(sorted);
+            return String.format("p50 %dus, p99 %dus, max %dus", micros(sorted, 0.5), micros(sorted, 0.99), micros(sorted, 1));
+        }
+
+        private static long micros(long[] sorted, double percentile) {
+            int index = Math.min(sorted.length - 1, (int) (sorted.length * percentile));
+            return TimeUnit.NANOSECONDS.toMicros(sorted[index]);
+        }
+    }
+}
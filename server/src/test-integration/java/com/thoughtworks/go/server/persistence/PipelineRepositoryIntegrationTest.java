@@ -245,6 +245,19 @@ public class PipelineRepositoryIntegrationTest {
         modsAfterReboot.update();
     }
 
+    @Test
+    public void shouldTellWhetherTheDatabaseHasAGivenRunOfAPipeline() {
+        HgMaterial hgmaterial = MaterialsMother.hgMaterial();
+        PipelineConfig pipelineConfig = createPipelineConfig(PIPELINE_NAME, "stage", "job");
+        pipelineConfig.setMaterialConfigs(new MaterialConfigs(hgmaterial.config()));
+        long id = createPipeline(hgmaterial, pipelineConfig, 3, oneModifiedFile("1", new DateTime().toDate()));
+
+        assertThat(pipelineRepository.hasPipelineInstance(id, PIPELINE_NAME.toUpperCase(), 3), is(true));
+        assertThat(pipelineRepository.hasPipelineInstance(id, PIPELINE_NAME, 2), is(false));
+        assertThat(pipelineRepository.hasPipelineInstance(id, "another-pipeline", 3), is(false));
+        assertThat(pipelineRepository.hasPipelineInstance(id + 1, PIPELINE_NAME, 3), is(false));
+    }
+
     @Test
     public void shouldReturnEarliestPMRForMultipleMaterial() {
         final HgMaterial hgmaterial = MaterialsMother.hgMaterial("first");
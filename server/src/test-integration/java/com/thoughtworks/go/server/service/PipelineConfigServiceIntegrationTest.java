@@ -42,7 +42,6 @@ import com.thoughtworks.go.server.service.result.HttpLocalizedOperationResult;
 import com.thoughtworks.go.serverhealth.HealthStateScope;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.service.ConfigRepository;
-import com.thoughtworks.go.util.CachedDigestUtils;
 import com.thoughtworks.go.util.GoConfigFileHelper;
 import com.thoughtworks.go.util.GoConstants;
 import com.thoughtworks.go.util.SystemEnvironment;
@@ -484,8 +483,7 @@ public class PipelineConfigServiceIntegrationTest {
         job.addTask(fetchTask);
         StageConfig stage = new StageConfig(new CaseInsensitiveString("default-stage"), new JobConfigs(job));
 
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
 
         pipelineConfig.add(stage);
         pipelineConfig.addParam(new ParamConfig("foo", "."));
@@ -502,8 +500,7 @@ public class PipelineConfigServiceIntegrationTest {
     public void shouldUpdatePipelineConfig() throws GitAPIException {
         GoConfigHolder goConfigHolderBeforeUpdate = goConfigDao.loadConfigHolder();
 
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
         pipelineConfig.add(new StageConfig(new CaseInsensitiveString("additional_stage"), new JobConfigs(new JobConfig(new CaseInsensitiveString("addtn_job")))));
 
         pipelineConfigService.updatePipelineConfig(user, pipelineConfig, md5, result);
@@ -521,8 +518,7 @@ public class PipelineConfigServiceIntegrationTest {
     @Test
     public void shouldNotUpdatePipelineConfigInCaseOfValidationErrors() throws GitAPIException {
         GoConfigHolder goConfigHolder = goConfigDao.loadConfigHolder();
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
 
         pipelineConfig.setLabelTemplate("LABEL");
         pipelineConfigService.updatePipelineConfig(user, pipelineConfig, md5, result);
@@ -541,8 +537,7 @@ public class PipelineConfigServiceIntegrationTest {
         saveTemplateWithParamToConfig(templateName);
 
         GoConfigHolder goConfigHolder = goConfigDao.loadConfigHolder();
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
         pipelineConfig.clear();
         pipelineConfig.setTemplateName(templateName);
         pipelineConfigService.updatePipelineConfig(user, pipelineConfig, md5, result);
@@ -560,8 +555,7 @@ public class PipelineConfigServiceIntegrationTest {
         saveTemplateWithParamToConfig(templateName);
 
         GoConfigHolder goConfigHolder = goConfigDao.loadConfigHolder();
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
         pipelineConfig.clear();
         pipelineConfig.setTemplateName(templateName);
         pipelineConfig.addStageWithoutValidityAssertion(StageConfigMother.stageConfig("local-stage"));
@@ -597,8 +591,7 @@ public class PipelineConfigServiceIntegrationTest {
         String scmid = "scmid";
         saveScmMaterialToConfig(scmid);
         PluggableSCMMaterialConfig scmMaterialConfig = new PluggableSCMMaterialConfig(scmid);
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
 
         pipelineConfig.materialConfigs().add(scmMaterialConfig);
         pipelineConfigService.updatePipelineConfig(user, pipelineConfig, md5, result);
@@ -617,8 +610,7 @@ public class PipelineConfigServiceIntegrationTest {
         String packageid = "packageid";
         saveScmMaterialToConfig(packageid);
         PackageMaterialConfig packageMaterialConfig = new PackageMaterialConfig(packageid);
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
         pipelineConfig.materialConfigs().add(packageMaterialConfig);
         pipelineConfigService.updatePipelineConfig(user, pipelineConfig, md5, result);
 
@@ -709,8 +701,7 @@ public class PipelineConfigServiceIntegrationTest {
         final boolean[] listenerInvoked = {false};
         setupPipelineWithTemplate(pipelineName, templateName);
         PipelineConfig pipelineConfig1 = goConfigService.pipelineConfigNamed(new CaseInsensitiveString(pipelineName));
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig1);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig1);
         EntityConfigChangedListener<PipelineConfig> pipelineConfigChangedListener = new EntityConfigChangedListener<PipelineConfig>() {
             @Override
             public void onConfigChange(CruiseConfig newCruiseConfig) {
@@ -770,8 +761,7 @@ public class PipelineConfigServiceIntegrationTest {
     @Test
     public void shouldValidateMergedConfigForConfigChanges() throws Exception {
         assertThat(goConfigService.getCurrentConfig().getAllPipelineNames().contains(new CaseInsensitiveString(remoteDownstreamPipelineName)), is(true));
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
 
         pipelineConfig.getFirstStageConfig().setName(new CaseInsensitiveString("upstream_stage_renamed"));
 
@@ -792,8 +782,7 @@ public class PipelineConfigServiceIntegrationTest {
         assertThat(goConfigService.getCurrentConfig().getAllPipelineNames().contains(new CaseInsensitiveString(remoteInvalidPipeline)), is(false));
         assertThat(goConfigService.getCurrentConfig().getAllPipelineNames().contains(new CaseInsensitiveString(remoteDownstreamPipelineName)), is(true));
 
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
 
         pipelineConfig.getFirstStageConfig().getJobs().first().addTask(new ExecTask("executable", new Arguments(new Argument("foo")), "working"));
         pipelineConfigService.updatePipelineConfig(user, pipelineConfig, md5, result);
@@ -814,8 +803,7 @@ public class PipelineConfigServiceIntegrationTest {
         DependencyMaterialConfig dependencyMaterialForRemotePipelineInConfigCache = goConfigService.getCurrentConfig().getPipelineConfigByName(remoteDownstreamPipeline.name()).materialConfigs().findDependencyMaterial(pipelineConfig.name());
         assertThat(dependencyMaterialForRemotePipelineInConfigCache.getStageName(), is(new CaseInsensitiveString("stage")));
 
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
 
         pipelineConfig.setVariables(new EnvironmentVariablesConfig(asList(new EnvironmentVariableConfig("key", "value"))));
         pipelineConfigService.updatePipelineConfig(user, pipelineConfig, md5, result);
@@ -838,8 +826,7 @@ public class PipelineConfigServiceIntegrationTest {
         DependencyMaterialConfig dependencyMaterialForRemotePipelineInConfigCache = goConfigService.getCurrentConfig().getPipelineConfigByName(remoteDownstreamPipeline.name()).materialConfigs().findDependencyMaterial(pipelineConfig.name());
         assertThat(dependencyMaterialForRemotePipelineInConfigCache.getStageName(), is(new CaseInsensitiveString("stage")));
 
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
 
         pipelineConfig.getFirstStageConfig().setName(new CaseInsensitiveString("new_name"));
         pipelineConfigService.updatePipelineConfig(user, pipelineConfig, md5, result);
@@ -876,8 +863,7 @@ public class PipelineConfigServiceIntegrationTest {
         assertThat(serverHealthService.filterByScope(HealthStateScope.forPartialConfigRepo(repoConfig1)).get(0).getDescription(), is("Number of errors: 1+\n1. Invalid stage name ''. This must be alphanumeric and can contain underscores and periods (however, it cannot start with a period). The maximum allowed length is 255 characters.;; \n- For Config Repo: url at repo1_r2"));
         assertThat(serverHealthService.filterByScope(HealthStateScope.forPartialConfigRepo(repoConfig2)).isEmpty(), is(true));
 
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
         pipelineConfig.setVariables(new EnvironmentVariablesConfig(asList(new EnvironmentVariableConfig("key", "value"))));
         pipelineConfigService.updatePipelineConfig(user, pipelineConfig, md5, result);
 
@@ -916,8 +902,7 @@ public class PipelineConfigServiceIntegrationTest {
         assertThat(serverHealthService.filterByScope(HealthStateScope.forPartialConfigRepo(repoConfig1)).get(0).getDescription(), is(String.format("Number of errors: 1+\n1. Stage with name 'upstream_stage_renamed' does not exist on pipeline '%s', it is being referred to from pipeline 'remote-downstream' (url at repo1_r2);; \n- For Config Repo: url at repo1_r2", pipelineConfig.name())));
         assertThat(serverHealthService.filterByScope(HealthStateScope.forPartialConfigRepo(repoConfig2)).isEmpty(), is(true));
 
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
         pipelineConfig.getFirstStageConfig().setName(new CaseInsensitiveString("upstream_stage_renamed"));
         pipelineConfigService.updatePipelineConfig(user, pipelineConfig, md5, result);
 
@@ -970,8 +955,7 @@ public class PipelineConfigServiceIntegrationTest {
         assertThat(serverHealthService.filterByScope(HealthStateScope.forPartialConfigRepo(repoConfig2)).get(0).getMessage(), is("Invalid Merged Configuration"));
         assertThat(serverHealthService.filterByScope(HealthStateScope.forPartialConfigRepo(repoConfig2)).get(0).getDescription(), is("Number of errors: 1+\n1. Invalid stage name ''. This must be alphanumeric and can contain underscores and periods (however, it cannot start with a period). The maximum allowed length is 255 characters.;; \n- For Config Repo: url2 at repo2_r2"));
 
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
 
         pipelineConfig.getFirstStageConfig().setName(new CaseInsensitiveString("upstream_stage_renamed"));
         pipelineConfigService.updatePipelineConfig(user, pipelineConfig, md5, result);
@@ -1024,8 +1008,7 @@ public class PipelineConfigServiceIntegrationTest {
         assertThat(serverHealthService.filterByScope(HealthStateScope.forPartialConfigRepo(repoConfig1)).get(0).getDescription(), is(String.format("Number of errors: 1+\n1. Stage with name 'upstream_stage_renamed' does not exist on pipeline '%s', it is being referred to from pipeline 'remote-downstream' (url at repo1_r2);; \n- For Config Repo: url at repo1_r2", pipelineConfig.name())));
         assertThat(serverHealthService.filterByScope(HealthStateScope.forPartialConfigRepo(repoConfig2)).isEmpty(), is(true));
 
-        String xml = new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig);
-        String md5 = CachedDigestUtils.md5Hex(xml);
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
 
         pipelineConfig.getFirstStageConfig().setName(new CaseInsensitiveString("new_name"));
         pipelineConfigService.updatePipelineConfig(user, pipelineConfig, md5, result);
@@ -1064,7 +1047,7 @@ public class PipelineConfigServiceIntegrationTest {
         assertThat(goConfigService.getConfigForEditing().getAllPipelineNames().contains(remoteDownstreamPipeline.name()), is(false));
         assertThat(goConfigService.getMergedConfigForEditing().getAllPipelineNames().contains(remoteDownstreamPipeline.name()), is(true));
 
-        String md5 = CachedDigestUtils.md5Hex(new MagicalGoConfigXmlWriter(configCache, registry).toXmlPartial(pipelineConfig));
+        String md5 = new ConfigFingerprinter(configCache).md5(pipelineConfig);
         pipelineConfig.setVariables(new EnvironmentVariablesConfig(asList(new EnvironmentVariableConfig("key", "value"))));
         pipelineConfigService.updatePipelineConfig(user, pipelineConfig, md5, result);
 
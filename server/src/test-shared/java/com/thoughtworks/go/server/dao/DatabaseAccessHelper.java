@@ -197,6 +197,7 @@ public class DatabaseAccessHelper extends HibernateDaoSupport {
     public void onSetUp() throws Exception {
         databaseTester.onSetup();
         pipelineTimeline.clearWhichIsEvilAndShouldNotBeUsedInRealWorld();
+        clearScheduledJobs();
         if (sqlMapClient != null) {
             for (Cache cache : sqlMapClient.getConfiguration().getCaches()) {
                 cache.clear();
@@ -207,6 +208,13 @@ public class DatabaseAccessHelper extends HibernateDaoSupport {
     public void onTearDown() throws Exception {
         databaseTester.onTearDown();
         goCache.clear();
+        clearScheduledJobs();
+    }
+
+    private void clearScheduledJobs() {
+        if (jobInstanceDao instanceof JobInstanceSqlMapDao) {
+            ((JobInstanceSqlMapDao) jobInstanceDao).clearScheduledJobs();
+        }
     }
 
     public TransactionTemplate txTemplate() {
@@ -27,11 +27,14 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Collection;
 import java.util.Date;
 import java.util.TimeZone;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class JsonOutputWriter {
     public static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
@@ -343,6 +346,22 @@ public class JsonOutputWriter {
                 });
                 return this;
             }
+
+            @Override
+            public JsonOutputListWriter addChild(BiFunction<String, Supplier<String>, String> renderedFragments, String key, Consumer<OutputWriter> consumer) {
+                String baseUrl = requestContext == null ? "" : requestContext.urlFor("");
+                String fragment = renderedFragments.apply(baseUrl + " " + key, () -> render(consumer));
+                parentWriter.withExceptionHandling((jacksonWriter) -> jacksonWriter.writeRawValue(fragment));
+                return this;
+            }
+
+            private String render(Consumer<OutputWriter> consumer) {
+                StringWriter fragment = new StringWriter(1024);
+                try (JsonOutputWriterUsingJackson fragmentWriter = new JsonOutputWriterUsingJackson(fragment, requestContext)) {
+                    fragmentWriter.forTopLevelObject(consumer);
+                }
+                return fragment.toString();
+            }
         }
 
 
@@ -16,10 +16,19 @@
 
 package com.thoughtworks.go.api.base;
 
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public interface OutputListWriter {
     OutputListWriter value(String value);
 
     OutputListWriter addChild(Consumer<OutputWriter> consumer);
+
+    /**
+     * Adds a child that is rendered once and then copied as is. {@code renderedFragments} is asked for the child under
+     * {@code key} (extended with the base URL of the request, which links depend on) and given a way to render it with
+     * {@code consumer} when it has not got it yet.
+     */
+    OutputListWriter addChild(BiFunction<String, Supplier<String>, String> renderedFragments, String key, Consumer<OutputWriter> consumer);
 }
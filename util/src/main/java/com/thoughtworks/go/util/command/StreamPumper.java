@@ -17,27 +17,42 @@ package com.thoughtworks.go.util.command;
 
 import com.thoughtworks.go.util.Clock;
 import com.thoughtworks.go.util.SystemTimeClock;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.LineIterator;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 import static java.lang.String.format;
 
+/**
+ * Reads the lines of a stream, usually the output of a process, and hands them to a {@link StreamConsumer}.
+ * <p>
+ * Streams are pumped on a shared pool of threads, which are reused from one command to the next. Reading a process
+ * pipe blocks, so a stream holds a thread until it ends, and the pool is not bounded: a process that fills one of its
+ * pipes stops until that pipe is read. Each pool thread reuses its read buffer and line builder across streams.
+ */
 public class StreamPumper implements Runnable {
+    private static final ExecutorService PUMPS = Executors.newCachedThreadPool(
+            new BasicThreadFactory.Builder().namingPattern("stream-pumper-%d").daemon(true).build());
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_RETAINED_LINE_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<char[]> BUFFERS = ThreadLocal.withInitial(() -> new char[BUFFER_SIZE]);
+    private static final ThreadLocal<StringBuilder> LINES = ThreadLocal.withInitial(StringBuilder::new);
 
     private Reader in;
 
-    private boolean completed;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
     private final StreamConsumer streamConsumer;
     private final String prefix;
-    private long lastHeard;
+    private volatile long lastHeard;
     private final Clock clock;
 
     private StreamPumper(InputStream in, StreamConsumer streamConsumer, String prefix, String encoding) {
@@ -56,14 +71,42 @@ public class StreamPumper implements Runnable {
         }
     }
 
+    /**
+     * Splits lines the way {@link java.io.BufferedReader#readLine()} does, on a line feed, a carriage return or both.
+     */
     public void run() {
-        try (LineIterator lineIterator = IOUtils.lineIterator(in)) {
-            while (lineIterator.hasNext()) {
-                consumeLine(lineIterator.nextLine());
+        char[] buffer = BUFFERS.get();
+        StringBuilder line = LINES.get();
+        line.setLength(0);
+        boolean skipLineFeed = false;
+        try (Reader reader = in) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if (c == '\n' && skipLineFeed) {
+                        start = i + 1;
+                    } else if (c == '\n' || c == '\r') {
+                        consumeLine(line.append(buffer, start, i - start).toString());
+                        line.setLength(0);
+                        start = i + 1;
+                    }
+                    skipLineFeed = c == '\r';
+                }
+                line.append(buffer, start, read - start);
+            }
+            if (line.length() > 0) {
+                consumeLine(line.toString());
             }
         } catch (Exception ignore) {
         } finally {
-            completed = true;
+            if (line.capacity() > MAX_RETAINED_LINE_CAPACITY) {
+                LINES.remove();
+            } else {
+                line.setLength(0);
+            }
+            completion.complete(null);
         }
     }
 
@@ -80,17 +123,12 @@ public class StreamPumper implements Runnable {
 
 
     public void readToEnd() {
-        while (!completed) {
-            try {
-                clock.sleepForMillis(100);
-            } catch (InterruptedException ignored) {
-            }
-        }
+        completion.join();
     }
 
     public static StreamPumper pump(InputStream stream, StreamConsumer streamConsumer, String prefix, String encoding) {
         StreamPumper pumper = new StreamPumper(stream, streamConsumer, prefix, encoding);
-        new Thread(pumper).start();
+        PUMPS.execute(pumper);
         return pumper;
     }
 
@@ -100,7 +138,7 @@ public class StreamPumper implements Runnable {
     }
 
     public boolean didTimeout(long duration, TimeUnit unit) {
-        if (completed) { return false; }
+        if (completion.isDone()) { return false; }
         return timeSinceLastLine(unit) > duration;
     }
 
@@ -21,14 +21,18 @@ import com.thoughtworks.go.util.TestingClock;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertThat;
 
 public class StreamPumperTest {
@@ -84,6 +88,47 @@ public class StreamPumperTest {
         assertThat(pumper.didTimeout(1L, TimeUnit.SECONDS), is(false));
     }
 
+    @Test
+    public void shouldSplitLinesOnLineFeedsCarriageReturnsOrBoth() {
+        TestConsumer consumer = new TestConsumer();
+        StreamPumper pumper = new StreamPumper(new ByteArrayInputStream("one\r\ntwo\rthree\n\nfour\r\r\nfive".getBytes()), consumer, "", "utf-8", new SystemTimeClock());
+
+        pumper.run();
+
+        assertThat(consumer.lines, is(Arrays.asList("one", "two", "three", "", "four", "", "five")));
+    }
+
+    @Test
+    public void shouldSplitLinesThatArriveInPieces() {
+        TestConsumer consumer = new TestConsumer();
+        InputStream oneByteAtATime = new FilterInputStream(new ByteArrayInputStream("one\r\ntwo\r\n".getBytes())) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+        StreamPumper pumper = new StreamPumper(oneByteAtATime, consumer, "", "utf-8", new SystemTimeClock());
+
+        pumper.run();
+
+        assertThat(consumer.lines, is(Arrays.asList("one", "two")));
+    }
+
+    @Test
+    public void shouldPumpOnPooledThreadsAndHaveConsumedEverythingOnceReadToEndReturns() {
+        List<String> threads = new ArrayList<>();
+        List<String> lines = new ArrayList<>();
+        StreamPumper pumper = StreamPumper.pump(new ByteArrayInputStream("line1\nline2".getBytes()), line -> {
+            threads.add(Thread.currentThread().getName());
+            lines.add(line);
+        }, "", "utf-8");
+
+        pumper.readToEnd();
+
+        assertThat(lines, is(Arrays.asList("line1", "line2")));
+        assertThat(threads.get(0), startsWith("stream-pumper-"));
+    }
+
     /**
      * Used by the test to track whether a line actually got consumed or not.
      */